@@ -0,0 +1,262 @@
+/**
+ * Copyright (C) 2013 - 2021 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.algorithm;
+
+/**
+ * Constant velocity Kalman filter that fuses GPS fixes and speed measurements into a smoothed
+ * position and velocity.
+ * <p>
+ * The state is the position (east, north) in metres in a local plane around a reference point,
+ * and the velocity in m/s. Position fixes are weighted by their accuracy. Speed measurements,
+ * e.g. from the OBD adapter, correct the magnitude of the velocity; a speed close to zero
+ * holds the position, so the GPS noise of a stopped car does not add up to a distance.
+ * <p>
+ * Updates have to be passed in time order and do not create any objects. Not thread safe.
+ */
+public class KalmanPositionFilter {
+
+    private static final double EARTH_RADIUS = 6371008.8;
+    // the variance of the velocity before it has been observed, in (m/s)²
+    private static final double INITIAL_VELOCITY_VARIANCE = 100;
+    // the standard deviation of the acceleration of a car, in m/s²
+    private static final double ACCELERATION_NOISE = 2.0;
+    // below this speed in m/s the car is considered to stand still
+    private static final double STANDSTILL_SPEED = 0.3;
+    private static final double STANDSTILL_NOISE = 0.05;
+    // below this estimated speed in m/s the direction of travel is unknown
+    private static final double MIN_DIRECTION_SPEED = 0.5;
+    // the filter is restarted after a gap in the position fixes longer than this
+    private static final long MAX_GAP = 30000;
+    // the reference point is moved if the position is further away, in m
+    private static final double MAX_OFFSET = 10000;
+
+    private static final int X = 0;
+    private static final int Y = 1;
+    private static final int VX = 2;
+    private static final int VY = 3;
+
+    private final double[] state = new double[4];
+    // row major 4x4
+    private final double[] covariance = new double[16];
+    private final double[] gain = new double[4];
+
+    private boolean initialized;
+    private long time;
+    private long lastFixTime;
+    private double referenceLatitude;
+    private double referenceLongitude;
+    private double metersPerDegreeLatitude;
+    private double metersPerDegreeLongitude;
+
+    public void reset() {
+        initialized = false;
+    }
+
+    public boolean isInitialized() {
+        return initialized;
+    }
+
+    /**
+     * @return the time of the latest update
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * @param timestamp the time of the fix
+     * @param latitude  the latitude
+     * @param longitude the longitude
+     * @param accuracy  the standard deviation of the position in m
+     */
+    public void updatePosition(long timestamp, double latitude, double longitude,
+                               double accuracy) {
+        if (initialized && timestamp < time) {
+            return;
+        }
+
+        double variance = accuracy * accuracy;
+        if (!initialized || timestamp - lastFixTime > MAX_GAP) {
+            initialize(timestamp, latitude, longitude, variance);
+            return;
+        }
+
+        predict(timestamp);
+        update(X, (longitude - referenceLongitude) * metersPerDegreeLongitude, variance);
+        update(Y, (latitude - referenceLatitude) * metersPerDegreeLatitude, variance);
+        lastFixTime = timestamp;
+
+        if (Math.abs(state[X]) > MAX_OFFSET || Math.abs(state[Y]) > MAX_OFFSET) {
+            setReference(getLatitude(timestamp), getLongitude(timestamp));
+            state[X] = 0;
+            state[Y] = 0;
+        }
+    }
+
+    /**
+     * @param timestamp the time of the measurement
+     * @param speed     the speed in m/s
+     * @param deviation the standard deviation of the speed in m/s
+     */
+    public void updateSpeed(long timestamp, double speed, double deviation) {
+        if (!initialized || timestamp < time || Double.isNaN(speed)) {
+            return;
+        }
+
+        predict(timestamp);
+        if (speed < STANDSTILL_SPEED) {
+            double variance = STANDSTILL_NOISE * STANDSTILL_NOISE;
+            update(VX, 0, variance);
+            update(VY, 0, variance);
+            return;
+        }
+
+        double estimate = getSpeed();
+        if (estimate < MIN_DIRECTION_SPEED) {
+            return;
+        }
+
+        // linearised around the current velocity
+        update(0, 0, state[VX] / estimate, state[VY] / estimate, speed, estimate,
+                deviation * deviation);
+    }
+
+    /**
+     * @return the estimated latitude at the given time, extrapolated from the latest update
+     */
+    public double getLatitude(long timestamp) {
+        double y = state[Y] + state[VY] * (timestamp - time) / 1000.0;
+        return referenceLatitude + y / metersPerDegreeLatitude;
+    }
+
+    /**
+     * @return the estimated longitude at the given time, extrapolated from the latest update
+     */
+    public double getLongitude(long timestamp) {
+        double x = state[X] + state[VX] * (timestamp - time) / 1000.0;
+        return referenceLongitude + x / metersPerDegreeLongitude;
+    }
+
+    /**
+     * @return the estimated speed in m/s
+     */
+    public double getSpeed() {
+        return Math.hypot(state[VX], state[VY]);
+    }
+
+    private void initialize(long timestamp, double latitude, double longitude,
+                            double variance) {
+        setReference(latitude, longitude);
+        for (int i = 0; i < 4; i++) {
+            state[i] = 0;
+        }
+        for (int i = 0; i < 16; i++) {
+            covariance[i] = 0;
+        }
+        covariance[X * 4 + X] = variance;
+        covariance[Y * 4 + Y] = variance;
+        covariance[VX * 4 + VX] = INITIAL_VELOCITY_VARIANCE;
+        covariance[VY * 4 + VY] = INITIAL_VELOCITY_VARIANCE;
+
+        time = timestamp;
+        lastFixTime = timestamp;
+        initialized = true;
+    }
+
+    private void setReference(double latitude, double longitude) {
+        referenceLatitude = latitude;
+        referenceLongitude = longitude;
+        metersPerDegreeLatitude = Math.toRadians(EARTH_RADIUS);
+        metersPerDegreeLongitude = metersPerDegreeLatitude * Math.cos(Math.toRadians(latitude));
+    }
+
+    /**
+     * advances the state to the given time
+     */
+    private void predict(long timestamp) {
+        double dt = (timestamp - time) / 1000.0;
+        time = timestamp;
+        if (dt <= 0) {
+            return;
+        }
+
+        state[X] += state[VX] * dt;
+        state[Y] += state[VY] * dt;
+
+        // P = F P F^T, the rows and then the columns of the positions gain dt times velocity
+        for (int c = 0; c < 4; c++) {
+            covariance[X * 4 + c] += dt * covariance[VX * 4 + c];
+            covariance[Y * 4 + c] += dt * covariance[VY * 4 + c];
+        }
+        for (int r = 0; r < 4; r++) {
+            covariance[r * 4 + X] += dt * covariance[r * 4 + VX];
+            covariance[r * 4 + Y] += dt * covariance[r * 4 + VY];
+        }
+
+        // + Q of a random acceleration
+        double q = ACCELERATION_NOISE * ACCELERATION_NOISE;
+        double dt2 = dt * dt;
+        covariance[X * 4 + X] += q * dt2 * dt2 / 4;
+        covariance[Y * 4 + Y] += q * dt2 * dt2 / 4;
+        covariance[X * 4 + VX] += q * dt2 * dt / 2;
+        covariance[VX * 4 + X] += q * dt2 * dt / 2;
+        covariance[Y * 4 + VY] += q * dt2 * dt / 2;
+        covariance[VY * 4 + Y] += q * dt2 * dt / 2;
+        covariance[VX * 4 + VX] += q * dt2;
+        covariance[VY * 4 + VY] += q * dt2;
+    }
+
+    /**
+     * measurement of a single state variable
+     */
+    private void update(int index, double measurement, double variance) {
+        update(index == X ? 1 : 0, index == Y ? 1 : 0, index == VX ? 1 : 0,
+                index == VY ? 1 : 0, measurement, state[index], variance);
+    }
+
+    /**
+     * Scalar update with the measurement row h.
+     *
+     * @param expected the measurement expected from the current state
+     */
+    private void update(double h0, double h1, double h2, double h3, double measurement,
+                        double expected, double variance) {
+        // P h^T
+        for (int r = 0; r < 4; r++) {
+            gain[r] = covariance[r * 4] * h0 + covariance[r * 4 + 1] * h1
+                    + covariance[r * 4 + 2] * h2 + covariance[r * 4 + 3] * h3;
+        }
+        double innovationVariance = h0 * gain[0] + h1 * gain[1] + h2 * gain[2] + h3 * gain[3]
+                + variance;
+        if (innovationVariance <= 0) {
+            return;
+        }
+
+        double innovation = measurement - expected;
+        for (int r = 0; r < 4; r++) {
+            state[r] += gain[r] * innovation / innovationVariance;
+        }
+        // P = P - (P h^T)(P h^T)^T / S
+        for (int r = 0; r < 4; r++) {
+            for (int c = 0; c < 4; c++) {
+                covariance[r * 4 + c] -= gain[r] * gain[c] / innovationVariance;
+            }
+        }
+    }
+}
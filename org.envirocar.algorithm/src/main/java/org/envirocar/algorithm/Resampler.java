@@ -0,0 +1,54 @@
+/**
+ * Copyright (C) 2013 - 2021 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.algorithm;
+
+/**
+ * Derives the value of a sampling interval from the samples of a sensor.
+ * <p>
+ * The window contains the samples of the interval and may contain samples before and after it,
+ * e.g. the latest sample of the previous interval.
+ */
+public interface Resampler {
+
+    /**
+     * The cost of a call to {@link #resample} depending on the number of samples n in the
+     * window.
+     */
+    enum Cost {
+        /**
+         * O(log n), a binary search for the samples around a point in time
+         */
+        LOGARITHMIC,
+        /**
+         * O(n), every sample of the interval is visited
+         */
+        LINEAR
+    }
+
+    /**
+     * @param samples the samples
+     * @param channel the channel of the samples to use
+     * @param start   the start of the interval, inclusive
+     * @param end     the end of the interval, exclusive
+     * @return the value of the interval, NaN if there is none
+     */
+    double resample(SampleWindow samples, int channel, long start, long end);
+
+    Cost getCost();
+}
@@ -0,0 +1,61 @@
+/**
+ * Copyright (C) 2013 - 2021 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.algorithm;
+
+import org.envirocar.core.entity.Measurement;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Chooses the {@link Resampler} for each {@link Measurement.PropertyKey}.
+ */
+public class ResamplingPolicy {
+
+    private final Resampler defaultResampler;
+    private final Map<Measurement.PropertyKey, Resampler> resamplers =
+            new EnumMap<>(Measurement.PropertyKey.class);
+
+    /**
+     * @param defaultResampler the resampler of all keys without an own one
+     */
+    public ResamplingPolicy(Resampler defaultResampler) {
+        this.defaultResampler = defaultResampler;
+    }
+
+    /**
+     * @return the policy used by default: linear interpolation, and zero-order hold for the
+     * fuel system status
+     */
+    public static ResamplingPolicy createDefault() {
+        return new ResamplingPolicy(new LinearResampler())
+                .set(Measurement.PropertyKey.FUEL_SYSTEM_STATUS_CODE,
+                        new ZeroOrderHoldResampler());
+    }
+
+    public ResamplingPolicy set(Measurement.PropertyKey key, Resampler resampler) {
+        resamplers.put(key, resampler);
+        return this;
+    }
+
+    public Resampler get(Measurement.PropertyKey key) {
+        Resampler resampler = resamplers.get(key);
+        return resampler != null ? resampler : defaultResampler;
+    }
+}
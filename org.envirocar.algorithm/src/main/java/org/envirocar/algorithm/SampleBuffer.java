@@ -0,0 +1,149 @@
+/**
+ * Copyright (C) 2013 - 2021 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.algorithm;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded buffer of timestamped samples of one or more double values, e.g. a sensor value or
+ * a position (latitude, longitude). One thread adds samples, another one drains them into a
+ * {@link SampleWindow}. Neither blocks and no objects are created per sample.
+ * <p>
+ * When the buffer is full, new samples are dropped until the reader has drained it.
+ */
+public class SampleBuffer {
+
+    private final long[] timestamps;
+    private final double[] values;
+    private final int channels;
+    private final int mask;
+
+    // only advanced by the writer
+    private final AtomicLong writeIndex = new AtomicLong();
+    // only advanced by the reader
+    private final AtomicLong readIndex = new AtomicLong();
+    private volatile long droppedCount;
+
+    /**
+     * @param capacity the capacity, rounded up to the next power of two
+     * @param channels the number of values per sample
+     */
+    public SampleBuffer(int capacity, int channels) {
+        if (capacity < 1 || channels < 1) {
+            throw new IllegalArgumentException("capacity and channels must be positive");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.timestamps = new long[size];
+        this.values = new double[size * channels];
+        this.channels = channels;
+        this.mask = size - 1;
+    }
+
+    /**
+     * Writer side: adds a sample of a single channel buffer.
+     *
+     * @return false if the buffer is full and the sample has been dropped
+     */
+    public boolean add(long timestamp, double value) {
+        long w = writeIndex.get();
+        if (w - readIndex.get() > mask) {
+            droppedCount++;
+            return false;
+        }
+
+        int slot = (int) w & mask;
+        timestamps[slot] = timestamp;
+        values[slot * channels] = value;
+        writeIndex.lazySet(w + 1);
+        return true;
+    }
+
+    /**
+     * Writer side: adds a sample of a two channel buffer.
+     *
+     * @return false if the buffer is full and the sample has been dropped
+     */
+    public boolean add(long timestamp, double first, double second) {
+        long w = writeIndex.get();
+        if (w - readIndex.get() > mask) {
+            droppedCount++;
+            return false;
+        }
+
+        int slot = (int) w & mask;
+        timestamps[slot] = timestamp;
+        values[slot * channels] = first;
+        values[slot * channels + 1] = second;
+        writeIndex.lazySet(w + 1);
+        return true;
+    }
+
+    /**
+     * Writer side: adds a sample of a three channel buffer.
+     *
+     * @return false if the buffer is full and the sample has been dropped
+     */
+    public boolean add(long timestamp, double first, double second, double third) {
+        long w = writeIndex.get();
+        if (w - readIndex.get() > mask) {
+            droppedCount++;
+            return false;
+        }
+
+        int slot = (int) w & mask;
+        timestamps[slot] = timestamp;
+        values[slot * channels] = first;
+        values[slot * channels + 1] = second;
+        values[slot * channels + 2] = third;
+        writeIndex.lazySet(w + 1);
+        return true;
+    }
+
+    /**
+     * Reader side: appends all available samples to the window.
+     *
+     * @return the number of samples drained
+     */
+    public int drainTo(SampleWindow window) {
+        long r = readIndex.get();
+        long w = writeIndex.get();
+
+        for (long i = r; i < w; i++) {
+            int slot = (int) i & mask;
+            window.add(timestamps[slot], values, slot * channels);
+        }
+
+        readIndex.lazySet(w);
+        return (int) (w - r);
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    /**
+     * @return the number of samples dropped because the buffer was full
+     */
+    public long getDroppedCount() {
+        return droppedCount;
+    }
+}
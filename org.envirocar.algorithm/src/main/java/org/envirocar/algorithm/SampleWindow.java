@@ -0,0 +1,204 @@
+/**
+ * Copyright (C) 2013 - 2021 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.algorithm;
+
+import java.util.Arrays;
+
+/**
+ * Growable, time ordered sequence of samples in primitive arrays, owned by a single thread.
+ * The values of sample i are stored at i * channels ... i * channels + channels - 1.
+ * <p>
+ * Samples are kept sorted by timestamp, so lookups by time use binary search. Samples that
+ * arrive out of order are inserted at their position.
+ */
+public class SampleWindow {
+
+    private final int channels;
+    private long[] timestamps;
+    private double[] values;
+    private int size;
+
+    public SampleWindow(int channels) {
+        this(channels, 16);
+    }
+
+    public SampleWindow(int channels, int initialCapacity) {
+        this.channels = channels;
+        this.timestamps = new long[initialCapacity];
+        this.values = new double[initialCapacity * channels];
+    }
+
+    public void add(long timestamp, double value) {
+        int index = insertionIndex(timestamp);
+        timestamps[index] = timestamp;
+        values[index * channels] = value;
+    }
+
+    /**
+     * adds a sample with the values taken from source, starting at offset
+     */
+    public void add(long timestamp, double[] source, int offset) {
+        int index = insertionIndex(timestamp);
+        timestamps[index] = timestamp;
+        System.arraycopy(source, offset, values, index * channels, channels);
+    }
+
+    /**
+     * makes room for a sample with the given timestamp and returns its index
+     */
+    private int insertionIndex(long timestamp) {
+        ensureCapacity(size + 1);
+        if (size == 0 || timestamps[size - 1] <= timestamp) {
+            return size++;
+        }
+
+        int index = floorIndex(timestamp) + 1;
+        System.arraycopy(timestamps, index, timestamps, index + 1, size - index);
+        System.arraycopy(values, index * channels, values, (index + 1) * channels,
+                (size - index) * channels);
+        size++;
+        return index;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > timestamps.length) {
+            int newCapacity = Math.max(capacity, timestamps.length * 2);
+            timestamps = Arrays.copyOf(timestamps, newCapacity);
+            values = Arrays.copyOf(values, newCapacity * channels);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Removes all samples except the latest one. It is the left neighbour of the samples that
+     * are added afterwards, so that values in between can be interpolated.
+     */
+    public void retainLast() {
+        if (size > 1) {
+            timestamps[0] = timestamps[size - 1];
+            System.arraycopy(values, (size - 1) * channels, values, 0, channels);
+            size = 1;
+        }
+    }
+
+    /**
+     * @return the index of the last sample with a timestamp not after the given one, -1 if
+     * there is none
+     */
+    public int floorIndex(long timestamp) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps[mid] <= timestamp) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high;
+    }
+
+    /**
+     * Linearly interpolates a channel at the given time between the enclosing samples. Outside
+     * of the window the value of the first or last sample is used.
+     *
+     * @return the interpolated value, NaN if the window is empty
+     */
+    public double interpolate(long timestamp, int channel) {
+        if (size == 0) {
+            return Double.NaN;
+        }
+
+        int start = floorIndex(timestamp);
+        if (start < 0) {
+            return getValue(0, channel);
+        } else if (start == size - 1) {
+            return getValue(start, channel);
+        }
+
+        return interpolateTwo(getValue(start, channel), getValue(start + 1, channel),
+                timestamp, timestamps[start], timestamps[start + 1]);
+    }
+
+    /**
+     * @param start           the start value, NaN if missing
+     * @param end             the end value, NaN if missing
+     * @param targetTimestamp the target timestamp used for interpolation
+     * @param startTimestamp  the timestamp of the start
+     * @param endTimestamp    the timestamp of the end
+     * @return the interpolated value, or the value that is present if the other one is missing
+     */
+    public static double interpolateTwo(double start, double end, long targetTimestamp,
+                                        long startTimestamp, long endTimestamp) {
+        if (Double.isNaN(start)) {
+            return end;
+        } else if (Double.isNaN(end) || endTimestamp == startTimestamp) {
+            return start;
+        }
+
+        double duration = (double) (endTimestamp - startTimestamp);
+
+        double endWeight = (targetTimestamp - startTimestamp) / duration;
+        double startWeight = (endTimestamp - targetTimestamp) / duration;
+
+        return start * startWeight + end * endWeight;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    public long getTimestamp(int index) {
+        return timestamps[index];
+    }
+
+    public double getValue(int index) {
+        return values[index * channels];
+    }
+
+    public double getValue(int index, int channel) {
+        return values[index * channels + channel];
+    }
+
+    /**
+     * @return the backing array of the timestamps, valid for the first {@link #size()} entries
+     */
+    public long[] getTimestamps() {
+        return timestamps;
+    }
+
+    /**
+     * @return the backing array of the values, valid for the first {@link #size()} samples
+     */
+    public double[] getValues() {
+        return values;
+    }
+}
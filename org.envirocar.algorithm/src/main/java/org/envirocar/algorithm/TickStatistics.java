@@ -0,0 +1,85 @@
+/**
+ * Copyright (C) 2013 - 2021 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.algorithm;
+
+/**
+ * Statistics of a periodic clock: how late the ticks fire compared to their deadlines.
+ * A deadline is missed if the tick fires when the next one is already due. Written by the
+ * thread of the clock only.
+ */
+public class TickStatistics {
+
+    private final long period;
+
+    private volatile long tickCount;
+    private volatile long missedDeadlines;
+    private volatile long jitterSum;
+    private volatile long maxJitter;
+
+    /**
+     * @param period the period of the clock in milliseconds
+     */
+    public TickStatistics(long period) {
+        this.period = period;
+    }
+
+    /**
+     * @param deadline the time the tick was due
+     * @param now      the time the tick fired
+     */
+    public void record(long deadline, long now) {
+        long jitter = Math.abs(now - deadline);
+        tickCount++;
+        jitterSum += jitter;
+        maxJitter = Math.max(maxJitter, jitter);
+        if (now - deadline >= period) {
+            missedDeadlines++;
+        }
+    }
+
+    public long getTickCount() {
+        return tickCount;
+    }
+
+    public long getMissedDeadlines() {
+        return missedDeadlines;
+    }
+
+    /**
+     * @return the mean deviation of the ticks from their deadlines in milliseconds
+     */
+    public long getMeanJitter() {
+        long count = tickCount;
+        return count == 0 ? 0 : jitterSum / count;
+    }
+
+    /**
+     * @return the maximum deviation of a tick from its deadline in milliseconds
+     */
+    public long getMaxJitter() {
+        return maxJitter;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d ticks every %d ms: mean jitter %d ms, max %d ms, "
+                + "%d missed deadlines", tickCount, period, getMeanJitter(), maxJitter,
+                missedDeadlines);
+    }
+}
@@ -0,0 +1,68 @@
+/**
+ * Copyright (C) 2013 - 2021 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.algorithm;
+
+/**
+ * The mean of the linearly interpolated signal over the interval, i.e. its integral divided by
+ * the duration of the interval. Irregular sampling does not bias the result, which makes it
+ * suited to rates that are integrated over time, such as the mass air flow or the
+ * consumption.
+ */
+public class TimeWeightedMeanResampler implements Resampler {
+
+    @Override
+    public double resample(SampleWindow samples, int channel, long start, long end) {
+        if (end <= start) {
+            return samples.interpolate(start, channel);
+        }
+
+        double previousValue = samples.interpolate(start, channel);
+        if (Double.isNaN(previousValue)) {
+            return Double.NaN;
+        }
+        long previousTimestamp = start;
+        double area = 0;
+
+        for (int i = samples.floorIndex(start) + 1; i < samples.size(); i++) {
+            long timestamp = samples.getTimestamp(i);
+            if (timestamp >= end) {
+                break;
+            }
+
+            double value = samples.getValue(i, channel);
+            if (Double.isNaN(value)) {
+                continue;
+            }
+
+            area += (previousValue + value) / 2 * (timestamp - previousTimestamp);
+            previousValue = value;
+            previousTimestamp = timestamp;
+        }
+
+        double endValue = samples.interpolate(end, channel);
+        area += (previousValue + endValue) / 2 * (end - previousTimestamp);
+
+        return area / (end - start);
+    }
+
+    @Override
+    public Cost getCost() {
+        return Cost.LINEAR;
+    }
+}
@@ -0,0 +1,51 @@
+/**
+ * Copyright (C) 2013 - 2021 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.algorithm;
+
+/**
+ * The arithmetic mean of the samples within the interval. Reduces noise, but weights the
+ * samples by their count rather than by the time they are valid for.
+ */
+public class WindowMeanResampler implements Resampler {
+
+    @Override
+    public double resample(SampleWindow samples, int channel, long start, long end) {
+        double sum = 0;
+        int count = 0;
+
+        for (int i = samples.floorIndex(start - 1) + 1; i < samples.size(); i++) {
+            if (samples.getTimestamp(i) >= end) {
+                break;
+            }
+
+            double value = samples.getValue(i, channel);
+            if (!Double.isNaN(value)) {
+                sum += value;
+                count++;
+            }
+        }
+
+        return count == 0 ? Double.NaN : sum / count;
+    }
+
+    @Override
+    public Cost getCost() {
+        return Cost.LINEAR;
+    }
+}
@@ -0,0 +1,41 @@
+/**
+ * Copyright (C) 2013 - 2021 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.algorithm;
+
+/**
+ * Takes the latest value at the middle of the interval, without interpolation. Suited to
+ * discrete values such as status codes.
+ */
+public class ZeroOrderHoldResampler implements Resampler {
+
+    @Override
+    public double resample(SampleWindow samples, int channel, long start, long end) {
+        if (samples.isEmpty()) {
+            return Double.NaN;
+        }
+
+        int index = samples.floorIndex(start + (end - start) / 2);
+        return samples.getValue(Math.max(index, 0), channel);
+    }
+
+    @Override
+    public Cost getCost() {
+        return Cost.LOGARITHMIC;
+    }
+}
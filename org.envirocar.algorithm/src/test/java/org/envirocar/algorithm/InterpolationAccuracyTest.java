@@ -0,0 +1,135 @@
+/**
+ * Copyright (C) 2013 - 2021 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.algorithm;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Replays synthetic signals through the sampling windows the way the measurement providers do:
+ * every interval the window is drained and the value at the middle of the interval is
+ * interpolated. The results are compared with the true signal.
+ */
+public class InterpolationAccuracyTest {
+
+    private static final long INTERVAL = 1000;
+    private static final int INTERVALS = 2000;
+
+    private interface Signal {
+        double valueAt(long timestamp);
+    }
+
+    private static final Signal RAMP = t -> 0.01 * t;
+    private static final Signal SINE = t -> 50 + 30 * Math.sin(2 * Math.PI * t / 20000.0);
+    private static final Signal STEP = t -> (t / 5000) % 2 == 0 ? 20.0 : 80.0;
+
+    private static final class Error {
+        double sumOfSquares;
+        double max;
+        int count;
+
+        void add(double expected, double actual) {
+            double error = Math.abs(expected - actual);
+            sumOfSquares += error * error;
+            max = Math.max(max, error);
+            count++;
+        }
+
+        double rmse() {
+            return Math.sqrt(sumOfSquares / count);
+        }
+    }
+
+    /**
+     * @param period the mean distance between two samples
+     * @param retain whether the latest sample is kept for the next interval
+     */
+    private static Error replay(Signal signal, long period, boolean retain) {
+        Random random = new Random(42);
+        SampleBuffer buffer = new SampleBuffer(256, 1);
+        SampleWindow window = new SampleWindow(1);
+        Error error = new Error();
+
+        long next = random.nextInt((int) period);
+        for (int i = 0; i < INTERVALS; i++) {
+            long end = (i + 1) * INTERVAL;
+            for (; next < end; next += period / 2 + random.nextInt((int) period)) {
+                buffer.add(next, signal.valueAt(next));
+            }
+
+            int retained = window.size();
+            buffer.drainTo(window);
+            if (window.size() > retained) {
+                long target = end - INTERVAL / 2;
+                error.add(signal.valueAt(target), window.interpolate(target, 0));
+            }
+
+            if (retain && window.size() > retained) {
+                window.retainLast();
+            } else {
+                window.clear();
+            }
+        }
+
+        return error;
+    }
+
+    private static void assertRmse(Error error, double maxRmse) {
+        Assert.assertTrue(String.format("rmse %.4f, max %.4f", error.rmse(), error.max),
+                error.rmse() < maxRmse);
+    }
+
+    private static void assertRetentionImproves(Signal signal, long period) {
+        Error retained = replay(signal, period, true);
+        Error cleared = replay(signal, period, false);
+
+        Assert.assertTrue(String.format("rmse %.4f with, %.4f without retention",
+                retained.rmse(), cleared.rmse()), retained.rmse() < cleared.rmse());
+    }
+
+    @Test
+    public void testRamp() {
+        // dense samples, as from OBD, are always bracketed
+        assertRmse(replay(RAMP, 100, true), 1e-6);
+
+        // sparse samples, as from GPS
+        assertRmse(replay(RAMP, 1000, true), 2.0);
+        assertRetentionImproves(RAMP, 1000);
+    }
+
+    @Test
+    public void testSine() {
+        assertRmse(replay(SINE, 100, true), 0.01);
+
+        assertRmse(replay(SINE, 1000, true), 1.5);
+        assertRetentionImproves(SINE, 1000);
+    }
+
+    @Test
+    public void testStep() {
+        assertRmse(replay(STEP, 100, true), 1e-6);
+
+        // interpolating across a step may be off by the height of the step, but not more
+        Error sparse = replay(STEP, 1000, true);
+        assertRmse(sparse, 10.0);
+        Assert.assertTrue(sparse.max <= 60.0);
+    }
+}
@@ -0,0 +1,134 @@
+/**
+ * Copyright (C) 2013 - 2021 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.algorithm;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class KalmanPositionFilterTest {
+
+    private static final double LATITUDE = 51.96;
+    private static final double LONGITUDE = 7.62;
+    private static final double METERS_PER_DEGREE = Math.toRadians(6371008.8);
+    private static final double GPS_NOISE = 5;
+
+    private static double distance(double lat1, double lon1, double lat2, double lon2) {
+        double dy = (lat2 - lat1) * METERS_PER_DEGREE;
+        double dx = (lon2 - lon1) * METERS_PER_DEGREE * Math.cos(Math.toRadians(lat1));
+        return Math.hypot(dx, dy);
+    }
+
+    @Test
+    public void testStandstillDoesNotAccumulateDistance() {
+        Random random = new Random(42);
+        KalmanPositionFilter filter = new KalmanPositionFilter();
+
+        double rawDistance = 0;
+        double filteredDistance = 0;
+        double lastLat = LATITUDE, lastLon = LONGITUDE;
+        double lastFilteredLat = LATITUDE, lastFilteredLon = LONGITUDE;
+
+        for (long t = 0; t < 300000; t += 1000) {
+            double lat = LATITUDE + random.nextGaussian() * GPS_NOISE / METERS_PER_DEGREE;
+            double lon = LONGITUDE + random.nextGaussian() * GPS_NOISE / METERS_PER_DEGREE
+                    / Math.cos(Math.toRadians(LATITUDE));
+            filter.updatePosition(t, lat, lon, GPS_NOISE);
+            filter.updateSpeed(t + 500, 0, 0.5);
+
+            if (t > 0) {
+                rawDistance += distance(lastLat, lastLon, lat, lon);
+                filteredDistance += distance(lastFilteredLat, lastFilteredLon,
+                        filter.getLatitude(t + 500), filter.getLongitude(t + 500));
+            }
+            lastLat = lat;
+            lastLon = lon;
+            lastFilteredLat = filter.getLatitude(t + 500);
+            lastFilteredLon = filter.getLongitude(t + 500);
+        }
+
+        Assert.assertTrue(String.format("raw %.1f m, filtered %.1f m", rawDistance,
+                filteredDistance), filteredDistance < rawDistance * 0.1);
+        Assert.assertTrue(filter.getSpeed() < 0.1);
+        Assert.assertTrue(distance(LATITUDE, LONGITUDE, filter.getLatitude(300000),
+                filter.getLongitude(300000)) < GPS_NOISE);
+    }
+
+    @Test
+    public void testConstantVelocity() {
+        Random random = new Random(42);
+        KalmanPositionFilter filter = new KalmanPositionFilter();
+        // 15 m/s to the north east
+        double v = 15 / Math.sqrt(2);
+
+        double rawError = 0;
+        double filteredError = 0;
+        int count = 0;
+        for (long t = 0; t <= 120000; t += 1000) {
+            double north = v * t / 1000.0;
+            double east = v * t / 1000.0;
+            double lat = LATITUDE + (north + random.nextGaussian() * GPS_NOISE)
+                    / METERS_PER_DEGREE;
+            double lon = LONGITUDE + (east + random.nextGaussian() * GPS_NOISE)
+                    / METERS_PER_DEGREE / Math.cos(Math.toRadians(LATITUDE));
+            filter.updatePosition(t, lat, lon, GPS_NOISE);
+            filter.updateSpeed(t, 15 + random.nextGaussian() * 0.3, 0.5);
+
+            if (t >= 20000) {
+                double trueLat = LATITUDE + north / METERS_PER_DEGREE;
+                double trueLon = LONGITUDE + east / METERS_PER_DEGREE
+                        / Math.cos(Math.toRadians(LATITUDE));
+                double raw = distance(trueLat, trueLon, lat, lon);
+                double filtered = distance(trueLat, trueLon, filter.getLatitude(t),
+                        filter.getLongitude(t));
+                rawError += raw * raw;
+                filteredError += filtered * filtered;
+                count++;
+            }
+        }
+
+        rawError = Math.sqrt(rawError / count);
+        filteredError = Math.sqrt(filteredError / count);
+        Assert.assertTrue(String.format("raw %.2f m, filtered %.2f m", rawError, filteredError),
+                filteredError < rawError * 0.7);
+        Assert.assertEquals(15, filter.getSpeed(), 0.5);
+    }
+
+    @Test
+    public void testOutOfOrderAndGaps() {
+        KalmanPositionFilter filter = new KalmanPositionFilter();
+        Assert.assertFalse(filter.isInitialized());
+
+        filter.updateSpeed(0, 10, 0.5);
+        Assert.assertFalse(filter.isInitialized());
+
+        filter.updatePosition(1000, LATITUDE, LONGITUDE, 5);
+        Assert.assertTrue(filter.isInitialized());
+
+        // older than the latest update
+        filter.updatePosition(500, LATITUDE + 1, LONGITUDE, 5);
+        Assert.assertEquals(LATITUDE, filter.getLatitude(1000), 1e-9);
+
+        // restarted after a long gap
+        filter.updatePosition(100000, LATITUDE + 1, LONGITUDE, 5);
+        Assert.assertEquals(LATITUDE + 1, filter.getLatitude(100000), 1e-9);
+        Assert.assertEquals(0, filter.getSpeed(), 0.0);
+    }
+}
@@ -0,0 +1,153 @@
+/**
+ * Copyright (C) 2013 - 2021 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.algorithm;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Compares the resamplers on synthetic signals: the accuracy against the true value at the
+ * middle and the true mean of every interval. The assertions check the properties each
+ * resampler is chosen for.
+ * Intervals without a result, e.g. for the window mean of an interval without samples, are
+ * counted as missing.
+ */
+public class ResamplerComparisonTest {
+
+    private static final long INTERVAL = 1000;
+    private static final int INTERVALS = 5000;
+
+    private static final Resampler[] RESAMPLERS = {
+            new ZeroOrderHoldResampler(),
+            new LinearResampler(),
+            new WindowMeanResampler(),
+            new TimeWeightedMeanResampler()
+    };
+
+    private interface Signal {
+        double valueAt(double timestamp);
+    }
+
+    // a slowly varying signal such as the speed
+    private static final Signal SMOOTH = t -> 50 + 30 * Math.sin(2 * Math.PI * t / 20000.0);
+    // a signal that changes within an interval such as the mass air flow
+    private static final Signal FAST = t -> 20 + 15 * Math.sin(2 * Math.PI * t / 1700.0);
+
+    private static final class Result {
+        double pointError;
+        double meanError;
+        int count;
+        int missing;
+    }
+
+    private static double trueMean(Signal signal, long start, long end) {
+        double sum = 0;
+        int steps = 1000;
+        double step = (end - start) / (double) steps;
+        for (int i = 0; i < steps; i++) {
+            sum += signal.valueAt(start + (i + 0.5) * step);
+        }
+        return sum / steps;
+    }
+
+    /**
+     * @return the results per resampler
+     */
+    private static Result[] compare(Signal signal, long period) {
+        Random random = new Random(42);
+        SampleWindow window = new SampleWindow(1);
+        Result[] results = new Result[RESAMPLERS.length];
+        for (int r = 0; r < results.length; r++) {
+            results[r] = new Result();
+        }
+
+        long next = random.nextInt((int) period);
+        for (int i = 0; i < INTERVALS; i++) {
+            long start = i * INTERVAL;
+            long end = start + INTERVAL;
+            // the samples of the interval and the first one after it
+            while (window.isEmpty() || window.getTimestamp(window.size() - 1) < end) {
+                window.add(next, signal.valueAt(next));
+                next += period / 2 + random.nextInt((int) period);
+            }
+            if (i == 0) {
+                continue;
+            }
+
+            double point = signal.valueAt(start + INTERVAL / 2);
+            double mean = trueMean(signal, start, end);
+            for (int r = 0; r < RESAMPLERS.length; r++) {
+                double value = RESAMPLERS[r].resample(window, 0, start, end);
+                if (Double.isNaN(value)) {
+                    results[r].missing++;
+                } else {
+                    results[r].pointError += (value - point) * (value - point);
+                    results[r].meanError += (value - mean) * (value - mean);
+                    results[r].count++;
+                }
+            }
+
+            // keep the samples from the last one of this interval on
+            int last = window.floorIndex(end - 1);
+            SampleWindow remaining = new SampleWindow(1);
+            for (int k = Math.max(last, 0); k < window.size(); k++) {
+                remaining.add(window.getTimestamp(k), window.getValue(k));
+            }
+            window = remaining;
+        }
+
+        for (Result result : results) {
+            result.pointError = Math.sqrt(result.pointError / result.count);
+            result.meanError = Math.sqrt(result.meanError / result.count);
+        }
+        return results;
+    }
+
+    private static String describe(int r, Result result, long period) {
+        return String.format("%s, a sample every %d ms: rmse to point %.4f, to mean %.4f, "
+                        + "%d missing", RESAMPLERS[r].getClass().getSimpleName(), period,
+                result.pointError, result.meanError, result.missing);
+    }
+
+    @Test
+    public void testSmoothSignal() {
+        for (long period : new long[]{100, 1000}) {
+            Result[] results = compare(SMOOTH, period);
+            // interpolation beats holding the last value
+            Assert.assertTrue(describe(1, results[1], period) + " vs. "
+                            + describe(0, results[0], period),
+                    results[1].pointError < results[0].pointError);
+        }
+    }
+
+    @Test
+    public void testFastSignal() {
+        for (long period : new long[]{50, 200}) {
+            Result[] results = compare(FAST, period);
+            // the time weighted mean is the best estimate of the mean of the interval
+            for (int r = 0; r < 3; r++) {
+                Assert.assertTrue(describe(3, results[3], period) + " vs. "
+                                + describe(r, results[r], period),
+                        results[3].meanError < results[r].meanError);
+            }
+        }
+    }
+}
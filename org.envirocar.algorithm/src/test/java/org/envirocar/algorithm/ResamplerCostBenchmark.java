@@ -0,0 +1,91 @@
+/**
+ * Copyright (C) 2013 - 2021 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.algorithm;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Measures how the time per interval of the resamplers grows with the number of samples and
+ * asserts that it matches their declared {@link Resampler.Cost}. Only run with -Pbenchmark.
+ */
+public class ResamplerCostBenchmark {
+
+    // the time per interval of a resampler with linear cost grows about as much as the samples
+    private static final int FEW_SAMPLES = 10;
+    private static final int MANY_SAMPLES = 10000;
+    private static final double MAX_LOGARITHMIC_GROWTH = 30;
+
+    private static final Resampler[] RESAMPLERS = {
+            new ZeroOrderHoldResampler(),
+            new LinearResampler(),
+            new WindowMeanResampler(),
+            new TimeWeightedMeanResampler()
+    };
+
+    /**
+     * @return a window with the given number of samples at an OBD rate of 10 per second in
+     * the interval from 0, with the retained sample before it
+     */
+    private static SampleWindow createWindow(int samples) {
+        SampleWindow window = new SampleWindow(1);
+        for (long t = -100; t < samples * 100L; t += 100) {
+            window.add(t, 20 + 15 * Math.sin(2 * Math.PI * t / 1700.0));
+        }
+        return window;
+    }
+
+    /**
+     * @return the fastest time per interval of three rounds
+     */
+    private static double nanosPerInterval(Resampler resampler, SampleWindow window,
+                                           int calls) {
+        long end = window.getTimestamp(window.size() - 1) + 100;
+        double checksum = 0;
+        long duration = Long.MAX_VALUE;
+        for (int round = 0; round < 3; round++) {
+            long begin = System.nanoTime();
+            for (int i = 0; i < calls; i++) {
+                checksum += resampler.resample(window, 0, 0, end);
+            }
+            duration = Math.min(duration, System.nanoTime() - begin);
+        }
+        Assert.assertFalse(Double.isNaN(checksum));
+        return duration / (double) calls;
+    }
+
+    @Test
+    public void benchmarkCost() {
+        SampleWindow few = createWindow(FEW_SAMPLES);
+        SampleWindow many = createWindow(MANY_SAMPLES);
+
+        for (Resampler resampler : RESAMPLERS) {
+            double growth = nanosPerInterval(resampler, many, 20000)
+                    / nanosPerInterval(resampler, few, 200000);
+            String message = String.format("%s (%s): %.1f times the time per interval for "
+                            + "%d times the samples", resampler.getClass().getSimpleName(),
+                    resampler.getCost(), growth, MANY_SAMPLES / FEW_SAMPLES);
+            if (resampler.getCost() == Resampler.Cost.LOGARITHMIC) {
+                Assert.assertTrue(message, growth < MAX_LOGARITHMIC_GROWTH);
+            } else {
+                Assert.assertTrue(message, growth > MAX_LOGARITHMIC_GROWTH);
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright (C) 2013 - 2021 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.algorithm;
+
+import org.envirocar.core.entity.Measurement;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ResamplerTest {
+
+    private static SampleWindow window(long[] timestamps, double[] values) {
+        SampleWindow window = new SampleWindow(1);
+        for (int i = 0; i < timestamps.length; i++) {
+            window.add(timestamps[i], values[i]);
+        }
+        return window;
+    }
+
+    @Test
+    public void testEmptyWindow() {
+        SampleWindow empty = new SampleWindow(1);
+        for (Resampler resampler : new Resampler[]{new ZeroOrderHoldResampler(),
+                new LinearResampler(), new WindowMeanResampler(),
+                new TimeWeightedMeanResampler()}) {
+            Assert.assertTrue(Double.isNaN(resampler.resample(empty, 0, 0, 1000)));
+        }
+    }
+
+    @Test
+    public void testZeroOrderHold() {
+        SampleWindow samples = window(new long[]{900, 1200, 1600}, new double[]{1, 2, 3});
+        Assert.assertEquals(2.0, new ZeroOrderHoldResampler().resample(samples, 0, 1000, 2000),
+                0.0);
+        Assert.assertEquals(1.0, new ZeroOrderHoldResampler().resample(samples, 0, 0, 1000),
+                0.0);
+    }
+
+    @Test
+    public void testLinear() {
+        SampleWindow samples = window(new long[]{1000, 2000}, new double[]{10, 20});
+        Assert.assertEquals(17.5, new LinearResampler().resample(samples, 0, 1500, 2000), 1e-9);
+    }
+
+    @Test
+    public void testWindowMean() {
+        SampleWindow samples = window(new long[]{900, 1000, 1100, 1900, 2000},
+                new double[]{100, 1, 2, 6, 100});
+        Assert.assertEquals(3.0, new WindowMeanResampler().resample(samples, 0, 1000, 2000),
+                1e-9);
+    }
+
+    @Test
+    public void testTimeWeightedMean() {
+        // 0 from 1000 to 1100, then rising to 10 at 1200 and falling to 0 at 1300
+        SampleWindow samples = window(new long[]{1000, 1100, 1200, 1300},
+                new double[]{0, 0, 10, 0});
+        Assert.assertEquals(1.0, new TimeWeightedMeanResampler().resample(samples, 0, 1000, 2000),
+                1e-9);
+        // the window mean is biased by the bursts of samples
+        Assert.assertEquals(2.5, new WindowMeanResampler().resample(samples, 0, 1000, 2000),
+                1e-9);
+    }
+
+    @Test
+    public void testTimeWeightedMeanSkipsMissingValues() {
+        SampleWindow samples = window(new long[]{1000, 1500, 2000},
+                new double[]{10, Double.NaN, 10});
+        Assert.assertEquals(10.0, new TimeWeightedMeanResampler().resample(samples, 0, 1000,
+                2000), 1e-9);
+    }
+
+    @Test
+    public void testPolicy() {
+        ResamplingPolicy policy = ResamplingPolicy.createDefault();
+        Assert.assertTrue(policy.get(Measurement.PropertyKey.SPEED) instanceof LinearResampler);
+        Assert.assertTrue(policy.get(Measurement.PropertyKey.FUEL_SYSTEM_STATUS_CODE)
+                instanceof ZeroOrderHoldResampler);
+
+        Resampler mean = new TimeWeightedMeanResampler();
+        policy.set(Measurement.PropertyKey.MAF, mean);
+        Assert.assertSame(mean, policy.get(Measurement.PropertyKey.MAF));
+    }
+}
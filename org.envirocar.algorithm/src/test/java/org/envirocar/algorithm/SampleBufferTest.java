@@ -0,0 +1,95 @@
+/**
+ * Copyright (C) 2013 - 2021 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.algorithm;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SampleBufferTest {
+
+    @Test
+    public void testDrainInOrder() {
+        SampleBuffer buffer = new SampleBuffer(4, 1);
+        buffer.add(1000, 1.0);
+        buffer.add(2000, 2.0);
+
+        SampleWindow window = new SampleWindow(1);
+        Assert.assertEquals(2, buffer.drainTo(window));
+        Assert.assertEquals(2, window.size());
+        Assert.assertEquals(1000, window.getTimestamp(0));
+        Assert.assertEquals(2.0, window.getValue(1), 0.0);
+
+        Assert.assertEquals(0, buffer.drainTo(window));
+    }
+
+    @Test
+    public void testDropNewestWhenFull() {
+        SampleBuffer buffer = new SampleBuffer(3, 1);
+        for (int i = 0; i < 6; i++) {
+            buffer.add(i, i);
+        }
+
+        Assert.assertEquals(2, buffer.getDroppedCount());
+
+        SampleWindow window = new SampleWindow(1, 1);
+        buffer.drainTo(window);
+        Assert.assertEquals(4, window.size());
+        Assert.assertEquals(3.0, window.getValue(3), 0.0);
+
+        // space is available again after draining
+        Assert.assertTrue(buffer.add(10, 10.0));
+    }
+
+    @Test
+    public void testTwoChannels() {
+        SampleBuffer buffer = new SampleBuffer(2, 2);
+        buffer.add(1000, 52.0, 7.0);
+        buffer.add(2000, 52.5, 7.25);
+
+        SampleWindow window = new SampleWindow(2);
+        buffer.drainTo(window);
+        Assert.assertEquals(52.5, window.getValue(1, 0), 0.0);
+        Assert.assertEquals(7.25, window.getValue(1, 1), 0.0);
+    }
+
+    @Test
+    public void testConcurrentProducer() throws InterruptedException {
+        final int count = 100000;
+        SampleBuffer buffer = new SampleBuffer(64, 1);
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < count; i++) {
+                while (!buffer.add(i, i)) {
+                    Thread.yield();
+                }
+            }
+        });
+        producer.start();
+
+        SampleWindow window = new SampleWindow(1);
+        while (window.size() < count) {
+            buffer.drainTo(window);
+        }
+        producer.join();
+
+        for (int i = 0; i < count; i++) {
+            Assert.assertEquals(i, window.getTimestamp(i));
+            Assert.assertEquals(i, window.getValue(i), 0.0);
+        }
+    }
+}
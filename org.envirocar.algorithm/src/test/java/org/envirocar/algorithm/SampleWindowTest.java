@@ -0,0 +1,93 @@
+/**
+ * Copyright (C) 2013 - 2021 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.algorithm;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SampleWindowTest {
+
+    @Test
+    public void testFloorIndex() {
+        SampleWindow window = new SampleWindow(1);
+        Assert.assertEquals(-1, window.floorIndex(1000));
+
+        window.add(1000, 1.0);
+        window.add(2000, 2.0);
+        window.add(2000, 2.5);
+        window.add(3000, 3.0);
+
+        Assert.assertEquals(-1, window.floorIndex(999));
+        Assert.assertEquals(0, window.floorIndex(1000));
+        Assert.assertEquals(0, window.floorIndex(1999));
+        Assert.assertEquals(2, window.floorIndex(2000));
+        Assert.assertEquals(3, window.floorIndex(5000));
+    }
+
+    @Test
+    public void testOutOfOrderSamplesAreSorted() {
+        SampleWindow window = new SampleWindow(2, 1);
+        window.add(3000, new double[]{3.0, 30.0}, 0);
+        window.add(1000, new double[]{1.0, 10.0}, 0);
+        window.add(2000, new double[]{2.0, 20.0}, 0);
+
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals((i + 1) * 1000, window.getTimestamp(i));
+            Assert.assertEquals(i + 1, window.getValue(i, 0), 0.0);
+            Assert.assertEquals((i + 1) * 10, window.getValue(i, 1), 0.0);
+        }
+    }
+
+    @Test
+    public void testInterpolate() {
+        SampleWindow window = new SampleWindow(1);
+        Assert.assertTrue(Double.isNaN(window.interpolate(1000, 0)));
+
+        window.add(1000, 52.0);
+        window.add(4000, 95.0);
+
+        Assert.assertEquals(73.5, window.interpolate(2500, 0), 1e-9);
+        Assert.assertEquals(52.0, window.interpolate(500, 0), 0.0);
+        Assert.assertEquals(95.0, window.interpolate(5000, 0), 0.0);
+    }
+
+    @Test
+    public void testInterpolateSkipsMissingValues() {
+        Assert.assertEquals(52.0, SampleWindow.interpolateTwo(52.0, Double.NaN, 2500, 1000, 4000),
+                0.0);
+        Assert.assertEquals(95.0, SampleWindow.interpolateTwo(Double.NaN, 95.0, 2500, 1000, 4000),
+                0.0);
+        Assert.assertEquals(52.0, SampleWindow.interpolateTwo(52.0, 95.0, 1000, 1000, 1000), 0.0);
+    }
+
+    @Test
+    public void testRetainLast() {
+        SampleWindow window = new SampleWindow(2);
+        window.add(1000, new double[]{52.0, 7.0}, 0);
+        window.add(2000, new double[]{52.5, 7.25}, 0);
+        window.retainLast();
+
+        Assert.assertEquals(1, window.size());
+        Assert.assertEquals(2000, window.getTimestamp(0));
+        Assert.assertEquals(7.25, window.getValue(0, 1), 0.0);
+
+        window.add(3000, new double[]{53.0, 7.5}, 0);
+        Assert.assertEquals(52.75, window.interpolate(2500, 0), 1e-9);
+    }
+}
@@ -0,0 +1,41 @@
+/**
+ * Copyright (C) 2013 - 2021 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.algorithm;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TickStatisticsTest {
+
+    @Test
+    public void testJitterAndMissedDeadlines() {
+        TickStatistics statistics = new TickStatistics(1000);
+        Assert.assertEquals(0, statistics.getMeanJitter());
+
+        statistics.record(1000, 1010);
+        statistics.record(2000, 1990);
+        statistics.record(3000, 4200);
+        statistics.record(4000, 4200);
+
+        Assert.assertEquals(4, statistics.getTickCount());
+        Assert.assertEquals(1, statistics.getMissedDeadlines());
+        Assert.assertEquals(1200, statistics.getMaxJitter());
+        Assert.assertEquals((10 + 10 + 1200 + 200) / 4, statistics.getMeanJitter());
+    }
+}
@@ -23,6 +23,12 @@ import android.location.Location;
 import com.squareup.otto.Subscribe;
 
 import org.envirocar.algorithm.AbstractMeasurementProvider;
+import org.envirocar.algorithm.KalmanPositionFilter;
+import org.envirocar.algorithm.Resampler;
+import org.envirocar.algorithm.ResamplingPolicy;
+import org.envirocar.algorithm.SampleBuffer;
+import org.envirocar.algorithm.SampleWindow;
+import org.envirocar.algorithm.TickStatistics;
 import org.envirocar.app.handler.algorithm.DataResponseAlgorithm;
 import org.envirocar.core.entity.Measurement;
 import org.envirocar.core.entity.MeasurementImpl;
@@ -31,177 +37,309 @@ import org.envirocar.core.events.gps.GpsDOPEvent;
 import org.envirocar.core.events.gps.GpsLocationChangedEvent;
 import org.envirocar.core.logging.Logger;
 import org.envirocar.obd.events.PropertyKeyEvent;
-import org.envirocar.obd.events.Timestamped;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import io.reactivex.Observable;
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
 
 
 /**
- * TODO JavaDoc
+ * Collects the sensor values and positions of a sampling interval and resamples them to one
+ * value per interval, by default by interpolating to the middle of the interval (see
+ * {@link ResamplingPolicy}). The intervals are aligned to multiples of the sampling rate.
+ * <p>
+ * Every {@link Measurement.PropertyKey} has its own {@link SampleBuffer}. Producers only write
+ * to these buffers and are never blocked by the sampling loop, which drains all buffers once
+ * per interval. Each key (and the positions) must only be written by one thread at a time.
+ * <p>
+ * The latest sample of a key is kept for the next interval, so that the values at the start
+ * of that interval are interpolated between two samples instead of taking the nearest one.
+ * <p>
+ * Unless disabled, the positions are estimated by a {@link KalmanPositionFilter} from the GPS
+ * fixes, their accuracy or HDOP, and the OBD and GPS speed.
  */
 public class InterpolationMeasurementProvider extends AbstractMeasurementProvider {
     private static final Logger LOG = Logger.getLogger(InterpolationMeasurementProvider.class);
 
-    private Map<Measurement.PropertyKey, List<PropertyKeyEvent>> bufferedResponses = new
-            HashMap<>();
-    private long firstTimestampToBeConsidered;
-    private long lastTimestampToBeConsidered;
+    private static final int BUFFER_CAPACITY = 256;
+    private static final int TICK_LOG_INTERVAL = 60;
+    // standard deviations of the inputs of the position filter, in m and m/s
+    private static final double DEFAULT_GPS_ACCURACY = 10.0;
+    private static final double GPS_USER_EQUIVALENT_RANGE_ERROR = 5.0;
+    private static final double OBD_SPEED_DEVIATION = 0.5;
+    private static final double GPS_SPEED_DEVIATION = 1.0;
+    private static final Measurement.PropertyKey[] PROPERTY_KEYS =
+            Measurement.PropertyKey.values();
+    private static final long NOT_RETAINED = Long.MIN_VALUE;
+
+    private final AtomicReferenceArray<SampleBuffer> bufferedResponses =
+            new AtomicReferenceArray<>(PROPERTY_KEYS.length);
+    // latitude, longitude and accuracy
+    private final SampleBuffer bufferedPositions = new SampleBuffer(BUFFER_CAPACITY, 3);
+
+    // only accessed by the sampling loop
+    private final SampleWindow[] windows = new SampleWindow[PROPERTY_KEYS.length];
+    private final SampleWindow positionWindow = new SampleWindow(3);
+    // the timestamps of the samples retained from the previous interval, or NOT_RETAINED
+    private final long[] retainedTimestamps = new long[PROPERTY_KEYS.length];
+    private long retainedPositionTimestamp = NOT_RETAINED;
+    private final KalmanPositionFilter positionFilter = new KalmanPositionFilter();
+    private double fusedLatitude;
+    private double fusedLongitude;
+
+    private final Scheduler scheduler;
+    private volatile TickStatistics tickStatistics;
+    private volatile ResamplingPolicy resamplingPolicy = ResamplingPolicy.createDefault();
+    private volatile boolean positionFilterEnabled = true;
+
+    public InterpolationMeasurementProvider() {
+        this(Schedulers.computation());
+    }
 
-    /*
-     * TODO implement listing for GPS DOP Events
+    /**
+     * @param scheduler the scheduler that drives the sampling clock
+     */
+    public InterpolationMeasurementProvider(Scheduler scheduler) {
+        this.scheduler = scheduler;
+        Arrays.fill(retainedTimestamps, NOT_RETAINED);
+    }
+
+    /**
+     * Emits a measurement at every multiple of the sampling rate. The ticks do not drift with
+     * the processing time, and the measurement of a tick is interpolated to the middle of the
+     * interval that ends with it, so the measurements are evenly spaced.
      */
     @Override
     public Observable<Measurement> measurements(long samplingRate) {
-        return Observable.create(emitter -> {
+        return Observable.defer(() -> {
             LOG.info("measurements(): start collecting data");
-            while (!emitter.isDisposed()) {
-                synchronized (InterpolationMeasurementProvider.this) {
-                    /**
-                     * wait the sampling rate
-                     */
-                    try {
-                        InterpolationMeasurementProvider.this.wait(samplingRate);
-                    } catch (InterruptedException e) {
-                        if (!emitter.isDisposed())
-                            emitter.onError(e);
-                    }
-
-                    Measurement m = createMeasurement();
-
-                    if (m != null && m.getLatitude() != null && m.getLongitude() != null &&
+            long now = scheduler.now(TimeUnit.MILLISECONDS);
+            long firstDeadline = (now / samplingRate + 1) * samplingRate;
+            TickStatistics statistics = new TickStatistics(samplingRate);
+            this.tickStatistics = statistics;
+            positionFilter.reset();
+
+            return Observable.interval(firstDeadline - now, samplingRate,
+                    TimeUnit.MILLISECONDS, scheduler)
+                    .map(tick -> {
+                        long deadline = firstDeadline + tick * samplingRate;
+                        statistics.record(deadline, scheduler.now(TimeUnit.MILLISECONDS));
+                        if ((tick + 1) % TICK_LOG_INTERVAL == 0) {
+                            LOG.info(statistics.toString());
+                        }
+                        return createMeasurement(deadline - samplingRate, deadline);
+                    })
+                    .filter(m -> m.getLatitude() != null && m.getLongitude() != null &&
                             (m.hasProperty(Measurement.PropertyKey.SPEED) ||
-                                    m.hasProperty(Measurement.PropertyKey.GPS_SPEED))) {
-                        LOG.info("Emitting next measuremnet");
-                        emitter.onNext(m);
-                    }
-                }
-            }
-            LOG.info("measurements(): finished the collection of data.");
-            emitter.onComplete();
+                                    m.hasProperty(Measurement.PropertyKey.GPS_SPEED)))
+                    .doOnNext(m -> LOG.info("Emitting next measuremnet"))
+                    .doFinally(() -> LOG.info("measurements(): finished the collection of "
+                            + "data. " + statistics));
         });
     }
 
-    private synchronized Measurement createMeasurement() {
-        /**
-         * use the middle of the time window
-         */
-        long targetTimestamp = firstTimestampToBeConsidered + ((lastTimestampToBeConsidered -
-                firstTimestampToBeConsidered) / 2);
+    /**
+     * @param resamplingPolicy the policy that chooses how the values of each key are resampled
+     *                         to the sampling intervals
+     */
+    public void setResamplingPolicy(ResamplingPolicy resamplingPolicy) {
+        this.resamplingPolicy = resamplingPolicy;
+    }
+
+    /**
+     * @param enabled whether the positions are estimated by the position filter instead of
+     *                being interpolated between the GPS fixes
+     */
+    public void setPositionFilterEnabled(boolean enabled) {
+        this.positionFilterEnabled = enabled;
+    }
+
+    /**
+     * @return the statistics of the current sampling clock, null if it has not been started
+     */
+    public TickStatistics getTickStatistics() {
+        return tickStatistics;
+    }
+
+    /**
+     * @param start the start of the interval
+     * @param end   the end of the interval
+     */
+    private Measurement createMeasurement(long start, long end) {
+        drainBuffers();
 
         Measurement m = new MeasurementImpl();
-        m.setTime(targetTimestamp);
+        m.setTime(start + (end - start) / 2);
+
+        ResamplingPolicy policy = this.resamplingPolicy;
+        for (int i = 0; i < windows.length; i++) {
+            if (windows[i] != null && hasNewSamples(windows[i], retainedTimestamps[i])) {
+                appendToMeasurement(PROPERTY_KEYS[i], windows[i], policy.get(PROPERTY_KEYS[i]),
+                        start, end, m);
+                LOG.info("append key " + PROPERTY_KEYS[i].toString());
+            }
+        }
 
-        for (Measurement.PropertyKey pk : this.bufferedResponses.keySet()) {
-            appendToMeasurement(pk, this.bufferedResponses.get(pk), m);
-            LOG.info("append key " + pk.toString());
+        boolean fused = positionFilterEnabled && fusePositions(m.getTime());
+        if (hasNewSamples(positionWindow, retainedPositionTimestamp)) {
+            if (fused) {
+                m.setLatitude(fusedLatitude);
+                m.setLongitude(fusedLongitude);
+            } else {
+                setPosition(m, positionWindow);
+            }
         }
 
         /**
-         * clear the buffer of DataResponses to be considered
+         * clear the samples to be considered
          */
-        clearBuffer();
-        setPosition(m, getAndClearPositionBuffer());
+        retainLastSamples();
 
         return m;
     }
 
-    private void setPosition(Measurement m, List<Position> positionBuffer) {
-        if (positionBuffer == null || positionBuffer.isEmpty()) {
-            return;
-        }
-
-        if (positionBuffer.size() == 1) {
-            Position pos = positionBuffer.get(0);
-            m.setLatitude(pos.getLatitude());
-            m.setLongitude(pos.getLongitude());
-        } else {
-            long targetTimestamp = m.getTime();
-
-            /**
-             * find the closest two measurements
-             */
-            int startIndex = findStartIndex(positionBuffer, targetTimestamp);
-            Position start = positionBuffer.get(startIndex);
-            Position end = startIndex + 1 < positionBuffer.size() ? positionBuffer.get(startIndex
-                    + 1) : null;
-
-            double lat = interpolateTwo(start.getLatitude(), end != null ? end.getLatitude() :
-                            null, targetTimestamp, start.getTimestamp(),
-                    end != null ? end.getTimestamp() : 0L);
-            double lon = interpolateTwo(start.getLongitude(), end != null ? end.getLongitude() :
-                            null, targetTimestamp, start.getTimestamp(),
-                    end != null ? end.getTimestamp() : 0L);
-
-            m.setLatitude(lat);
-            m.setLongitude(lon);
+    private void drainBuffers() {
+        for (int i = 0; i < windows.length; i++) {
+            SampleBuffer buffer = bufferedResponses.get(i);
+            if (buffer == null) {
+                continue;
+            }
+            if (windows[i] == null) {
+                windows[i] = new SampleWindow(1);
+            }
+            buffer.drainTo(windows[i]);
         }
 
+        bufferedPositions.drainTo(positionWindow);
     }
 
-    private void appendToMeasurement(Measurement.PropertyKey pk, List<PropertyKeyEvent>
-            dataResponses, Measurement m) {
-        if (pk == null) {
-            return;
-        }
-
-        switch (pk) {
-            case FUEL_SYSTEM_STATUS_CODE:
-                m.setProperty(pk, first(dataResponses));
-                break;
-            default:
-                m.setProperty(pk, interpolate(dataResponses, m.getTime()));
+    /**
+     * Passes the new positions and speeds of the interval to the position filter in time order
+     * and estimates the position at the target time from the updates before it.
+     *
+     * @return whether there is an estimate
+     */
+    private boolean fusePositions(long targetTimestamp) {
+        SampleWindow speeds = windows[Measurement.PropertyKey.SPEED.ordinal()];
+        SampleWindow gpsSpeeds = windows[Measurement.PropertyKey.GPS_SPEED.ordinal()];
+        // the retained samples have been passed to the filter in the previous interval
+        int retainedPosition = retainedIndex(positionWindow, retainedPositionTimestamp);
+        int retainedSpeed = retainedIndex(speeds,
+                retainedTimestamps[Measurement.PropertyKey.SPEED.ordinal()]);
+        int retainedGpsSpeed = retainedIndex(gpsSpeeds,
+                retainedTimestamps[Measurement.PropertyKey.GPS_SPEED.ordinal()]);
+        int position = skip(0, retainedPosition);
+        int speed = skip(0, retainedSpeed);
+        int speedEnd = speeds != null ? speeds.size() : 0;
+        int gpsSpeed = skip(0, retainedGpsSpeed);
+        int gpsSpeedEnd = gpsSpeeds != null ? gpsSpeeds.size() : 0;
+        boolean estimated = false;
+
+        while (true) {
+            long next = Long.MAX_VALUE;
+            SampleWindow source = null;
+            if (position < positionWindow.size()) {
+                next = positionWindow.getTimestamp(position);
+                source = positionWindow;
+            }
+            if (speed < speedEnd && speeds.getTimestamp(speed) < next) {
+                next = speeds.getTimestamp(speed);
+                source = speeds;
+            }
+            if (gpsSpeed < gpsSpeedEnd && gpsSpeeds.getTimestamp(gpsSpeed) < next) {
+                next = gpsSpeeds.getTimestamp(gpsSpeed);
+                source = gpsSpeeds;
+            }
+            if (source == null) {
                 break;
-        }
-        List<DataResponseAlgorithm> algorithms = DataResponseAlgorithm.fromPropertyType(pk);
-        if(algorithms != null){
-            for(DataResponseAlgorithm a : algorithms) {
-                Double value = a.calculate(dataResponses);
-                m.setProperty(a.getPropertyKey(pk), value);
-                LOG.debug(String.format("Calculated %s from %s %s values: %s",
-                        a.getPropertyKey(pk).name(), dataResponses.size(), pk.name(), value));
             }
+
+            if (!estimated && next > targetTimestamp && positionFilter.isInitialized()) {
+                estimatePosition(targetTimestamp);
+                estimated = true;
+            }
+
+            if (source == positionWindow) {
+                positionFilter.updatePosition(next, positionWindow.getValue(position, 0),
+                        positionWindow.getValue(position, 1), getGpsAccuracy(position));
+                position = skip(position + 1, retainedPosition);
+            } else if (source == speeds) {
+                positionFilter.updateSpeed(next, speeds.getValue(speed) / 3.6,
+                        OBD_SPEED_DEVIATION);
+                speed = skip(speed + 1, retainedSpeed);
+            } else {
+                positionFilter.updateSpeed(next, gpsSpeeds.getValue(gpsSpeed) / 3.6,
+                        GPS_SPEED_DEVIATION);
+                gpsSpeed = skip(gpsSpeed + 1, retainedGpsSpeed);
+            }
+        }
+
+        if (!estimated && positionFilter.isInitialized()) {
+            estimatePosition(targetTimestamp);
+            estimated = true;
         }
+        return estimated;
+    }
+
+    /**
+     * @return the given index, or the following one if it is the skipped index
+     */
+    private static int skip(int index, int skipped) {
+        return index == skipped ? index + 1 : index;
     }
 
-    private Double first(List<PropertyKeyEvent> dataResponses) {
-        return dataResponses.isEmpty() ? null : dataResponses.get(0).getValue().doubleValue();
+    private void estimatePosition(long targetTimestamp) {
+        fusedLatitude = positionFilter.getLatitude(targetTimestamp);
+        fusedLongitude = positionFilter.getLongitude(targetTimestamp);
     }
 
-    protected Double interpolate(List<PropertyKeyEvent> dataResponses, long targetTimestamp) {
-        if (dataResponses.size() <= 1) {
-            return first(dataResponses);
+    /**
+     * @return the accuracy of a position fix in m, derived from the HDOP if the fix has none
+     */
+    private double getGpsAccuracy(int position) {
+        double accuracy = positionWindow.getValue(position, 2);
+        if (!Double.isNaN(accuracy)) {
+            return accuracy;
         }
 
-        /**
-         * find the closest two measurements
-         */
-        int startIndex = findStartIndex(dataResponses, targetTimestamp);
-        PropertyKeyEvent start = dataResponses.get(startIndex);
-        PropertyKeyEvent end = startIndex + 1 < dataResponses.size() ? dataResponses.get
-                (startIndex + 1) : null;
-
-        return interpolateTwo(start.getValue(), end != null ? end.getValue() : null,
-                targetTimestamp, start.getTimestamp(),
-                end != null ? end.getTimestamp() : 0L);
+        SampleWindow hdops = windows[Measurement.PropertyKey.GPS_HDOP.ordinal()];
+        if (hdops != null) {
+            int index = hdops.floorIndex(positionWindow.getTimestamp(position));
+            if (index >= 0 && !Double.isNaN(hdops.getValue(index))) {
+                return hdops.getValue(index) * GPS_USER_EQUIVALENT_RANGE_ERROR;
+            }
+        }
+        return DEFAULT_GPS_ACCURACY;
     }
 
-    private int findStartIndex(List<? extends Timestamped> dataResponses, long targetTimestamp) {
-        int i = 0;
-        while (i + 1 < dataResponses.size()) {
-            if (dataResponses.get(i).getTimestamp() <= targetTimestamp
-                    && dataResponses.get(i + 1).getTimestamp() >= targetTimestamp) {
-                return i;
-            }
+    private void setPosition(Measurement m, SampleWindow positions) {
+        m.setLatitude(positions.interpolate(m.getTime(), 0));
+        m.setLongitude(positions.interpolate(m.getTime(), 1));
+    }
 
-            i++;
+    private void appendToMeasurement(Measurement.PropertyKey pk, SampleWindow samples,
+                                     Resampler resampler, long start, long end,
+                                     Measurement m) {
+        m.setProperty(pk, toDouble(resampler.resample(samples, 0, start, end)));
+        List<DataResponseAlgorithm> algorithms = DataResponseAlgorithm.fromPropertyType(pk);
+        if(algorithms != null){
+            for(DataResponseAlgorithm a : algorithms) {
+                Double value = a.calculate(samples.getTimestamps(), samples.getValues(),
+                        samples.size());
+                m.setProperty(a.getPropertyKey(pk), value);
+                LOG.debug(String.format("Calculated %s from %s %s values: %s",
+                        a.getPropertyKey(pk).name(), samples.size(), pk.name(), value));
+            }
         }
+    }
 
-        return 0;
+    private static Double toDouble(double value) {
+        return Double.isNaN(value) ? null : value;
     }
 
     /**
@@ -214,58 +352,92 @@ public class InterpolationMeasurementProvider extends AbstractMeasurementProvide
      */
     public Double interpolateTwo(Number start, Number end, long targetTimestamp,
                                  long startTimestamp, long endTimestamp) {
-        if (start == null && end == null) {
-            return null;
-        }
-        if (start == null) {
-            return end.doubleValue();
-        } else if (end == null) {
-            return start.doubleValue();
-        }
+        return toDouble(SampleWindow.interpolateTwo(
+                start != null ? start.doubleValue() : Double.NaN,
+                end != null ? end.doubleValue() : Double.NaN,
+                targetTimestamp, startTimestamp, endTimestamp));
+    }
 
-        float duration = (float) (endTimestamp - startTimestamp);
+    private void retainLastSamples() {
+        for (int i = 0; i < windows.length; i++) {
+            if (windows[i] != null) {
+                retainedTimestamps[i] = retain(windows[i], retainedTimestamps[i]);
+            }
+        }
+        retainedPositionTimestamp = retain(positionWindow, retainedPositionTimestamp);
+    }
 
-        float endWeight = (targetTimestamp - startTimestamp) / duration;
-        float startWeight = (endTimestamp - targetTimestamp) / duration;
+    /**
+     * keeps the latest sample if the window received new samples, so a value is never carried
+     * over more than one interval without newer ones
+     *
+     * @return the timestamp of the retained sample, NOT_RETAINED if there is none
+     */
+    private static long retain(SampleWindow window, long retainedTimestamp) {
+        if (hasNewSamples(window, retainedTimestamp)) {
+            window.retainLast();
+            return window.getTimestamp(0);
+        }
+        window.clear();
+        return NOT_RETAINED;
+    }
 
-        return start.doubleValue() * startWeight + end.doubleValue() * endWeight;
+    private static boolean hasNewSamples(SampleWindow window, long retainedTimestamp) {
+        return window.size() > (retainedTimestamp == NOT_RETAINED ? 0 : 1);
     }
 
-    private void clearBuffer() {
-        for (List<PropertyKeyEvent> drl : this.bufferedResponses.values()) {
-            drl.clear();
+    /**
+     * Late samples are inserted before the retained sample and samples with the same
+     * timestamp after it, so it is the first one not before its timestamp.
+     *
+     * @return the index of the retained sample, -1 if there is none
+     */
+    private static int retainedIndex(SampleWindow window, long retainedTimestamp) {
+        if (window == null || retainedTimestamp == NOT_RETAINED) {
+            return -1;
         }
-
-        /**
-         * reset the first timestamp
-         */
-        this.firstTimestampToBeConsidered = 0;
+        return window.floorIndex(retainedTimestamp - 1) + 1;
     }
 
     @Override
     @Subscribe
-    public synchronized void consider(PropertyKeyEvent pke) {
-        updateTimestamps(pke);
-
+    public void consider(PropertyKeyEvent pke) {
         Measurement.PropertyKey pk = pke.getPropertyKey();
 
         if (pk == null) {
             return;
         }
 
-        if (bufferedResponses.containsKey(pk)) {
-            bufferedResponses.get(pk).add(pke);
-        } else {
-            List<PropertyKeyEvent> list = new ArrayList<>();
-            list.add(pke);
-            bufferedResponses.put(pk, list);
+        Number value = pke.getValue();
+        if (!getBuffer(pk).add(pke.getTimestamp(),
+                value != null ? value.doubleValue() : Double.NaN)) {
+            LOG.warn("Sample buffer of " + pk + " is full. Dropping value.");
         }
     }
 
+    private SampleBuffer getBuffer(Measurement.PropertyKey pk) {
+        int ordinal = pk.ordinal();
+        SampleBuffer buffer = bufferedResponses.get(ordinal);
+        if (buffer == null) {
+            bufferedResponses.compareAndSet(ordinal, null, new SampleBuffer(BUFFER_CAPACITY, 1));
+            buffer = bufferedResponses.get(ordinal);
+        }
+        return buffer;
+    }
+
     @Override
-    public synchronized void newPosition(Position pos) {
-        super.newPosition(pos);
-        updateTimestamps(pos);
+    public void newPosition(Position pos) {
+        addPosition(pos.getTimestamp(), pos.getLatitude(), pos.getLongitude(), Double.NaN);
+    }
+
+    /**
+     * @param accuracy the accuracy of the position in m, NaN if unknown
+     */
+    private void addPosition(long timestamp, double latitude, double longitude,
+                             double accuracy) {
+        if (!bufferedPositions.add(timestamp, latitude, longitude, accuracy)) {
+            LOG.warn("Position buffer is full. Dropping position.");
+        }
     }
 
     @Subscribe
@@ -273,7 +445,8 @@ public class InterpolationMeasurementProvider extends AbstractMeasurementProvide
         Location location = loc.mLocation;
         long now = System.currentTimeMillis();
 
-        newPosition(new Position(now, location.getLatitude(), location.getLongitude()));
+        addPosition(now, location.getLatitude(), location.getLongitude(),
+                location.hasAccuracy() ? location.getAccuracy() : Double.NaN);
 
         if (location.hasAccuracy()) {
             consider(new PropertyKeyEvent(Measurement.PropertyKey.GPS_ACCURACY, location
@@ -296,18 +469,6 @@ public class InterpolationMeasurementProvider extends AbstractMeasurementProvide
         }
     }
 
-    private void updateTimestamps(Timestamped dr) {
-        this.lastTimestampToBeConsidered = Math.max(this.lastTimestampToBeConsidered, dr
-                .getTimestamp());
-
-        if (this.firstTimestampToBeConsidered == 0) {
-            this.firstTimestampToBeConsidered = dr.getTimestamp();
-        } else {
-            this.firstTimestampToBeConsidered = Math.min(this.firstTimestampToBeConsidered, dr
-                    .getTimestamp());
-        }
-    }
-
     @Subscribe
     public void receiveGpsDOP(GpsDOPEvent e) {
         GpsDOP dop = e.mDOP;
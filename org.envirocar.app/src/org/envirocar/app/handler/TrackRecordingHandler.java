@@ -200,7 +200,7 @@ public class TrackRecordingHandler {
 
                     // Depending on the number of measurements inside the track either update the
                     // database and return the updated reference or delete the database entry.
-                    return (track.getMeasurements().size() <= 1) ?
+                    return (track.getMeasurementCount() <= 1) ?
                             mEnvirocarDB.deleteTrackObservable(track).single(track) :
                             mEnvirocarDB.updateTrackObservable(track).single(track);
                 });
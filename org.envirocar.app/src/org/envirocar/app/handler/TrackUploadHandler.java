@@ -221,6 +221,8 @@ public class TrackUploadHandler {
         return Observable.just(track)
                 // general validation of the track
                 .map(validateRequirementsForUpload())
+                // load the measurements of tracks that have been loaded lazily
+                .flatMap(this::resolveMeasurements)
                 // assets the car of the track and, in case it is not uploaded, it uploads the
                 // car and sets the remoteId
                 .compose(validateCarOfTrack())
@@ -235,6 +237,18 @@ public class TrackUploadHandler {
                 .lift(new UploadExceptionMappingOperator());
     }
 
+    private Observable<Track> resolveMeasurements(Track track) {
+        if (!track.isLazyLoadingMeasurements()) {
+            return Observable.just(track);
+        }
+        return mEnviroCarDB.getTrack(track.getTrackID())
+                .take(1)
+                .map(loadedTrack -> {
+                    loadedTrack.setCar(track.getCar());
+                    return loadedTrack;
+                });
+    }
+
     private Function<Track, Track> validateRequirementsForUpload() {
         return track -> {
             if (!track.isLocalTrack()) {
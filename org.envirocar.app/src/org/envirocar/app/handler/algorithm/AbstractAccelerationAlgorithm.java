@@ -22,4 +22,15 @@ public class AbstractAccelerationAlgorithm {
         double dT = (endTime -  startTime);
         return ((dV / CONV_FACTOR) / (dT / 1000));
     }
+
+    /**
+     * Calculates the acceleration in m/s² from two speed values v1 and v2 at time t1 and t2.
+     *
+     * @return Acceleration in m/s², NaN if one of the speed values is NaN
+     */
+    public double calculateAcceleration(double start, double end, long startTime, long endTime) {
+        double dV = (end - start);
+        double dT = (endTime -  startTime);
+        return ((dV / CONV_FACTOR) / (dT / 1000));
+    }
 }
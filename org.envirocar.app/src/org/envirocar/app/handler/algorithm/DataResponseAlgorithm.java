@@ -8,7 +8,25 @@ import java.util.List;
 
 public interface DataResponseAlgorithm {
 
-    Double calculate(List<PropertyKeyEvent> pke);
+    /**
+     * @param timestamps the timestamps of the samples
+     * @param values     the values of the samples, NaN if a value is missing
+     * @param count      the number of samples
+     * @return the result or null if it cannot be calculated
+     */
+    Double calculate(long[] timestamps, double[] values, int count);
+
+    default Double calculate(List<PropertyKeyEvent> pke) {
+        int count = pke.size();
+        long[] timestamps = new long[count];
+        double[] values = new double[count];
+        for (int i = 0; i < count; i++) {
+            Number value = pke.get(i).getValue();
+            timestamps[i] = pke.get(i).getTimestamp();
+            values[i] = value != null ? value.doubleValue() : Double.NaN;
+        }
+        return calculate(timestamps, values, count);
+    }
 
     Measurement.PropertyKey getPropertyKey(Measurement.PropertyKey pk);
 
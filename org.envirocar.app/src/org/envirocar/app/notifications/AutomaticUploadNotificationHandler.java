@@ -103,7 +103,7 @@ public class AutomaticUploadNotificationHandler {
             return;
         }
 
-        if (e.mTrack == null || e.mTrack.getMeasurements().size() <= 2) {
+        if (e.mTrack == null || e.mTrack.getMeasurementCount() <= 2) {
             LOG.info("Track has no or too less measurements to upload -> ignoring");
             return;
         }
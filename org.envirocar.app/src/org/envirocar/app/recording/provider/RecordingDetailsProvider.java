@@ -18,7 +18,6 @@
  */
 package org.envirocar.app.recording.provider;
 
-import android.location.Location;
 import android.os.SystemClock;
 
 import androidx.lifecycle.Lifecycle;
@@ -40,6 +39,7 @@ import org.envirocar.app.views.trackdetails.MapLayer;
 import org.envirocar.core.entity.Measurement;
 import org.envirocar.core.events.recording.RecordingNewMeasurementEvent;
 import org.envirocar.core.logging.Logger;
+import org.envirocar.core.trackprocessing.statistics.TrackSummaryAccumulator;
 
 import io.reactivex.Scheduler;
 import io.reactivex.android.schedulers.AndroidSchedulers;
@@ -57,15 +57,11 @@ public class RecordingDetailsProvider implements LifecycleObserver {
 
     private int mNumMeasurements;
     private double mDistanceValue;
-    private double mTotalSpeed;
     private int mAvrgSpeed;
     private double GPSSpeed;
 
     private long mStartingBaseTime;
 
-    private Location mLastLocation;
-    private Location mCurrentLocation;
-
     private final Bus eventBus;
 
     /**
@@ -108,8 +104,10 @@ public class RecordingDetailsProvider implements LifecycleObserver {
         mNumMeasurements++;
 
         // update computed features
-        updateDistance(event.mMeasurement);
-        updateAverageSpeed(event.mMeasurement);
+        if (event.mSummary != null) {
+            updateDistance(event.mSummary);
+            updateAverageSpeed(event.mSummary);
+        }
         updatePathOverlay(event.mMeasurement);
         if (RecordingService.RECORDING_STATE == RecordingState.RECORDING_RUNNING
                 && event.mMeasurement.hasProperty(Measurement.PropertyKey.GPS_SPEED)) {
@@ -153,52 +151,31 @@ public class RecordingDetailsProvider implements LifecycleObserver {
     }
 
     /**
-     * Updates the distance value based on the new measurements location and the location of the
-     * previous location.
+     * Updates the distance value based on the running summary of the recorded track.
      *
-     * @param measurement the measurement to compute the distance relative to the last measurement.
+     * @param summary the summary of the track including the new measurement.
      */
-    private void updateDistance(Measurement measurement) {
-        if (mLastLocation == null) {
-            mLastLocation = new Location("GPS");
-            mLastLocation.setLatitude(measurement.getLatitude());
-            mLastLocation.setLongitude(measurement.getLongitude());
-        } else {
-            mCurrentLocation = new Location("GPS");
-            mCurrentLocation.setLatitude(measurement.getLatitude());
-            mCurrentLocation.setLongitude(measurement.getLongitude());
-
-            // Compute the distance between the last location and the new location.
-            float[] res = new float[1];
-            Location.distanceBetween(
-                    mLastLocation.getLatitude(),
-                    mLastLocation.getLongitude(),
-                    mCurrentLocation.getLatitude(),
-                    mCurrentLocation.getLongitude(),
-                    res);
-
-            // update the distance value
-            if (res[0] > 0) {
-                mDistanceValue += res[0] / 1000;
-                eventBus.post(provideDistanceValue());
-            }
-            mLastLocation = mCurrentLocation;
-            mCurrentLocation = null;
+    private void updateDistance(TrackSummaryAccumulator summary) {
+        double distance = summary.getDistance();
+        if (distance > mDistanceValue) {
+            mDistanceValue = distance;
+            eventBus.post(provideDistanceValue());
         }
     }
 
     /**
-     * @param measurement
+     * @param summary the summary of the track including the new measurement.
      */
-    private void updateAverageSpeed(Measurement measurement) {
+    private void updateAverageSpeed(TrackSummaryAccumulator summary) {
         if (RecordingService.RECORDING_STATE == RecordingState.RECORDING_RUNNING) {
-            double speedValue = measurement.hasProperty(Measurement.PropertyKey.SPEED) ?
-                    measurement.getProperty(Measurement.PropertyKey.SPEED) :
-                    measurement.getProperty(Measurement.PropertyKey.GPS_SPEED);
+            double speedValue = summary.hasProperty(Measurement.PropertyKey.SPEED) ?
+                    summary.getMean(Measurement.PropertyKey.SPEED) :
+                    summary.getMean(Measurement.PropertyKey.GPS_SPEED);
 
-            mTotalSpeed += speedValue;
-            mAvrgSpeed = (int) mTotalSpeed / mNumMeasurements;
-            eventBus.post(provideAverageSpeed());
+            if (!Double.isNaN(speedValue)) {
+                mAvrgSpeed = (int) speedValue;
+                eventBus.post(provideAverageSpeed());
+            }
         }
     }
 
@@ -207,11 +184,8 @@ public class RecordingDetailsProvider implements LifecycleObserver {
             mTrackMapOverlay.clearPath();
             mNumMeasurements = 0;
             mDistanceValue = 0;
-            mTotalSpeed = 0;
             mAvrgSpeed = 0;
             mStartingBaseTime = 0;
-            mLastLocation = null;
-            mCurrentLocation = null;
         });
     }
 
@@ -33,30 +33,51 @@ import org.envirocar.core.events.recording.RecordingNewMeasurementEvent;
 import org.envirocar.core.exception.MeasurementSerializationException;
 import org.envirocar.core.exception.TrackSerializationException;
 import org.envirocar.core.logging.Logger;
+import org.envirocar.core.trackprocessing.statistics.TrackSummaryAccumulator;
 import org.envirocar.core.util.TrackMetadata;
 import org.envirocar.core.util.Util;
-import org.envirocar.core.utils.LocationUtils;
 import org.envirocar.core.EnviroCarDB;
 
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
+import io.reactivex.Completable;
 import io.reactivex.Observable;
 import io.reactivex.ObservableOnSubscribe;
 import io.reactivex.ObservableTransformer;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.schedulers.Schedulers;
 
 /**
+ * Persists the measurements of a recording. The track is written together with its first
+ * measurement right away, since consumers of the active track expect it to be present. All
+ * further measurements are not written one by one, but are collected and committed in batches
+ * together with a single update of the track. A batch is written as soon as it reaches
+ * {@link #maxBatchSize} measurements or at the latest {@link #maxBatchDelay} milliseconds after
+ * its first measurement has been queued, which bounds the amount of data that gets lost on a
+ * crash.
+ *
  * @author dewall
  */
 public class TrackDatabaseSink {
     private static final Logger LOG = Logger.getLogger(TrackDatabaseSink.class);
     private static final DateFormat format = SimpleDateFormat.getDateTimeInstance();
 
+    public static final int DEFAULT_MAX_BATCH_SIZE = 10;
+    public static final long DEFAULT_MAX_BATCH_DELAY = 10000;
+
     private final Context context;
     private final CarPreferenceHandler carHandler;
     private final EnviroCarDB enviroCarDB;
     private final Bus eventBus;
+    private final int maxBatchSize;
+    private final long maxBatchDelay;
+    private final List<Measurement> pendingMeasurements = new ArrayList<>();
+    private Disposable flushTimer;
     private Track track;
 
     /**
@@ -67,10 +88,27 @@ public class TrackDatabaseSink {
      * @param enviroCarDB
      */
     public TrackDatabaseSink(Context context, CarPreferenceHandler carHandler, EnviroCarDB enviroCarDB, Bus eventBus) {
+        this(context, carHandler, enviroCarDB, eventBus, DEFAULT_MAX_BATCH_SIZE, DEFAULT_MAX_BATCH_DELAY);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param context
+     * @param carHandler
+     * @param enviroCarDB
+     * @param eventBus
+     * @param maxBatchSize  the number of measurements after which a batch gets written.
+     * @param maxBatchDelay the maximum time in milliseconds a measurement stays unpersisted.
+     */
+    public TrackDatabaseSink(Context context, CarPreferenceHandler carHandler, EnviroCarDB enviroCarDB, Bus eventBus,
+                             int maxBatchSize, long maxBatchDelay) {
         this.context = context;
         this.carHandler = carHandler;
         this.enviroCarDB = enviroCarDB;
         this.eventBus = eventBus;
+        this.maxBatchSize = maxBatchSize;
+        this.maxBatchDelay = maxBatchDelay;
     }
 
     /**
@@ -80,45 +118,53 @@ public class TrackDatabaseSink {
         return upstream -> upstream.flatMap(measurement -> Observable.create((ObservableOnSubscribe<Track>) emitter -> {
             LOG.info("Storing new measurement into database");
 
-            // If no track exists, then create one.
-            if (track == null) {
-                try {
-                    // TODO add default TrackMetadata (app version, measurement profile, NOT at this point: tou)
-                    String profile = ApplicationSettings.getCampaignProfile(context);
-                    String appVersion = Util.getVersionString(context);
-                    TrackMetadata meta = new TrackMetadata(appVersion, null).add(TrackMetadata.MEASUREMENT_PROFILE, profile);
-
-
-                    track = createNewTrack(measurement.getTime(), meta);
-                    
-                    emitter.onNext(track);
-                } catch (TrackSerializationException e) {
-                    LOG.error("Unable to create track instance", e);
-                    emitter.onError(e);
-                }
-            }
-
+            boolean newTrack;
+            Track currentTrack;
             try {
-                // inserting measurement
-                measurement.setTrackId(track.getTrackID());
-                enviroCarDB.insertMeasurement(measurement);
-
-                // updating track information
-                track.setEndTime(measurement.getTime());
-
-                // update distance
-                int numOfTracks = track.getMeasurements().size();
-                if (numOfTracks > 0) {
-                    Measurement lastMeasurement = track.getMeasurements().get(numOfTracks - 1);
-                    double distanceToLast = LocationUtils.getDistance(lastMeasurement, measurement);
-                    track.setLength(track.getLength() + distanceToLast);
-                }
+                synchronized (this) {
+                    // If no track exists, then create one.
+                    newTrack = track == null;
+                    if (newTrack) {
+                        try {
+                            // TODO add default TrackMetadata (app version, measurement profile, NOT at this point: tou)
+                            String profile = ApplicationSettings.getCampaignProfile(context);
+                            String appVersion = Util.getVersionString(context);
+                            TrackMetadata meta = new TrackMetadata(appVersion, null).add(TrackMetadata.MEASUREMENT_PROFILE, profile);
+
+
+                            track = createNewTrack(measurement.getTime(), meta);
+                        } catch (TrackSerializationException e) {
+                            LOG.error("Unable to create track instance", e);
+                            emitter.onError(e);
+                            return;
+                        }
+                    }
+                    currentTrack = track;
+
+                    measurement.setTrackId(track.getTrackID());
+
+                    // updating track information. The measurements themselves are only kept
+                    // in the database, the track just carries the running summary.
+                    TrackSummaryAccumulator summary = track.getSummary();
+                    summary.add(measurement);
+                    track.setEndTime(measurement.getTime());
+                    track.setLength(summary.getDistance());
+                    track.setMeasurementCount(summary.getMeasurementCount());
 
-                // update track in database
-                track.getMeasurements().add(measurement);
-                enviroCarDB.updateTrack(track);
-                eventBus.post(new RecordingNewMeasurementEvent(measurement));
-                LOG.info("Measurement stored");
+                    // the first measurement is written together with the new track, all
+                    // others and the track are written with the next batch
+                    pendingMeasurements.add(measurement);
+                    if (newTrack || pendingMeasurements.size() >= maxBatchSize) {
+                        flushPendingMeasurements();
+                    } else if (pendingMeasurements.size() == 1) {
+                        startFlushTimer();
+                    }
+                }
+                if (newTrack) {
+                    emitter.onNext(currentTrack);
+                }
+                eventBus.post(new RecordingNewMeasurementEvent(measurement, currentTrack.getSummary()));
+                LOG.info("Measurement queued for storage");
             } catch (MeasurementSerializationException e) {
                 LOG.error(e.getMessage(), e);
                 emitter.onError(e);
@@ -128,6 +174,43 @@ public class TrackDatabaseSink {
                 .doOnComplete(() -> finishTrack(track));
     }
 
+    /**
+     * Arms a one-shot timer that writes the pending measurements {@link #maxBatchDelay}
+     * milliseconds after the first one has been queued. It is cancelled by every flush.
+     */
+    private synchronized void startFlushTimer() {
+        stopFlushTimer();
+        flushTimer = Completable.timer(maxBatchDelay, TimeUnit.MILLISECONDS, Schedulers.io())
+                .subscribe(() -> {
+                    try {
+                        flushPendingMeasurements();
+                    } catch (MeasurementSerializationException e) {
+                        LOG.error("Unable to store pending measurements", e);
+                    }
+                }, LOG::error);
+    }
+
+    private synchronized void stopFlushTimer() {
+        if (flushTimer != null && !flushTimer.isDisposed()) {
+            flushTimer.dispose();
+        }
+        flushTimer = null;
+    }
+
+    /**
+     * Writes all pending measurements together with the current track state within a single
+     * database transaction.
+     */
+    private synchronized void flushPendingMeasurements() throws MeasurementSerializationException {
+        stopFlushTimer();
+        if (track == null || pendingMeasurements.isEmpty())
+            return;
+
+        LOG.info(String.format("Storing %s pending measurements into database", pendingMeasurements.size()));
+        enviroCarDB.insertMeasurementsAndUpdateTrack(track, new ArrayList<>(pendingMeasurements));
+        pendingMeasurements.clear();
+    }
+
     private Track createNewTrack(long startTime, TrackMetadata metadata) throws TrackSerializationException {
         String date = format.format(new Date());
         Car car = carHandler.getCar();
@@ -138,6 +221,8 @@ public class TrackDatabaseSink {
         track.setDescription(String.format(context.getString(R.string.default_track_description), car != null ? car.getModel() : "null"));
         track.setLength(0.0);
         track.setStartTime(startTime);
+        track.setSummary(new TrackSummaryAccumulator(car != null ? car.getFuelType() : null));
+        track.setLazyMeasurements(true);
 
         if (metadata != null) {
             track.setMetadata(metadata);
@@ -147,19 +232,29 @@ public class TrackDatabaseSink {
         return track;
     }
 
-    private void finishTrack(Track track) {
+    private synchronized void finishTrack(Track track) {
+        stopFlushTimer();
         if (track == null)
             return;
+
+        try {
+            flushPendingMeasurements();
+        } catch (MeasurementSerializationException e) {
+            LOG.error("Unable to store pending measurements", e);
+        }
+
         LOG.info(String.format("Finishing current track %s", track.getDescription()));
 
-        if (track.getMeasurements().size() <= 1) {
+        if (track.getMeasurementCount() <= 1) {
             LOG.info("Track had not enough measurements. Deleting track.");
             enviroCarDB.deleteTrack(track);
         } else {
             track.setTrackStatus(Track.TrackStatus.FINISHED);
+            enviroCarDB.updateTrackStatistics(track);
             enviroCarDB.updateTrack(track);
         }
         this.track = null;
+        this.pendingMeasurements.clear();
     }
 
 }
@@ -40,6 +40,7 @@ import org.envirocar.app.recording.events.RecordingErrorEvent;
 import org.envirocar.app.recording.notification.SpeechOutput;
 import org.envirocar.app.recording.provider.LocationProvider;
 import org.envirocar.app.recording.provider.TrackDatabaseSink;
+import org.envirocar.app.recording.strategy.obd.AdapterFingerprintPreferences;
 import org.envirocar.app.recording.strategy.obd.OBDConnectionHandler;
 import org.envirocar.core.entity.Car;
 import org.envirocar.core.entity.Measurement;
@@ -55,13 +56,23 @@ import org.envirocar.core.trackprocessing.statistics.CalculatedMAFWithStaticVolu
 import org.envirocar.obd.ConnectionListener;
 import org.envirocar.obd.OBDController;
 import org.envirocar.obd.OBDSchedulers;
+import org.envirocar.obd.adapter.AdapterFingerprintCache;
 import org.envirocar.obd.bluetooth.BluetoothSocketWrapper;
 import org.envirocar.obd.commands.CampagneCommandProfile;
 import org.envirocar.obd.commands.CycleCommandProfile;
+import org.envirocar.obd.events.SensorStream;
 import org.envirocar.obd.events.SpeedUpdateEvent;
 import org.envirocar.obd.exception.AllAdaptersFailedException;
+import org.envirocar.obd.trace.TraceRecorder;
 
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Locale;
 import java.util.concurrent.TimeUnit;
 
 import io.reactivex.Observable;
@@ -80,6 +91,8 @@ public class OBDRecordingStrategy implements RecordingStrategy {
     private static final Logger LOG = Logger.getLogger(OBDRecordingStrategy.class);
     protected static final int MAX_RECONNECT_COUNT = 2;
     private static final String RECORDING_ERROR_EXTRA_DATA_KEY = "GPS_ERROR_SECONDS";
+    private static final String OBD_TRACE_DIRECTORY = "obd-traces";
+    private static final int MAX_OBD_TRACES = 5;
 
     protected Context context;
     protected Bus eventBus;
@@ -105,6 +118,7 @@ public class OBDRecordingStrategy implements RecordingStrategy {
     private boolean isTrackFinished = false;
     private Track track = null;
     private CycleCommandProfile cycleCommandProfile;
+    private AdapterFingerprintCache adapterFingerprintCache;
     private int gpsConnectionDuration = 60 * 2;
 
     /**
@@ -131,6 +145,7 @@ public class OBDRecordingStrategy implements RecordingStrategy {
         this.mafAlgorithm = new CalculatedMAFWithStaticVolumetricEfficiency(car);
         this.energyConsumptionAlgorithm = new LoadBasedEnergyConsumptionAlgorithm(car.getFuelType());
         this.cycleCommandProfile = new CycleCommandProfile.Default();
+        this.adapterFingerprintCache = new AdapterFingerprintPreferences(context);
     }
 
     @OnLifecycleEvent(Lifecycle.Event.ON_DESTROY)
@@ -252,7 +267,23 @@ public class OBDRecordingStrategy implements RecordingStrategy {
             LOG.info(String.format("OBDConnectionService.onDeviceConntected(%s)", socket.getRemoteDeviceName()));
 
             try {
-                OBDController controller = new OBDController(socket, this.cycleCommandProfile, new ConnectionListener() {
+                InputStream inputStream = socket.getInputStream();
+                OutputStream outputStream = socket.getOutputStream();
+                TraceRecorder traceRecorder = createTraceRecorder();
+                if (traceRecorder != null) {
+                    inputStream = traceRecorder.wrap(inputStream);
+                    outputStream = traceRecorder.wrap(outputStream);
+                }
+
+                // a new stream for every connection, so that its latest values are not
+                // replayed after a reconnect. The provider needs every value read from the car.
+                SensorStream sensorStream = new SensorStream();
+                Disposable sensorSubscription = sensorStream.events()
+                        .subscribe(measurementProvider::consider, LOG::error);
+
+                OBDController controller = new OBDController(inputStream, outputStream,
+                        socket.getRemoteDeviceName(), socket.getRemoteDeviceAddress(),
+                        this.cycleCommandProfile, this.adapterFingerprintCache, sensorStream, new ConnectionListener() {
                     int reconnectCount = 0;
 
                     @Override
@@ -308,6 +339,15 @@ public class OBDRecordingStrategy implements RecordingStrategy {
                     public void dispose() {
                         LOG.info("Disposing in connectionv verification.");
                         controller.shutdown();
+                        sensorSubscription.dispose();
+                        sensorStream.complete();
+                        if (traceRecorder != null) {
+                            try {
+                                traceRecorder.close();
+                            } catch (IOException e) {
+                                LOG.warn("Could not close the OBD trace", e);
+                            }
+                        }
                         try {
                             if (socket.getInputStream() != null)
                                 socket.getInputStream().close();
@@ -333,6 +373,41 @@ public class OBDRecordingStrategy implements RecordingStrategy {
         }));
     }
 
+    /**
+     * @return a recorder of the raw OBD communication when debug logging is enabled, otherwise
+     * null. The traces are kept in the app's files directory.
+     */
+    private TraceRecorder createTraceRecorder() {
+        if (!ApplicationSettings.isDebugLoggingEnabled(context)) {
+            return null;
+        }
+
+        File directory = new File(context.getFilesDir(), OBD_TRACE_DIRECTORY);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            LOG.warn("Could not create the OBD trace directory");
+            return null;
+        }
+
+        // the names sort chronologically: delete the oldest ones
+        File[] traces = directory.listFiles();
+        if (traces != null && traces.length >= MAX_OBD_TRACES) {
+            Arrays.sort(traces);
+            for (int i = 0; i <= traces.length - MAX_OBD_TRACES; i++) {
+                traces[i].delete();
+            }
+        }
+
+        File trace = new File(directory,
+                String.format(Locale.US, "obd-%1$tY%1$tm%1$td-%1$tH%1$tM%1$tS.trace", new Date()));
+        try {
+            LOG.info("Recording the OBD communication to " + trace.getName());
+            return new TraceRecorder(new FileOutputStream(trace));
+        } catch (IOException e) {
+            LOG.warn("Could not create the OBD trace", e);
+            return null;
+        }
+    }
+
     private ObservableTransformer<BluetoothSocketWrapper, Measurement> receiveMeasurements() {
         return upstream -> {
             final int samplingRate = ApplicationSettings.getSamplingRate(context) * 1000;
@@ -0,0 +1,54 @@
+/**
+ * Copyright (C) 2013 - 2021 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.app.recording.strategy.obd;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import org.envirocar.obd.adapter.AdapterFingerprint;
+import org.envirocar.obd.adapter.AdapterFingerprintCache;
+
+/**
+ * Stores the adapter fingerprints in the shared preferences, keyed by the bluetooth address.
+ */
+public class AdapterFingerprintPreferences implements AdapterFingerprintCache {
+
+    private static final String PREFERENCES_NAME = "adapter_fingerprints";
+
+    private final SharedPreferences preferences;
+
+    public AdapterFingerprintPreferences(Context context) {
+        this.preferences = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+    }
+
+    @Override
+    public AdapterFingerprint get(String deviceAddress) {
+        return AdapterFingerprint.decode(preferences.getString(deviceAddress, null));
+    }
+
+    @Override
+    public void put(String deviceAddress, AdapterFingerprint fingerprint) {
+        preferences.edit().putString(deviceAddress, fingerprint.encode()).apply();
+    }
+
+    @Override
+    public void remove(String deviceAddress) {
+        preferences.edit().remove(deviceAddress).apply();
+    }
+}
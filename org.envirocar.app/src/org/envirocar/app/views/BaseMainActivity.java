@@ -57,7 +57,6 @@ import org.envirocar.app.views.others.OthersFragment;
 import org.envirocar.app.views.others.TroubleshootingFragment;
 import org.envirocar.app.views.tracklist.TrackListPagerFragment;
 import org.envirocar.core.events.TrackFinishedEvent;
-import org.envirocar.core.exception.NoMeasurementsException;
 import org.envirocar.core.logging.Logger;
 import org.envirocar.core.utils.ServiceUtils;
 
@@ -332,16 +331,10 @@ public class BaseMainActivity extends BaseInjectorActivity {
             if (event.mTrack == null) {
                 // Track is null and thus there was an error.
                 showSnackbar(R.string.track_finishing_failed);
-            } else try {
-                if (event.mTrack.getLastMeasurement() != null) {
-                    LOGGER.info("last is not null.. " + event.mTrack.getLastMeasurement()
-                            .toString());
-
-                    // Track has no measurements
-                    showSnackbar(getString(R.string.track_finished).concat(event.mTrack.getName()));
-                }
-            } catch (NoMeasurementsException e) {
-                LOGGER.warn("Track has been finished without measurements", e);
+            } else if (event.mTrack.getMeasurementCount() > 0) {
+                showSnackbar(getString(R.string.track_finished).concat(event.mTrack.getName()));
+            } else {
+                LOGGER.warn("Track has been finished without measurements");
                 // Track has no measurements
                 showSnackbar(R.string.track_finished_no_measurements);
             }
@@ -80,6 +80,8 @@ import javax.inject.Inject;
 
 import butterknife.BindView;
 import butterknife.ButterKnife;
+import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.disposables.CompositeDisposable;
 import io.reactivex.schedulers.Schedulers;
 
 
@@ -162,6 +164,9 @@ public class TrackDetailsActivity extends BaseInjectorActivity {
     protected TextView stoptimeValue;
 
     private Track track;
+    // set on the main thread once the headline values are shown.
+    private boolean viewValuesInitialized;
+    private final CompositeDisposable subscriptions = new CompositeDisposable();
     TrackMapLayer trackMapOverlay;
     protected MapboxMap mapboxMap;
     protected Style mapStyle;
@@ -190,12 +195,42 @@ public class TrackDetailsActivity extends BaseInjectorActivity {
         // Get the track to show.
         int mTrackID = getIntent().getIntExtra(EXTRA_TRACKID, -1);
         Track.TrackId trackid = new Track.TrackId(mTrackID);
-        Track track = mEnvirocarDB.getTrack(trackid)
+        // The headline values are shown from the statistics stored with the track, so that only
+        // the track itself needs to be loaded at this point.
+        subscriptions.add(mEnvirocarDB.getTrack(trackid, true)
                 .subscribeOn(Schedulers.io())
-                .blockingFirst();
-        this.track = track;
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(this::initTrackHeader, LOG::error));
 
-        this.trackMapOverlay = new TrackMapLayer(track);
+        // Initialize the mapview, the trackpath and the speed values once the measurements are
+        // loaded. Outdated statistics of finished tracks have been recomputed while loading the
+        // measurements, other tracks compute them on demand.
+        subscriptions.add(mEnvirocarDB.getTrack(trackid)
+                .subscribeOn(Schedulers.io())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(trackWithMeasurements -> {
+                    this.track = trackWithMeasurements;
+                    if (!viewValuesInitialized) {
+                        initViewValues(trackWithMeasurements);
+                        viewValuesInitialized = true;
+                    }
+                    this.trackMapOverlay = new TrackMapLayer(trackWithMeasurements);
+                    initMapView();
+                    initSpeedValues(trackWithMeasurements);
+                }, LOG::error));
+
+        updateStatusBarColor();
+        mFAB.setOnClickListener(v -> {
+            TrackStatisticsActivity.createInstance(TrackDetailsActivity.this, mTrackID);
+        });
+
+        mMapViewContainer.setOnClickListener(v -> MapExpandedActivity.createInstance(TrackDetailsActivity.this, mTrackID));
+    }
+
+    private void initTrackHeader(Track track) {
+        if (this.track == null) {
+            this.track = track;
+        }
 
         String itemTitle = track.getName();
         CollapsingToolbarLayout collapsingToolbarLayout = findViewById(R.id.collapsing_toolbar);
@@ -206,16 +241,11 @@ public class TrackDetailsActivity extends BaseInjectorActivity {
         TextView title = findViewById(R.id.title);
         title.setText(itemTitle);
 
-        // Initialize the mapview and the trackpath
-        initMapView();
-        initViewValues(track);
-
-        updateStatusBarColor();
-        mFAB.setOnClickListener(v -> {
-            TrackStatisticsActivity.createInstance(TrackDetailsActivity.this, mTrackID);
-        });
-
-        mMapViewContainer.setOnClickListener(v -> MapExpandedActivity.createInstance(TrackDetailsActivity.this, mTrackID));
+        boolean hasStatistics = track.getStatistics() != null && track.getStatistics().isUpToDate();
+        if (hasStatistics && !viewValuesInitialized) {
+            initViewValues(track);
+            viewValuesInitialized = true;
+        }
     }
 
     private void updateStatusBarColor() {
@@ -375,7 +405,9 @@ public class TrackDetailsActivity extends BaseInjectorActivity {
             mConsumptionText.setTextColor(Color.RED);
 
         }
+    }
 
+    private void initSpeedValues(Track track) {
         try {
             Measurement.PropertyKey speedKey = track.hasProperty(Measurement.PropertyKey.SPEED) ? Measurement.PropertyKey.SPEED : Measurement.PropertyKey.GPS_SPEED;
             if (track.hasProperty(speedKey)) {
@@ -470,6 +502,7 @@ public class TrackDetailsActivity extends BaseInjectorActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        subscriptions.clear();
         if (mapStyle != null) {
             mapStyle.removeLayer(MapLayer.LAYER_NAME);
             mapStyle.removeLayer("marker-layer1");
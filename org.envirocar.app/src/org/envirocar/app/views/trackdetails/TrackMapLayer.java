@@ -37,9 +37,9 @@ import com.mapbox.mapboxsdk.style.sources.GeoJsonSource;
 import org.envirocar.core.entity.Measurement;
 import org.envirocar.core.entity.Track;
 import org.envirocar.core.logging.Logger;
+import org.envirocar.core.trackprocessing.statistics.TrackFrame;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
 import static com.mapbox.mapboxsdk.style.expressions.Expression.interpolate;
@@ -63,7 +63,7 @@ public class TrackMapLayer extends MapLayer{
 
     private Float gradMax, gradMin;
     private final Track mTrack;
-    private List<Measurement> measurementList = new ArrayList<>();
+    private TrackFrame trackFrame;
     private Boolean hasNoMeasurements;
     protected LatLngBounds mTrackBoundingBox;
     protected LatLngBounds mViewBoundingBox;
@@ -79,7 +79,7 @@ public class TrackMapLayer extends MapLayer{
         mTrack = track;
         if(mTrack.getMeasurements() != null)
         {
-            measurementList = mTrack.getMeasurements();
+            trackFrame = mTrack.getTrackFrame();
             hasNoMeasurements = false;
         }
         else
@@ -97,9 +97,11 @@ public class TrackMapLayer extends MapLayer{
             // For each measurement value add the longitude and latitude coordinates as a new
             // mappoint to the point list. In addition, try to find out the maximum and minimum
             // lon/lat coordinates for the zoom value of the mapview.
-            for (Measurement measurement : measurementList) {
-                double latitude = measurement.getLatitude();
-                double longitude = measurement.getLongitude();
+            double[] latitudes = trackFrame.getLatitudes();
+            double[] longitudes = trackFrame.getLongitudes();
+            for (int i = 0, n = trackFrame.size(); i < n; i++) {
+                double latitude = latitudes[i];
+                double longitude = longitudes[i];
 
                 if(latitude == 0.0 || longitude == 0.0) {
                     LOG.warn("An coordinate was 0.0");
@@ -188,28 +190,27 @@ public class TrackMapLayer extends MapLayer{
 
         if(!hasNoMeasurements)
         {
-            float size = (float)measurementList.size(), i= 0f;
+            int count = trackFrame.size();
+            float size = (float) count, i = 0f;
             if(size>2)
             {
-                List<Double> propertyValues = new ArrayList<>();
-                for(Measurement measurement : measurementList){
-                    if(measurement.hasProperty(propertyKey))
-                        propertyValues.add(measurement.getProperty(propertyKey));
-                    else {
-                        propertyValues.add((double) 0);
-                        LOG.info("Measurement doesnt have " + propertyKey.toString());
-                    }
+                double[] column = trackFrame.getProperty(propertyKey);
+                double[] propertyValues = new double[count];
+                double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+                for (int j = 0; j < count; j++) {
+                    double value = column != null && !Double.isNaN(column[j]) ? column[j] : 0;
+                    propertyValues[j] = value;
+                    min = Math.min(min, value);
+                    max = Math.max(max, value);
                 }
+                if (column == null)
+                    LOG.info("Track doesnt have " + propertyKey.toString());
 
-                Double min ;
                 if(propertyKey.equals(Measurement.PropertyKey.SPEED))
-                    min = (double) 0;
-                else
-                    min = Collections.min(propertyValues);
+                    min = 0;
 
-                Double max = Collections.max(propertyValues);
-                gradMax = max.floatValue();
-                gradMin = min.floatValue();
+                gradMax = (float) max;
+                gradMin = (float) min;
 
                 //Set the start and end colors for the map legend
                 int startColor = Color.parseColor("#00FF00");
@@ -217,12 +218,12 @@ public class TrackMapLayer extends MapLayer{
                 ArgbEvaluator evaluator = new ArgbEvaluator();
                 List<Expression.Stop> stops  = new ArrayList<>();
 
-                for(Double value : propertyValues){
+                for(double value : propertyValues){
                     //Calculate the color that each point on the line should be and add it to
                     // the list of stops
-                    Double fraction = value / max;
-                    Float stop = i / size;
-                    Integer temp = (Integer) evaluator.evaluate(fraction.floatValue(), startColor, endColor);
+                    float fraction = (float) (value / max);
+                    float stop = i / size;
+                    Integer temp = (Integer) evaluator.evaluate(fraction, startColor, endColor);
                     stops.add(Expression.stop(stop, rgb(Color.red(temp), Color.green(temp), Color.blue(temp))));
                     i++;
                 }
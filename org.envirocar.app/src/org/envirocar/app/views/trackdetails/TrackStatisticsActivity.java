@@ -22,7 +22,6 @@ import android.annotation.SuppressLint;
 import android.app.Activity;
 import android.app.Fragment;
 import android.content.Intent;
-import android.location.Location;
 import android.os.Bundle;
 import androidx.annotation.Nullable;
 import androidx.appcompat.widget.Toolbar;
@@ -36,6 +35,7 @@ import org.envirocar.app.BaseApplicationComponent;
 import org.envirocar.app.R;
 import org.envirocar.core.entity.Measurement;
 import org.envirocar.core.entity.Track;
+import org.envirocar.core.trackprocessing.statistics.TrackFrame;
 import org.envirocar.app.injection.BaseInjectorActivity;
 import org.envirocar.core.EnviroCarDB;
 
@@ -193,7 +193,7 @@ public class TrackStatisticsActivity extends BaseInjectorActivity {
             // Inject all annotated views.
             ButterKnife.bind(this, rootView);
 
-            if(mTrack.hasProperty(Measurement.PropertyKey.SPEED)){
+            if(mTrack.getTrackFrame().hasProperty(Measurement.PropertyKey.SPEED)){
                 generateData(Measurement.PropertyKey.SPEED);
             }else{
                 generateData(Measurement.PropertyKey.GPS_SPEED);
@@ -250,25 +250,18 @@ public class TrackStatisticsActivity extends BaseInjectorActivity {
 
         private List<PointValue> generateDistancedBasedData(Measurement.PropertyKey propertyKey,
                                                             Track track) {
-            List<PointValue> values = new ArrayList<PointValue>();
-
-            // temporary array for computing distances.
-            float[] tmp = new float[1];
-            float distance = 0;
-
-            // temporary value for the last measurement
-            Measurement lastMeasurement = null;
+            TrackFrame frame = track.getTrackFrame();
+            double[] property = frame.getProperty(propertyKey);
+            if (property == null) {
+                return new ArrayList<>();
+            }
 
-            for (Measurement m : track.getMeasurements()) {
-                if (lastMeasurement != null) {
-                    Location.distanceBetween(lastMeasurement.getLatitude(), lastMeasurement
-                            .getLongitude(), m.getLatitude(), m.getLongitude(), tmp);
-                    distance += tmp[0] / 1000f; // we need km not meters.
-                }
-                if (m != null && m.hasProperty(propertyKey)) {
-                    values.add(new PointValue(distance, m.getProperty(propertyKey).floatValue()));
+            double[] distances = frame.getCumulativeDistances();
+            List<PointValue> values = new ArrayList<>(frame.size());
+            for (int i = 0, n = frame.size(); i < n; i++) {
+                if (!Double.isNaN(property[i])) {
+                    values.add(new PointValue((float) distances[i], (float) property[i]));
                 }
-                lastMeasurement = m;
             }
 
             return values;
@@ -54,6 +54,7 @@ import butterknife.BindView;
 import butterknife.ButterKnife;
 import io.reactivex.Scheduler;
 import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.disposables.Disposable;
 
 /**
  * TODO JavaDoc
@@ -341,6 +342,9 @@ public abstract class AbstractTrackListCardAdapter<E extends
      */
     static class LocalTrackCardViewHolder extends TrackCardViewHolder {
 
+        // loads the measurements of a lazy track for the map preview
+        protected Disposable loadMeasurementsSubscription;
+
         /**
          * Constructor.
          *
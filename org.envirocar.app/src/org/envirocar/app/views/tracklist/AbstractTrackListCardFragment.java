@@ -251,10 +251,6 @@ public abstract class AbstractTrackListCardFragment<E extends RecyclerView.Adapt
      * @param track the track to delete.
      */
     protected void createDeleteTrackDialog(Track track) {
-        // Get the up to date reference of the current track.
-        // Create a dialog that deletes on click on the positive button the track.
-        final Track upToDateRef = mEnvirocarDB.getTrack(track.getTrackID()).blockingFirst();
-
         View contentView = getActivity().getLayoutInflater().inflate(
                 R.layout.fragment_tracklist_delete_track_dialog, null, false);
         ((TextView) contentView.findViewById(
@@ -267,13 +263,18 @@ public abstract class AbstractTrackListCardFragment<E extends RecyclerView.Adapt
                 .setIcon(R.drawable.ic_delete_white_24dp)
                 .setPositiveButton(R.string.ok,
                         (materialDialog, dialogAction) ->
-                                mBackgroundWorker.schedule(() -> {
-                                    // On a positive button click, then delete the track.
-                                    if (upToDateRef.isLocalTrack())
-                                        deleteLocalTrack(track);
-                                    else
-                                        deleteRemoteTrack(track);
-                                }))
+                                // Get the up to date reference of the current track without
+                                // its measurements, only its type is needed.
+                                mEnvirocarDB.getTrack(track.getTrackID(), true)
+                                        .subscribeOn(Schedulers.io())
+                                        .observeOn(AndroidSchedulers.mainThread())
+                                        .subscribe(upToDateRef -> {
+                                            // On a positive button click, then delete the track.
+                                            if (upToDateRef.isLocalTrack())
+                                                deleteLocalTrack(track);
+                                            else
+                                                deleteRemoteTrack(track);
+                                        }, LOG::error))
                 .setNegativeButton(R.string.cancel,null)
                 .show();
     }
@@ -292,7 +293,7 @@ public abstract class AbstractTrackListCardFragment<E extends RecyclerView.Adapt
     protected void deleteRemoteTrack(Track track) {
         LOG.info("deleteRemoteTrack()");
 
-        mEnvirocarDB.getTrack(track.getTrackID())
+        mEnvirocarDB.getTrack(track.getTrackID(), true)
                 .map(upToDateRef -> {
                     if (upToDateRef.isLocalTrack()) {
                         LOG.info("Track to delete is a local track");
@@ -318,15 +319,15 @@ public abstract class AbstractTrackListCardFragment<E extends RecyclerView.Adapt
      */
     protected void deleteLocalTrack(final Track track) {
         // Get the up to date reference of the current track and delete it
-        Observable.defer(() -> mEnvirocarDB.getTrack(track.getTrackID()))
+        Observable.defer(() -> mEnvirocarDB.getTrack(track.getTrackID(), true))
                 .subscribeOn(Schedulers.io())
-                .observeOn(AndroidSchedulers.mainThread())
                 .map(upToDateRef -> {
                     // If the track is a local track, then delete and return whether it was
                     // successful.
                     return upToDateRef.isLocalTrack() &&
-                            mTrackDAOHandler.deleteLocalTrack(upToDateRef.getTrackID());
+                            mTrackDAOHandler.deleteLocalTrack(upToDateRef);
                 })
+                .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(getDeleteTrackSubscriber(track));
     }
 
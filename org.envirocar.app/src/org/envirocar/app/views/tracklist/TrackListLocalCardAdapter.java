@@ -22,6 +22,8 @@ import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 
+import androidx.annotation.NonNull;
+
 import com.mapbox.mapboxsdk.maps.MapView;
 
 import org.envirocar.app.R;
@@ -31,6 +33,10 @@ import org.envirocar.core.logging.Logger;
 import java.util.ArrayList;
 import java.util.List;
 
+import io.reactivex.Observable;
+import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.functions.Function;
+
 /**
  * @author dewall
  */
@@ -38,14 +44,20 @@ public class TrackListLocalCardAdapter extends AbstractTrackListCardAdapter<
         AbstractTrackListCardAdapter.LocalTrackCardViewHolder> {
     private static final Logger LOGGER = Logger.getLogger(TrackListLocalCardAdapter.class);
 
+    private final Function<Track, Observable<Track>> measurementLoader;
+
     /**
      * Constructor.
      *
-     * @param tracks   the list of tracks to show cards for.
+     * @param tracks            the list of tracks to show cards for.
      * @param callback
+     * @param measurementLoader loads the measurements of a lazy track when its map preview is
+     *                          shown.
      */
-    public TrackListLocalCardAdapter(List<Track> tracks, OnTrackInteractionCallback callback) {
+    public TrackListLocalCardAdapter(List<Track> tracks, OnTrackInteractionCallback callback,
+                                     Function<Track, Observable<Track>> measurementLoader) {
         super(tracks, callback);
+        this.measurementLoader = measurementLoader;
     }
 
     protected List<MapView> mapViews = new ArrayList<>();
@@ -70,6 +82,41 @@ public class TrackListLocalCardAdapter extends AbstractTrackListCardAdapter<
         bindLocalTrackViewHolder(holder, mTrackDataset.get(position));
     }
 
+    @Override
+    protected void initMapView(TrackCardViewHolder holder, Track track) {
+        LocalTrackCardViewHolder localHolder = (LocalTrackCardViewHolder) holder;
+        cancelLoadingMeasurements(localHolder);
+        if (!track.isLazyLoadingMeasurements()) {
+            super.initMapView(holder, track);
+            return;
+        }
+
+        // the measurements are only loaded for the cards that are shown and are not kept in
+        // the list of tracks
+        try {
+            localHolder.loadMeasurementsSubscription = measurementLoader.apply(track)
+                    .observeOn(AndroidSchedulers.mainThread())
+                    .subscribe(fullTrack -> super.initMapView(holder, fullTrack),
+                            e -> LOGGER.error("Unable to load the measurements of the track", e));
+        } catch (Exception e) {
+            LOGGER.error("Unable to load the measurements of the track", e);
+        }
+    }
+
+    @Override
+    public void onViewRecycled(@NonNull LocalTrackCardViewHolder holder) {
+        super.onViewRecycled(holder);
+        cancelLoadingMeasurements(holder);
+    }
+
+    private void cancelLoadingMeasurements(LocalTrackCardViewHolder holder) {
+        if (holder.loadMeasurementsSubscription != null
+                && !holder.loadMeasurementsSubscription.isDisposed()) {
+            holder.loadMeasurementsSubscription.dispose();
+        }
+        holder.loadMeasurementsSubscription = null;
+    }
+
     public void onLowMemory(){
         for(MapView mapView : mapViews){
             mapView.onLowMemory();
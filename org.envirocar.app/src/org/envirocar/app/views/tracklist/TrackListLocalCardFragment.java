@@ -57,6 +57,7 @@ import java.util.List;
 import javax.inject.Inject;
 
 import butterknife.OnClick;
+import io.reactivex.Observable;
 import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.disposables.Disposable;
 import io.reactivex.observers.DisposableObserver;
@@ -83,6 +84,7 @@ public class TrackListLocalCardFragment extends AbstractTrackListCardFragment<Tr
     private OnTrackUploadedListener onTrackUploadedListener;
 
     private Disposable loadTracksSubscription;
+    private Disposable shareTrackSubscription;
     private Disposable uploadTrackSubscription;
 
     @Override
@@ -172,17 +174,28 @@ public class TrackListLocalCardFragment extends AbstractTrackListCardFragment<Tr
             }
 
             @Override
-            public void onShareTrackClicked(Track track) {
-                LOG.info(String.format("onExportTrackClicked(%s)", track.getTrackID()));
-                if (mUserManager.getUser() != null) {
-                    track.updateMetadata(new TrackMetadata(Util.getVersionString(getActivity()),
-                            mUserManager.getUser().getTermsOfUseVersion()));
-                } else {
-                    track.updateMetadata(new TrackMetadata(Util.getVersionString(getActivity()),
-                            null));
-
+            public void onShareTrackClicked(Track lazyTrack) {
+                LOG.info(String.format("onExportTrackClicked(%s)", lazyTrack.getTrackID()));
+                if (shareTrackSubscription != null && !shareTrackSubscription.isDisposed()) {
+                    shareTrackSubscription.dispose();
                 }
-                shareTrack(track);
+
+                shareTrackSubscription = resolveMeasurements(lazyTrack)
+                        .observeOn(AndroidSchedulers.mainThread())
+                        .subscribe(track -> {
+                            if (mUserManager.getUser() != null) {
+                                track.updateMetadata(new TrackMetadata(Util.getVersionString(getActivity()),
+                                        mUserManager.getUser().getTermsOfUseVersion()));
+                            } else {
+                                track.updateMetadata(new TrackMetadata(Util.getVersionString(getActivity()),
+                                        null));
+
+                            }
+                            shareTrack(track);
+                        }, e -> {
+                            LOG.error(e.getMessage(), e);
+                            showSnackbar(R.string.general_error_please_report);
+                        });
             }
 
             @Override
@@ -195,7 +208,7 @@ public class TrackListLocalCardFragment extends AbstractTrackListCardFragment<Tr
             public void onLongPressedTrack(Track track) {
                 createDeleteTrackDialog(track);
             }
-        });
+        }, this::resolveMeasurements);
     }
 
     @Override
@@ -234,6 +247,10 @@ public class TrackListLocalCardFragment extends AbstractTrackListCardFragment<Tr
             loadTracksSubscription.dispose();
         }
 
+        if (shareTrackSubscription != null && !shareTrackSubscription.isDisposed()) {
+            shareTrackSubscription.dispose();
+        }
+
         if (uploadTrackSubscription != null && !uploadTrackSubscription.isDisposed()) {
             uploadTrackSubscription.dispose();
         }
@@ -254,7 +271,9 @@ public class TrackListLocalCardFragment extends AbstractTrackListCardFragment<Tr
                 }
             }
 
-            loadTracksSubscription = mEnvirocarDB.getAllLocalTracks()
+            // The tracks are loaded lazily by a single query. The measurements are only loaded
+            // when a card shows its map preview or a track gets uploaded or shared.
+            loadTracksSubscription = mEnvirocarDB.getAllLocalTracks(true)
                     .subscribeOn(Schedulers.io())
                     .observeOn(AndroidSchedulers.mainThread())
                     .subscribeWith(new DisposableObserver<List<Track>>() {
@@ -317,6 +336,22 @@ public class TrackListLocalCardFragment extends AbstractTrackListCardFragment<Tr
         }
     }
 
+    /**
+     * Returns the track including its measurements.
+     *
+     * @param track the (possibly lazy) track.
+     * @return an observable emitting the track with all of its measurements, loaded on the io
+     * scheduler if required.
+     */
+    private Observable<Track> resolveMeasurements(Track track) {
+        if (!track.isLazyLoadingMeasurements()) {
+            return Observable.just(track);
+        }
+        return mEnvirocarDB.getTrack(track.getTrackID())
+                .take(1)
+                .subscribeOn(Schedulers.io());
+    }
+
     @Override
     protected void showNoTracksInfo() {
         showText(R.drawable.img_tracks,
@@ -341,7 +376,9 @@ public class TrackListLocalCardFragment extends AbstractTrackListCardFragment<Tr
             uploadTrackSubscription = null;
         }
 
-        uploadTrackSubscription = uploadTrack.execute(new UploadTrack.Params(track, getActivity()))
+        uploadTrackSubscription = resolveMeasurements(track)
+                .concatMap(fullTrack -> uploadTrack.execute(
+                        new UploadTrack.Params(fullTrack, getActivity())))
                 .subscribeWith(new UploadTrackDialogObserver(track));
     }
 
@@ -30,9 +30,10 @@ import org.junit.Test;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import io.reactivex.observers.TestObserver;
-import io.reactivex.schedulers.Schedulers;
+import io.reactivex.schedulers.TestScheduler;
 
 public class InterpolationMeasurementProviderTest {
 
@@ -59,7 +60,11 @@ public class InterpolationMeasurementProviderTest {
 
     @Test
     public void testInterpolation() {
-        InterpolationMeasurementProvider imp = new InterpolationMeasurementProvider();
+        TestScheduler scheduler = new TestScheduler();
+        scheduler.advanceTimeTo(3000, TimeUnit.MILLISECONDS);
+        InterpolationMeasurementProvider imp = new InterpolationMeasurementProvider(scheduler);
+        // interpolate the positions between the fixes
+        imp.setPositionFilterEnabled(false);
 
         PropertyKeyEvent m1 = new PropertyKeyEvent(Measurement.PropertyKey.MAF, 16.0, 1000);
         PropertyKeyEvent m2 = new PropertyKeyEvent(Measurement.PropertyKey.MAF, 48.0, 3500); // this should be the result
@@ -80,10 +85,9 @@ public class InterpolationMeasurementProviderTest {
 
         TestObserver<Measurement> ts = new TestObserver<Measurement>();
 
-        imp.measurements(500)
-                .subscribeOn(Schedulers.trampoline())
-                .observeOn(Schedulers.trampoline())
-                .subscribe(ts);
+        // the next tick is at 4000, the middle of its interval at 3500
+        imp.measurements(1000).subscribe(ts);
+        scheduler.advanceTimeBy(1000, TimeUnit.MILLISECONDS);
 
         List<Measurement> events = ts.values();
         Assert.assertThat(events.size(), CoreMatchers.is(1));
@@ -99,4 +103,30 @@ public class InterpolationMeasurementProviderTest {
         Assert.assertThat(first.getLongitude(), CoreMatchers.is(7.25));
     }
 
+    @Test
+    public void testEvenlySpacedTicks() {
+        TestScheduler scheduler = new TestScheduler();
+        scheduler.advanceTimeTo(1200, TimeUnit.MILLISECONDS);
+        InterpolationMeasurementProvider imp = new InterpolationMeasurementProvider(scheduler);
+
+        TestObserver<Measurement> ts = new TestObserver<Measurement>();
+        imp.measurements(1000).subscribe(ts);
+
+        for (long t = 1300; t <= 5000; t += 100) {
+            imp.consider(new PropertyKeyEvent(Measurement.PropertyKey.SPEED, t / 100, t));
+            imp.newPosition(new MeasurementProvider.Position(t, 52.0, 7.0));
+            scheduler.advanceTimeTo(t, TimeUnit.MILLISECONDS);
+        }
+
+        List<Measurement> events = ts.values();
+        Assert.assertThat(events.size(), CoreMatchers.is(4));
+        for (int i = 0; i < events.size(); i++) {
+            Assert.assertThat(events.get(i).getTime(), CoreMatchers.is(1500L + i * 1000));
+        }
+
+        Assert.assertThat(imp.getTickStatistics().getTickCount(), CoreMatchers.is(4L));
+        Assert.assertThat(imp.getTickStatistics().getMissedDeadlines(), CoreMatchers.is(0L));
+        ts.dispose();
+    }
+
 }
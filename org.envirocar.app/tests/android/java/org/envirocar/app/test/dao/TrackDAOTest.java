@@ -56,6 +56,7 @@ import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.disposables.Disposable;
 import io.reactivex.observers.DisposableObserver;
 import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subscribers.TestSubscriber;
 
 @RunWith(AndroidJUnit4.class)
 public class TrackDAOTest {
@@ -219,6 +220,84 @@ public class TrackDAOTest {
         Assert.assertTrue("Expected remote track 1", remoteTrack.size() == 1);
     }
 
+    // import of a large (e.g. downloaded remote) track with its measurements in a single bulk insert
+    @Test
+    public void insertTrackWithManyMeasurements() throws TrackSerializationException {
+        Track track = new TrackImpl();
+        track.setCar(createCar());
+        track.setName("Imported Track");
+        track.setLength(0.0);
+        track.setStartTime(222800L);
+
+        Measurement template = getFirstMeasurement();
+        for (int i = 0; i < 10000; i++) {
+            Measurement measurement = template.carbonCopy();
+            measurement.setTime(222800L + i * 1000L);
+            track.getMeasurements().add(measurement);
+        }
+
+        enviroCarDB.insertTrack(track);
+
+        List<MeasurementTable> measurementList = trackRoomDatabase.getTrackDAONew()
+                .fetchMeasurementSilent(track.getTrackID().getId());
+        Assert.assertEquals(10000, measurementList.size());
+    }
+
+    // streaming the measurements of a track page by page in the order of their time
+    @Test
+    public void streamMeasurementsOfTrack() throws TrackSerializationException {
+        Track track = new TrackImpl();
+        track.setCar(createCar());
+        track.setName("Streamed Track");
+        track.setLength(0.0);
+        track.setStartTime(222800L);
+
+        Measurement template = getFirstMeasurement();
+        for (int i = 1234; i >= 0; i--) {
+            Measurement measurement = template.carbonCopy();
+            measurement.setTime(222800L + (i / 2) * 1000L);
+            track.getMeasurements().add(measurement);
+        }
+        enviroCarDB.insertTrack(track);
+
+        List<Measurement> streamed = enviroCarDB.getMeasurementsFlowable(track.getTrackID())
+                .toList()
+                .blockingGet();
+        Assert.assertEquals(1235, streamed.size());
+        for (int i = 1; i < streamed.size(); i++) {
+            Assert.assertTrue(streamed.get(i - 1).getTime() <= streamed.get(i).getTime());
+        }
+    }
+
+    // a subscriber that requests less than a page only causes a single page to be read
+    @Test
+    public void streamMeasurementsOnDemand() throws TrackSerializationException {
+        Track track = new TrackImpl();
+        track.setCar(createCar());
+        track.setName("Streamed Track");
+        track.setLength(0.0);
+        track.setStartTime(222800L);
+
+        Measurement template = getFirstMeasurement();
+        for (int i = 0; i < 3 * EnviroCarDBImpl.MEASUREMENT_PAGE_SIZE; i++) {
+            Measurement measurement = template.carbonCopy();
+            measurement.setTime(222800L + i * 1000L);
+            track.getMeasurements().add(measurement);
+        }
+        enviroCarDB.insertTrack(track);
+
+        TestSubscriber<Measurement> subscriber = enviroCarDB.getMeasurementsFlowable(track.getTrackID())
+                .test(10);
+        subscriber.assertValueCount(10);
+
+        // the measurements that have not been read until now are gone, so the remaining values
+        // can only come from the page that has been read for the first request.
+        trackRoomDatabase.getTrackDAONew().deleteMeasuremnt(track.getTrackID().getId());
+        subscriber.requestMore(Long.MAX_VALUE);
+        subscriber.assertValueCount(EnviroCarDBImpl.MEASUREMENT_PAGE_SIZE);
+        subscriber.assertComplete();
+    }
+
     // create new car
     private Car createCar() {
         Car car = new CarImpl();
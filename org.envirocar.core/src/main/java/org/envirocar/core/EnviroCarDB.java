@@ -26,6 +26,7 @@ import org.envirocar.core.util.TrackMetadata;
 
 import java.util.List;
 
+import io.reactivex.Flowable;
 import io.reactivex.Observable;
 
 
@@ -77,6 +78,17 @@ public interface EnviroCarDB {
 
     Observable<Track> updateTrackObservable(Track track);
 
+    /**
+     * Computes the statistics of a track over all of its stored measurements, stores them with
+     * the track and sets them on the given track instance. If the running summary of the track
+     * covers all of its measurements, the statistics are computed from the summary and the
+     * measurements are not read again. Otherwise the measurements are summarized while streaming
+     * them with {@link #getMeasurementsFlowable(Track.TrackId)}.
+     *
+     * @param track the track, whose measurements do not need to be loaded.
+     */
+    void updateTrackStatistics(Track track);
+
     boolean updateCarIdOfTracks(String currentId, String newId);
 
     void deleteTrack(Track.TrackId trackId);
@@ -89,6 +101,24 @@ public interface EnviroCarDB {
 
     void insertMeasurement(Measurement measurement) throws MeasurementSerializationException;
 
+    /**
+     * Inserts a list of measurements within a single database transaction. The measurements
+     * must already reference their track.
+     *
+     * @param measurements the measurements to insert.
+     */
+    void insertMeasurements(List<Measurement> measurements) throws MeasurementSerializationException;
+
+    /**
+     * Inserts a batch of measurements of a track and updates the track summary (end time,
+     * length, ...) within a single database transaction.
+     *
+     * @param track        the track the measurements belong to.
+     * @param measurements the measurements to insert.
+     */
+    void insertMeasurementsAndUpdateTrack(Track track, List<Measurement> measurements) throws
+            MeasurementSerializationException;
+
     void automaticDeleteMeasurements(long time, Track.TrackId trackId);
 
     Observable<Void> insertMeasurementObservable(Measurement measurement);
@@ -97,6 +127,15 @@ public interface EnviroCarDB {
 
     Observable<Void> updateTrackRemoteIDObservable(Track track, String remoteID);
 
+    /**
+     * Streams the measurements of a track ordered by time. The measurements are read page by
+     * page on demand, so that a track never has to be held in memory as a whole.
+     *
+     * @param trackId the id of the track.
+     * @return a flowable emitting the measurements of the track.
+     */
+    Flowable<Measurement> getMeasurementsFlowable(Track.TrackId trackId);
+
     Observable<Track> fetchTracks(Observable<List<Track>> track, final boolean lazy);
 
     Observable<Track> fetchTrack(Observable<Track> track, final boolean lazy);
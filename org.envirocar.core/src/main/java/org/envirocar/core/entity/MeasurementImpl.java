@@ -18,20 +18,31 @@
  */
 package org.envirocar.core.entity;
 
-import java.util.HashMap;
+import java.util.EnumMap;
 import java.util.Map;
 
 /**
- * TODO JavaDoc
+ * Default implementation of a {@link Measurement}. The property values are stored in a primitive
+ * array indexed by the ordinal of their {@link PropertyKey} together with a bitmask marking the
+ * present properties, which avoids a boxed value and a map entry per property.
  *
  * @author dewall
  */
 public class MeasurementImpl implements Measurement {
+    private static final PropertyKey[] PROPERTY_KEYS = PropertyKey.values();
+
+    static {
+        if (PROPERTY_KEYS.length > Long.SIZE) {
+            throw new IllegalStateException("The property bitmask supports at most 64 property keys.");
+        }
+    }
+
     protected Track.TrackId trackId;
     protected Double latitude;
     protected Double longitude;
     protected long time;
-    protected Map<Measurement.PropertyKey, Double> propertyMap = new HashMap<>();
+    protected final double[] propertyValues = new double[PROPERTY_KEYS.length];
+    protected long propertyMask;
 
     /**
      * Constructor.
@@ -93,41 +104,57 @@ public class MeasurementImpl implements Measurement {
 
     @Override
     public Double getProperty(PropertyKey key) {
-        return propertyMap.get(key);
+        int ordinal = key.ordinal();
+        return (propertyMask & (1L << ordinal)) != 0 ? propertyValues[ordinal] : null;
     }
 
     @Override
     public void setProperty(PropertyKey key, Double value) {
         if (value != null) {
-            propertyMap.put(key, value);
+            int ordinal = key.ordinal();
+            propertyValues[ordinal] = value;
+            propertyMask |= 1L << ordinal;
         }
     }
 
     @Override
     public boolean hasProperty(PropertyKey key) {
-        return propertyMap.containsKey(key);
+        return (propertyMask & (1L << key.ordinal())) != 0;
     }
 
+    /**
+     * Returns a snapshot of all properties. Changes to the returned map are not reflected by
+     * this measurement.
+     *
+     * @return a map containing all properties.
+     */
     @Override
     public Map<PropertyKey, Double> getAllProperties() {
-        return propertyMap;
+        Map<PropertyKey, Double> result = new EnumMap<>(PropertyKey.class);
+        long mask = propertyMask;
+        while (mask != 0) {
+            int ordinal = Long.numberOfTrailingZeros(mask);
+            result.put(PROPERTY_KEYS[ordinal], propertyValues[ordinal]);
+            mask &= mask - 1;
+        }
+        return result;
     }
 
     @Override
     public void setAllProperties(Map<PropertyKey, Double> properties) {
-        this.propertyMap = properties;
+        propertyMask = 0;
+        for (Map.Entry<PropertyKey, Double> entry : properties.entrySet()) {
+            setProperty(entry.getKey(), entry.getValue());
+        }
     }
 
     @Override
     public Measurement carbonCopy() {
-        Measurement res = new MeasurementImpl();
-        res.setLongitude(longitude);
-        res.setLatitude(latitude);
-
-        for (Map.Entry<PropertyKey, Double> entry : propertyMap.entrySet()) {
-            res.setProperty(entry.getKey(), entry.getValue());
-        }
-
+        MeasurementImpl res = new MeasurementImpl();
+        res.longitude = longitude;
+        res.latitude = latitude;
+        res.propertyMask = propertyMask;
+        System.arraycopy(propertyValues, 0, res.propertyValues, 0, propertyValues.length);
         res.setTrackId(trackId);
         res.setTime(time);
         return res;
@@ -139,7 +166,7 @@ public class MeasurementImpl implements Measurement {
         longitude = null;
 
         synchronized (this) {
-            propertyMap.clear();
+            propertyMask = 0;
         }
     }
 }
@@ -18,26 +18,29 @@
  */
 package org.envirocar.core.entity;
 
-import android.database.Cursor;
-
 import androidx.annotation.NonNull;
 import androidx.room.ColumnInfo;
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
 import org.envirocar.core.logging.Logger;
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
 
-import java.sql.Blob;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
 import io.reactivex.functions.Function;
 
-@Entity(tableName = "measurements")
+/**
+ * Room entity of a single measurement. Coordinates and time are stored as REAL/INTEGER columns,
+ * the properties are stored as a compact binary blob consisting of one entry per property: the
+ * ordinal of its {@link Measurement.PropertyKey} (1 byte) followed by its value (8 byte double).
+ * Therefore, new property keys must only be appended to the end of the enum.
+ */
+@Entity(tableName = "measurements",
+        indices = {@Index(value = {MeasurementTable.KEY_TRACK, MeasurementTable.KEY_TIME})})
 public class MeasurementTable {
 
     public static final String KEY_TIME = "time";
@@ -53,16 +56,16 @@ public class MeasurementTable {
     Long rowId;
 
     @ColumnInfo(name = KEY_LATITUDE)
-    String keyLatitude;
+    Double keyLatitude;
 
     @ColumnInfo(name = KEY_LONGITUDE)
-    String keyLongitude;
+    Double keyLongitude;
 
     @ColumnInfo(name = KEY_PROPERTIES)
-    String keyProperties;
+    byte[] keyProperties;
 
     @ColumnInfo(name = KEY_TIME)
-    String keyTime;
+    Long keyTime;
 
     @ColumnInfo(name = KEY_TRACK)
     Long keyTrack;
@@ -75,35 +78,35 @@ public class MeasurementTable {
         this.rowId = rowId;
     }
 
-    public String getKeyLatitude() {
+    public Double getKeyLatitude() {
         return keyLatitude;
     }
 
-    public void setKeyLatitude(String keyLatitude) {
+    public void setKeyLatitude(Double keyLatitude) {
         this.keyLatitude = keyLatitude;
     }
 
-    public String getKeyLongitude() {
+    public Double getKeyLongitude() {
         return keyLongitude;
     }
 
-    public void setKeyLongitude(String keyLongitude) {
+    public void setKeyLongitude(Double keyLongitude) {
         this.keyLongitude = keyLongitude;
     }
 
-    public String getKeyProperties() {
+    public byte[] getKeyProperties() {
         return keyProperties;
     }
 
-    public void setKeyProperties(String keyProperties) {
+    public void setKeyProperties(byte[] keyProperties) {
         this.keyProperties = keyProperties;
     }
 
-    public String getKeyTime() {
+    public Long getKeyTime() {
         return keyTime;
     }
 
-    public void setKeyTime(String keyTime) {
+    public void setKeyTime(Long keyTime) {
         this.keyTime = keyTime;
     }
 
@@ -116,61 +119,94 @@ public class MeasurementTable {
     }
 
     private static final Logger LOG = Logger.getLogger(MeasurementTable.class);
+    private static final Measurement.PropertyKey[] PROPERTY_KEYS = Measurement.PropertyKey.values();
+    private static final int PROPERTY_ENTRY_SIZE = 1 + 8;
 
     public static final Function<? super MeasurementTable, ? extends Measurement> MAPPER = measurementTable ->
             measurementTableToMeasurement(measurementTable);
 
     private static Measurement measurementTableToMeasurement(MeasurementTable measurementTable) {
         Measurement measurement = new MeasurementImpl();
-        measurement.setLatitude(Double.parseDouble(measurementTable.getKeyLatitude()));
-        measurement.setLongitude(Double.parseDouble(measurementTable.getKeyLongitude()));
-        measurement.setTime(Long.parseLong(measurementTable.getKeyTime()));
+        measurement.setLatitude(measurementTable.getKeyLatitude());
+        measurement.setLongitude(measurementTable.getKeyLongitude());
+        measurement.setTime(measurementTable.getKeyTime());
         measurement.setTrackId(new Track.TrackId(measurementTable.getKeyTrack()));
 
-        String rawData = measurementTable.getKeyProperties();
+        byte[] rawData = measurementTable.getKeyProperties();
         if (rawData != null) {
-            try {
-                JSONObject json = new JSONObject(rawData);
-                JSONArray names = json.names();
-                if (names != null) {
-                    for (int j = 0; j < names.length(); j++) {
-                        String key = names.getString(j);
-                        measurement.setProperty(Measurement.PropertyKey.valueOf(key), json
-                                .getDouble(key));
-                    }
-                }
-            } catch (JSONException e) {
-                LOG.severe("could not load properties", e);
-            }
+            decodeProperties(rawData, measurement);
         }
         return measurement;
     }
 
     public static MeasurementTable measurementToMeasurementTable(Measurement measurement) {
         MeasurementTable measurementTable = new MeasurementTable();
-        measurementTable.setKeyLatitude(measurement.getLatitude().toString());
-        measurementTable.setKeyLongitude(measurement.getLongitude().toString());
-        measurementTable.setKeyTime("" + measurement.getTime());
+        measurementTable.setKeyLatitude(measurement.getLatitude());
+        measurementTable.setKeyLongitude(measurement.getLongitude());
+        measurementTable.setKeyTime(measurement.getTime());
         measurementTable.setKeyTrack(measurement.getTrackId().getId());
-        measurementTable.setKeyProperties(createPropertiesString(measurement));
+        measurementTable.setKeyProperties(encodeProperties(measurement.getAllProperties()));
         return measurementTable;
     }
 
-    private static String createPropertiesString(Measurement measurement) {
-        JSONObject result = new JSONObject();
-        Map<Measurement.PropertyKey, Double> properties = measurement.getAllProperties();
-        for (Measurement.PropertyKey key : properties.keySet()) {
-            try {
-                result.put(key.name(), properties.get(key));
-            } catch (JSONException e) {
-                LOG.warn("Error while parsing measurement property " + key.name() + "=" + properties.get(key) + "; " + e.getMessage());
+    /**
+     * Encodes the given properties into the binary representation of the properties column.
+     * Non-finite values are not encoded.
+     *
+     * @param properties the properties to encode.
+     * @return the encoded properties.
+     */
+    public static byte[] encodeProperties(Map<Measurement.PropertyKey, Double> properties) {
+        ByteBuffer buffer = ByteBuffer.allocate(properties.size() * PROPERTY_ENTRY_SIZE);
+        for (Map.Entry<Measurement.PropertyKey, Double> entry : properties.entrySet()) {
+            Double value = entry.getValue();
+            if (value == null || value.isNaN() || value.isInfinite()) {
+                LOG.warn("Skipping non-finite measurement property " + entry.getKey().name() + "=" + value);
+                continue;
             }
+            buffer.put((byte) entry.getKey().ordinal());
+            buffer.putDouble(value);
         }
-        return result.toString();
+
+        if (buffer.position() == buffer.capacity()) {
+            return buffer.array();
+        }
+        byte[] result = new byte[buffer.position()];
+        System.arraycopy(buffer.array(), 0, result, 0, result.length);
+        return result;
+    }
+
+    /**
+     * Decodes the binary representation of the properties column and sets the properties on the
+     * given measurement.
+     *
+     * @param rawData     the encoded properties.
+     * @param measurement the measurement to set the properties on.
+     */
+    public static void decodeProperties(byte[] rawData, Measurement measurement) {
+        ByteBuffer buffer = ByteBuffer.wrap(rawData);
+        while (buffer.remaining() >= PROPERTY_ENTRY_SIZE) {
+            int ordinal = buffer.get() & 0xFF;
+            double value = buffer.getDouble();
+            if (ordinal < PROPERTY_KEYS.length) {
+                measurement.setProperty(PROPERTY_KEYS[ordinal], value);
+            } else {
+                LOG.warn("Unknown measurement property ordinal " + ordinal);
+            }
+        }
+    }
+
+    public static List<MeasurementTable> fromMeasurementListToMeasurementTable(List<Measurement> measurementList) {
+        List<MeasurementTable> res = new ArrayList<>(measurementList.size());
+        for (Measurement measurement : measurementList) {
+            res.add(measurementToMeasurementTable(measurement));
+        }
+
+        return res;
     }
 
     public static List<Measurement> fromMeasurementTableListToMeasurement(List<MeasurementTable> measurementTableList) {
-        List<Measurement> res = new ArrayList<>();
+        List<Measurement> res = new ArrayList<>(measurementTableList.size());
         for (MeasurementTable measurementTable : measurementTableList) {
             res.add(measurementTableToMeasurement(measurementTable));
         }
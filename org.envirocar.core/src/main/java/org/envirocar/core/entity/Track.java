@@ -19,6 +19,9 @@
 package org.envirocar.core.entity;
 
 import org.envirocar.core.exception.NoMeasurementsException;
+import org.envirocar.core.trackprocessing.statistics.TrackFrame;
+import org.envirocar.core.trackprocessing.statistics.TrackStatistics;
+import org.envirocar.core.trackprocessing.statistics.TrackSummaryAccumulator;
 import org.envirocar.core.util.TrackMetadata;
 
 import java.util.List;
@@ -137,6 +140,51 @@ public interface Track extends BaseEntity<Track>, Comparable<Track> {
 
     void addMeasurements(List<Measurement> measurements);
 
+    /**
+     * Returns the number of measurements of this track. For tracks whose measurements are
+     * loaded lazily this is the number of measurements stored in the database.
+     *
+     * @return the number of measurements.
+     */
+    int getMeasurementCount();
+
+    void setMeasurementCount(int measurementCount);
+
+    /**
+     * Returns a columnar view on the currently loaded measurements of this track. The frame is
+     * built once and cached until {@link #invalidateTrackFrame()} is called.
+     *
+     * @return the frame of this track.
+     */
+    TrackFrame getTrackFrame();
+
+    /**
+     * Discards the cached frame and the values computed from it. {@link #setMeasurements(List)}
+     * and {@link #addMeasurements(List)} do this themselves, it only has to be called after the
+     * list returned by {@link #getMeasurements()} has been modified.
+     */
+    void invalidateTrackFrame();
+
+    /**
+     * Returns the incrementally computed summary of this track, which is available without
+     * loading the measurements. Tracks that have not been recorded on this device have no
+     * summary.
+     *
+     * @return the summary or null.
+     */
+    TrackSummaryAccumulator getSummary();
+
+    void setSummary(TrackSummaryAccumulator summary);
+
+    /**
+     * Returns the statistics that have been precomputed and stored together with the track.
+     *
+     * @return the statistics or null if they have not been computed yet.
+     */
+    TrackStatistics getStatistics();
+
+    void setStatistics(TrackStatistics statistics);
+
     boolean hasProperty(Measurement.PropertyKey propertyKey);
 
     List<Measurement.PropertyKey> getSupportedProperties();
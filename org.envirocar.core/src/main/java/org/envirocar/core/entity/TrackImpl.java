@@ -22,8 +22,11 @@ import org.envirocar.core.exception.FuelConsumptionException;
 import org.envirocar.core.exception.NoMeasurementsException;
 import org.envirocar.core.exception.UnsupportedFuelTypeException;
 import org.envirocar.core.logging.Logger;
+import org.envirocar.core.trackprocessing.statistics.TrackFrame;
+import org.envirocar.core.trackprocessing.statistics.TrackStatistics;
 import org.envirocar.core.trackprocessing.statistics.TrackStatisticsProcessor;
 import org.envirocar.core.trackprocessing.statistics.TrackStatisticsProvider;
+import org.envirocar.core.trackprocessing.statistics.TrackSummaryAccumulator;
 import org.envirocar.core.util.TrackMetadata;
 
 import java.util.ArrayList;
@@ -35,8 +38,6 @@ import java.util.List;
  * @author dewall
  */
 public class TrackImpl implements Track, TrackStatisticsProvider {
-    private TrackStatisticsProcessor STATISTICS_PROCESSOR;
-
     protected TrackId trackID;
     protected String remoteID;
     protected String name;
@@ -52,12 +53,12 @@ public class TrackImpl implements Track, TrackStatisticsProvider {
     protected DownloadState downloadState;
 
     protected boolean isLazyLoadingMeasurements = false;
-
-    protected Double distanceOfTrack;
-    protected Double consumptionPerHour;
-    protected Double co2Average;
-    protected Double literPerHundredKm;
-    protected Double gramsPerKm;
+    protected int measurementCount;
+    protected TrackFrame trackFrame;
+    protected TrackSummaryAccumulator summary;
+    protected TrackStatistics statistics;
+    // statistics computed from the loaded measurements, if there are no stored ones.
+    protected TrackStatistics computedStatistics;
 
     /**
      * Default constructor with downloaded state.
@@ -97,7 +98,7 @@ public class TrackImpl implements Track, TrackStatisticsProvider {
 
     @Override
     public boolean isLazyLoadingMeasurements() {
-        return false;
+        return isLazyLoadingMeasurements;
     }
 
     @Override
@@ -119,7 +120,10 @@ public class TrackImpl implements Track, TrackStatisticsProvider {
         track.setTrackStatus(trackStatus);
         track.setMeasurements(new ArrayList<>(measurements));
         track.setLazyMeasurements(isLazyLoadingMeasurements);
+        track.setMeasurementCount(measurementCount);
         track.setLength(length);
+        track.setSummary(summary);
+        track.setStatistics(statistics);
         return track;
     }
 
@@ -171,7 +175,7 @@ public class TrackImpl implements Track, TrackStatisticsProvider {
     @Override
     public void setCar(Car car) {
         this.car = car;
-        this.STATISTICS_PROCESSOR = new TrackStatisticsProcessor(car.getFuelType());
+        this.computedStatistics = null;
     }
 
     @Override
@@ -297,15 +301,74 @@ public class TrackImpl implements Track, TrackStatisticsProvider {
         // track is not" +
         //                " allowed to have empty measuremnts");
         this.measurements = measurements;
+        invalidateTrackFrame();
     }
 
     @Override
     public void addMeasurements(List<Measurement> measurements) {
         this.measurements.addAll(measurements);
+        invalidateTrackFrame();
+    }
+
+    @Override
+    public TrackFrame getTrackFrame() {
+        if (trackFrame == null) {
+            trackFrame = TrackFrame.fromMeasurements(measurements);
+        }
+        return trackFrame;
+    }
+
+    @Override
+    public void invalidateTrackFrame() {
+        this.trackFrame = null;
+        this.computedStatistics = null;
+    }
+
+    @Override
+    public int getMeasurementCount() {
+        return isLazyLoadingMeasurements ? measurementCount : measurements.size();
+    }
+
+    @Override
+    public void setMeasurementCount(int measurementCount) {
+        this.measurementCount = measurementCount;
+    }
+
+    @Override
+    public TrackSummaryAccumulator getSummary() {
+        return summary;
+    }
+
+    @Override
+    public void setSummary(TrackSummaryAccumulator summary) {
+        this.summary = summary;
+    }
+
+    @Override
+    public TrackStatistics getStatistics() {
+        return statistics;
+    }
+
+    @Override
+    public void setStatistics(TrackStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    /**
+     * @return the stored statistics if they are up to date, otherwise null.
+     */
+    private TrackStatistics getCurrentStatistics() {
+        return statistics != null && statistics.isUpToDate() ? statistics : null;
     }
 
     @Override
     public boolean hasProperty(Measurement.PropertyKey propertyKey) {
+        if (measurements.isEmpty()) {
+            if (getCurrentStatistics() != null) {
+                return statistics.hasProperty(propertyKey);
+            }
+            return summary != null && summary.hasProperty(propertyKey);
+        }
         for (Measurement m : measurements) {
             if (m.hasProperty(propertyKey)) {
                 return true;
@@ -316,13 +379,16 @@ public class TrackImpl implements Track, TrackStatisticsProvider {
 
     @Override
     public List<Measurement.PropertyKey> getSupportedProperties() {
-        List<Measurement.PropertyKey> result = new ArrayList<>();
-        for (Measurement.PropertyKey key : Measurement.PropertyKey.values()) {
-            if (hasProperty(key)) {
-                result.add(key);
+        if (measurements.isEmpty() && (getCurrentStatistics() != null || summary != null)) {
+            List<Measurement.PropertyKey> result = new ArrayList<>();
+            for (Measurement.PropertyKey key : Measurement.PropertyKey.values()) {
+                if (hasProperty(key)) {
+                    result.add(key);
+                }
             }
+            return result;
         }
-        return result;
+        return getTrackFrame().getSupportedProperties();
     }
 
     @Override
@@ -412,45 +478,64 @@ public class TrackImpl implements Track, TrackStatisticsProvider {
 
     @Override
     public double getDistanceOfTrack() {
-        if ((distanceOfTrack == null || distanceOfTrack == 0.0) && STATISTICS_PROCESSOR != null) {
-            distanceOfTrack = STATISTICS_PROCESSOR.computeDistanceOfTrack(getMeasurements());
+        TrackStatistics current = getCurrentStatistics();
+        if (current != null && current.getDistance() != null) {
+            return current.getDistance();
+        }
+        if (measurements.isEmpty() && summary != null) {
+            // the measurements have not been loaded, but the summary of the recording is available.
+            return summary.getDistance();
         }
-        return distanceOfTrack;
+        return getComputedStatistics().getDistance();
     }
 
     @Override
     public double getFuelConsumptionPerHour() throws FuelConsumptionException {
-        if (consumptionPerHour == null) {
-            consumptionPerHour = STATISTICS_PROCESSOR.getFuelConsumptionPerHour(getMeasurements());
-        }
-        return consumptionPerHour;
+        return requireStatistic(getStatisticsOrCompute().getConsumptionPerHour());
     }
 
     @Override
     public double getCO2Average() throws FuelConsumptionException {
-        if (co2Average == null) {
-            co2Average = STATISTICS_PROCESSOR.getCO2Average(getMeasurements());
-        }
-        return co2Average;
+        return requireStatistic(getStatisticsOrCompute().getCO2Average());
     }
 
     @Override
     public double getLiterPerHundredKm() throws
             FuelConsumptionException, NoMeasurementsException {
-        if (literPerHundredKm == null) {
-            literPerHundredKm = STATISTICS_PROCESSOR.getLiterPerHundredKm(
-                    getFuelConsumptionPerHour(), getDuration(), getDistanceOfTrack());
-        }
-        return literPerHundredKm;
+        return requireStatistic(getStatisticsOrCompute().getLiterPerHundredKm());
     }
 
     @Override
     public double getGramsPerKm() throws FuelConsumptionException, NoMeasurementsException,
             UnsupportedFuelTypeException {
-        if (gramsPerKm == null) {
-            gramsPerKm = STATISTICS_PROCESSOR.getGramsPerKm(getLiterPerHundredKm(), getCar().getFuelType());
+        TrackStatistics current = getStatisticsOrCompute();
+        if (current.getGramsPerKm() == null && current.getLiterPerHundredKm() != null) {
+            throw new UnsupportedFuelTypeException(getCar().getFuelType());
+        }
+        return requireStatistic(current.getGramsPerKm());
+    }
+
+    /**
+     * @return the stored statistics if they are up to date, otherwise the statistics computed
+     * from the loaded measurements.
+     */
+    private TrackStatistics getStatisticsOrCompute() {
+        TrackStatistics current = getCurrentStatistics();
+        return current != null ? current : getComputedStatistics();
+    }
+
+    private TrackStatistics getComputedStatistics() {
+        if (computedStatistics == null) {
+            computedStatistics = TrackStatisticsProcessor.computeStatistics(this);
+        }
+        return computedStatistics;
+    }
+
+    private static double requireStatistic(Double value) throws FuelConsumptionException {
+        if (value == null) {
+            throw new FuelConsumptionException("No fuel consumption has been computed for this track.");
         }
-        return gramsPerKm;
+        return value;
     }
 
 }
@@ -24,9 +24,12 @@ import android.database.Cursor;
 import androidx.annotation.NonNull;
 import androidx.room.ColumnInfo;
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
 import org.envirocar.core.logging.Logger;
+import org.envirocar.core.trackprocessing.statistics.TrackStatistics;
+import org.envirocar.core.trackprocessing.statistics.TrackSummaryAccumulator;
 import org.envirocar.core.util.TrackMetadata;
 import org.json.JSONException;
 
@@ -35,7 +38,11 @@ import java.util.List;
 
 import io.reactivex.functions.Function;
 
-@Entity(tableName = "tracks")
+@Entity(tableName = "tracks",
+        indices = {
+                @Index(value = {TrackTable.KEY_REMOTE_ID}),
+                @Index(value = {TrackTable.KEY_TRACK_STATE}),
+                @Index(value = {TrackTable.KEY_TRACK_CAR_ID})})
 public class TrackTable {
 
     public static final String KEY_TRACK_ID = "_id";
@@ -56,6 +63,14 @@ public class TrackTable {
     public static final String KEY_TRACK_CAR_WEIGHT = "car_weight";
     public static final String KEY_TRACK_CAR_ID = "carId";
     public static final String KEY_TRACK_METADATA = "trackMetadata";
+    public static final String KEY_TRACK_SUMMARY = "summary";
+    public static final String KEY_TRACK_STATS_VERSION = "stats_version";
+    public static final String KEY_TRACK_STATS_DISTANCE = "stats_distance";
+    public static final String KEY_TRACK_STATS_CONSUMPTION = "stats_consumption";
+    public static final String KEY_TRACK_STATS_CO2 = "stats_co2";
+    public static final String KEY_TRACK_STATS_LITER_PER_100KM = "stats_liter_per_100km";
+    public static final String KEY_TRACK_STATS_GRAMS_PER_KM = "stats_grams_per_km";
+    public static final String KEY_TRACK_STATS_PROPERTIES = "stats_properties";
 
     private static final Logger LOG = Logger.getLogger(TrackTable.class);
 
@@ -115,6 +130,30 @@ public class TrackTable {
     @ColumnInfo(name = KEY_TRACK_METADATA)
     String carMetadata;
 
+    @ColumnInfo(name = KEY_TRACK_SUMMARY, typeAffinity = ColumnInfo.BLOB)
+    byte[] summary;
+
+    @ColumnInfo(name = KEY_TRACK_STATS_VERSION)
+    Integer statsVersion;
+
+    @ColumnInfo(name = KEY_TRACK_STATS_DISTANCE)
+    Double statsDistance;
+
+    @ColumnInfo(name = KEY_TRACK_STATS_CONSUMPTION)
+    Double statsConsumption;
+
+    @ColumnInfo(name = KEY_TRACK_STATS_CO2)
+    Double statsCO2;
+
+    @ColumnInfo(name = KEY_TRACK_STATS_LITER_PER_100KM)
+    Double statsLiterPerHundredKm;
+
+    @ColumnInfo(name = KEY_TRACK_STATS_GRAMS_PER_KM)
+    Double statsGramsPerKm;
+
+    @ColumnInfo(name = KEY_TRACK_STATS_PROPERTIES)
+    Long statsProperties;
+
     public Long getId() {
         return id;
     }
@@ -259,6 +298,70 @@ public class TrackTable {
         this.carMetadata = carMetadata;
     }
 
+    public byte[] getSummary() {
+        return summary;
+    }
+
+    public void setSummary(byte[] summary) {
+        this.summary = summary;
+    }
+
+    public Integer getStatsVersion() {
+        return statsVersion;
+    }
+
+    public void setStatsVersion(Integer statsVersion) {
+        this.statsVersion = statsVersion;
+    }
+
+    public Double getStatsDistance() {
+        return statsDistance;
+    }
+
+    public void setStatsDistance(Double statsDistance) {
+        this.statsDistance = statsDistance;
+    }
+
+    public Double getStatsConsumption() {
+        return statsConsumption;
+    }
+
+    public void setStatsConsumption(Double statsConsumption) {
+        this.statsConsumption = statsConsumption;
+    }
+
+    public Double getStatsCO2() {
+        return statsCO2;
+    }
+
+    public void setStatsCO2(Double statsCO2) {
+        this.statsCO2 = statsCO2;
+    }
+
+    public Double getStatsLiterPerHundredKm() {
+        return statsLiterPerHundredKm;
+    }
+
+    public void setStatsLiterPerHundredKm(Double statsLiterPerHundredKm) {
+        this.statsLiterPerHundredKm = statsLiterPerHundredKm;
+    }
+
+    public Double getStatsGramsPerKm() {
+        return statsGramsPerKm;
+    }
+
+    public void setStatsGramsPerKm(Double statsGramsPerKm) {
+        this.statsGramsPerKm = statsGramsPerKm;
+    }
+
+    public Long getStatsProperties() {
+        return statsProperties;
+    }
+
+    public void setStatsProperties(Long statsProperties) {
+        this.statsProperties = statsProperties;
+    }
+
     public static final Function<? super TrackTable, ? extends Track> MAPPER = trackTable -> trackTableToTrack(trackTable);
 
     public static Track trackTableToTrack(TrackTable trackTable) {
@@ -285,6 +388,16 @@ public class TrackTable {
             }
         }
         track.setCar(createCarFromTrackTable(trackTable));
+        track.setSummary(TrackSummaryAccumulator.decode(trackTable.getSummary()));
+        if (trackTable.getStatsVersion() != null) {
+            track.setStatistics(new TrackStatistics(trackTable.getStatsVersion(),
+                    trackTable.getStatsDistance(),
+                    trackTable.getStatsConsumption(),
+                    trackTable.getStatsCO2(),
+                    trackTable.getStatsLiterPerHundredKm(),
+                    trackTable.getStatsGramsPerKm(),
+                    trackTable.getStatsProperties() != null ? trackTable.getStatsProperties() : 0L));
+        }
 
         return track;
     }
@@ -353,6 +466,21 @@ public class TrackTable {
             }
         }
 
+        if (track.getSummary() != null) {
+            trackTable.setSummary(track.getSummary().encode());
+        }
+
+        TrackStatistics statistics = track.getStatistics();
+        if (statistics != null) {
+            trackTable.setStatsVersion(statistics.getVersion());
+            trackTable.setStatsDistance(statistics.getDistance());
+            trackTable.setStatsConsumption(statistics.getConsumptionPerHour());
+            trackTable.setStatsCO2(statistics.getCO2Average());
+            trackTable.setStatsLiterPerHundredKm(statistics.getLiterPerHundredKm());
+            trackTable.setStatsGramsPerKm(statistics.getGramsPerKm());
+            trackTable.setStatsProperties(statistics.getPropertyMask());
+        }
+
         return trackTable;
     }
 
@@ -0,0 +1,107 @@
+/**
+ * Copyright (C) 2013 - 2021 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.core.entity;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Embedded;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.reactivex.functions.Function;
+
+/**
+ * Result of a grouped query over the tracks and their measurements. Holds a {@link TrackTable}
+ * together with the time of its first and last measurement as well as the number of
+ * measurements, which is everything required for a lazy track without loading its measurements.
+ */
+public class TrackTableWithMeasurementInfo {
+
+    public static final String KEY_MEASUREMENT_START_TIME = "measurement_start_time";
+    public static final String KEY_MEASUREMENT_END_TIME = "measurement_end_time";
+    public static final String KEY_MEASUREMENT_COUNT = "measurement_count";
+
+    @Embedded
+    TrackTable trackTable;
+
+    @ColumnInfo(name = KEY_MEASUREMENT_START_TIME)
+    Long measurementStartTime;
+
+    @ColumnInfo(name = KEY_MEASUREMENT_END_TIME)
+    Long measurementEndTime;
+
+    @ColumnInfo(name = KEY_MEASUREMENT_COUNT)
+    int measurementCount;
+
+    public TrackTable getTrackTable() {
+        return trackTable;
+    }
+
+    public void setTrackTable(TrackTable trackTable) {
+        this.trackTable = trackTable;
+    }
+
+    public Long getMeasurementStartTime() {
+        return measurementStartTime;
+    }
+
+    public void setMeasurementStartTime(Long measurementStartTime) {
+        this.measurementStartTime = measurementStartTime;
+    }
+
+    public Long getMeasurementEndTime() {
+        return measurementEndTime;
+    }
+
+    public void setMeasurementEndTime(Long measurementEndTime) {
+        this.measurementEndTime = measurementEndTime;
+    }
+
+    public int getMeasurementCount() {
+        return measurementCount;
+    }
+
+    public void setMeasurementCount(int measurementCount) {
+        this.measurementCount = measurementCount;
+    }
+
+    public static final Function<? super TrackTableWithMeasurementInfo, ? extends Track> MAPPER =
+            trackTable -> toLazyTrack(trackTable);
+
+    public static Track toLazyTrack(TrackTableWithMeasurementInfo trackWithInfo) {
+        Track track = TrackTable.trackTableToTrack(trackWithInfo.getTrackTable());
+        if (trackWithInfo.getMeasurementStartTime() != null) {
+            track.setStartTime(trackWithInfo.getMeasurementStartTime());
+        }
+        if (trackWithInfo.getMeasurementEndTime() != null) {
+            track.setEndTime(trackWithInfo.getMeasurementEndTime());
+        }
+        track.setMeasurementCount(trackWithInfo.getMeasurementCount());
+        track.setLazyMeasurements(true);
+        return track;
+    }
+
+    public static List<Track> toLazyTracks(List<TrackTableWithMeasurementInfo> trackWithInfoList) {
+        List<Track> res = new ArrayList<>(trackWithInfoList.size());
+        for (TrackTableWithMeasurementInfo trackWithInfo : trackWithInfoList) {
+            res.add(toLazyTrack(trackWithInfo));
+        }
+        return res;
+    }
+}
@@ -21,6 +21,7 @@ package org.envirocar.core.events.recording;
 import com.google.common.base.MoreObjects;
 
 import org.envirocar.core.entity.Measurement;
+import org.envirocar.core.trackprocessing.statistics.TrackSummaryAccumulator;
 
 
 /**
@@ -31,14 +32,17 @@ import org.envirocar.core.entity.Measurement;
 public class RecordingNewMeasurementEvent {
 
     public final Measurement mMeasurement;
+    public final TrackSummaryAccumulator mSummary;
 
     /**
      * Constructor.
      *
      * @param measurement
+     * @param summary     the summary of the track including the new measurement.
      */
-    public RecordingNewMeasurementEvent(Measurement measurement) {
+    public RecordingNewMeasurementEvent(Measurement measurement, TrackSummaryAccumulator summary) {
         this.mMeasurement = measurement;
+        this.mSummary = summary;
     }
 
     @Override
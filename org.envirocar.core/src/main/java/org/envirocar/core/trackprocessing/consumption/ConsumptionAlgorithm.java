@@ -23,6 +23,7 @@ import org.envirocar.core.entity.Car;
 import org.envirocar.core.entity.Measurement;
 import org.envirocar.core.exception.FuelConsumptionException;
 import org.envirocar.core.exception.UnsupportedFuelTypeException;
+import org.envirocar.core.trackprocessing.statistics.TrackFrame;
 
 /**
  * TODO JavaDoc
@@ -44,6 +45,19 @@ public interface ConsumptionAlgorithm {
     double calculateConsumption(Measurement measurement) throws
             FuelConsumptionException, UnsupportedFuelTypeException;
 
+    /**
+     * An implementation shall calculate the fuel consumption (l/h) of a measurement of a track
+     * frame, with the same result as {@link #calculateConsumption(Measurement)}.
+     *
+     * @param frame the frame providing the required parameters
+     * @param index the index of the measurement in the frame
+     * @return fuel consumption in l/h
+     * @throws FuelConsumptionException     if required parameters were missing
+     * @throws UnsupportedFuelTypeException if fuel type is not supported
+     */
+    double calculateConsumption(TrackFrame frame, int index) throws
+            FuelConsumptionException, UnsupportedFuelTypeException;
+
     /**
      * An implementation shall calculate the CO2 emission (kg/h) for a fuel consumption value (l/h)
      *
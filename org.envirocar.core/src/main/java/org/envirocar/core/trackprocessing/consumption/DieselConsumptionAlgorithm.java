@@ -23,6 +23,7 @@ import com.google.common.base.Preconditions;
 import org.envirocar.core.entity.Measurement;
 import org.envirocar.core.exception.FuelConsumptionException;
 import org.envirocar.core.logging.Logger;
+import org.envirocar.core.trackprocessing.statistics.TrackFrame;
 
 import static org.envirocar.core.entity.Measurement.PropertyKey.*;
 
@@ -74,31 +75,52 @@ public class DieselConsumptionAlgorithm implements ConsumptionAlgorithm {
     public double calculateConsumption(Measurement measurement) throws FuelConsumptionException {
         Preconditions.checkNotNull(measurement);
 
-        if (!measurement.hasProperty(LAMBDA_VOLTAGE_ER)
-                && !measurement.hasProperty(LAMBDA_VOLTAGE)) {
+        return calculateConsumption(
+                toPrimitive(measurement.getProperty(LAMBDA_VOLTAGE)),
+                toPrimitive(measurement.getProperty(LAMBDA_VOLTAGE_ER)),
+                toPrimitive(measurement.getProperty(MAF)),
+                toPrimitive(measurement.getProperty(CALCULATED_MAF)));
+    }
+
+    @Override
+    public double calculateConsumption(TrackFrame frame, int index) throws FuelConsumptionException {
+        return calculateConsumption(
+                frame.getValue(LAMBDA_VOLTAGE, index),
+                frame.getValue(LAMBDA_VOLTAGE_ER, index),
+                frame.getValue(MAF, index),
+                frame.getValue(CALCULATED_MAF, index));
+    }
+
+    /**
+     * @param lambdaV       the lambda voltage, NaN if missing
+     * @param lambdaER      the lambda voltage equivalence ratio, NaN if missing
+     * @param maf           the measured mass air flow in g/s, NaN if missing
+     * @param calculatedMaf the calculated mass air flow in g/s, NaN if missing
+     */
+    private double calculateConsumption(double lambdaV, double lambdaER, double maf,
+                                        double calculatedMaf) throws FuelConsumptionException {
+        if (Double.isNaN(lambdaER) && Double.isNaN(lambdaV)) {
             throw new FuelConsumptionException("No lambda voltage values available", Arrays.asList(LAMBDA_VOLTAGE, LAMBDA_VOLTAGE_ER));
         }
 
         /**
          * we assume a consumption of zero if the lambda voltage exceeds 1.1
          */
-        Double lambdaV = measurement.getProperty(LAMBDA_VOLTAGE);
-
         if (lambdaV > 1.1) {
             //TODO check with TU-BS - seems to happen very often
             LOG.info("Lambda Voltage > 1.1; this might be no consumption at all?");
             return 0.0;
         }
 
-        double lambdaER = calculateLambdaVoltageER(measurement.getProperty(LAMBDA_VOLTAGE_ER), lambdaV);
+        double lambda = calculateLambdaVoltageER(lambdaER, lambdaV);
 
         //mass air flow in kilogram
-        double mafKG = resolveMassAirFlow(measurement) / 1000;
+        double mafKG = resolveMassAirFlow(maf, calculatedMaf) / 1000;
 
         /**
          * calculate mass fuel flow in kg/h
          */
-        double massFuelFlow =  ((mafKG / lambdaER) /  MINIMUM_REQUIRED_AIR) * 3600;
+        double massFuelFlow =  ((mafKG / lambda) /  MINIMUM_REQUIRED_AIR) * 3600;
 
         /**
          * calculate volumetric fuel flow in l/h
@@ -106,12 +128,12 @@ public class DieselConsumptionAlgorithm implements ConsumptionAlgorithm {
         return massFuelFlow / FUEL_DENSITY;
     }
 
-    private double resolveMassAirFlow(Measurement measurement) throws FuelConsumptionException {
-        if (measurement.hasProperty(MAF)) {
-            return measurement.getProperty(MAF);
+    private double resolveMassAirFlow(double maf, double calculatedMaf) throws FuelConsumptionException {
+        if (!Double.isNaN(maf)) {
+            return maf;
         }
-        else if (measurement.hasProperty(CALCULATED_MAF)) {
-            return measurement.getProperty(CALCULATED_MAF);
+        else if (!Double.isNaN(calculatedMaf)) {
+            return calculatedMaf;
         }
 
         throw new FuelConsumptionException("No MAF value available");
@@ -125,6 +147,10 @@ public class DieselConsumptionAlgorithm implements ConsumptionAlgorithm {
             return lambdaER;
         }
 
+        if (Double.isNaN(lambdaV)) {
+            throw new FuelConsumptionException("No lambda voltage value available", Arrays.asList(LAMBDA_VOLTAGE));
+        }
+
         /**
          * we calculate the lambda ER using the regression function
          */
@@ -142,4 +168,8 @@ public class DieselConsumptionAlgorithm implements ConsumptionAlgorithm {
     public double calculateCO2FromConsumption(double consumption) {
         return consumption * DIESEL_CONSUMPTION_TO_CO2_FACTOR; //kg/h
     }
+
+    private static double toPrimitive(Double value) {
+        return value == null ? Double.NaN : value;
+    }
 }
@@ -20,6 +20,7 @@ package org.envirocar.core.trackprocessing.consumption;
 
 import org.envirocar.core.entity.Measurement;
 import org.envirocar.core.exception.FuelConsumptionException;
+import org.envirocar.core.trackprocessing.statistics.TrackFrame;
 
 /**
  * TODO JavaDoc
@@ -37,18 +38,39 @@ public class GasolineConsumptionAlgorithm implements ConsumptionAlgorithm {
      */
     @Override
     public double calculateConsumption(Measurement measurement) throws FuelConsumptionException {
-        double maf;
-        if (measurement.hasProperty(Measurement.PropertyKey.MAF)) {
-            maf = measurement.getProperty(Measurement.PropertyKey.MAF);
-        } else if (measurement.hasProperty(Measurement.PropertyKey.CALCULATED_MAF)) {
-            maf = measurement.getProperty(Measurement.PropertyKey.CALCULATED_MAF);
-        } else throw new FuelConsumptionException("Get no MAF value");
+        return calculateConsumption(
+                toPrimitive(measurement.getProperty(Measurement.PropertyKey.MAF)),
+                toPrimitive(measurement.getProperty(Measurement.PropertyKey.CALCULATED_MAF)));
+    }
+
+    @Override
+    public double calculateConsumption(TrackFrame frame, int index) throws FuelConsumptionException {
+        return calculateConsumption(
+                frame.getValue(Measurement.PropertyKey.MAF, index),
+                frame.getValue(Measurement.PropertyKey.CALCULATED_MAF, index));
+    }
+
+    /**
+     * @param maf           the measured MAF, NaN if missing
+     * @param calculatedMaf the calculated MAF, NaN if missing
+     */
+    private double calculateConsumption(double maf, double calculatedMaf) throws FuelConsumptionException {
+        if (Double.isNaN(maf)) {
+            maf = calculatedMaf;
+        }
+        if (Double.isNaN(maf)) {
+            throw new FuelConsumptionException("Get no MAF value");
+        }
 
         //convert from seconds to hour
         double result_in_seconds = (maf / AIR_FUEL_RATIO) / FUEL_DENSITY;
         return result_in_seconds * 3600;
     }
 
+    private static double toPrimitive(Double value) {
+        return value == null ? Double.NaN : value;
+    }
+
     /**
      * @param consumption fuel consumption in l/h
      * @return the estimated co2 consumption
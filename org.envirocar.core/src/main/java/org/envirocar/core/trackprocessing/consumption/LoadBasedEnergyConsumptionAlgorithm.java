@@ -22,6 +22,7 @@ import org.envirocar.core.entity.Car;
 import org.envirocar.core.entity.Measurement;
 import org.envirocar.core.exception.FuelConsumptionException;
 import org.envirocar.core.exception.UnsupportedFuelTypeException;
+import org.envirocar.core.trackprocessing.statistics.TrackFrame;
 
 /**
  * TODO JavaDoc
@@ -104,12 +105,28 @@ public class LoadBasedEnergyConsumptionAlgorithm implements ConsumptionAlgorithm
      */
     @Override
     public double calculateConsumption(Measurement measurement) throws FuelConsumptionException, UnsupportedFuelTypeException {
-        double speedNow = getSpeed(measurement);
-        double datetimeNow = measurement.getTime();
-        double longitudeNow = measurement.getLongitude();
-        double latitudeNow = measurement.getLatitude();
-        double altitudeNow = measurement.getProperty(Measurement.PropertyKey.GPS_ALTITUDE);
+        return calculateConsumption(getSpeed(measurement), measurement.getTime(),
+                measurement.getLatitude(), measurement.getLongitude(),
+                measurement.getProperty(Measurement.PropertyKey.GPS_ALTITUDE));
+    }
+
+    /**
+     * Like {@link #calculateConsumption(Measurement)}, the measurements have to be passed in
+     * temporal order.
+     */
+    @Override
+    public double calculateConsumption(TrackFrame frame, int index) throws FuelConsumptionException, UnsupportedFuelTypeException {
+        double speed = frame.getValue(Measurement.PropertyKey.SPEED, index);
+        if (Double.isNaN(speed)) {
+            speed = frame.getValue(Measurement.PropertyKey.GPS_SPEED, index);
+        }
+        return calculateConsumption(speed, frame.getTimes()[index],
+                frame.getLatitudes()[index], frame.getLongitudes()[index],
+                frame.getValue(Measurement.PropertyKey.GPS_ALTITUDE, index));
+    }
 
+    private double calculateConsumption(double speedNow, double datetimeNow, double latitudeNow,
+                                        double longitudeNow, double altitudeNow) {
         if (!isFirstValue) {
             // calculate acceleration
             this.acceleration = (speedNow - speedPrev) / ((datetimeNow - this.datePrev) / 1000);
@@ -0,0 +1,342 @@
+/**
+ * Copyright (C) 2013 - 2021 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.core.trackprocessing.statistics;
+
+import org.envirocar.core.entity.Measurement;
+import org.envirocar.core.entity.Track;
+import org.envirocar.core.utils.LocationUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+
+/**
+ * Column oriented, read-only view on the measurements of a track. Times, coordinates and every
+ * phenomenon that occurs at least once in the track are stored in primitive arrays, where a
+ * missing value of a phenomenon is encoded as {@link Double#NaN}. A frame is built once and can
+ * then be shared by all consumers that have to iterate over a complete track (statistics, charts,
+ * map layers), which avoids the per measurement map lookups and boxing.
+ * <p>
+ * The arrays returned by the getters are not copied and must not be modified.
+ */
+public final class TrackFrame {
+    private static final Measurement.PropertyKey[] KEYS = Measurement.PropertyKey.values();
+
+    private final int size;
+    private final long[] times;
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final double[][] columns;
+
+    // lazily computed cumulative distances in km.
+    private double[] cumulativeDistances;
+
+    private TrackFrame(int size, long[] times, double[] latitudes, double[] longitudes,
+                       double[][] columns) {
+        this.size = size;
+        this.times = times;
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+        this.columns = columns;
+    }
+
+    /**
+     * Creates a frame of the measurements of the given track.
+     *
+     * @param track the track
+     * @return the frame
+     */
+    public static TrackFrame fromTrack(Track track) {
+        return fromMeasurements(track.getMeasurements());
+    }
+
+    /**
+     * Creates a frame of the given measurements.
+     *
+     * @param measurements the measurements ordered by time.
+     * @return the frame
+     */
+    public static TrackFrame fromMeasurements(List<Measurement> measurements) {
+        Builder builder = new Builder(measurements == null ? 0 : measurements.size());
+        if (measurements != null) {
+            for (int i = 0, n = measurements.size(); i < n; i++) {
+                builder.add(measurements.get(i));
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Collects the measurements emitted by the given flowable (e.g. the paged measurement stream
+     * of the database) into a frame without materializing a list of measurements.
+     *
+     * @param measurements the measurements ordered by time.
+     * @return a single emitting the frame.
+     */
+    public static Single<TrackFrame> fromFlowable(Flowable<Measurement> measurements) {
+        return measurements.collect(Builder::new, Builder::add).map(Builder::build);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long[] getTimes() {
+        return times;
+    }
+
+    public double[] getLatitudes() {
+        return latitudes;
+    }
+
+    public double[] getLongitudes() {
+        return longitudes;
+    }
+
+    public boolean hasProperty(Measurement.PropertyKey key) {
+        return columns[key.ordinal()] != null;
+    }
+
+    /**
+     * @param key the phenomenon
+     * @return the values of the phenomenon with NaN for measurements without a value, or null
+     * if no measurement of the track has this phenomenon.
+     */
+    public double[] getProperty(Measurement.PropertyKey key) {
+        return columns[key.ordinal()];
+    }
+
+    /**
+     * @param key   the phenomenon
+     * @param index the index of the measurement
+     * @return the value of the phenomenon, or NaN if the measurement has none.
+     */
+    public double getValue(Measurement.PropertyKey key, int index) {
+        double[] column = columns[key.ordinal()];
+        return column == null ? Double.NaN : column[index];
+    }
+
+    public List<Measurement.PropertyKey> getSupportedProperties() {
+        List<Measurement.PropertyKey> result = new ArrayList<>();
+        for (Measurement.PropertyKey key : KEYS) {
+            if (columns[key.ordinal()] != null) {
+                result.add(key);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the travelled distance up to each measurement in km, i.e. the first entry is
+     * always 0 and the last entry is the length of the track.
+     *
+     * @return the cumulative distances in km.
+     */
+    public double[] getCumulativeDistances() {
+        if (cumulativeDistances == null) {
+            // same as TrackSummaryAccumulator: measurements without a position are skipped and
+            // the next segment starts at the last known position.
+            double[] result = new double[size];
+            double distance = 0.0;
+            int last = -1;
+            for (int i = 0; i < size; i++) {
+                if (!Double.isNaN(latitudes[i]) && !Double.isNaN(longitudes[i])) {
+                    if (last >= 0) {
+                        distance += LocationUtils.getDistance(latitudes[last], longitudes[last],
+                                latitudes[i], longitudes[i]);
+                    }
+                    last = i;
+                }
+                result[i] = distance;
+            }
+            cumulativeDistances = result;
+        }
+        return cumulativeDistances;
+    }
+
+    /**
+     * @return the length of the track in km.
+     */
+    public double getDistance() {
+        return size <= 1 ? 0.0 : getCumulativeDistances()[size - 1];
+    }
+
+    /**
+     * @return the number of measurements that have a value for the given phenomenon.
+     */
+    public int count(Measurement.PropertyKey key) {
+        double[] column = columns[key.ordinal()];
+        if (column == null) {
+            return 0;
+        }
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (!Double.isNaN(column[i])) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the sum over all values of the given phenomenon.
+     */
+    public double sum(Measurement.PropertyKey key) {
+        double[] column = columns[key.ordinal()];
+        if (column == null) {
+            return 0.0;
+        }
+        double sum = 0.0;
+        for (int i = 0; i < size; i++) {
+            double value = column[i];
+            if (!Double.isNaN(value)) {
+                sum += value;
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * @return the mean of all values of the given phenomenon or NaN if there are none.
+     */
+    public double mean(Measurement.PropertyKey key) {
+        int count = count(key);
+        return count == 0 ? Double.NaN : sum(key) / count;
+    }
+
+    /**
+     * @return the minimum of all values of the given phenomenon or NaN if there are none.
+     */
+    public double min(Measurement.PropertyKey key) {
+        double[] column = columns[key.ordinal()];
+        double min = Double.NaN;
+        for (int i = 0; column != null && i < size; i++) {
+            double value = column[i];
+            if (!Double.isNaN(value) && (Double.isNaN(min) || value < min)) {
+                min = value;
+            }
+        }
+        return min;
+    }
+
+    /**
+     * @return the maximum of all values of the given phenomenon or NaN if there are none.
+     */
+    public double max(Measurement.PropertyKey key) {
+        double[] column = columns[key.ordinal()];
+        double max = Double.NaN;
+        for (int i = 0; column != null && i < size; i++) {
+            double value = column[i];
+            if (!Double.isNaN(value) && (Double.isNaN(max) || value > max)) {
+                max = value;
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Incrementally builds a {@link TrackFrame}. The arrays grow on demand, so the builder can
+     * also be used if the number of measurements is not known in advance.
+     */
+    public static final class Builder {
+        private int size;
+        private long[] times;
+        private double[] latitudes;
+        private double[] longitudes;
+        private double[][] columns = new double[KEYS.length][];
+
+        public Builder() {
+            this(64);
+        }
+
+        public Builder(int expectedSize) {
+            int capacity = Math.max(expectedSize, 1);
+            this.times = new long[capacity];
+            this.latitudes = new double[capacity];
+            this.longitudes = new double[capacity];
+        }
+
+        public Builder add(Measurement measurement) {
+            if (size == times.length) {
+                grow();
+            }
+
+            times[size] = measurement.getTime();
+            latitudes[size] = toPrimitive(measurement.getLatitude());
+            longitudes[size] = toPrimitive(measurement.getLongitude());
+
+            for (int k = 0; k < KEYS.length; k++) {
+                double[] column = columns[k];
+                if (measurement.hasProperty(KEYS[k])) {
+                    if (column == null) {
+                        column = new double[times.length];
+                        Arrays.fill(column, Double.NaN);
+                        columns[k] = column;
+                    }
+                    column[size] = toPrimitive(measurement.getProperty(KEYS[k]));
+                } else if (column != null) {
+                    column[size] = Double.NaN;
+                }
+            }
+
+            size++;
+            return this;
+        }
+
+        public TrackFrame build() {
+            if (size == times.length) {
+                return new TrackFrame(size, times, latitudes, longitudes, columns.clone());
+            }
+
+            double[][] trimmedColumns = new double[KEYS.length][];
+            for (int k = 0; k < KEYS.length; k++) {
+                if (columns[k] != null) {
+                    trimmedColumns[k] = Arrays.copyOf(columns[k], size);
+                }
+            }
+            return new TrackFrame(size, Arrays.copyOf(times, size), Arrays.copyOf(latitudes, size),
+                    Arrays.copyOf(longitudes, size), trimmedColumns);
+        }
+
+        private void grow() {
+            int capacity = times.length * 2;
+            times = Arrays.copyOf(times, capacity);
+            latitudes = Arrays.copyOf(latitudes, capacity);
+            longitudes = Arrays.copyOf(longitudes, capacity);
+            for (int k = 0; k < KEYS.length; k++) {
+                if (columns[k] != null) {
+                    int oldLength = columns[k].length;
+                    columns[k] = Arrays.copyOf(columns[k], capacity);
+                    Arrays.fill(columns[k], oldLength, capacity, Double.NaN);
+                }
+            }
+        }
+
+        private static double toPrimitive(Double value) {
+            return value == null ? Double.NaN : value;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright (C) 2013 - 2021 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.core.trackprocessing.statistics;
+
+import org.envirocar.core.entity.Measurement;
+
+/**
+ * Precomputed statistics of a track that are stored together with the track, so that they do not
+ * have to be recomputed over all measurements whenever they are shown. Values that could not be
+ * computed (e.g. the consumption of a track without the required phenomenons) are null.
+ * <p>
+ * The statistics are stamped with the {@link TrackStatisticsProcessor#STATISTICS_VERSION} they
+ * have been computed with. Statistics with an outdated version are recomputed.
+ */
+public class TrackStatistics {
+
+    private final int version;
+    private final Double distance;
+    private final Double consumptionPerHour;
+    private final Double co2Average;
+    private final Double literPerHundredKm;
+    private final Double gramsPerKm;
+    private final long propertyMask;
+
+    /**
+     * Constructor.
+     *
+     * @param version            the version of the statistics computation.
+     * @param distance           the distance in km.
+     * @param consumptionPerHour the average fuel consumption in l/h.
+     * @param co2Average         the average CO2 emission in kg/h.
+     * @param literPerHundredKm  the fuel consumption in l/100km.
+     * @param gramsPerKm         the CO2 emission in g/km.
+     * @param propertyMask       bitmask of the phenomenons available in the track.
+     */
+    public TrackStatistics(int version, Double distance, Double consumptionPerHour, Double co2Average,
+                           Double literPerHundredKm, Double gramsPerKm, long propertyMask) {
+        this.version = version;
+        this.distance = distance;
+        this.consumptionPerHour = consumptionPerHour;
+        this.co2Average = co2Average;
+        this.literPerHundredKm = literPerHundredKm;
+        this.gramsPerKm = gramsPerKm;
+        this.propertyMask = propertyMask;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * @return true if the statistics have been computed with the current version.
+     */
+    public boolean isUpToDate() {
+        return version == TrackStatisticsProcessor.STATISTICS_VERSION;
+    }
+
+    public Double getDistance() {
+        return distance;
+    }
+
+    public Double getConsumptionPerHour() {
+        return consumptionPerHour;
+    }
+
+    public Double getCO2Average() {
+        return co2Average;
+    }
+
+    public Double getLiterPerHundredKm() {
+        return literPerHundredKm;
+    }
+
+    public Double getGramsPerKm() {
+        return gramsPerKm;
+    }
+
+    public long getPropertyMask() {
+        return propertyMask;
+    }
+
+    public boolean hasProperty(Measurement.PropertyKey key) {
+        return (propertyMask & (1L << key.ordinal())) != 0;
+    }
+
+    @Override
+    public String toString() {
+        return "TrackStatistics{" +
+                "version=" + version +
+                ", distance=" + distance +
+                ", consumptionPerHour=" + consumptionPerHour +
+                ", co2Average=" + co2Average +
+                ", literPerHundredKm=" + literPerHundredKm +
+                ", gramsPerKm=" + gramsPerKm +
+                '}';
+    }
+}
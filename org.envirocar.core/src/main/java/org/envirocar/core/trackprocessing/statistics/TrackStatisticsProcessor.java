@@ -18,21 +18,13 @@
  */
 package org.envirocar.core.trackprocessing.statistics;
 
-import static org.envirocar.core.entity.Measurement.PropertyKey.LAMBDA_VOLTAGE;
-import static org.envirocar.core.entity.Measurement.PropertyKey.LAMBDA_VOLTAGE_ER;
-
-import android.location.Location;
-
 import org.envirocar.core.entity.Car;
 import org.envirocar.core.entity.Measurement;
-import org.envirocar.core.exception.FuelConsumptionException;
+import org.envirocar.core.entity.Track;
 import org.envirocar.core.exception.UnsupportedFuelTypeException;
 import org.envirocar.core.logging.Logger;
 import org.envirocar.core.trackprocessing.consumption.ConsumptionAlgorithm;
 
-import java.util.Arrays;
-import java.util.List;
-
 /**
  * TODO JavaDoc
  *
@@ -41,7 +33,14 @@ import java.util.List;
 public class TrackStatisticsProcessor {
     private static final Logger LOG = Logger.getLogger(TrackStatisticsProcessor.class);
 
+    /**
+     * Version of the statistics computation. Has to be increased whenever the computation or one
+     * of the {@link ConsumptionAlgorithm}s changes, so that stored {@link TrackStatistics} get
+     * recomputed.
+     */
+    public static final int STATISTICS_VERSION = 2;
 
+    protected final Car.FuelType fuelType;
     protected ConsumptionAlgorithm consumptionAlgorithm;
 
     /**
@@ -50,77 +49,77 @@ public class TrackStatisticsProcessor {
      * @param fuelType the fuel type of the corresponding car.
      */
     public TrackStatisticsProcessor(Car.FuelType fuelType) {
+        this.fuelType = fuelType;
         this.consumptionAlgorithm = ConsumptionAlgorithm.fromFuelType(fuelType);
     }
 
-    public double computeDistanceOfTrack(List<Measurement> measurements) {
-        double distance = 0.0;
-
-        // Return a distance of one if only one measurement exists.
-        if (measurements == null || measurements.size() <= 1) {
-            return distance;
-        }
-
-        Measurement m1 = measurements.get(0);
-        Measurement m2;
-        float[] distanceArray = new float[1];
-
-        for (int i = 1; i < measurements.size(); i++) {
-            m2 = measurements.get(i);
-            Location.distanceBetween(m1.getLatitude(), m1.getLongitude(), m2
-                    .getLatitude(), m2.getLongitude(), distanceArray);
-            distance += distanceArray[0];
-
-            m1 = m2;
-            distanceArray[0] = 0;
-        }
+    /**
+     * Computes all statistics of a track at once. The measurements of the track have to be
+     * loaded.
+     *
+     * @param track the track with its measurements.
+     * @return the statistics of the track.
+     */
+    public static TrackStatistics computeStatistics(Track track) {
+        Car car = track.getCar();
+        TrackSummaryAccumulator summary = TrackSummaryAccumulator.fromFrame(track.getTrackFrame(),
+                car == null ? null : car.getFuelType());
+        return computeStatistics(summary, car, track.getDuration());
+    }
 
-        return distance / 1000.0d;
+    /**
+     * Computes all statistics of a track from the summary of its measurements, which avoids to
+     * load the measurements of a recorded track again. {@link #computeStatistics(Track)}
+     * summarizes the loaded measurements in the same way, so both return the same statistics
+     * for the same measurements.
+     *
+     * @param summary the summary of all measurements of the track, created for the fuel type
+     *                of the car.
+     * @param car     the car of the track, may be null.
+     * @return the statistics of the track.
+     */
+    public static TrackStatistics computeStatistics(TrackSummaryAccumulator summary, Car car) {
+        return computeStatistics(summary, car, summary.getDuration());
     }
 
-    public Double getCO2Average(List<Measurement> measurements) throws FuelConsumptionException {
-        double co2Avg = 0.0;
-        if (consumptionAlgorithm == null) {
-            return null;
+    private static TrackStatistics computeStatistics(TrackSummaryAccumulator summary, Car car,
+                                                     long durationInMillis) {
+        long propertyMask = 0L;
+        for (Measurement.PropertyKey key : summary.getSupportedProperties()) {
+            propertyMask |= 1L << key.ordinal();
         }
 
-        for (Measurement measurement : measurements) {
-            Double property = measurement.getProperty(Measurement.PropertyKey.CONSUMPTION);
-
-            if (property != null) {
-                co2Avg += consumptionAlgorithm.calculateCO2FromConsumption(property);
-            }
-
+        double distance = summary.getDistance();
+        if (car == null || summary.getMeasurementCount() == 0 || !summary.hasConsumptionAlgorithm()) {
+            return new TrackStatistics(STATISTICS_VERSION, distance, null, null, null, null, propertyMask);
         }
-        co2Avg /= measurements.size();
-
-        return co2Avg;
-    }
-
-    public Double getFuelConsumptionPerHour(List<Measurement> measurements) throws FuelConsumptionException {
-        double consumption = 0.0;
-        if (consumptionAlgorithm == null) {
-            return null;
+        if (summary.getFuelType() != car.getFuelType()) {
+            LOG.warn(String.format("The summary has been computed for %s, but the car uses %s.",
+                    summary.getFuelType(), car.getFuelType()));
+            return new TrackStatistics(STATISTICS_VERSION, distance, null, null, null, null, propertyMask);
         }
 
-        int consideredCount = 0;
-        for (Measurement measurement : measurements) {
-            try {
-                consumption += consumptionAlgorithm.calculateConsumption(measurement);
-                consideredCount++;
-            } catch (UnsupportedFuelTypeException | FuelConsumptionException e) {
-                LOG.debug(e.getMessage());
-            }
-        }
+        TrackStatisticsProcessor processor = new TrackStatisticsProcessor(car.getFuelType());
+        Double co2Average = summary.getCalculatedCO2Mean();
+        Double consumptionPerHour = null;
+        Double literPerHundredKm = null;
+        Double gramsPerKm = null;
 
         LOG.info(String.format("%s of %s measurements used for consumption/hour calculation",
-                consideredCount, measurements.size()));
-
-        if (consideredCount <= 0) {
-            throw new FuelConsumptionException("No fuel consumption computation possible. No values with required parameters", Arrays.asList(LAMBDA_VOLTAGE, LAMBDA_VOLTAGE_ER));
+                summary.getCalculatedConsumptionCount(), summary.getMeasurementCount()));
+        if (summary.getCalculatedConsumptionCount() > 0) {
+            consumptionPerHour = summary.getCalculatedConsumptionMean();
+            literPerHundredKm = processor.getLiterPerHundredKm(
+                    consumptionPerHour, durationInMillis, distance);
+            try {
+                gramsPerKm = processor.getGramsPerKm(literPerHundredKm, processor.fuelType);
+            } catch (UnsupportedFuelTypeException e) {
+                LOG.info(String.format("Unable to compute the CO2 emission per km: %s", e.getMessage()));
+            }
         }
 
-        return consumption / consideredCount;
+        return new TrackStatistics(STATISTICS_VERSION, distance, consumptionPerHour, co2Average,
+                literPerHundredKm, gramsPerKm, propertyMask);
     }
 
     public double getLiterPerHundredKm(double consumptionPerHour, double durationInMillis, double lengthOfTrack) {
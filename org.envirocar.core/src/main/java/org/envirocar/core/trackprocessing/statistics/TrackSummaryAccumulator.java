@@ -0,0 +1,502 @@
+/**
+ * Copyright (C) 2013 - 2021 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.core.trackprocessing.statistics;
+
+import org.envirocar.core.entity.Car;
+import org.envirocar.core.entity.Measurement;
+import org.envirocar.core.exception.FuelConsumptionException;
+import org.envirocar.core.exception.UnsupportedFuelTypeException;
+import org.envirocar.core.logging.Logger;
+import org.envirocar.core.trackprocessing.consumption.ConsumptionAlgorithm;
+import org.envirocar.core.utils.LocationUtils;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Incrementally maintained summary of a track. Every measurement of a recording is added exactly
+ * once, so that the summary never has to look at previous measurements again. The summary is
+ * persisted together with the track, which allows to show the statistics of a finished track
+ * without loading its measurements.
+ * <p>
+ * Fuel consumption and CO2 emission are integrated over time from the consumption rates
+ * (l/h and kg/h) of the measurements. The OBD based values and the GPS based estimations are
+ * integrated separately, a track may contain both. The distance is computed in the same way as
+ * {@link TrackFrame#getDistance()}.
+ * <p>
+ * If the fuel type of the car is known, the fuel consumption of every measurement is computed
+ * with the {@link ConsumptionAlgorithm} of the fuel type. These values are the base of the
+ * consumption in the {@link TrackStatistics}, which are computed from a summary for recorded
+ * and for loaded tracks alike.
+ */
+public class TrackSummaryAccumulator {
+    private static final Logger LOG = Logger.getLogger(TrackSummaryAccumulator.class);
+    private static final Measurement.PropertyKey[] KEYS = Measurement.PropertyKey.values();
+    private static final Car.FuelType[] FUEL_TYPES = Car.FuelType.values();
+    private static final byte FORMAT_VERSION = 3;
+    private static final double MILLIS_PER_HOUR = 1000.0 * 60 * 60;
+
+    private final Car.FuelType fuelType;
+    private final ConsumptionAlgorithm consumptionAlgorithm;
+
+    private int measurementCount;
+    private long startTime;
+    private long endTime;
+    private double distance;
+    private double lastLatitude = Double.NaN;
+    private double lastLongitude = Double.NaN;
+    private double lastConsumption = Double.NaN;
+    private double lastCO2 = Double.NaN;
+    private double lastEstimatedConsumption = Double.NaN;
+    private double lastEstimatedCO2 = Double.NaN;
+    private double fuelConsumption;
+    private double co2Emission;
+    private double estimatedFuelConsumption;
+    private double estimatedCO2Emission;
+    private double calculatedConsumptionSum;
+    private int calculatedConsumptionCount;
+    private double calculatedCO2Sum;
+
+    private final int[] counts = new int[KEYS.length];
+    private final double[] sums = new double[KEYS.length];
+    private final double[] mins = new double[KEYS.length];
+    private final double[] maxs = new double[KEYS.length];
+
+    /**
+     * Creates a summary without consumption statistics.
+     */
+    public TrackSummaryAccumulator() {
+        this(null);
+    }
+
+    /**
+     * Creates a summary that additionally computes the fuel consumption of every measurement
+     * with the {@link ConsumptionAlgorithm} of the given fuel type.
+     *
+     * @param fuelType the fuel type of the car of the track, may be null.
+     */
+    public TrackSummaryAccumulator(Car.FuelType fuelType) {
+        this.fuelType = fuelType;
+        this.consumptionAlgorithm = fuelType == null ? null : ConsumptionAlgorithm.fromFuelType(fuelType);
+    }
+
+    /**
+     * Summarizes all measurements of a frame at once.
+     *
+     * @param frame    the frame of the track.
+     * @param fuelType the fuel type of the car of the track, may be null.
+     * @return the summary of the frame.
+     */
+    public static TrackSummaryAccumulator fromFrame(TrackFrame frame, Car.FuelType fuelType) {
+        TrackSummaryAccumulator result = new TrackSummaryAccumulator(fuelType);
+        long[] times = frame.getTimes();
+        double[] latitudes = frame.getLatitudes();
+        double[] longitudes = frame.getLongitudes();
+        double[][] columns = new double[KEYS.length][];
+        for (int k = 0; k < KEYS.length; k++) {
+            columns[k] = frame.getProperty(KEYS[k]);
+        }
+
+        for (int i = 0, n = frame.size(); i < n; i++) {
+            double calculatedConsumption = Double.NaN;
+            if (result.consumptionAlgorithm != null) {
+                try {
+                    calculatedConsumption = result.consumptionAlgorithm.calculateConsumption(frame, i);
+                } catch (FuelConsumptionException | UnsupportedFuelTypeException e) {
+                    LOG.debug(e.getMessage());
+                }
+            }
+
+            result.addRow(times[i], latitudes[i], longitudes[i],
+                    frame.getValue(Measurement.PropertyKey.CONSUMPTION, i),
+                    frame.getValue(Measurement.PropertyKey.CO2, i),
+                    frame.getValue(Measurement.PropertyKey.ENERGY_CONSUMPTION, i),
+                    frame.getValue(Measurement.PropertyKey.ENERGY_CONSUMPTION_CO2, i),
+                    calculatedConsumption);
+            for (int k = 0; k < KEYS.length; k++) {
+                if (columns[k] != null) {
+                    result.addValue(k, columns[k][i]);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Adds a new measurement to the summary. Measurements have to be added in temporal order.
+     *
+     * @param measurement the new measurement.
+     */
+    public synchronized void add(Measurement measurement) {
+        double calculatedConsumption = Double.NaN;
+        if (consumptionAlgorithm != null) {
+            try {
+                calculatedConsumption = consumptionAlgorithm.calculateConsumption(measurement);
+            } catch (FuelConsumptionException | UnsupportedFuelTypeException e) {
+                LOG.debug(e.getMessage());
+            }
+        }
+
+        addRow(measurement.getTime(),
+                toPrimitive(measurement.getLatitude()),
+                toPrimitive(measurement.getLongitude()),
+                valueOf(measurement, Measurement.PropertyKey.CONSUMPTION),
+                valueOf(measurement, Measurement.PropertyKey.CO2),
+                valueOf(measurement, Measurement.PropertyKey.ENERGY_CONSUMPTION),
+                valueOf(measurement, Measurement.PropertyKey.ENERGY_CONSUMPTION_CO2),
+                calculatedConsumption);
+        for (int k = 0; k < KEYS.length; k++) {
+            if (measurement.hasProperty(KEYS[k])) {
+                addValue(k, toPrimitive(measurement.getProperty(KEYS[k])));
+            }
+        }
+    }
+
+    private void addRow(long time, double latitude, double longitude, double consumption,
+                        double co2, double estimatedConsumption, double estimatedCO2,
+                        double calculatedConsumption) {
+        boolean hasPosition = !Double.isNaN(latitude) && !Double.isNaN(longitude);
+        if (measurementCount == 0) {
+            startTime = time;
+        } else {
+            if (!Double.isNaN(lastLatitude) && hasPosition) {
+                distance += LocationUtils.getDistance(lastLatitude, lastLongitude, latitude, longitude);
+            }
+
+            double hours = (time - endTime) / MILLIS_PER_HOUR;
+            fuelConsumption += integrate(lastConsumption, consumption, hours);
+            co2Emission += integrate(lastCO2, co2, hours);
+            estimatedFuelConsumption += integrate(lastEstimatedConsumption, estimatedConsumption, hours);
+            estimatedCO2Emission += integrate(lastEstimatedCO2, estimatedCO2, hours);
+        }
+
+        if (!Double.isNaN(calculatedConsumption)) {
+            calculatedConsumptionSum += calculatedConsumption;
+            calculatedConsumptionCount++;
+        }
+        if (consumptionAlgorithm != null && !Double.isNaN(consumption)) {
+            try {
+                calculatedCO2Sum += consumptionAlgorithm.calculateCO2FromConsumption(consumption);
+            } catch (FuelConsumptionException e) {
+                LOG.debug(e.getMessage());
+            }
+        }
+
+        if (hasPosition) {
+            lastLatitude = latitude;
+            lastLongitude = longitude;
+        }
+        lastConsumption = consumption;
+        lastCO2 = co2;
+        lastEstimatedConsumption = estimatedConsumption;
+        lastEstimatedCO2 = estimatedCO2;
+        endTime = time;
+        measurementCount++;
+    }
+
+    private void addValue(int k, double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return;
+        }
+        if (counts[k] == 0) {
+            mins[k] = value;
+            maxs[k] = value;
+        } else {
+            mins[k] = Math.min(mins[k], value);
+            maxs[k] = Math.max(maxs[k], value);
+        }
+        sums[k] += value;
+        counts[k]++;
+    }
+
+    public synchronized int getMeasurementCount() {
+        return measurementCount;
+    }
+
+    public synchronized long getStartTime() {
+        return startTime;
+    }
+
+    public synchronized long getEndTime() {
+        return endTime;
+    }
+
+    /**
+     * @return the duration of the track in milliseconds.
+     */
+    public synchronized long getDuration() {
+        return endTime - startTime;
+    }
+
+    /**
+     * @return the travelled distance in km.
+     */
+    public synchronized double getDistance() {
+        return distance;
+    }
+
+    /**
+     * @return the total fuel consumption in l based on the OBD values.
+     */
+    public synchronized double getFuelConsumption() {
+        return fuelConsumption;
+    }
+
+    /**
+     * @return the total CO2 emission in kg based on the OBD values.
+     */
+    public synchronized double getCO2Emission() {
+        return co2Emission;
+    }
+
+    /**
+     * @return the total fuel consumption in l estimated from the GPS values.
+     */
+    public synchronized double getEstimatedFuelConsumption() {
+        return estimatedFuelConsumption;
+    }
+
+    /**
+     * @return the total CO2 emission in kg estimated from the GPS values.
+     */
+    public synchronized double getEstimatedCO2Emission() {
+        return estimatedCO2Emission;
+    }
+
+    /**
+     * @return the fuel type the consumption is computed for, or null.
+     */
+    public Car.FuelType getFuelType() {
+        return fuelType;
+    }
+
+    /**
+     * @return whether the consumption of the measurements is computed, i.e. whether there is a
+     * {@link ConsumptionAlgorithm} for the fuel type.
+     */
+    public boolean hasConsumptionAlgorithm() {
+        return consumptionAlgorithm != null;
+    }
+
+    /**
+     * @return the number of measurements for which a fuel consumption could be computed.
+     */
+    public synchronized int getCalculatedConsumptionCount() {
+        return calculatedConsumptionCount;
+    }
+
+    /**
+     * @return the mean computed fuel consumption in l/h or NaN if it could not be computed for
+     * any measurement.
+     */
+    public synchronized double getCalculatedConsumptionMean() {
+        return calculatedConsumptionCount == 0 ? Double.NaN
+                : calculatedConsumptionSum / calculatedConsumptionCount;
+    }
+
+    /**
+     * @return the CO2 emission in kg/h derived from the consumption values, averaged over all
+     * measurements.
+     */
+    public synchronized double getCalculatedCO2Mean() {
+        return measurementCount == 0 ? Double.NaN : calculatedCO2Sum / measurementCount;
+    }
+
+    public synchronized boolean hasProperty(Measurement.PropertyKey key) {
+        return counts[key.ordinal()] > 0;
+    }
+
+    public synchronized int getCount(Measurement.PropertyKey key) {
+        return counts[key.ordinal()];
+    }
+
+    /**
+     * @return the mean of the phenomenon or NaN if no measurement had a value.
+     */
+    public synchronized double getMean(Measurement.PropertyKey key) {
+        int k = key.ordinal();
+        return counts[k] == 0 ? Double.NaN : sums[k] / counts[k];
+    }
+
+    /**
+     * @return the minimum of the phenomenon or NaN if no measurement had a value.
+     */
+    public synchronized double getMin(Measurement.PropertyKey key) {
+        int k = key.ordinal();
+        return counts[k] == 0 ? Double.NaN : mins[k];
+    }
+
+    /**
+     * @return the maximum of the phenomenon or NaN if no measurement had a value.
+     */
+    public synchronized double getMax(Measurement.PropertyKey key) {
+        int k = key.ordinal();
+        return counts[k] == 0 ? Double.NaN : maxs[k];
+    }
+
+    public synchronized List<Measurement.PropertyKey> getSupportedProperties() {
+        List<Measurement.PropertyKey> result = new ArrayList<>();
+        for (int k = 0; k < KEYS.length; k++) {
+            if (counts[k] > 0) {
+                result.add(KEYS[k]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Encodes the summary into its binary representation that is stored with the track.
+     *
+     * @return the encoded summary.
+     */
+    public synchronized byte[] encode() {
+        int present = 0;
+        for (int count : counts) {
+            if (count > 0) {
+                present++;
+            }
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 1 + 4 + 2 * 8 + 11 * 8 + 4 + 2 * 8 + 1 + present * (1 + 4 + 3 * 8));
+        buffer.put(FORMAT_VERSION);
+        buffer.put((byte) (fuelType == null ? -1 : fuelType.ordinal()));
+        buffer.putInt(measurementCount);
+        buffer.putLong(startTime);
+        buffer.putLong(endTime);
+        buffer.putDouble(distance);
+        buffer.putDouble(lastLatitude);
+        buffer.putDouble(lastLongitude);
+        buffer.putDouble(lastConsumption);
+        buffer.putDouble(lastCO2);
+        buffer.putDouble(lastEstimatedConsumption);
+        buffer.putDouble(lastEstimatedCO2);
+        buffer.putDouble(fuelConsumption);
+        buffer.putDouble(co2Emission);
+        buffer.putDouble(estimatedFuelConsumption);
+        buffer.putDouble(estimatedCO2Emission);
+        buffer.putDouble(calculatedConsumptionSum);
+        buffer.putInt(calculatedConsumptionCount);
+        buffer.putDouble(calculatedCO2Sum);
+        buffer.put((byte) present);
+        for (int k = 0; k < KEYS.length; k++) {
+            if (counts[k] > 0) {
+                buffer.put((byte) k);
+                buffer.putInt(counts[k]);
+                buffer.putDouble(sums[k]);
+                buffer.putDouble(mins[k]);
+                buffer.putDouble(maxs[k]);
+            }
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Decodes a summary previously encoded with {@link #encode()}.
+     *
+     * @param data the encoded summary.
+     * @return the summary or null if the data is empty or has an unknown format.
+     */
+    public static TrackSummaryAccumulator decode(byte[] data) {
+        if (data == null || data.length == 0 || data[0] != FORMAT_VERSION) {
+            return null;
+        }
+
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(data, 1, data.length - 1);
+            int fuelType = buffer.get();
+            if (fuelType >= FUEL_TYPES.length) {
+                return null;
+            }
+            TrackSummaryAccumulator result = new TrackSummaryAccumulator(
+                    fuelType < 0 ? null : FUEL_TYPES[fuelType]);
+            result.measurementCount = buffer.getInt();
+            result.startTime = buffer.getLong();
+            result.endTime = buffer.getLong();
+            result.distance = buffer.getDouble();
+            result.lastLatitude = buffer.getDouble();
+            result.lastLongitude = buffer.getDouble();
+            result.lastConsumption = buffer.getDouble();
+            result.lastCO2 = buffer.getDouble();
+            result.lastEstimatedConsumption = buffer.getDouble();
+            result.lastEstimatedCO2 = buffer.getDouble();
+            result.fuelConsumption = buffer.getDouble();
+            result.co2Emission = buffer.getDouble();
+            result.estimatedFuelConsumption = buffer.getDouble();
+            result.estimatedCO2Emission = buffer.getDouble();
+            result.calculatedConsumptionSum = buffer.getDouble();
+            result.calculatedConsumptionCount = buffer.getInt();
+            result.calculatedCO2Sum = buffer.getDouble();
+            int present = buffer.get() & 0xFF;
+            for (int i = 0; i < present; i++) {
+                int k = buffer.get() & 0xFF;
+                int count = buffer.getInt();
+                double sum = buffer.getDouble();
+                double min = buffer.getDouble();
+                double max = buffer.getDouble();
+                if (k < KEYS.length) {
+                    result.counts[k] = count;
+                    result.sums[k] = sum;
+                    result.mins[k] = min;
+                    result.maxs[k] = max;
+                }
+            }
+            return result;
+        } catch (BufferUnderflowException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "TrackSummaryAccumulator{" +
+                "fuelType=" + fuelType +
+                ", measurementCount=" + measurementCount +
+                ", duration=" + getDuration() +
+                ", distance=" + distance +
+                ", fuelConsumption=" + fuelConsumption +
+                ", co2Emission=" + co2Emission +
+                ", estimatedFuelConsumption=" + estimatedFuelConsumption +
+                ", estimatedCO2Emission=" + estimatedCO2Emission +
+                ", properties=" + getSupportedProperties() +
+                '}';
+    }
+
+    private static double valueOf(Measurement measurement, Measurement.PropertyKey key) {
+        return measurement.hasProperty(key) ? toPrimitive(measurement.getProperty(key)) : Double.NaN;
+    }
+
+    private static double integrate(double lastRate, double rate, double hours) {
+        if (hours <= 0) {
+            return 0.0;
+        }
+        if (!Double.isNaN(lastRate) && !Double.isNaN(rate)) {
+            return (lastRate + rate) / 2 * hours;
+        }
+        if (!Double.isNaN(rate)) {
+            return rate * hours;
+        }
+        return 0.0;
+    }
+
+    private static double toPrimitive(Double value) {
+        return value == null ? Double.NaN : value;
+    }
+}
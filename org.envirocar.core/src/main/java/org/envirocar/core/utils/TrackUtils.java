@@ -22,6 +22,7 @@ import org.envirocar.core.entity.Measurement;
 import org.envirocar.core.entity.Track;
 import org.envirocar.core.exception.NoMeasurementsException;
 import org.envirocar.core.logging.Logger;
+import org.envirocar.core.trackprocessing.statistics.TrackFrame;
 import org.envirocar.core.util.Util;
 
 import java.util.ArrayList;
@@ -51,6 +52,8 @@ public class TrackUtils {
     public static Track getObfuscatedTrack(Track track) throws NoMeasurementsException {
         Track result = track.carbonCopy();
         result.setMeasurements(getNonObfuscatedMeasurements(track));
+        // the stored statistics refer to the complete track.
+        result.setStatistics(null);
         return result;
     }
 
@@ -59,8 +62,13 @@ public class TrackUtils {
 
         List<Measurement> nonPrivateMeasurements = new ArrayList<Measurement>();
         try {
-            int first = determineFirstNonObfuscatedIndex(measurements, track);
-            int last = determineLastNonObfuscatedIndex(measurements, track);
+            TrackFrame frame = track.getTrackFrame();
+            if (frame.isEmpty()) {
+                throw new NoMeasurementsException("Track with no measurements!");
+            }
+
+            int first = determineFirstNonObfuscatedIndex(frame, track);
+            int last = determineLastNonObfuscatedIndex(frame, track);
 
             if (first == -1 || last == -1) {
                 LOG.warn("Could not determine first/last non-obfuscated measurements.");
@@ -78,10 +86,9 @@ public class TrackUtils {
         }
     }
 
-    private static int determineFirstNonObfuscatedIndex(List<Measurement> measurements, Track track) throws NoMeasurementsException {
-        for (int i = 0; i < measurements.size(); i++) {
-            Measurement m = measurements.get(i);
-            if (!isTemporalObfuscated(m, track) && !isSpatialObfuscated(m, track)) {
+    private static int determineFirstNonObfuscatedIndex(TrackFrame frame, Track track) {
+        for (int i = 0; i < frame.size(); i++) {
+            if (!isObfuscated(frame, i, track)) {
                 return i;
             }
         }
@@ -89,10 +96,9 @@ public class TrackUtils {
         return -1;
     }
 
-    private static int determineLastNonObfuscatedIndex(List<Measurement> measurements, Track track) throws NoMeasurementsException {
-        for (int i = measurements.size()-1; i >= 0; i--) {
-            Measurement m = measurements.get(i);
-            if (!isTemporalObfuscated(m, track) && !isSpatialObfuscated(m, track)) {
+    private static int determineLastNonObfuscatedIndex(TrackFrame frame, Track track) {
+        for (int i = frame.size() - 1; i >= 0; i--) {
+            if (!isObfuscated(frame, i, track)) {
                 return i;
             }
         }
@@ -100,6 +106,18 @@ public class TrackUtils {
         return -1;
     }
 
+    private static boolean isObfuscated(TrackFrame frame, int index, Track track) {
+        long[] times = frame.getTimes();
+        double[] lat = frame.getLatitudes();
+        double[] lng = frame.getLongitudes();
+        int last = frame.size() - 1;
+
+        return times[index] - track.getStartTime() <= OBFUSCATION_TIME_MS
+                || track.getEndTime() - times[index] <= OBFUSCATION_TIME_MS
+                || LocationUtils.getDistance(lat[0], lng[0], lat[index], lng[index]) <= OBFUSCATION_DISTANCE_KM
+                || LocationUtils.getDistance(lat[last], lng[last], lat[index], lng[index]) <= OBFUSCATION_DISTANCE_KM;
+    }
+
     public static final boolean isSpatialObfuscated(Measurement measurement, Track track) throws NoMeasurementsException {
         return (LocationUtils.getDistance(track.getFirstMeasurement(), measurement) <= OBFUSCATION_DISTANCE_KM)
                 || (LocationUtils.getDistance(track.getLastMeasurement(), measurement) <= OBFUSCATION_DISTANCE_KM);
@@ -0,0 +1,142 @@
+/**
+ * Copyright (C) 2013 - 2021 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.core.entity;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Microbenchmark comparing the array based property storage of {@link MeasurementImpl} with the
+ * former {@link HashMap} based storage. Asserts that both return the same values and that the array
+ * based storage allocates less per measurement. Only run with -Pbenchmark.
+ */
+public class MeasurementImplBenchmark {
+
+    private static final int MEASUREMENTS = 20000;
+    private static final int ROUNDS = 5;
+    private static final Measurement.PropertyKey[] KEYS = Measurement.PropertyKey.values();
+
+    /**
+     * Property storage as used by {@link MeasurementImpl} before, kept as the baseline.
+     */
+    private static final class HashMapProperties {
+        private final Map<Measurement.PropertyKey, Double> propertyMap = new HashMap<>();
+
+        void setProperty(Measurement.PropertyKey key, Double value) {
+            if (value != null) {
+                propertyMap.put(key, value);
+            }
+        }
+
+        Double getProperty(Measurement.PropertyKey key) {
+            return propertyMap.get(key);
+        }
+    }
+
+    @Test
+    public void benchmarkAllocationAndLookup() {
+        // warm up so that class loading and JIT do not count towards the first run
+        for (int round = 0; round < ROUNDS; round++) {
+            Assert.assertEquals(runHashMap().sum, runArray().sum, 1e-6);
+        }
+
+        Result hashMap = runHashMap();
+        Result array = runArray();
+        Assert.assertEquals(hashMap.sum, array.sum, 1e-6);
+        if (hashMap.allocated >= 0 && array.allocated >= 0) {
+            Assert.assertTrue("array storage allocated " + array.allocated
+                            + " bytes/measurement, HashMap storage " + hashMap.allocated,
+                    array.allocated < hashMap.allocated);
+        }
+    }
+
+    private static final class Result {
+        private final long allocated;
+        private final double sum;
+
+        Result(long allocated, double sum) {
+            this.allocated = allocated;
+            this.sum = sum;
+        }
+    }
+
+    private Result runHashMap() {
+        long allocatedBefore = allocatedBytes();
+        HashMapProperties[] measurements = new HashMapProperties[MEASUREMENTS];
+        for (int i = 0; i < MEASUREMENTS; i++) {
+            HashMapProperties m = new HashMapProperties();
+            for (Measurement.PropertyKey key : KEYS) {
+                m.setProperty(key, (double) i + key.ordinal());
+            }
+            measurements[i] = m;
+        }
+        long allocated = perMeasurement(allocatedBefore);
+
+        double sum = 0;
+        for (HashMapProperties m : measurements) {
+            for (Measurement.PropertyKey key : KEYS) {
+                sum += m.getProperty(key);
+            }
+        }
+        return new Result(allocated, sum);
+    }
+
+    private Result runArray() {
+        long allocatedBefore = allocatedBytes();
+        MeasurementImpl[] measurements = new MeasurementImpl[MEASUREMENTS];
+        for (int i = 0; i < MEASUREMENTS; i++) {
+            MeasurementImpl m = new MeasurementImpl();
+            for (Measurement.PropertyKey key : KEYS) {
+                m.setProperty(key, (double) i + key.ordinal());
+            }
+            measurements[i] = m;
+        }
+        long allocated = perMeasurement(allocatedBefore);
+
+        double sum = 0;
+        for (MeasurementImpl m : measurements) {
+            for (Measurement.PropertyKey key : KEYS) {
+                sum += m.getProperty(key);
+            }
+        }
+        return new Result(allocated, sum);
+    }
+
+    private static long perMeasurement(long allocatedBefore) {
+        long allocatedAfter = allocatedBytes();
+        if (allocatedBefore < 0 || allocatedAfter < 0) {
+            return -1;
+        }
+        return (allocatedAfter - allocatedBefore) / MEASUREMENTS;
+    }
+
+    private static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(
+                    Thread.currentThread().getId());
+        }
+        return -1;
+    }
+}
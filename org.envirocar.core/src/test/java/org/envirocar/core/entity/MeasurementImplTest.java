@@ -0,0 +1,54 @@
+/**
+ * Copyright (C) 2013 - 2021 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.core.entity;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class MeasurementImplTest {
+
+    private static final Measurement.PropertyKey[] KEYS = Measurement.PropertyKey.values();
+
+    @Test
+    public void testDropInCompatibility() {
+        MeasurementImpl measurement = new MeasurementImpl();
+        Map<Measurement.PropertyKey, Double> expected = new HashMap<>();
+        for (int i = 0; i < KEYS.length; i += 3) {
+            measurement.setProperty(KEYS[i], i * 1.5);
+            expected.put(KEYS[i], i * 1.5);
+        }
+        measurement.setProperty(Measurement.PropertyKey.SPEED, null);
+
+        for (Measurement.PropertyKey key : KEYS) {
+            Assert.assertEquals(expected.get(key), measurement.getProperty(key));
+            Assert.assertEquals(expected.containsKey(key), measurement.hasProperty(key));
+        }
+        Assert.assertEquals(expected, measurement.getAllProperties());
+
+        Measurement copy = measurement.carbonCopy();
+        Assert.assertEquals(measurement.getAllProperties(), copy.getAllProperties());
+
+        measurement.setAllProperties(new HashMap<>());
+        Assert.assertTrue(measurement.getAllProperties().isEmpty());
+        Assert.assertFalse(copy.getAllProperties().isEmpty());
+    }
+}
@@ -0,0 +1,175 @@
+/**
+ * Copyright (C) 2013 - 2021 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.core.trackprocessing.statistics;
+
+import org.envirocar.core.entity.Car;
+import org.envirocar.core.entity.CarImpl;
+import org.envirocar.core.entity.Measurement;
+import org.envirocar.core.entity.MeasurementImpl;
+import org.envirocar.core.entity.Track;
+import org.envirocar.core.entity.TrackImpl;
+import org.envirocar.core.trackprocessing.consumption.ConsumptionAlgorithm;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TrackSummaryAccumulatorTest {
+
+    private static Measurement createMeasurement(long time, double speed, double consumption) {
+        // no coordinates, the distance computation depends on the android framework.
+        Measurement measurement = new MeasurementImpl();
+        measurement.setTime(time);
+        measurement.setProperty(Measurement.PropertyKey.SPEED, speed);
+        measurement.setProperty(Measurement.PropertyKey.CONSUMPTION, consumption);
+        return measurement;
+    }
+
+    /**
+     * @return the mass air flow (g/s) for which a gasoline engine consumes the given liters per hour.
+     */
+    private static double mafOf(double litersPerHour) {
+        return litersPerHour / 3600 * 745 * 14.7;
+    }
+
+    @Test
+    public void testIncrementalStatistics() {
+        TrackSummaryAccumulator summary = new TrackSummaryAccumulator();
+        summary.add(createMeasurement(1000, 10, 3.6));
+        summary.add(createMeasurement(2000, 30, 3.6));
+        summary.add(createMeasurement(4000, 20, 3.6));
+
+        Assert.assertEquals(3, summary.getMeasurementCount());
+        Assert.assertEquals(3000, summary.getDuration());
+        Assert.assertEquals(20.0, summary.getMean(Measurement.PropertyKey.SPEED), 1e-9);
+        Assert.assertEquals(10.0, summary.getMin(Measurement.PropertyKey.SPEED), 1e-9);
+        Assert.assertEquals(30.0, summary.getMax(Measurement.PropertyKey.SPEED), 1e-9);
+        // 3.6 l/h over 3 seconds
+        Assert.assertEquals(0.003, summary.getFuelConsumption(), 1e-9);
+        Assert.assertFalse(summary.hasProperty(Measurement.PropertyKey.RPM));
+        Assert.assertTrue(Double.isNaN(summary.getMean(Measurement.PropertyKey.RPM)));
+    }
+
+    @Test
+    public void testObdAndGpsBasedConsumptionAreSeparated() {
+        TrackSummaryAccumulator summary = new TrackSummaryAccumulator();
+        summary.add(createMeasurement(1000, 10, 3.6));
+        Measurement estimated = new MeasurementImpl();
+        estimated.setTime(2000);
+        estimated.setProperty(Measurement.PropertyKey.ENERGY_CONSUMPTION, 36.0);
+        summary.add(estimated);
+        summary.add(createMeasurement(3000, 20, 3.6));
+
+        // a rate only counts for the intervals that end with a value of the same kind.
+        Assert.assertEquals(0.001, summary.getFuelConsumption(), 1e-9);
+        Assert.assertEquals(0.01, summary.getEstimatedFuelConsumption(), 1e-9);
+    }
+
+    @Test
+    public void testStatisticsFromSummary() {
+        TrackSummaryAccumulator summary = new TrackSummaryAccumulator(Car.FuelType.GASOLINE);
+        Measurement first = createMeasurement(1000, 10, 3.6);
+        first.setProperty(Measurement.PropertyKey.MAF, mafOf(6.0));
+        summary.add(first);
+        Measurement withoutConsumption = new MeasurementImpl();
+        withoutConsumption.setTime(2000);
+        withoutConsumption.setProperty(Measurement.PropertyKey.SPEED, 30.0);
+        withoutConsumption.setProperty(Measurement.PropertyKey.CALCULATED_MAF, mafOf(3.0));
+        summary.add(withoutConsumption);
+        summary.add(createMeasurement(4000, 20, 7.2));
+
+        TrackStatistics statistics = TrackStatisticsProcessor.computeStatistics(summary,
+                new CarImpl("Opel", "Astra", Car.FuelType.GASOLINE, 2004));
+        Assert.assertTrue(statistics.isUpToDate());
+        // the consumption is averaged over the measurements it can be computed for, CO2 over all.
+        Assert.assertEquals(4.5, statistics.getConsumptionPerHour(), 1e-9);
+        Assert.assertEquals((3.6 + 7.2) * ConsumptionAlgorithm.GASOLINE_CONSUMPTION_TO_CO2_FACTOR / 3,
+                statistics.getCO2Average(), 1e-9);
+        Assert.assertTrue(statistics.hasProperty(Measurement.PropertyKey.SPEED));
+        Assert.assertFalse(statistics.hasProperty(Measurement.PropertyKey.RPM));
+
+        TrackStatistics withoutCar = TrackStatisticsProcessor.computeStatistics(summary, null);
+        Assert.assertNull(withoutCar.getConsumptionPerHour());
+        Assert.assertNull(withoutCar.getCO2Average());
+    }
+
+    @Test
+    public void testSummaryAndTrackStatisticsAreEqual() {
+        Car car = new CarImpl("Opel", "Astra", Car.FuelType.GASOLINE, 2004);
+        List<Measurement> measurements = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Measurement measurement = createMeasurement(1000L * i, i % 13, 2.0 + i % 7);
+            if (i % 3 == 0) {
+                measurement.setProperty(Measurement.PropertyKey.MAF, mafOf(4.0 + i % 5));
+            } else if (i % 3 == 1) {
+                measurement.setProperty(Measurement.PropertyKey.CALCULATED_MAF, mafOf(1.0 + i % 4));
+            }
+            measurements.add(measurement);
+        }
+
+        TrackSummaryAccumulator summary = new TrackSummaryAccumulator(car.getFuelType());
+        for (Measurement measurement : measurements) {
+            summary.add(measurement);
+        }
+        Track track = new TrackImpl();
+        track.setCar(car);
+        track.setMeasurements(measurements);
+        track.setStartTime(measurements.get(0).getTime());
+        track.setEndTime(measurements.get(measurements.size() - 1).getTime());
+
+        TrackStatistics fromSummary = TrackStatisticsProcessor.computeStatistics(summary, car);
+        TrackStatistics fromTrack = TrackStatisticsProcessor.computeStatistics(track);
+        Assert.assertEquals(fromTrack.getDistance(), fromSummary.getDistance(), 1e-9);
+        Assert.assertEquals(fromTrack.getConsumptionPerHour(), fromSummary.getConsumptionPerHour(), 1e-9);
+        Assert.assertEquals(fromTrack.getCO2Average(), fromSummary.getCO2Average(), 1e-9);
+        Assert.assertEquals(fromTrack.getLiterPerHundredKm(), fromSummary.getLiterPerHundredKm(), 1e-9);
+        Assert.assertEquals(fromTrack.getGramsPerKm(), fromSummary.getGramsPerKm(), 1e-9);
+        Assert.assertEquals(fromTrack.getPropertyMask(), fromSummary.getPropertyMask());
+    }
+
+    @Test
+    public void testEncodeDecode() {
+        TrackSummaryAccumulator summary = new TrackSummaryAccumulator(Car.FuelType.DIESEL);
+        summary.add(createMeasurement(1000, 10, 3.6));
+        summary.add(createMeasurement(2000, 30, 7.2));
+
+        TrackSummaryAccumulator decoded = TrackSummaryAccumulator.decode(summary.encode());
+        Assert.assertNotNull(decoded);
+        Assert.assertEquals(Car.FuelType.DIESEL, decoded.getFuelType());
+        Assert.assertEquals(summary.getMeasurementCount(), decoded.getMeasurementCount());
+        Assert.assertEquals(summary.getDuration(), decoded.getDuration());
+        Assert.assertEquals(summary.getFuelConsumption(), decoded.getFuelConsumption(), 0.0);
+        Assert.assertEquals(summary.getSupportedProperties(), decoded.getSupportedProperties());
+
+        // the decoded summary continues where the original one stopped.
+        summary.add(createMeasurement(3000, 20, 3.6));
+        decoded.add(createMeasurement(3000, 20, 3.6));
+        Assert.assertEquals(summary.getMean(Measurement.PropertyKey.SPEED),
+                decoded.getMean(Measurement.PropertyKey.SPEED), 0.0);
+        Assert.assertEquals(summary.getFuelConsumption(), decoded.getFuelConsumption(), 0.0);
+    }
+
+    @Test
+    public void testDecodeInvalidData() {
+        Assert.assertNull(TrackSummaryAccumulator.decode(null));
+        Assert.assertNull(TrackSummaryAccumulator.decode(new byte[0]));
+        Assert.assertNull(TrackSummaryAccumulator.decode(new byte[]{1, 2, 3}));
+    }
+}
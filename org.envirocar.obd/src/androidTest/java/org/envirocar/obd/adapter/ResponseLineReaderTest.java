@@ -0,0 +1,123 @@
+/**
+ * Copyright (C) 2013 - 2021 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.obd.adapter;
+
+import android.test.InstrumentationTestCase;
+
+import org.envirocar.obd.exception.ResponseTimeoutException;
+import org.envirocar.obd.exception.StreamFinishedException;
+import org.hamcrest.CoreMatchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+
+public class ResponseLineReaderTest extends InstrumentationTestCase {
+
+    @Test
+    public void testFramingAcrossBufferBoundaries() throws IOException, StreamFinishedException {
+        byte[] input = "41 0D 2A\r>41 0C 1A F8\r>>SEARCHING...>".getBytes();
+
+        // a tiny read buffer forces lines to span several bulk reads
+        ResponseLineReader reader = new ResponseLineReader(new ByteArrayInputStream(input),
+                new HashSet<>(Arrays.asList(' ', '\r')), (byte) '>', 4);
+
+        Assert.assertThat(nextLine(reader), CoreMatchers.is("410D2A"));
+        Assert.assertThat(nextLine(reader), CoreMatchers.is("410C1AF8"));
+        Assert.assertThat(nextLine(reader), CoreMatchers.is(""));
+        Assert.assertThat(nextLine(reader), CoreMatchers.is("SEARCHING..."));
+
+        try {
+            nextLine(reader);
+            Assert.fail("Expected the stream to be finished");
+        } catch (StreamFinishedException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testLineBufferIsReused() throws IOException, StreamFinishedException {
+        ResponseLineReader reader = new ResponseLineReader(new ByteArrayInputStream("410D2A>410D2B>".getBytes()),
+                new HashSet<>(), (byte) '>');
+
+        reader.readUntilLineEnd();
+        byte[] first = reader.getLineBuffer();
+        reader.clearLine();
+        reader.readUntilLineEnd();
+
+        Assert.assertSame(first, reader.getLineBuffer());
+        Assert.assertThat(new String(reader.copyLine()), CoreMatchers.is("410D2B"));
+    }
+
+    @Test
+    public void testDeadline() throws IOException, StreamFinishedException {
+        // the prompt never arrives
+        ResponseLineReader reader = new ResponseLineReader(new ByteArrayInputStream("OK".getBytes()),
+                new HashSet<>(), (byte) '>');
+
+        long start = System.currentTimeMillis();
+        try {
+            reader.readUntilLineEnd(start + 50);
+            Assert.fail("Expected a timeout");
+        } catch (ResponseTimeoutException e) {
+            Assert.assertTrue(System.currentTimeMillis() - start >= 50);
+        }
+        Assert.assertThat(new String(reader.copyLine()), CoreMatchers.is("OK"));
+    }
+
+    @Test
+    public void testDiscardAvailable() throws IOException, StreamFinishedException {
+        ResponseLineReader reader = new ResponseLineReader(new ByteArrayInputStream("ELM327 v1.5>OK>".getBytes()),
+                new HashSet<>(), (byte) '>', 4);
+
+        reader.readUntilLineEnd();
+        reader.clearLine();
+
+        Assert.assertThat(reader.discardAvailable(), CoreMatchers.is(3));
+        try {
+            reader.readUntilLineEnd(System.currentTimeMillis() + 10);
+            Assert.fail("Expected a timeout");
+        } catch (ResponseTimeoutException e) {
+            // expected, everything has been discarded
+        }
+    }
+
+    @Test
+    public void testExecutorResponseBuffer() throws IOException, StreamFinishedException {
+        InputStream is = new ByteArrayInputStream("41 0D 2A\r>".getBytes());
+        CommandExecutor executor = new CommandExecutor(is, new ByteArrayOutputStream(),
+                new HashSet<>(Arrays.asList(' ', '\r')), '>', '\r');
+
+        byte[] buffer = executor.retrieveLatestResponseBuffer();
+
+        Assert.assertThat(new String(buffer, 0, executor.getLatestResponseLength()), CoreMatchers.is("410D2A"));
+    }
+
+    private static String nextLine(ResponseLineReader reader) throws IOException, StreamFinishedException {
+        reader.clearLine();
+        reader.readUntilLineEnd();
+        return new String(reader.getLineBuffer(), 0, reader.getLineLength());
+    }
+
+}
@@ -30,6 +30,9 @@ import org.hamcrest.CoreMatchers;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class ResponseParserTest extends InstrumentationTestCase {
 
     @Test
@@ -61,4 +64,43 @@ public class ResponseParserTest extends InstrumentationTestCase {
         Assert.assertThat(parse, CoreMatchers.instanceOf(LambdaProbeVoltageResponse.class));
     }
 
+    @Test
+    public void testMultiPIDCanFrames() throws InvalidCommandResponseException, NoDataReceivedException, UnmatchedResponseException, AdapterSearchingException {
+        ResponseParser responseParser = new ResponseParser();
+        List<DataResponse> responses = new ArrayList<>();
+
+        // response to "01 0C 0D 10 0B": 11 bytes in two CAN frames, the last one padded
+        byte[] data = "00B0:410C1AF80D1E1:10053E0B21000000".getBytes();
+        responseParser.parseMultiple(data, data.length, responses);
+
+        Assert.assertThat(responses.size(), CoreMatchers.is(4));
+        Assert.assertThat(responses.get(0).getPid(), CoreMatchers.is(PID.RPM));
+        Assert.assertThat(responses.get(0).getValue().intValue(), CoreMatchers.is(1726));
+        Assert.assertThat(responses.get(1).getPid(), CoreMatchers.is(PID.SPEED));
+        Assert.assertThat(responses.get(1).getValue().intValue(), CoreMatchers.is(30));
+        Assert.assertThat(responses.get(2).getPid(), CoreMatchers.is(PID.MAF));
+        Assert.assertThat(responses.get(3).getPid(), CoreMatchers.is(PID.INTAKE_MAP));
+        Assert.assertThat(responses.get(3).getValue().intValue(), CoreMatchers.is(33));
+    }
+
+    @Test
+    public void testMultiPIDLines() throws InvalidCommandResponseException, NoDataReceivedException, UnmatchedResponseException, AdapterSearchingException {
+        ResponseParser responseParser = new ResponseParser();
+        List<DataResponse> responses = new ArrayList<>();
+
+        // one status line per PID, the line separators are dropped by the executor
+        byte[] data = "410C1AF8410D1E".getBytes();
+        responseParser.parseMultiple(data, data.length, responses);
+
+        Assert.assertThat(responses.size(), CoreMatchers.is(2));
+        Assert.assertThat(responses.get(0).getPid(), CoreMatchers.is(PID.RPM));
+        Assert.assertThat(responses.get(1).getPid(), CoreMatchers.is(PID.SPEED));
+    }
+
+    @Test(expected = UnmatchedResponseException.class)
+    public void testMultiPIDTruncated() throws InvalidCommandResponseException, NoDataReceivedException, UnmatchedResponseException, AdapterSearchingException {
+        byte[] data = "410C1AF80D".getBytes();
+        new ResponseParser().parseMultiple(data, data.length, new ArrayList<>());
+    }
+
 }
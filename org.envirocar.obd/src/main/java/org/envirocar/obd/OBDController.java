@@ -23,6 +23,8 @@ import com.squareup.otto.Bus;
 
 import org.envirocar.core.entity.Measurement;
 import org.envirocar.core.logging.Logger;
+import org.envirocar.obd.adapter.AdapterFingerprint;
+import org.envirocar.obd.adapter.AdapterFingerprintCache;
 import org.envirocar.obd.adapter.AposW3Adapter;
 import org.envirocar.obd.adapter.CarTrendAdapter;
 import org.envirocar.obd.adapter.ELM327Adapter;
@@ -37,6 +39,7 @@ import org.envirocar.obd.commands.PIDUtil;
 import org.envirocar.obd.commands.response.DataResponse;
 import org.envirocar.obd.events.PropertyKeyEvent;
 import org.envirocar.obd.events.RPMUpdateEvent;
+import org.envirocar.obd.events.SensorStream;
 import org.envirocar.obd.events.SpeedUpdateEvent;
 import org.envirocar.obd.exception.AllAdaptersFailedException;
 import org.envirocar.obd.exception.EngineNotRunningException;
@@ -45,9 +48,14 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Queue;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import io.reactivex.Flowable;
 import io.reactivex.Scheduler;
 import io.reactivex.disposables.Disposable;
 import io.reactivex.observers.DisposableObserver;
@@ -65,9 +73,15 @@ import io.reactivex.schedulers.Schedulers;
 public class OBDController {
     private static final Logger LOG = Logger.getLogger(OBDController.class);
     public static final long MAX_NODATA_TIME = 10000;
+    private static final int RESPONSE_BUFFER_CAPACITY = 64;
+    private static final int DRAIN_BATCH_SIZE = 16;
+    private static final int LATENCY_LOG_INTERVAL = 1000;
+    private static final long UI_REFRESH_INTERVAL = 1000 / 60;
+    private static final PropertyKeyEvent[] NO_EVENTS = new PropertyKeyEvent[0];
 
     private Disposable initSubscription;
     private Disposable dataSubscription;
+    private Disposable uiEventSubscription;
 
     private Queue<OBDAdapter> adapterCandidates = new ArrayDeque<>();
     private OBDAdapter obdAdapter;
@@ -77,8 +91,22 @@ public class OBDController {
     private String deviceName;
     private boolean userRequestedStop = false;
     private Bus eventBus;
-    private Scheduler.Worker eventBusWorker;
+    private SensorStream sensorStream;
+    private Scheduler.Worker publishWorker;
     private CycleCommandProfile commandProfile;
+    private AdapterFingerprintCache fingerprintCache;
+    private boolean fingerprintInUse;
+    private String deviceAddress;
+
+    private ExecutorService ioExecutor;
+    private ResponseRingBuffer responseBuffer;
+    private ResponseRingBuffer.OverflowPolicy overflowPolicy =
+            ResponseRingBuffer.OverflowPolicy.COALESCE_PER_PID;
+    private final AtomicInteger drainRequests = new AtomicInteger();
+    private final List<DataResponse> drainBatch = new ArrayList<>(DRAIN_BATCH_SIZE);
+    private long latencyCount;
+    private long latencySum;
+    private long latencyMax;
 
     /**
      * Default Constructor.
@@ -104,6 +132,31 @@ public class OBDController {
                 cmp, cl, bus);
     }
 
+    /**
+     * @param fingerprintCache the cache of adapter fingerprints, used to skip the probing of
+     *                         adapter implementations and supported PIDs for known devices
+     */
+    public OBDController(BluetoothSocketWrapper bluetoothSocketWrapper, CycleCommandProfile cmp,
+                         AdapterFingerprintCache fingerprintCache, ConnectionListener cl, Bus bus)
+            throws IOException {
+        this(bluetoothSocketWrapper, cmp, fingerprintCache, new SensorStream(), cl, bus);
+    }
+
+    /**
+     * @param fingerprintCache the cache of adapter fingerprints, used to skip the probing of
+     *                         adapter implementations and supported PIDs for known devices
+     * @param sensorStream     the stream the values read from the car are published to
+     */
+    public OBDController(BluetoothSocketWrapper bluetoothSocketWrapper, CycleCommandProfile cmp,
+                         AdapterFingerprintCache fingerprintCache, SensorStream sensorStream,
+                         ConnectionListener cl, Bus bus) throws IOException {
+        this(bluetoothSocketWrapper.getInputStream(),
+                bluetoothSocketWrapper.getOutputStream(),
+                bluetoothSocketWrapper.getRemoteDeviceName(),
+                bluetoothSocketWrapper.getRemoteDeviceAddress(),
+                cmp, fingerprintCache, sensorStream, cl, bus);
+    }
+
     /**
      * Init the OBD control layer with the streams and listeners to be used.
      *
@@ -113,19 +166,52 @@ public class OBDController {
      */
     public OBDController(InputStream in, OutputStream out, String deviceName,
                          CycleCommandProfile cmp, ConnectionListener cl, Bus bus) {
+        this(in, out, deviceName, null, cmp, null, new SensorStream(), cl, bus);
+    }
+
+    /**
+     * Init the OBD control layer with the streams and listeners to be used.
+     *
+     * @param in               the inputStream of the connection
+     * @param out              the outputStream of the connection
+     * @param deviceAddress    the bluetooth address of the device, may be null
+     * @param fingerprintCache the cache of adapter fingerprints, may be null
+     * @param sensorStream     the stream the values read from the car are published to
+     * @param cl               the connection listener which receives connection state changes
+     * @param bus              the event bus for the speed and RPM update events, may be null
+     */
+    public OBDController(InputStream in, OutputStream out, String deviceName, String deviceAddress,
+                         CycleCommandProfile cmp, AdapterFingerprintCache fingerprintCache,
+                         SensorStream sensorStream, ConnectionListener cl, Bus bus) {
         this.inputStream = Preconditions.checkNotNull(in);
         this.outputStream = Preconditions.checkNotNull(out);
         this.connectionListener = Preconditions.checkNotNull(cl);
         this.deviceName = Preconditions.checkNotNull(deviceName);
+        this.deviceAddress = deviceAddress;
         this.commandProfile = cmp;
+        this.fingerprintCache = deviceAddress != null ? fingerprintCache : null;
+        this.sensorStream = Preconditions.checkNotNull(sensorStream);
+        this.publishWorker = Schedulers.io().createWorker();
 
         setupAdapterCandidates();
         startPreferredAdapter();
 
         this.eventBus = bus;
-        if (this.eventBus != null) {
-            this.eventBusWorker = Schedulers.io().createWorker();
-        }
+    }
+
+    /**
+     * @return the stream of the values read from the car
+     */
+    public SensorStream getSensorStream() {
+        return sensorStream;
+    }
+
+    /**
+     * Sets the behaviour when responses arrive faster than they can be published.
+     * Has to be called before the data collection has been started.
+     */
+    public void setResponseOverflowPolicy(ResponseRingBuffer.OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = Preconditions.checkNotNull(overflowPolicy);
     }
 
     /**
@@ -142,13 +228,29 @@ public class OBDController {
     }
 
     /**
-     * start the preferred adapter, determined by the device name
+     * start the preferred adapter, determined by the fingerprint of a previous connection
+     * or the device name
      */
     private void startPreferredAdapter() {
-        for (OBDAdapter ac : adapterCandidates) {
-            if (ac.supportsDevice(this.deviceName)) {
-                this.obdAdapter = ac;
-                break;
+        AdapterFingerprint fingerprint = fingerprintCache != null ? fingerprintCache.get(deviceAddress) : null;
+        if (fingerprint != null) {
+            for (OBDAdapter ac : adapterCandidates) {
+                if (ac.getClass().getName().equals(fingerprint.getAdapterClass())) {
+                    LOG.info("Found fingerprint of a previous connection: " + fingerprint);
+                    ac.setKnownFingerprint(fingerprint);
+                    this.obdAdapter = ac;
+                    this.fingerprintInUse = true;
+                    break;
+                }
+            }
+        }
+
+        if (this.obdAdapter == null) {
+            for (OBDAdapter ac : adapterCandidates) {
+                if (ac.supportsDevice(this.deviceName)) {
+                    this.obdAdapter = ac;
+                    break;
+                }
             }
         }
 
@@ -203,10 +305,20 @@ public class OBDController {
             public void onError(Throwable e) {
                 LOG.warn("Adapter failed: " + obdAdapter.getClass().getSimpleName(), e);
                 if (e instanceof EngineNotRunningException){
+                    if (fingerprintInUse) {
+                        // the fingerprint is stored per adapter, it might stem from another car
+                        // with another protocol. Retry with the full protocol detection.
+                        LOG.info("No PIDs returned using the known fingerprint. Retrying with the full initialization.");
+                        forgetFingerprint();
+                        startInitialization(alreadyTried);
+                        return;
+                    }
                     connectionListener.onEngineNotRunning();
                     return;
                 }
 
+                forgetFingerprint();
+
                 try {
                     LOG.info("State message is: "+obdAdapter.getStateMessage());
                 }
@@ -259,6 +371,8 @@ public class OBDController {
                 //unsubscribe, otherwise we will get a timeout
                 this.onComplete();
 
+                storeFingerprint();
+
                 startCollectingData();
                 //TODO implement equivalent notification method:
                 //dataListener.onConnected(deviceName);
@@ -267,22 +381,61 @@ public class OBDController {
         };
     }
 
+    private void storeFingerprint() {
+        if (fingerprintCache == null) {
+            return;
+        }
+
+        try {
+            fingerprintCache.put(deviceAddress, obdAdapter.getFingerprint());
+        } catch (Exception e) {
+            LOG.warn("Could not store the adapter fingerprint", e);
+        }
+    }
+
+    /**
+     * the fingerprint did not lead to a connection: do the full initialization from now on
+     */
+    private void forgetFingerprint() {
+        fingerprintInUse = false;
+        obdAdapter.setKnownFingerprint(null);
+        if (fingerprintCache != null) {
+            fingerprintCache.remove(deviceAddress);
+        }
+    }
+
     /**
      * start the actual collection of data.
      * <p>
      * the collection times out after a pre-defined period when no
      * new data has arrived.
+     * <p>
+     * The adapter communication runs on a dedicated thread which hands
+     * over the responses through a {@link ResponseRingBuffer}. They are
+     * published in batches to the {@link SensorStream}. The event bus only
+     * receives speed and RPM updates, at most once per display refresh.
      */
     private void startCollectingData() {
         LOG.info("OBDController.startCollectingData()");
 
+        this.ioExecutor = OBDSchedulers.newIOExecutor();
+        this.responseBuffer = new ResponseRingBuffer(RESPONSE_BUFFER_CAPACITY, overflowPolicy);
+
         // start the observable with a timeout
         this.dataSubscription = this.obdAdapter.observe()
-                .subscribeOn(OBDSchedulers.scheduler())
-                .observeOn(OBDSchedulers.scheduler())
+                .subscribeOn(Schedulers.from(this.ioExecutor))
                 .timeout(MAX_NODATA_TIME, TimeUnit.MILLISECONDS)
                 .subscribeWith(getCollectingDataSubscriber());
 
+        if (this.eventBus != null) {
+            this.uiEventSubscription = Flowable.merge(
+                    sensorStream.sample(Measurement.PropertyKey.SPEED, UI_REFRESH_INTERVAL)
+                            .map(pke -> new SpeedUpdateEvent(pke.getValue().intValue())),
+                    sensorStream.sample(Measurement.PropertyKey.RPM, UI_REFRESH_INTERVAL)
+                            .map(pke -> new RPMUpdateEvent(pke.getValue().intValue())))
+                    .subscribe(eventBus::post, e -> LOG.warn("Could not post update event", e));
+        }
+
         //inform the listener about the successful conn
         this.connectionListener.onConnectionVerified();
     }
@@ -304,6 +457,7 @@ public class OBDController {
                     //dataListener.shutdown();
                 }
 
+                stopIOExecutor();
                 connectionListener.onAllAdaptersFailed();
 
             }
@@ -311,32 +465,79 @@ public class OBDController {
             @Override
             public void onComplete() {
                 LOG.info("onCompleted(): data collection");
+                stopIOExecutor();
                 //TODO implement equivalent notification method:
                 //dataListener.shutdown();
             }
 
             @Override
             public void onNext(DataResponse dataResponse) {
-                pushToEventBus(dataResponse);
+                responseBuffer.offer(dataResponse);
+
+                // only one drain at a time, a running drain picks up the new response
+                if (drainRequests.getAndIncrement() == 0) {
+                    publishWorker.schedule(OBDController.this::drainResponses);
+                }
             }
         };
     }
 
-    private void pushToEventBus(DataResponse dataResponse) {
-        eventBusWorker.schedule(() -> {
-            PropertyKeyEvent[] pkes = createEventsFromDataResponse(dataResponse);
-
-            for (PropertyKeyEvent pke : pkes) {
-                eventBus.post(pke);
+    private void drainResponses() {
+        int missed = 1;
+        do {
+            while (responseBuffer.drain(drainBatch, DRAIN_BATCH_SIZE) > 0) {
+                for (DataResponse dataResponse : drainBatch) {
+                    try {
+                        publish(dataResponse);
+                    } catch (RuntimeException e) {
+                        // do not stall the pipeline because of a failing subscriber
+                        LOG.warn("Could not publish response for " + dataResponse.getPid(), e);
+                    }
+                    recordLatency(System.currentTimeMillis() - dataResponse.getTimestamp());
+                }
+                drainBatch.clear();
             }
+            missed = drainRequests.addAndGet(-missed);
+        } while (missed != 0);
+    }
 
-            PID pid = dataResponse.getPid();
-            if (pid == PID.SPEED) {
-                eventBus.post(new SpeedUpdateEvent(dataResponse.getValue().intValue()));
-            } else if (pid == PID.RPM) {
-                eventBus.post(new RPMUpdateEvent(dataResponse.getValue().intValue()));
-            }
-        });
+    private void publish(DataResponse dataResponse) {
+        PropertyKeyEvent[] pkes = createEventsFromDataResponse(dataResponse);
+
+        for (PropertyKeyEvent pke : pkes) {
+            sensorStream.publish(pke);
+        }
+    }
+
+    /**
+     * records the time from the decoding of a response until all lossless
+     * subscribers of the sensor stream have received it.
+     */
+    private void recordLatency(long latency) {
+        latencyCount++;
+        latencySum += latency;
+        latencyMax = Math.max(latencyMax, latency);
+
+        if (latencyCount % LATENCY_LOG_INTERVAL == 0) {
+            logPipelineStatistics();
+        }
+    }
+
+    private void logPipelineStatistics() {
+        if (latencyCount == 0 || responseBuffer == null) {
+            return;
+        }
+
+        LOG.info(String.format("Published %d responses: mean latency %d ms, max %d ms, "
+                        + "dropped %d, coalesced %d",
+                latencyCount, latencySum / latencyCount, latencyMax,
+                responseBuffer.getDroppedCount(), responseBuffer.getCoalescedCount()));
+    }
+
+    private void stopIOExecutor() {
+        if (this.ioExecutor != null) {
+            this.ioExecutor.shutdown();
+        }
     }
 
     protected PropertyKeyEvent[] createEventsFromDataResponse(DataResponse dataResponse) {
@@ -387,7 +588,7 @@ public class OBDController {
                 };
         }
 
-        return new PropertyKeyEvent[0];
+        return NO_EVENTS;
     }
 
     /**
@@ -412,5 +613,11 @@ public class OBDController {
         if (this.dataSubscription != null && !this.dataSubscription.isDisposed()) {
             this.dataSubscription.dispose();
         }
+        if (this.uiEventSubscription != null && !this.uiEventSubscription.isDisposed()) {
+            this.uiEventSubscription.dispose();
+        }
+        stopIOExecutor();
+
+        publishWorker.schedule(this::logPipelineStatistics);
     }
 }
@@ -18,6 +18,7 @@
  */
 package org.envirocar.obd;
 
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 import io.reactivex.Scheduler;
@@ -31,4 +32,17 @@ public class OBDSchedulers {
         return instance;
     }
 
+    /**
+     * @return a new executor with a single daemon thread. It is used to pin the blocking
+     * communication with an adapter to one thread and has to be shut down when the
+     * connection is closed.
+     */
+    public static ExecutorService newIOExecutor() {
+        return Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "OBD-IO");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
 }
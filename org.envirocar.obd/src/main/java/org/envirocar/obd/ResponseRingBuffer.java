@@ -0,0 +1,245 @@
+/**
+ * Copyright (C) 2013 - 2021 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.obd;
+
+import org.envirocar.obd.commands.PID;
+import org.envirocar.obd.commands.response.DataResponse;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, lock-free handoff between the thread that reads the adapter
+ * ({@link #offer(DataResponse)}) and the thread that publishes the responses
+ * ({@link #drain(List, int)}). Exactly one producer and one consumer are supported.
+ * <p>
+ * When the buffer is full, the {@link OverflowPolicy} decides what is given up. Only the
+ * responses kept aside by {@link OverflowPolicy#COALESCE_PER_PID} are handed over under a lock.
+ */
+public class ResponseRingBuffer {
+
+    public enum OverflowPolicy {
+        /**
+         * the oldest pending response is discarded
+         */
+        DROP_OLDEST,
+
+        /**
+         * the response is kept aside as the latest value of its PID, replacing an older
+         * value of the same PID that was kept aside before. As soon as there is room again,
+         * the responses kept aside are moved back to the buffer before any newer response.
+         */
+        COALESCE_PER_PID
+    }
+
+    private final AtomicReferenceArray<DataResponse> slots;
+    private final AtomicReferenceArray<DataResponse> latestPerPID;
+    private final int mask;
+    private final OverflowPolicy policy;
+
+    // index of the next slot to read. Also advanced by the producer on DROP_OLDEST
+    private final AtomicLong head = new AtomicLong();
+    // index of the next slot to write, only advanced by the producer
+    private final AtomicLong tail = new AtomicLong();
+
+    // guards moving responses out of latestPerPID
+    private final Object keptAsideLock = new Object();
+    // whether responses have been kept aside, only accessed by the producer
+    private boolean keptAside;
+
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * @param capacity the capacity, rounded up to the next power of two
+     * @param policy   the behaviour on overflow
+     */
+    public ResponseRingBuffer(int capacity, OverflowPolicy policy) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.slots = new AtomicReferenceArray<>(size);
+        this.latestPerPID = new AtomicReferenceArray<>(PID.values().length);
+        this.mask = size - 1;
+        this.policy = policy;
+    }
+
+    /**
+     * Producer side: hand over a response.
+     *
+     * @return false if an older response has been dropped or replaced to make room
+     */
+    public boolean offer(DataResponse response) {
+        // the responses kept aside are older than this one, so they have to be buffered first
+        if (keptAside) {
+            synchronized (keptAsideLock) {
+                if (!restoreKeptAside()) {
+                    keepAside(response);
+                    return false;
+                }
+            }
+        }
+
+        long t = tail.get();
+        long h = head.get();
+
+        if (t - h > mask) {
+            if (policy == OverflowPolicy.COALESCE_PER_PID) {
+                synchronized (keptAsideLock) {
+                    keepAside(response);
+                }
+                return false;
+            }
+
+            // DROP_OLDEST: the consumer might have advanced meanwhile
+            if (head.compareAndSet(h, h + 1)) {
+                dropped.incrementAndGet();
+            }
+            slots.lazySet((int) t & mask, response);
+            tail.lazySet(t + 1);
+            return false;
+        }
+
+        slots.lazySet((int) t & mask, response);
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    private void keepAside(DataResponse response) {
+        if (latestPerPID.getAndSet(response.getPid().ordinal(), response) != null) {
+            coalesced.incrementAndGet();
+        }
+        keptAside = true;
+    }
+
+    /**
+     * Moves the responses kept aside back to the buffer, as far as there is room. Has to be
+     * called with the lock held.
+     *
+     * @return true if no response is kept aside anymore
+     */
+    private boolean restoreKeptAside() {
+        for (int i = 0; i < latestPerPID.length(); i++) {
+            if (latestPerPID.get(i) == null) {
+                continue;
+            }
+
+            long t = tail.get();
+            if (t - head.get() > mask) {
+                return false;
+            }
+
+            slots.lazySet((int) t & mask, latestPerPID.getAndSet(i, null));
+            tail.lazySet(t + 1);
+        }
+
+        keptAside = false;
+        return true;
+    }
+
+    /**
+     * Consumer side: move up to maxCount responses, oldest first, into the target.
+     * Responses kept aside by {@link OverflowPolicy#COALESCE_PER_PID} follow the
+     * buffered ones, so the responses of a PID are always drained in the order they have
+     * been offered.
+     *
+     * @return the number of responses added to the target
+     */
+    public int drain(List<DataResponse> target, int maxCount) {
+        int count = 0;
+
+        while (count < maxCount) {
+            long h = head.get();
+            if (h >= tail.get()) {
+                break;
+            }
+
+            DataResponse response = slots.get((int) h & mask);
+
+            // on failure the producer has dropped this slot: just retry with the new head
+            if (head.compareAndSet(h, h + 1)) {
+                target.add(response);
+                count++;
+            }
+        }
+
+        if (policy == OverflowPolicy.COALESCE_PER_PID && count < maxCount && hasKeptAside()) {
+            synchronized (keptAsideLock) {
+                // while responses are kept aside, the producer only appends to the buffer
+                // under this lock. They are newer than the buffered ones, so they may only be
+                // taken once the buffer is empty.
+                if (head.get() >= tail.get()) {
+                    for (int i = 0; i < latestPerPID.length() && count < maxCount; i++) {
+                        DataResponse response = latestPerPID.getAndSet(i, null);
+                        if (response != null) {
+                            target.add(response);
+                            count++;
+                        }
+                    }
+                }
+            }
+        }
+
+        return count;
+    }
+
+    public boolean isEmpty() {
+        if (head.get() < tail.get()) {
+            return false;
+        }
+
+        return policy != OverflowPolicy.COALESCE_PER_PID || !hasKeptAside();
+    }
+
+    private boolean hasKeptAside() {
+        for (int i = 0; i < latestPerPID.length(); i++) {
+            if (latestPerPID.get(i) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return policy;
+    }
+
+    /**
+     * @return the number of responses discarded by {@link OverflowPolicy#DROP_OLDEST}
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * @return the number of responses replaced by a newer one of the same PID
+     */
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+}
@@ -0,0 +1,109 @@
+/**
+ * Copyright (C) 2013 - 2021 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.obd.adapter;
+
+import org.envirocar.obd.commands.PIDBitmap;
+
+/**
+ * What an adapter learned about a device during a successful initialization: the adapter
+ * implementation that worked, the OBD protocol of the car and the PIDs it supports. It is
+ * cached per device to skip probing on the next connection.
+ */
+public class AdapterFingerprint {
+
+    private static final String SEPARATOR = "|";
+
+    private final String adapterClass;
+    private final String protocol;
+    private final PIDBitmap supportedPIDs;
+
+    /**
+     * @param adapterClass  the fully qualified class name of the adapter
+     * @param protocol      the adapter specific protocol identifier or null if unknown
+     * @param supportedPIDs the PIDs supported by the car
+     */
+    public AdapterFingerprint(String adapterClass, String protocol, PIDBitmap supportedPIDs) {
+        this.adapterClass = adapterClass;
+        this.protocol = protocol;
+        this.supportedPIDs = new PIDBitmap(supportedPIDs);
+    }
+
+    public String getAdapterClass() {
+        return adapterClass;
+    }
+
+    public String getProtocol() {
+        return protocol;
+    }
+
+    /**
+     * @return a copy of the supported PIDs
+     */
+    public PIDBitmap getSupportedPIDs() {
+        return new PIDBitmap(supportedPIDs);
+    }
+
+    /**
+     * @param groupPIDs the PIDs reported by the first PID supported request (01 00)
+     * @return true if the PIDs match the cached ones of that group, i.e. it is the same car
+     */
+    public boolean matchesFirstGroup(PIDBitmap groupPIDs) {
+        return supportedPIDs.getGroup(0x00) == groupPIDs.getGroup(0x00);
+    }
+
+    /**
+     * @return a string representation to be persisted, see {@link #decode(String)}
+     */
+    public String encode() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(adapterClass).append(SEPARATOR);
+        if (protocol != null) {
+            sb.append(protocol);
+        }
+        sb.append(SEPARATOR);
+        sb.append(supportedPIDs.toHexString());
+        return sb.toString();
+    }
+
+    /**
+     * @return the decoded fingerprint or null if the string is not a valid representation
+     */
+    public static AdapterFingerprint decode(String encoded) {
+        if (encoded == null) {
+            return null;
+        }
+
+        String[] parts = encoded.split("\\" + SEPARATOR, -1);
+        if (parts.length != 3 || parts[0].isEmpty()) {
+            return null;
+        }
+
+        PIDBitmap pids = PIDBitmap.fromHexString(parts[2]);
+        if (pids == null) {
+            return null;
+        }
+
+        return new AdapterFingerprint(parts[0], parts[1].isEmpty() ? null : parts[1], pids);
+    }
+
+    @Override
+    public String toString() {
+        return encode();
+    }
+}
@@ -183,6 +183,20 @@ public class CarTrendAdapter extends SyncAdapter {
         }
     }
 
+    @Override
+    protected int preProcess(byte[] buffer, int length) throws AdapterFailedException {
+        if (dataStartPosition == -1) {
+            // the start position is determined with the first response only
+            return super.preProcess(buffer, length);
+        }
+
+        if (dataStartPosition < length) {
+            System.arraycopy(buffer, dataStartPosition, buffer, 0, length - dataStartPosition);
+            return length - dataStartPosition;
+        }
+        return length;
+    }
+
     @Override
     public boolean supportsDevice(String deviceName) {
         return deviceName.toLowerCase().contains("cartrend");
@@ -24,21 +24,15 @@ import org.envirocar.core.logging.Logger;
 import org.envirocar.obd.commands.request.BasicCommand;
 import org.envirocar.obd.exception.StreamFinishedException;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.HashSet;
 import java.util.Set;
 
-import io.reactivex.Observable;
-import io.reactivex.ObservableEmitter;
-import io.reactivex.ObservableOnSubscribe;
-
 public class CommandExecutor {
 
     private static final Logger LOGGER = Logger.getLogger(CommandExecutor.class.getName());
-    private final Set<Byte> ignoredChars;
+    private final ResponseLineReader lineReader;
     private final byte endOfLineOutput;
     private final byte endOfLineInput;
     private OutputStream outputStream;
@@ -52,14 +46,9 @@ public class CommandExecutor {
                            Set<Character> ignoredChars, Character endOfLineInput, Character endOfLineOutput) {
         this.inputStream = is;
         this.outputStream = os;
-        this.ignoredChars = new HashSet<>(ignoredChars.size());
-
-        for (Character c : ignoredChars) {
-            this.ignoredChars.add((byte) c.charValue());
-        }
-
         this.endOfLineOutput = (byte) endOfLineOutput.charValue();
         this.endOfLineInput = (byte) endOfLineInput.charValue();
+        this.lineReader = new ResponseLineReader(is, ignoredChars, this.endOfLineInput);
 
         this.setLogEverything(false);
     }
@@ -96,49 +85,24 @@ public class CommandExecutor {
         }
     }
 
-    public Observable<byte[]> createRawByteObservable() {
-        return Observable.create(new ObservableOnSubscribe<byte[]>() {
-            @Override
-            public void subscribe(ObservableEmitter<byte[]> emitter) throws Exception {
-                try {
-                    while (!emitter.isDisposed()) {
-                        byte[] bytes = readResponseLine();
-                        emitter.onNext(bytes);
-                    }
-                } catch (IOException e) {
-                    emitter.onError(e);
-                } catch (StreamFinishedException e) {
-                    emitter.onComplete();
-                }
-            }
-        });
-    }
-
-
-    private byte[] readResponseLine() throws IOException, StreamFinishedException {
-        // TODO
-//        LOGGER.info("Reading response line...");
-
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    private void readResponseLine(long deadline) throws IOException, StreamFinishedException {
+        lineReader.clearLine();
 
         // read until end of line arrives
-        readUntilLineEnd(baos);
-
-        byte[] byteArray = baos.toByteArray();
+        lineReader.readUntilLineEnd(deadline);
 
         //some adapter (i.e. the drivedeck) MIGHT respond with linebreaks as actual data - detect this
-        if (quirk != null && quirk.shouldWaitForNextTokenLine(byteArray)) {
+        if (quirk != null && quirk.shouldWaitForNextTokenLine(
+                lineReader.getLineBuffer(), lineReader.getLineLength())) {
             LOGGER.info("Detected quirk: " + this.quirk.getClass().getSimpleName());
 
             //re-add the end of line, it was dismissed previously
-            baos.write(this.endOfLineInput);
-            readUntilLineEnd(baos);
-            byteArray = baos.toByteArray();
+            lineReader.append(this.endOfLineInput);
+            lineReader.readUntilLineEnd(deadline);
         }
 
-        if (byteArray.length == 0) {
+        if (lineReader.getLineLength() == 0) {
             LOGGER.info("Unexpected empty line anomaly detected. Try to read next line.");
-//            baos.reset();
 
             try {
                 Thread.sleep(100);
@@ -146,20 +110,21 @@ public class CommandExecutor {
             }
 
             if (isDataAvailable()){
-                readUntilLineEnd(baos);
-                byteArray = baos.toByteArray();
+                lineReader.readUntilLineEnd(deadline);
             }
 
         }
 
         if (LOGGER.isEnabled(currentLogLevel)) {
-            LOGGER.log(currentLogLevel, "Received bytes: " + Base64.encodeToString(byteArray, Base64.DEFAULT));
+            LOGGER.log(currentLogLevel, "Received bytes: " + Base64.encodeToString(
+                    lineReader.getLineBuffer(), 0, lineReader.getLineLength(), Base64.DEFAULT));
         }
-
-        return byteArray;
     }
 
     public boolean isDataAvailable(){
+        if (lineReader.getBufferedCount() > 0) {
+            return true;
+        }
         try {
             return inputStream.available() > 0;
         } catch (Exception e){
@@ -167,24 +132,50 @@ public class CommandExecutor {
         }
     }
 
-    private void readUntilLineEnd(ByteArrayOutputStream baos) throws IOException, StreamFinishedException {
-        int i = inputStream.read();
-        byte b = (byte) i;
-        while (b != this.endOfLineInput) {
-            if (i == -1) {
-                throw new StreamFinishedException("Stream finished");
-            }
+    /**
+     * Reads the next response line and returns a copy of it. Meant for responses that are kept,
+     * e.g. during the initialization; data responses should be read with
+     * {@link #retrieveLatestResponseBuffer()}.
+     */
+    public byte[] retrieveLatestResponse() throws IOException, StreamFinishedException {
+        readResponseLine(ResponseLineReader.NO_DEADLINE);
+        return lineReader.copyLine();
+    }
 
-            if (!ignoredChars.contains(b)) {
-                baos.write(b);
-            }
+    /**
+     * Reads the next response line and returns a copy of it, see {@link #retrieveLatestResponse()}.
+     *
+     * @param timeout the time in ms the adapter has to complete its response
+     * @throws org.envirocar.obd.exception.ResponseTimeoutException if the response did not
+     *                                                              complete in time
+     */
+    public byte[] retrieveLatestResponse(long timeout) throws IOException, StreamFinishedException {
+        readResponseLine(System.currentTimeMillis() + timeout);
+        return lineReader.copyLine();
+    }
 
-            i = inputStream.read();
-            b = (byte) i;
+    /**
+     * Drops everything that has been received but not read yet, so the next response read
+     * belongs to the next command.
+     */
+    public void discardPendingInput() throws IOException {
+        int discarded = lineReader.discardAvailable();
+        if (discarded > 0) {
+            LOGGER.info("Discarded " + discarded + " pending bytes.");
         }
     }
 
-    public byte[] retrieveLatestResponse() throws IOException, StreamFinishedException {
-        return readResponseLine();
+    /**
+     * Reads the next response line without copying it. The returned buffer is reused for every
+     * line and is only valid until the next read; the response occupies the first
+     * {@link #getLatestResponseLength()} bytes.
+     */
+    public byte[] retrieveLatestResponseBuffer() throws IOException, StreamFinishedException {
+        readResponseLine(ResponseLineReader.NO_DEADLINE);
+        return lineReader.getLineBuffer();
+    }
+
+    public int getLatestResponseLength() {
+        return lineReader.getLineLength();
     }
 }
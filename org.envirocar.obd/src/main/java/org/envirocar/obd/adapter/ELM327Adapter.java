@@ -60,10 +60,31 @@ public class ELM327Adapter extends SyncAdapter {
 
     @Override
     public Observable<Boolean> initialize(InputStream is, OutputStream os) {
-        this.initCommands = createInitCommands();
+        // every init sequence has to verify the connection on its own, e.g. the full sequence
+        // after the shortened one of a known device failed.
+        this.succesfulCount = 0;
+        this.certifiedConnection = false;
+        this.initCommands = getKnownFingerprint() != null ? createKnownDeviceInitCommands() : createInitCommands();
         return super.initialize(is, os);
     }
 
+    /**
+     * Shortened init sequence for a device that has been connected before: no reset and
+     * device queries, and the protocol of the last connection instead of the automatic search.
+     */
+    protected Queue<BasicCommand> createKnownDeviceInitCommands() {
+        String protocol = getKnownFingerprint().getProtocol();
+
+        Queue<BasicCommand> result = new ArrayDeque<>();
+        result.add(ConfigurationCommand.instance(ConfigurationCommand.Instance.ECHO_OFF));
+        result.add(ConfigurationCommand.instance(ConfigurationCommand.Instance.ECHO_OFF));
+        result.add(ConfigurationCommand.instance(ConfigurationCommand.Instance.LINE_FEED_OFF));
+        result.add(new Timeout(62));
+        result.add(protocol != null ? ConfigurationCommand.selectProtocol(protocol)
+                : ConfigurationCommand.instance(ConfigurationCommand.Instance.SELECT_AUTO_PROTOCOL));
+        return result;
+    }
+
     protected Queue<BasicCommand> createInitCommands() {
         Queue<BasicCommand> result = new ArrayDeque<>();
         result.add(ConfigurationCommand.instance(ConfigurationCommand.Instance.RESET));
@@ -114,7 +135,8 @@ public class ELM327Adapter extends SyncAdapter {
             }
         }
 
-        else if (sent.getInstance() == ConfigurationCommand.Instance.SELECT_AUTO_PROTOCOL) {
+        else if (sent.getInstance() == ConfigurationCommand.Instance.SELECT_AUTO_PROTOCOL
+                || sent.getInstance() == ConfigurationCommand.Instance.SELECT_PROTOCOL) {
             if (content.contains("OK")) {
                 succesfulCount++;
             }
@@ -125,11 +147,41 @@ public class ELM327Adapter extends SyncAdapter {
         return succesfulCount >= 5;
     }
 
+    @Override
+    protected BasicCommand createProtocolQuery() {
+        return ConfigurationCommand.instance(ConfigurationCommand.Instance.DESCRIBE_PROTOCOL_NUMBER);
+    }
+
+    @Override
+    protected String parseProtocol(byte[] response) {
+        String content = new String(response).trim();
+
+        // "A6": protocol 6 has been found by the automatic search
+        if (content.length() == 2 && content.charAt(0) == 'A') {
+            content = content.substring(1);
+        }
+
+        if (content.length() == 1 && Character.digit(content.charAt(0), 16) >= 0) {
+            return content;
+        }
+        return null;
+    }
+
+    @Override
+    protected boolean supportsMultiPIDRequests() {
+        return true;
+    }
+
     @Override
     protected byte[] preProcess(byte[] bytes) {
         return bytes;
     }
 
+    @Override
+    protected int preProcess(byte[] buffer, int length) {
+        return length;
+    }
+
     @Override
     public boolean supportsDevice(String deviceName) {
         return deviceName.contains("OBDII") || deviceName.contains("ELM327"); // || deviceName.toLowerCase().contains("obdlink");
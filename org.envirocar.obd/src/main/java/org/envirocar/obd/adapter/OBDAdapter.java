@@ -18,6 +18,7 @@
  */
 package org.envirocar.obd.adapter;
 
+import org.envirocar.obd.commands.PIDBitmap;
 import org.envirocar.obd.commands.response.DataResponse;
 
 import java.io.InputStream;
@@ -101,4 +102,21 @@ public interface OBDAdapter {
     long getExpectedInitPeriod();
 
 	String getStateMessage();
+
+	/**
+	 * Provides the fingerprint of a previous successful connection to the same device. An
+	 * adapter may use it to skip parts of its initialization. Has to be called before
+	 * {@link #initialize(InputStream, OutputStream)}.
+	 *
+	 * @param fingerprint the known fingerprint or null to do the full initialization
+	 */
+	default void setKnownFingerprint(AdapterFingerprint fingerprint) {
+	}
+
+	/**
+	 * @return what the adapter learned about the device during a successful initialization
+	 */
+	default AdapterFingerprint getFingerprint() {
+		return new AdapterFingerprint(getClass().getName(), null, new PIDBitmap());
+	}
 }
@@ -98,7 +98,8 @@ public class OBDLinkAdapter extends ELM327Adapter{
             }
         }
 
-        else if (sent.getInstance() == ConfigurationCommand.Instance.SELECT_AUTO_PROTOCOL) {
+        else if (sent.getInstance() == ConfigurationCommand.Instance.SELECT_AUTO_PROTOCOL
+                || sent.getInstance() == ConfigurationCommand.Instance.SELECT_PROTOCOL) {
             if (content.contains("OK")) {
                 succesfulCount++;
             }
@@ -0,0 +1,182 @@
+/**
+ * Copyright (C) 2013 - 2021 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.obd.adapter;
+
+import org.envirocar.obd.commands.CycleCommandProfile;
+import org.envirocar.obd.commands.PID;
+import org.envirocar.obd.commands.request.PIDCommand;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decides which PID to request next. Every PID gets a target frequency from the
+ * {@link CycleCommandProfile}, which is scaled by how much its values change between
+ * consecutive responses. The command with the earliest due time is polled first.
+ * <p>
+ * The due times are virtual: every request advances the due time of its PID by one period,
+ * independent of the wall clock. So however far the link is behind the target frequencies,
+ * each PID gets a share of the requests proportional to its frequency.
+ */
+public class PIDScheduler {
+
+    // relative change between two responses that keeps the profile frequency unchanged
+    private static final double REFERENCE_VARIABILITY = 0.05;
+    private static final double MIN_FACTOR = 0.5;
+    private static final double MAX_FACTOR = 2.0;
+    // weight of the latest change in the moving average
+    private static final double SMOOTHING = 0.2;
+
+    private static class Entry {
+        private final PIDCommand command;
+        private double targetFrequency;
+        private double variability = -1;
+        private double lastValue = Double.NaN;
+        private long nextDue;
+
+        private Entry(PIDCommand command, double targetFrequency) {
+            this.command = command;
+            this.targetFrequency = targetFrequency;
+        }
+
+        private double getFrequency() {
+            if (variability < 0) {
+                return targetFrequency;
+            }
+            double factor = variability / REFERENCE_VARIABILITY;
+            return targetFrequency * Math.max(MIN_FACTOR, Math.min(MAX_FACTOR, factor));
+        }
+    }
+
+    private final CycleCommandProfile profile;
+    private final List<Entry> entries = new ArrayList<>();
+    // due time of the command polled last
+    private long virtualTime;
+
+    public PIDScheduler(CycleCommandProfile profile) {
+        this.profile = profile;
+    }
+
+    /**
+     * Adds a command. If the PID is already scheduled, its target frequency is increased by
+     * the profile frequency instead, so PIDs listed twice by a profile are polled twice as often.
+     */
+    public void add(PIDCommand command) {
+        double frequency = profile.provideTargetFrequency(command.getPid());
+        Entry entry = find(command.getPid());
+        if (entry != null) {
+            entry.targetFrequency += frequency;
+        } else {
+            // a new PID starts at the current virtual time, so that it does not catch up on
+            // requests it has never been due for
+            Entry newEntry = new Entry(command, frequency);
+            newEntry.nextDue = virtualTime;
+            entries.add(newEntry);
+        }
+    }
+
+    public void remove(PID pid) {
+        Entry entry = find(pid);
+        if (entry != null) {
+            entries.remove(entry);
+        }
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the command that is due first or null if no commands are scheduled. Ties are
+     * resolved by the order of the profile.
+     */
+    public PIDCommand poll() {
+        Entry next = findNext();
+        if (next == null) {
+            return null;
+        }
+
+        virtualTime = next.nextDue;
+        next.nextDue += (long) (1000 / next.getFrequency());
+        return next.command;
+    }
+
+    /**
+     * @return the command that {@link #poll()} would return next, without advancing its due
+     * time, or null if no commands are scheduled.
+     */
+    public PIDCommand peek() {
+        Entry next = findNext();
+        return next != null ? next.command : null;
+    }
+
+    /**
+     * Updates the observed variability of the PID with a received value.
+     */
+    public void onResponse(PID pid, Number value) {
+        if (value == null) {
+            return;
+        }
+
+        Entry entry = find(pid);
+        if (entry == null) {
+            return;
+        }
+
+        double current = value.doubleValue();
+        if (!Double.isNaN(entry.lastValue)) {
+            double change = Math.abs(current - entry.lastValue) / Math.max(Math.abs(entry.lastValue), 1.0);
+            entry.variability = entry.variability < 0 ? change
+                    : (1 - SMOOTHING) * entry.variability + SMOOTHING * change;
+        }
+        entry.lastValue = current;
+    }
+
+    /**
+     * @return the current polling frequency of the PID in Hz or 0 if it is not scheduled
+     */
+    public double getFrequency(PID pid) {
+        Entry entry = find(pid);
+        return entry != null ? entry.getFrequency() : 0;
+    }
+
+    private Entry findNext() {
+        Entry next = null;
+        for (Entry entry : entries) {
+            if (next == null || entry.nextDue < next.nextDue) {
+                next = entry;
+            }
+        }
+        return next;
+    }
+
+    private Entry find(PID pid) {
+        for (Entry entry : entries) {
+            if (entry.command.getPid() == pid) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,211 @@
+/**
+ * Copyright (C) 2013 - 2021 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.obd.adapter;
+
+import org.envirocar.obd.exception.ResponseTimeoutException;
+import org.envirocar.obd.exception.StreamFinishedException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Splits the raw adapter stream into response lines. Bytes are read in bulk into a read buffer
+ * and framed into a reusable line buffer, so reading a line does not create any garbage once
+ * the buffers have grown to the typical response size.
+ */
+public final class ResponseLineReader {
+
+    private static final int DEFAULT_READ_BUFFER_SIZE = 1024;
+    private static final int DEFAULT_LINE_BUFFER_SIZE = 64;
+    private static final long AVAILABILITY_POLL_INTERVAL = 5;
+
+    /**
+     * deadline value for reads that block until the end of line arrives
+     */
+    public static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    private final InputStream inputStream;
+    private final boolean[] ignoredBytes = new boolean[256];
+    private final byte endOfLine;
+
+    // bytes read from the stream but not yet framed, starting at readPosition
+    private final byte[] readBuffer;
+    private int readPosition;
+    private int buffered;
+
+    private byte[] line = new byte[DEFAULT_LINE_BUFFER_SIZE];
+    private int lineLength;
+
+    public ResponseLineReader(InputStream inputStream, Set<Character> ignoredChars, byte endOfLine) {
+        this(inputStream, ignoredChars, endOfLine, DEFAULT_READ_BUFFER_SIZE);
+    }
+
+    public ResponseLineReader(InputStream inputStream, Set<Character> ignoredChars, byte endOfLine,
+                              int readBufferSize) {
+        this.inputStream = inputStream;
+        this.endOfLine = endOfLine;
+        this.readBuffer = new byte[readBufferSize];
+
+        for (Character c : ignoredChars) {
+            this.ignoredBytes[c.charValue() & 0xFF] = true;
+        }
+    }
+
+    /**
+     * Discards the current line content.
+     */
+    public void clearLine() {
+        this.lineLength = 0;
+    }
+
+    /**
+     * Appends the next line of the stream to the current line content. The end of line byte
+     * itself as well as all ignored bytes are dropped.
+     *
+     * @throws StreamFinishedException if the stream ended before the end of line was received.
+     */
+    public void readUntilLineEnd() throws IOException, StreamFinishedException {
+        readUntilLineEnd(NO_DEADLINE);
+    }
+
+    /**
+     * Like {@link #readUntilLineEnd()}, but gives up once the deadline has passed. Bytes
+     * received until then stay in the current line.
+     *
+     * @param deadline the point in time (as of {@link System#currentTimeMillis()}) to give up
+     * @throws ResponseTimeoutException if the end of line did not arrive before the deadline
+     */
+    public void readUntilLineEnd(long deadline) throws IOException, StreamFinishedException {
+        while (true) {
+            if (buffered == 0) {
+                if (deadline != NO_DEADLINE) {
+                    awaitData(deadline);
+                }
+                fill();
+            }
+
+            int end = readPosition + buffered;
+            for (int i = readPosition; i < end; i++) {
+                byte b = readBuffer[i];
+                if (b == endOfLine) {
+                    consume(i - readPosition + 1);
+                    return;
+                }
+                if (!ignoredBytes[b & 0xFF]) {
+                    append(b);
+                }
+            }
+            consume(end - readPosition);
+        }
+    }
+
+    /**
+     * Appends a single byte to the current line content.
+     */
+    public void append(byte b) {
+        if (lineLength == line.length) {
+            line = Arrays.copyOf(line, line.length << 1);
+        }
+        line[lineLength++] = b;
+    }
+
+    /**
+     * @return the buffer holding the current line. It is reused for subsequent lines and only
+     * the first {@link #getLineLength()} bytes are valid.
+     */
+    public byte[] getLineBuffer() {
+        return line;
+    }
+
+    public int getLineLength() {
+        return lineLength;
+    }
+
+    /**
+     * @return a copy of the current line content.
+     */
+    public byte[] copyLine() {
+        return Arrays.copyOf(line, lineLength);
+    }
+
+    /**
+     * @return the number of bytes that have been read from the stream but not yet framed.
+     */
+    public int getBufferedCount() {
+        return buffered;
+    }
+
+    /**
+     * Drops all bytes that have been received but not yet read as a line, e.g. late responses
+     * of previous commands.
+     *
+     * @return the number of dropped bytes
+     */
+    public int discardAvailable() throws IOException {
+        int discarded = buffered;
+        buffered = 0;
+        readPosition = 0;
+
+        int available = inputStream.available();
+        while (available > 0) {
+            int read = inputStream.read(readBuffer, 0, Math.min(available, readBuffer.length));
+            if (read <= 0) {
+                break;
+            }
+            discarded += read;
+            available = inputStream.available();
+        }
+        return discarded;
+    }
+
+    private void awaitData(long deadline) throws IOException {
+        while (inputStream.available() == 0) {
+            if (System.currentTimeMillis() >= deadline) {
+                throw new ResponseTimeoutException("No end of line received before the deadline");
+            }
+            try {
+                Thread.sleep(AVAILABILITY_POLL_INTERVAL);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException(e.getMessage());
+            }
+        }
+    }
+
+    private void consume(int count) {
+        buffered -= count;
+        readPosition += count;
+    }
+
+    private void fill() throws IOException, StreamFinishedException {
+        // only called once everything buffered has been framed, so the whole buffer is free
+        int read;
+        do {
+            read = inputStream.read(readBuffer, 0, readBuffer.length);
+            if (read == -1) {
+                throw new StreamFinishedException("Stream finished");
+            }
+        } while (read == 0);
+        readPosition = 0;
+        buffered = read;
+    }
+}
@@ -18,8 +18,17 @@
  */
 package org.envirocar.obd.adapter;
 
+import java.util.Arrays;
+
 public interface ResponseQuirkWorkaround {
 
     boolean shouldWaitForNextTokenLine(byte[] byteArray);
 
+    /**
+     * Variant working on a reused buffer of which only the first {@code length} bytes are valid.
+     */
+    default boolean shouldWaitForNextTokenLine(byte[] buffer, int length) {
+        return shouldWaitForNextTokenLine(Arrays.copyOf(buffer, length));
+    }
+
 }
@@ -24,10 +24,13 @@ import org.envirocar.core.logging.Logger;
 import org.envirocar.obd.commands.CampagneCommandProfile;
 import org.envirocar.obd.commands.CycleCommandProfile;
 import org.envirocar.obd.commands.PID;
+import org.envirocar.obd.commands.PIDBitmap;
 import org.envirocar.obd.commands.PIDSupported;
 import org.envirocar.obd.commands.PIDUtil;
 import org.envirocar.obd.commands.request.BasicCommand;
+import org.envirocar.obd.commands.request.MultiPIDCommand;
 import org.envirocar.obd.commands.request.PIDCommand;
+import org.envirocar.obd.commands.request.elm.ConfigurationCommand;
 import org.envirocar.obd.commands.response.DataResponse;
 import org.envirocar.obd.commands.response.ResponseParser;
 import org.envirocar.obd.exception.AdapterFailedException;
@@ -35,6 +38,7 @@ import org.envirocar.obd.exception.AdapterSearchingException;
 import org.envirocar.obd.exception.EngineNotRunningException;
 import org.envirocar.obd.exception.InvalidCommandResponseException;
 import org.envirocar.obd.exception.NoDataReceivedException;
+import org.envirocar.obd.exception.ResponseTimeoutException;
 import org.envirocar.obd.exception.StreamFinishedException;
 import org.envirocar.obd.exception.UnmatchedResponseException;
 
@@ -44,15 +48,13 @@ import java.io.OutputStream;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicInteger;
 
 import io.reactivex.Observable;
+import io.reactivex.ObservableEmitter;
 
 
 public abstract class SyncAdapter implements OBDAdapter {
@@ -65,33 +67,54 @@ public abstract class SyncAdapter implements OBDAdapter {
     private static final char COMMAND_RECEIVE_END = '>';
     private static final char COMMAND_RECEIVE_SPACE = ' ';
     private static final int MAX_ERROR_PER_COMMAND = 5;
+    private static final int MAX_MULTI_PID_ERRORS = 3;
 
     private Set<Character> ignoredChars = new HashSet<>(Arrays.asList(COMMAND_RECEIVE_SPACE, COMMAND_SEND_END));
     private CommandExecutor commandExecutor;
     private ResponseParser parser = new ResponseParser();
 
-    private Set<PID> supportedPIDs = new HashSet<>();
+    private final PIDBitmap supportedPIDs = new PIDBitmap();
 
-    private Map<PID, AtomicInteger> failureMap = new HashMap<>();
+    // consecutive failures per PID byte value
+    private final int[] failureCounts = new int[256];
     private List<PIDCommand> requestCommands;
-    private Queue<PIDCommand> commandRingBuffer = new ArrayDeque<>();
-    private Queue<PIDSupported> pidSupportedCommands = new ArrayDeque<>(
-            Arrays.asList(
-                    new PIDSupported(),
-                    new PIDSupported("20"),
-                    new PIDSupported("40"),
-                    new PIDSupported("80")));
+    private PIDScheduler commandScheduler;
+    private Queue<PIDSupported> pidSupportedCommands;
 
     private CycleCommandProfile commandProfile;
 
+    private AdapterFingerprint knownFingerprint;
+    private String protocol;
+
+    private boolean multiPIDRequests;
+    private boolean multiPIDRequestsVerified;
+    private int multiPIDErrorCount;
+    private final List<PID> multiPIDBatch = new ArrayList<>(MultiPIDCommand.MAX_PIDS);
+    private final List<PIDCommand> multiPIDBatchCommands = new ArrayList<>(MultiPIDCommand.MAX_PIDS);
+    private final MultiPIDCommand multiPIDCommand = new MultiPIDCommand("01");
+    // the commands of a failed batch, requested one at a time to count their failures
+    private final Queue<PIDCommand> singlePIDRetries = new ArrayDeque<>(MultiPIDCommand.MAX_PIDS);
+    private final List<DataResponse> multiPIDResponses = new ArrayList<>(MultiPIDCommand.MAX_PIDS);
+
     public SyncAdapter (CycleCommandProfile cmp) {
         this.commandProfile = cmp;
+        this.commandScheduler = new PIDScheduler(cmp);
     }
 
     @Override
     public Observable<Boolean> initialize(InputStream is, OutputStream os) {
         commandExecutor = new CommandExecutor(is, os, ignoredChars, COMMAND_RECEIVE_END, COMMAND_SEND_END);
 
+        // the supported PIDs are queried again on every initialization, e.g. a retry without
+        // the known fingerprint
+        supportedPIDs.clear();
+        pidSupportedCommands = new ArrayDeque<>(
+                Arrays.asList(
+                        new PIDSupported(),
+                        new PIDSupported("20"),
+                        new PIDSupported("40"),
+                        new PIDSupported("80")));
+
         /**
          * create an observable that tries to verify the
          * connection based on response analysis
@@ -99,6 +122,7 @@ public abstract class SyncAdapter implements OBDAdapter {
         Observable<Boolean> obs = Observable.create(subscriber -> {
 
             try {
+                long initStart = System.currentTimeMillis();
                 boolean analyzedSuccessfully = false;
                 commandExecutor.setLogEverything(true);
 
@@ -115,7 +139,16 @@ public abstract class SyncAdapter implements OBDAdapter {
                             commandExecutor.execute(pid);
                             byte[] resp = commandExecutor.retrieveLatestResponse();
                             try {
-                                supportedPIDs.addAll(pid.parsePIDs(resp));
+                                PIDBitmap groupPIDs = pid.parsePIDs(resp);
+                                supportedPIDs.addAll(groupPIDs);
+
+                                if (knownFingerprint != null && "00".equals(pid.getGroup())
+                                        && knownFingerprint.matchesFirstGroup(groupPIDs)) {
+                                    // same car as last time, skip the remaining groups
+                                    LOGGER.info("Supported PIDs match the known fingerprint.");
+                                    supportedPIDs.addAll(knownFingerprint.getSupportedPIDs());
+                                    pidSupportedCommands.clear();
+                                }
                             } catch (InvalidCommandResponseException e) {
                                 LOGGER.warn(e.getMessage(), e);
                             }
@@ -123,11 +156,17 @@ public abstract class SyncAdapter implements OBDAdapter {
                             pid = pidSupportedCommands.poll();
                         }
 
+                        if (protocol == null) {
+                            protocol = queryProtocol();
+                        }
+
                         // If the supported PIDs is empty, then usually the engine isn't running.
-                        if (supportedPIDs.size() == 0) {
+                        if (supportedPIDs.isEmpty()) {
                             subscriber.onError(new EngineNotRunningException("No PIDs returned. Possibly the car engine is not running."));
                         }
 
+                        LOGGER.info(String.format("Initialization completed after %d ms",
+                                System.currentTimeMillis() - initStart));
                         subscriber.onNext(true);
                         subscriber.onComplete();
                     } else {
@@ -139,30 +178,28 @@ public abstract class SyncAdapter implements OBDAdapter {
                         }
 
                         LOGGER.info("Sending Init Command: " + cc.toString());
-                        //push the command to the output stream
-                        commandExecutor.execute(cc);
 
                         //check if the command needs a response (most likely)
                         if (cc.awaitsResults()) {
                             try {
-                                Thread.sleep(750);
-                                LOGGER.info("Retrieving initial phase response...");
-                                byte[] resp = commandExecutor.retrieveLatestResponse();
-                                LOGGER.info("Retrieved initial phase response: " + Base64.encodeToString(resp, Base64.DEFAULT));
-                                analyzedSuccessfully = analyzedSuccessfully | analyzeMetadataResponse(resp, cc);
-                            } catch (InterruptedException e) {
-                                LOGGER.warn(e.getMessage());
+                                analyzedSuccessfully = analyzedSuccessfully | executeInitCommand(cc);
+                            } catch (ResponseTimeoutException e) {
+                                // retry
+                                LOGGER.warn("No response to init command " + cc + ", retrying.");
+                                try {
+                                    analyzedSuccessfully = analyzedSuccessfully | executeInitCommand(cc);
+                                } catch (ResponseTimeoutException e2) {
+                                    LOGGER.warn("No response to init command " + cc + ", continuing.");
+                                }
                             } catch (Exception e) {
                                 // retry
-                                commandExecutor.execute(cc);
-                                Thread.sleep(750);
-                                LOGGER.info("Retrieving initial phase response...");
-                                byte[] resp = commandExecutor.retrieveLatestResponse();
-                                LOGGER.info("Retrieved initial phase response: " + Base64.encodeToString(resp, Base64.DEFAULT));
-                                analyzedSuccessfully = analyzedSuccessfully | analyzeMetadataResponse(resp, cc);
+                                analyzedSuccessfully = analyzedSuccessfully | executeInitCommand(cc);
                             }
 
                         } else {
+                            //push the command to the output stream
+                            commandExecutor.discardPendingInput();
+                            commandExecutor.execute(cc);
                             LOGGER.info("Command does not expect a result, continuing.");
                         }
                     }
@@ -190,11 +227,22 @@ public abstract class SyncAdapter implements OBDAdapter {
             //prepare all pending data commands
             preparePendingCommands();
 
+            // the first batch request serves as probe, see processMultiPIDRequest()
+            multiPIDRequests = supportsMultiPIDRequests();
+            multiPIDRequestsVerified = false;
+            singlePIDRetries.clear();
+
             PIDCommand latestCommand = null;
             byte[] bytes = null;
             while (!subscriber.isDisposed()) {
                 try {
-                    latestCommand = pollNextCommand();
+                    if (multiPIDRequests && singlePIDRetries.isEmpty()) {
+                        latestCommand = null;
+                        bytes = processMultiPIDRequest(subscriber);
+                        continue;
+                    }
+
+                    latestCommand = singlePIDRetries.isEmpty() ? pollNextCommand() : singlePIDRetries.poll();
                     LOGGER.debug("Sending command " + (latestCommand != null ? latestCommand.getPid().toString() : "n/a"));
 
                     /**
@@ -207,9 +255,10 @@ public abstract class SyncAdapter implements OBDAdapter {
                     /**
                      * read the next incoming response
                      */
-                    bytes = commandExecutor.retrieveLatestResponse();
+                    bytes = commandExecutor.retrieveLatestResponseBuffer();
 
-                    DataResponse response = parser.parse(preProcess(bytes));
+                    DataResponse response = parser.parse(bytes,
+                            preProcess(bytes, commandExecutor.getLatestResponseLength()));
 
                     if (response != null) {
                         LOGGER.debug("isDisposed? " + subscriber.isDisposed());
@@ -218,6 +267,7 @@ public abstract class SyncAdapter implements OBDAdapter {
                                 response.getValue()));
                         subscriber.onNext(response);
                         clearFailureCount(latestCommand.getPid());
+                        commandScheduler.onResponse(response.getPid(), response.getValue());
                     }
                 } catch (IOException e) {
                     if (!subscriber.isDisposed())
@@ -225,8 +275,9 @@ public abstract class SyncAdapter implements OBDAdapter {
                 } catch (AdapterFailedException e) {
                     LOGGER.warn(e.getMessage(), e);
                     LOGGER.warn(String.format("Sent Command was: %s; Received response was: %s",
-                            latestCommand.getPid().toString(),
-                            Base64.encodeToString(bytes, Base64.DEFAULT)));
+                            latestCommand != null ? latestCommand.getPid().toString() : multiPIDBatch.toString(),
+                            bytes != null ? Base64.encodeToString(bytes, 0,
+                                    commandExecutor.getLatestResponseLength(), Base64.DEFAULT) : "n/a"));
                     subscriber.onError(e);
                 } catch (StreamFinishedException e) {
                     LOGGER.info("Stream finished: " + e.getMessage());
@@ -247,25 +298,196 @@ public abstract class SyncAdapter implements OBDAdapter {
         });
     }
 
+    @Override
+    public void setKnownFingerprint(AdapterFingerprint fingerprint) {
+        this.knownFingerprint = fingerprint;
+        this.protocol = fingerprint != null ? fingerprint.getProtocol() : null;
+    }
+
+    protected AdapterFingerprint getKnownFingerprint() {
+        return knownFingerprint;
+    }
+
+    @Override
+    public AdapterFingerprint getFingerprint() {
+        return new AdapterFingerprint(getClass().getName(), protocol, supportedPIDs);
+    }
+
+    /**
+     * Sends an init command and analyzes its response as soon as it is complete, i.e. the
+     * prompt arrived.
+     *
+     * @throws ResponseTimeoutException if the response did not complete within the response
+     *                                  timeout of the command
+     */
+    private boolean executeInitCommand(BasicCommand cc) throws IOException, StreamFinishedException,
+            AdapterFailedException {
+        // late responses of previous commands would be taken as the response to this one
+        commandExecutor.discardPendingInput();
+        commandExecutor.execute(cc);
+
+        long start = System.currentTimeMillis();
+        try {
+            byte[] resp = commandExecutor.retrieveLatestResponse(getInitResponseTimeout(cc));
+            LOGGER.info(String.format("Retrieved initial phase response to %s after %d ms: %s",
+                    cc, System.currentTimeMillis() - start, Base64.encodeToString(resp, Base64.DEFAULT)));
+            return analyzeMetadataResponse(resp, cc);
+        } catch (ResponseTimeoutException e) {
+            LOGGER.info(String.format("No initial phase response to %s after %d ms",
+                    cc, System.currentTimeMillis() - start));
+            throw e;
+        }
+    }
+
+    /**
+     * @return the time in ms the adapter may take to respond to the given init command
+     */
+    protected long getInitResponseTimeout(BasicCommand cc) {
+        if (cc instanceof ConfigurationCommand) {
+            return ((ConfigurationCommand) cc).getResponseTimeout();
+        }
+        return ConfigurationCommand.DEFAULT_RESPONSE_TIMEOUT;
+    }
+
+    private String queryProtocol() throws IOException, StreamFinishedException {
+        BasicCommand query = createProtocolQuery();
+        if (query == null) {
+            return null;
+        }
+
+        commandExecutor.execute(query);
+        String result = parseProtocol(commandExecutor.retrieveLatestResponse());
+        LOGGER.info("Detected protocol: " + result);
+        return result;
+    }
+
+    /**
+     * Requests the next batch of PIDs with a single {@link MultiPIDCommand}. Responses that do
+     * not match the requested PIDs count as errors. The PIDs of a failed batch are requested
+     * one at a time afterwards, so that the failures are counted per PID. If the first batch
+     * fails or too many batches fail in a row, the adapter falls back to single PID requests.
+     *
+     * @return the raw response
+     */
+    private byte[] processMultiPIDRequest(ObservableEmitter<DataResponse> subscriber)
+            throws IOException, StreamFinishedException, AdapterFailedException {
+        List<PID> batch = pollNextBatch();
+        LOGGER.debug("Sending multi PID command " + batch);
+        multiPIDCommand.setPIDs(batch);
+        commandExecutor.execute(multiPIDCommand);
+
+        byte[] bytes = commandExecutor.retrieveLatestResponseBuffer();
+        int length = preProcess(bytes, commandExecutor.getLatestResponseLength());
+
+        try {
+            multiPIDResponses.clear();
+            parser.parseMultiple(bytes, length, multiPIDResponses);
+
+            if (!matchesBatch(batch, multiPIDResponses)) {
+                throw new UnmatchedResponseException();
+            }
+
+            if (!multiPIDRequestsVerified) {
+                LOGGER.info("Adapter supports multi PID requests. Requesting up to "
+                        + MultiPIDCommand.MAX_PIDS + " PIDs at once.");
+                multiPIDRequestsVerified = true;
+            }
+            multiPIDErrorCount = 0;
+
+            for (DataResponse response : multiPIDResponses) {
+                subscriber.onNext(response);
+                clearFailureCount(response.getPid());
+                commandScheduler.onResponse(response.getPid(), response.getValue());
+            }
+        } catch (AdapterSearchingException e) {
+            LOGGER.warn("Adapter still searching: " + e.getMessage());
+        } catch (NoDataReceivedException | InvalidCommandResponseException | UnmatchedResponseException e) {
+            LOGGER.warn(String.format("Invalid multi PID response for %s: %s", batch,
+                    Base64.encodeToString(bytes, 0, length, Base64.DEFAULT)));
+            singlePIDRetries.addAll(multiPIDBatchCommands);
+
+            if (!multiPIDRequestsVerified || ++multiPIDErrorCount > MAX_MULTI_PID_ERRORS) {
+                LOGGER.info("Multi PID requests are not supported. Falling back to single PID requests.");
+                multiPIDRequests = false;
+            }
+        }
+
+        return bytes;
+    }
+
+    /**
+     * @return the next distinct PIDs of the command scheduler, at most
+     * {@link MultiPIDCommand#MAX_PIDS}. The returned list is reused.
+     */
+    private List<PID> pollNextBatch() throws AdapterFailedException {
+        multiPIDBatch.clear();
+        multiPIDBatchCommands.clear();
+
+        int size = Math.min(MultiPIDCommand.MAX_PIDS, commandScheduler.size());
+        for (int i = 0; i < size; i++) {
+            PIDCommand next = peekNextCommand();
+            if (multiPIDBatch.contains(next.getPid())) {
+                // the PID is due again before the remaining ones, it stays due for the next batch
+                break;
+            }
+            pollNextCommand();
+            multiPIDBatch.add(next.getPid());
+            multiPIDBatchCommands.add(next);
+        }
+
+        return multiPIDBatch;
+    }
+
+    /**
+     * @return the command {@link #pollNextCommand()} returns next, without polling it
+     */
+    private PIDCommand peekNextCommand() throws AdapterFailedException {
+        PIDCommand cmd = commandScheduler.peek();
+        while (cmd != null && checkIsBlacklisted(cmd.getPid())) {
+            LOGGER.info("Command is on the blocklist: " + cmd.getPid());
+            commandScheduler.remove(cmd.getPid());
+            cmd = commandScheduler.peek();
+        }
+
+        if (cmd == null) {
+            throw new AdapterFailedException("No available commands left in the buffer");
+        }
+        return cmd;
+    }
+
+    private boolean matchesBatch(List<PID> batch, List<DataResponse> responses) {
+        if (responses.size() != batch.size()) {
+            return false;
+        }
+
+        for (DataResponse response : responses) {
+            if (!batch.contains(response.getPid())) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
     protected PIDCommand pollNextCommand() throws AdapterFailedException {
-        if (this.commandRingBuffer.isEmpty()) {
+        if (this.commandScheduler.isEmpty()) {
             throw new AdapterFailedException("No available commands left in the buffer");
         }
 
-        PIDCommand cmd = commandRingBuffer.poll();
+        PIDCommand cmd = commandScheduler.poll();
 
         if (cmd != null) {
             if (!checkIsBlacklisted(cmd.getPid())) {
                 /**
-                 * not blacklisted: add it back as the last element of the ring
+                 * not blacklisted: the scheduler keeps it for its next due time
                  */
-                commandRingBuffer.offer(cmd);
                 return cmd;
             } else {
                 /**
-                 * blacklisted: do not re-add it and return the next candidate
+                 * blacklisted: remove it and return the next candidate
                  */
                 LOGGER.info("Command is on the blocklist: " + cmd.getPid());
+                commandScheduler.remove(cmd.getPid());
                 return pollNextCommand();
             }
         }
@@ -278,12 +500,7 @@ public abstract class SyncAdapter implements OBDAdapter {
             return;
         }
 
-        if (this.failureMap.containsKey(command)) {
-            this.failureMap.get(command).getAndIncrement();
-        } else {
-            AtomicInteger ai = new AtomicInteger(1);
-            this.failureMap.put(command, ai);
-        }
+        this.failureCounts[PIDUtil.toCode(command)]++;
     }
 
     protected void clearFailureCount(PID command) {
@@ -291,10 +508,10 @@ public abstract class SyncAdapter implements OBDAdapter {
             return;
         }
 
-        if (this.failureMap.containsKey(command)) {
-            if (this.failureMap.get(command).getAndSet(0) > 0) {
-                LOGGER.info("Command recovered from failures: " + command);
-            }
+        int code = PIDUtil.toCode(command);
+        if (this.failureCounts[code] > 0) {
+            this.failureCounts[code] = 0;
+            LOGGER.info("Command recovered from failures: " + command);
         }
     }
 
@@ -312,7 +529,7 @@ public abstract class SyncAdapter implements OBDAdapter {
     }
 
     protected void addIfSupported(PID pid) {
-        if (supportedPIDs == null || supportedPIDs.isEmpty()) {
+        if (supportedPIDs.isEmpty()) {
             requestCommands.add(PIDUtil.instantiateCommand(pid));
         } else if (supportedPIDs.contains(pid)) {
             requestCommands.add(PIDUtil.instantiateCommand(pid));
@@ -322,17 +539,17 @@ public abstract class SyncAdapter implements OBDAdapter {
     }
 
     private void preparePendingCommands() {
-        commandRingBuffer = new ArrayDeque<>();
+        commandScheduler = new PIDScheduler(commandProfile);
 
         for (PIDCommand cmd : providePendingCommands()) {
             if (cmd != null) {
-                commandRingBuffer.offer(cmd);
+                commandScheduler.add(cmd);
             }
         }
     }
 
     private boolean checkIsBlacklisted(PID pid) {
-        return this.failureMap.containsKey(pid) && this.failureMap.get(pid).get() > MAX_ERROR_PER_COMMAND;
+        return this.failureCounts[PIDUtil.toCode(pid)] > MAX_ERROR_PER_COMMAND;
     }
 
     @Override
@@ -340,6 +557,30 @@ public abstract class SyncAdapter implements OBDAdapter {
         return ADAPTER_TRY_PERIOD;
     }
 
+    /**
+     * @return true if the adapter might accept several PIDs in one request. Support is verified
+     * with the first request.
+     */
+    protected boolean supportsMultiPIDRequests() {
+        return false;
+    }
+
+    /**
+     * @return a command that asks the adapter for the protocol it uses to talk to the car or
+     * null if the adapter cannot tell. Sent once the PIDs have been requested.
+     */
+    protected BasicCommand createProtocolQuery() {
+        return null;
+    }
+
+    /**
+     * @param response the response to {@link #createProtocolQuery()}
+     * @return the protocol identifier or null if the response is not understood
+     */
+    protected String parseProtocol(byte[] response) {
+        return null;
+    }
+
     protected abstract BasicCommand pollNextInitializationCommand();
 
     protected abstract List<PIDCommand> providePendingCommands();
@@ -353,6 +594,21 @@ public abstract class SyncAdapter implements OBDAdapter {
 
     protected abstract byte[] preProcess(byte[] bytes) throws AdapterFailedException;
 
+    /**
+     * Pre-processes the response in the reused buffer of the {@link CommandExecutor} in place,
+     * so that data responses do not have to be copied. Falls back to
+     * {@link #preProcess(byte[])}, implementations should override it if they can do better.
+     *
+     * @param buffer the buffer holding the response
+     * @param length the length of the response
+     * @return the length of the pre-processed response at the start of the buffer
+     */
+    protected int preProcess(byte[] buffer, int length) throws AdapterFailedException {
+        byte[] processed = preProcess(Arrays.copyOf(buffer, length));
+        System.arraycopy(processed, 0, buffer, 0, processed.length);
+        return processed.length;
+    }
+
     @Override
     public String getStateMessage() {
         return "no state message";
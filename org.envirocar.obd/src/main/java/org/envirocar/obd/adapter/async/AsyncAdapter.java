@@ -97,9 +97,9 @@ public abstract class AsyncAdapter implements OBDAdapter {
                 }
 
                 try {
-                    byte[] response = commandExecutor.retrieveLatestResponse();
+                    byte[] response = commandExecutor.retrieveLatestResponseBuffer();
 
-                    processResponse(response);
+                    processResponse(response, commandExecutor.getLatestResponseLength());
 
                     if (hasEstablishedConnection()) {
                         emitter.onNext(true);
@@ -157,10 +157,11 @@ public abstract class AsyncAdapter implements OBDAdapter {
                  * read the inputstream byte by byte
                  */
                 try {
-                    byte[] bytes = commandExecutor.retrieveLatestResponse();
+                    byte[] bytes = commandExecutor.retrieveLatestResponseBuffer();
 
                     try {
-                        DataResponse result = processResponse(bytes);
+                        DataResponse result = processResponse(bytes,
+                                commandExecutor.getLatestResponseLength());
 
                         /**
                          * call our subscriber!
@@ -227,16 +228,17 @@ public abstract class AsyncAdapter implements OBDAdapter {
 
 
     /**
-     * Parse a line of response
+     * Parse a line of response. The buffer is reused for every line, so it must not be kept.
      *
-     * @param bytes the bytes
+     * @param bytes  the buffer holding the line
+     * @param length the length of the line
      * @return a command instace
      * @throws InvalidCommandResponseException
      * @throws NoDataReceivedException
      * @throws UnmatchedResponseException
      * @throws AdapterSearchingException
      */
-    protected abstract DataResponse processResponse(byte[] bytes) throws InvalidCommandResponseException, NoDataReceivedException, UnmatchedResponseException, AdapterSearchingException;
+    protected abstract DataResponse processResponse(byte[] bytes, int length) throws InvalidCommandResponseException, NoDataReceivedException, UnmatchedResponseException, AdapterSearchingException;
 
     @Override
     public String getStateMessage() {
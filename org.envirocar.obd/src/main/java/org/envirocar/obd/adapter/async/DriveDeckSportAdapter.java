@@ -23,7 +23,7 @@ import android.util.Base64;
 import org.envirocar.core.logging.Logger;
 import org.envirocar.obd.adapter.ResponseQuirkWorkaround;
 import org.envirocar.obd.commands.PID;
-import org.envirocar.obd.commands.PIDSupported;
+import org.envirocar.obd.commands.PIDBitmap;
 import org.envirocar.obd.commands.request.BasicCommand;
 import org.envirocar.obd.commands.response.DataResponse;
 import org.envirocar.obd.exception.AdapterSearchingException;
@@ -33,6 +33,7 @@ import org.envirocar.obd.exception.UnmatchedResponseException;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
@@ -65,7 +66,7 @@ public class DriveDeckSportAdapter extends AsyncAdapter {
     private Set<String> loggedPids = new HashSet<>();
     private org.envirocar.obd.commands.response.ResponseParser parser = new org.envirocar.obd.commands.response.ResponseParser();
     private Queue<BasicCommand> pendingCommands;
-    private Set<PID> supportedPIDs = new HashSet<>();
+    private final PIDBitmap supportedPIDs = new PIDBitmap();
 
 
     public DriveDeckSportAdapter() {
@@ -95,7 +96,7 @@ public class DriveDeckSportAdapter extends AsyncAdapter {
          * as the default we will parse ASCII-PID Response '4D' to Lambda Voltage.
          * If Lambda Current was found, use that instead
          */
-        if (supportedPIDs == null || supportedPIDs.isEmpty()) {
+        if (supportedPIDs.isEmpty()) {
             supportForLambdaVoltage = true;
         }
         else supportForLambdaVoltage = !supportedPIDs.contains(PID.O2_LAMBDA_PROBE_1_VOLTAGE);
@@ -110,7 +111,7 @@ public class DriveDeckSportAdapter extends AsyncAdapter {
             return;
         }
 
-        if (supportedPIDs == null || supportedPIDs.isEmpty()) {
+        if (supportedPIDs.isEmpty()) {
             pidList.add(driveDeckPID);
         }
         else if (supportedPIDs.contains(pid)) {
@@ -136,25 +137,22 @@ public class DriveDeckSportAdapter extends AsyncAdapter {
         }
 
         /**
-         * check for group 00
+         * the group (e.g. "00") as ASCII, followed by the four bytes of the mask
+         * with a separator after the first two
          */
-        String group = new String(new byte[]{bytes[6], bytes[7]});
-        PIDSupported pidCmd = new PIDSupported(group);
-        byte[] rawBytes = new byte[12];
-        rawBytes[0] = '4';
-        rawBytes[1] = '1';
-        rawBytes[2] = (byte) pidCmd.getGroup().charAt(0);
-        rawBytes[3] = (byte) pidCmd.getGroup().charAt(1);
-        int target = 4;
-        String hexTmp;
-        for (int i = 9; i < bytes.length; i++) {
+        int groupOffset = (Character.digit((char) bytes[6], 16) << 4)
+                | Character.digit((char) bytes[7], 16);
+        int mask = 0;
+        for (int i = 9; i < 14; i++) {
             if (i == 11) continue;
-            hexTmp = oneByteToHex(bytes[i]);
-            rawBytes[target++] = (byte) hexTmp.charAt(0);
-            rawBytes[target++] = (byte) hexTmp.charAt(1);
+            mask = (mask << 8) | (bytes[i] & 0xff);
         }
 
-        this.supportedPIDs.addAll(pidCmd.parsePIDs(rawBytes));
+        try {
+            this.supportedPIDs.addGroup(groupOffset, mask);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCommandResponseException("Invalid PIDSupported group: " + groupOffset);
+        }
         pidSupportedResponsesParsed++;
 
         logger.info("Supported PIDs: "+ this.supportedPIDs);
@@ -240,7 +238,7 @@ public class DriveDeckSportAdapter extends AsyncAdapter {
         return 30000;
     }
 
-    protected Set<PID> getSupportedPIDs() {
+    protected PIDBitmap getSupportedPIDs() {
         return supportedPIDs;
     }
 
@@ -355,16 +353,16 @@ public class DriveDeckSportAdapter extends AsyncAdapter {
     }
 
     @Override
-    protected DataResponse processResponse(byte[] bytes) throws InvalidCommandResponseException, NoDataReceivedException, UnmatchedResponseException, AdapterSearchingException {
-        if (bytes.length <= 0) {
+    protected DataResponse processResponse(byte[] bytes, int length) throws InvalidCommandResponseException, NoDataReceivedException, UnmatchedResponseException, AdapterSearchingException {
+        if (length <= 0) {
             return null;
         }
 
         char type = (char) bytes[0];
 
         if (type == RESPONSE_PREFIX_CHAR) {
-            if (bytes.length < 3) {
-                logger.warn("Received a response with too less bytes. length="+bytes.length);
+            if (length < 3) {
+                logger.warn("Received a response with too less bytes. length="+length);
                 return null;
             }
 
@@ -377,11 +375,11 @@ public class DriveDeckSportAdapter extends AsyncAdapter {
                 logger.debug("Status: CONNECTING");
                 connectingMessageCount++;
             } else if (pid.equals("15")) {
-                processVIN(new String(bytes, 3, bytes.length - 3));
+                processVIN(new String(bytes, 3, length - 3));
             } else if (pid.equals("70")) {
-                processSupportedPID(bytes);
+                processSupportedPID(Arrays.copyOf(bytes, length));
             } else if (pid.equals("71")) {
-                processDiscoveredControlUnits(new String(bytes, 3, bytes.length - 3));
+                processDiscoveredControlUnits(new String(bytes, 3, length - 3));
             } else if (pid.equals("31")) {
                 // engine on
                 logger.debug("Engine: On");
@@ -389,8 +387,8 @@ public class DriveDeckSportAdapter extends AsyncAdapter {
                 // engine off (= RPM < 500)
                 logger.debug("Engine: Off");
             } else {
-                if (bytes.length < 6) {
-                    throw new NoDataReceivedException("the response did only contain " + bytes.length + " bytes. For PID " +
+                if (length < 6) {
+                    throw new NoDataReceivedException("the response did only contain " + length + " bytes. For PID " +
                             "responses 6 are minimum");
                 }
 
@@ -405,7 +403,7 @@ public class DriveDeckSportAdapter extends AsyncAdapter {
 
                 byte[] pidResponseValue = new byte[6];
                 int target = 0;
-                for (int i = 4; i < bytes.length; i++) {
+                for (int i = 4; i < length; i++) {
                     if (target >= pidResponseValue.length) {
                         break;
                     }
@@ -433,7 +431,7 @@ public class DriveDeckSportAdapter extends AsyncAdapter {
 
 
         } else if (type == 'C') {
-            determineProtocol(new String(bytes,  1, bytes.length - 1));
+            determineProtocol(new String(bytes,  1, length - 1));
         }
 
         return null;
@@ -29,7 +29,12 @@ public class PIDSupportedQuirk implements ResponseQuirkWorkaround {
 
     @Override
     public boolean shouldWaitForNextTokenLine(byte[] byteArray) {
-        if (byteArray.length > 3) {
+        return shouldWaitForNextTokenLine(byteArray, byteArray.length);
+    }
+
+    @Override
+    public boolean shouldWaitForNextTokenLine(byte[] byteArray, int length) {
+        if (length > 3) {
             for (int i = 0; i < PREFIX.length; i++) {
                 if (byteArray[i] != PREFIX[i]) {
                     return false;
@@ -37,7 +42,7 @@ public class PIDSupportedQuirk implements ResponseQuirkWorkaround {
             }
 
             //it is a PID supported, check the correct length
-            return byteArray.length < 14;
+            return length < 14;
         }
 
         return false;
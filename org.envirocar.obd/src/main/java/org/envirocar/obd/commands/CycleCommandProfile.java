@@ -27,6 +27,33 @@ public interface CycleCommandProfile {
         return Arrays.asList(PID.values());
     };
 
+    /**
+     * @param pid a PID of {@link #provideCommands()}
+     * @return the frequency in Hz the PID should be requested with. Fast changing values that
+     * feed the interpolation and consumption algorithms get the largest share of the link,
+     * slowly changing ones like the intake air temperature the smallest. Must be positive.
+     */
+    default double provideTargetFrequency(PID pid) {
+        switch (pid) {
+            case SPEED:
+            case RPM:
+            case MAF:
+            case INTAKE_MAP:
+            case CALCULATED_ENGINE_LOAD:
+            case TPS:
+            case ENGINE_FUEL_RATE:
+                return 2.0;
+            case INTAKE_AIR_TEMP:
+            case FUEL_PRESSURE:
+            case FUEL_SYSTEM_STATUS:
+            case SHORT_TERM_FUEL_TRIM_BANK_1:
+            case LONG_TERM_FUEL_TRIM_BANK_1:
+                return 0.2;
+            default:
+                return 1.0;
+        }
+    }
+
 
     public static class Default implements CycleCommandProfile {
 
@@ -0,0 +1,254 @@
+/**
+ * Copyright (C) 2013 - 2021 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.obd.commands;
+
+import java.util.Arrays;
+
+/**
+ * The set of PIDs supported by a car, as a bitmap over the PID byte values 0x00-0xFF.
+ * Also holds PIDs that have no {@link PID} constant.
+ * <p>
+ * The bitmap can be filled with the 32 bit masks of the PID supported responses
+ * ("01 00", "01 20", ...), see {@link #addGroup(int, int)}.
+ */
+public class PIDBitmap {
+
+    private static final int CODE_COUNT = 256;
+    private static final int GROUP_SIZE = 32;
+    private static final int HEX_DIGITS_PER_GROUP = GROUP_SIZE / 4;
+
+    private final long[] words = new long[CODE_COUNT / Long.SIZE];
+
+    public PIDBitmap() {
+    }
+
+    public PIDBitmap(PIDBitmap other) {
+        System.arraycopy(other.words, 0, this.words, 0, this.words.length);
+    }
+
+    public static PIDBitmap of(PID... pids) {
+        PIDBitmap result = new PIDBitmap();
+        for (PID pid : pids) {
+            result.add(pid);
+        }
+        return result;
+    }
+
+    /**
+     * @param code the PID byte value (0-255)
+     * @return true if the PID has not been contained before
+     */
+    public boolean add(int code) {
+        checkCode(code);
+        long bit = 1L << code;
+        long word = words[code >>> 6];
+        words[code >>> 6] = word | bit;
+        return (word & bit) == 0;
+    }
+
+    public boolean add(PID pid) {
+        return add(PIDUtil.toCode(pid));
+    }
+
+    public void addAll(PIDBitmap other) {
+        for (int i = 0; i < words.length; i++) {
+            words[i] |= other.words[i];
+        }
+    }
+
+    /**
+     * @param code the PID byte value (0-255)
+     */
+    public boolean contains(int code) {
+        return code >= 0 && code < CODE_COUNT && (words[code >>> 6] & (1L << code)) != 0;
+    }
+
+    public boolean contains(PID pid) {
+        return contains(PIDUtil.toCode(pid));
+    }
+
+    /**
+     * Adds the PIDs of a PID supported response. The most significant bit of the mask
+     * stands for the PID groupOffset + 1, the least significant one for groupOffset + 32.
+     *
+     * @param groupOffset the group of the response (0x00, 0x20, 0x40 ...)
+     * @param mask        the four data bytes of the response
+     */
+    public void addGroup(int groupOffset, int mask) {
+        checkGroup(groupOffset);
+        for (int i = 0; i < GROUP_SIZE; i++) {
+            int code = groupOffset + 1 + i;
+            if ((mask & (0x80000000 >>> i)) != 0 && code < CODE_COUNT) {
+                add(code);
+            }
+        }
+    }
+
+    /**
+     * @return the mask of the given group, in the format of {@link #addGroup(int, int)}
+     */
+    public int getGroup(int groupOffset) {
+        checkGroup(groupOffset);
+        int mask = 0;
+        for (int i = 0; i < GROUP_SIZE; i++) {
+            if (contains(groupOffset + 1 + i)) {
+                mask |= 0x80000000 >>> i;
+            }
+        }
+        return mask;
+    }
+
+    public boolean isEmpty() {
+        for (long word : words) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int size() {
+        int result = 0;
+        for (long word : words) {
+            result += Long.bitCount(word);
+        }
+        return result;
+    }
+
+    public void clear() {
+        Arrays.fill(words, 0);
+    }
+
+    /**
+     * @return the first PID byte value contained that is greater than or equal to
+     * fromCode, or -1 if there is none
+     */
+    public int nextCode(int fromCode) {
+        if (fromCode < 0) {
+            fromCode = 0;
+        }
+
+        int index = fromCode >>> 6;
+        if (index >= words.length) {
+            return -1;
+        }
+
+        long word = words[index] & (-1L << fromCode);
+        while (true) {
+            if (word != 0) {
+                return index * Long.SIZE + Long.numberOfTrailingZeros(word);
+            }
+            if (++index == words.length) {
+                return -1;
+            }
+            word = words[index];
+        }
+    }
+
+    /**
+     * @return the masks of all groups as hex digits, 8 per group starting with group 0x00.
+     * Trailing empty groups are omitted. See {@link #fromHexString(String)}.
+     */
+    public String toHexString() {
+        StringBuilder sb = new StringBuilder();
+        int groups = 0;
+        for (int offset = 0; offset < CODE_COUNT; offset += GROUP_SIZE) {
+            if (getGroup(offset) != 0) {
+                groups = offset / GROUP_SIZE + 1;
+            }
+        }
+
+        for (int i = 0; i < groups; i++) {
+            String hex = Integer.toHexString(getGroup(i * GROUP_SIZE)).toUpperCase();
+            for (int j = hex.length(); j < HEX_DIGITS_PER_GROUP; j++) {
+                sb.append('0');
+            }
+            sb.append(hex);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return the decoded bitmap or null if the string is not a valid representation
+     */
+    public static PIDBitmap fromHexString(String hex) {
+        if (hex == null || hex.length() % HEX_DIGITS_PER_GROUP != 0
+                || hex.length() > CODE_COUNT / GROUP_SIZE * HEX_DIGITS_PER_GROUP) {
+            return null;
+        }
+
+        PIDBitmap result = new PIDBitmap();
+        for (int group = 0; group * HEX_DIGITS_PER_GROUP < hex.length(); group++) {
+            int mask = 0;
+            for (int i = 0; i < HEX_DIGITS_PER_GROUP; i++) {
+                int digit = Character.digit(hex.charAt(group * HEX_DIGITS_PER_GROUP + i), 16);
+                if (digit < 0) {
+                    return null;
+                }
+                mask = (mask << 4) | digit;
+            }
+            result.addGroup(group * GROUP_SIZE, mask);
+        }
+        return result;
+    }
+
+    private static void checkCode(int code) {
+        if (code < 0 || code >= CODE_COUNT) {
+            throw new IllegalArgumentException("Not a PID byte value: " + code);
+        }
+    }
+
+    private static void checkGroup(int groupOffset) {
+        if (groupOffset < 0 || groupOffset >= CODE_COUNT || groupOffset % GROUP_SIZE != 0) {
+            throw new IllegalArgumentException("Not a PID group: " + groupOffset);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof PIDBitmap && Arrays.equals(words, ((PIDBitmap) o).words);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(words);
+    }
+
+    /**
+     * @return the contained PIDs, e.g. "[RPM, SPEED, 1C]". PIDs without a constant are
+     * listed by their hex value.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int code = nextCode(0); code >= 0; code = nextCode(code + 1)) {
+            if (sb.length() > 1) {
+                sb.append(", ");
+            }
+
+            PID pid = PIDUtil.fromCode(code);
+            if (pid != null) {
+                sb.append(pid);
+            } else {
+                sb.append(code < 0x10 ? "0" : "").append(Integer.toHexString(code).toUpperCase());
+            }
+        }
+        return sb.append(']').toString();
+    }
+}
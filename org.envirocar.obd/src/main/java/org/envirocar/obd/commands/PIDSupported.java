@@ -22,19 +22,13 @@ import org.envirocar.core.logging.Logger;
 import org.envirocar.obd.commands.request.BasicCommand;
 import org.envirocar.obd.exception.InvalidCommandResponseException;
 
-import java.math.BigInteger;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
 
 
 public class PIDSupported implements BasicCommand {
     private static final Logger LOG = Logger.getLogger(PIDSupported.class);
 
     private final byte[] output;
-    private Set<PID> pids;
     private byte[] bytes;
     private String group;
 
@@ -57,7 +51,7 @@ public class PIDSupported implements BasicCommand {
     }
 
 
-    public Set<PID> parsePIDs(byte[] rawData) throws InvalidCommandResponseException {
+    public PIDBitmap parsePIDs(byte[] rawData) throws InvalidCommandResponseException {
         if (rawData == null) {
             throw new InvalidCommandResponseException("Null response on PIDSupported request");
         }
@@ -82,54 +76,31 @@ public class PIDSupported implements BasicCommand {
             throw new InvalidCommandResponseException("Invalid PIDSupported length: " + rawData.length);
         }
 
-        try {
-            List<Integer> pids = new ArrayList<>(8);
-
-            int groupOffset = Integer.parseInt(this.group, 16);
-            char[] binaries;
-            byte b;
-
-            /**
-             * the 32 PIDs of the group are encoded bitwise from MSB to LSB (resulting in 8 bytes):
-             * assuming group 00 and the first byte is a 0x0A = (int) 10,
-             * then bits 4 (MSB) and 2 are set, resulting in PIDs 0x01 and 0x03 (counting starts at
-             * PID 0x01, 0x21, ...) are supported
-             */
-            for (int i = 0; i < rawData.length; i++) {
-                b = rawData[i];
-                int fromHex = Integer.parseInt(new String(new char[]{'0', (char) b}), 16);
-                BigInteger bigInt = BigInteger.valueOf(fromHex);
-                for (int j = 3; j >= 0; j--) {
-                    //check from MSB down to LSB
-                    if (bigInt.testBit(j)) {
-                        //create an int representation and apply the group offset
-                        pids.add(1 + (i * 4 + 3 - j) + groupOffset);
-                    }
-                }
-            }
-
-            Set<PID> list = new HashSet<>();
-            /**
-             * conver to hex string so the PIDUtil can parse it
-             */
-            for (Integer pidInt : pids) {
-                LOG.info("Supported RAW PIDs: " + pidInt);
-
-                String hex = Integer.toHexString(pidInt);
-                if (hex.length() == 1) {
-                    hex = "0".concat(hex);
-                }
-                PID tmp = PIDUtil.fromString(hex);
-                if (tmp != null) {
-                    list.add(tmp);
-                }
+        /**
+         * the 32 PIDs of the group are encoded bitwise from MSB to LSB (resulting in 8 bytes):
+         * assuming group 00 and the first byte is a 0x0A = (int) 10,
+         * then bits 4 (MSB) and 2 are set, resulting in PIDs 0x01 and 0x03 (counting starts at
+         * PID 0x01, 0x21, ...) are supported
+         */
+        int mask = 0;
+        for (byte b : rawData) {
+            int digit = Character.digit((char) b, 16);
+            if (digit < 0) {
+                throw new InvalidCommandResponseException(
+                        "The response contained invalid byte values: " + new String(rawData));
             }
+            mask = (mask << 4) | digit;
+        }
 
-            return list;
-        } catch (RuntimeException e) {
-            throw new InvalidCommandResponseException("The response contained invalid byte values: " + e.getMessage());
+        PIDBitmap result = new PIDBitmap();
+        try {
+            result.addGroup(Integer.parseInt(this.group, 16), mask);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCommandResponseException("Invalid PIDSupported group: " + group);
         }
+        LOG.info("Supported RAW PIDs of group " + group + ": " + result);
 
+        return result;
     }
 
 
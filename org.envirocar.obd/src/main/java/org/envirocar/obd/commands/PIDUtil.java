@@ -24,18 +24,50 @@ import org.envirocar.obd.commands.request.PIDCommand;
 
 public class PIDUtil {
 
+	/**
+	 * PIDs indexed by their byte value, e.g. 0x0D maps to {@link PID#SPEED}.
+	 */
+	private static final PID[] PIDS_BY_CODE = new PID[256];
+	private static final int[] CODES_BY_ORDINAL = new int[PID.values().length];
+
+	static {
+		for (PID p : PID.values()) {
+			int code = Integer.parseInt(p.getHexadecimalRepresentation(), 16);
+			PIDS_BY_CODE[code] = p;
+			CODES_BY_ORDINAL[p.ordinal()] = code;
+		}
+	}
+
 	public static PID fromString(String s) {
-		if (s == null || s.isEmpty()) {
+		if (s == null || s.length() != 2) {
 			return null;
 		}
-		
-		for (PID p : PID.values()) {
-			if (s.equalsIgnoreCase(p.getHexadecimalRepresentation())) {
-				return p;
-			}
+
+		int high = Character.digit(s.charAt(0), 16);
+		int low = Character.digit(s.charAt(1), 16);
+		if (high < 0 || low < 0) {
+			return null;
 		}
-		
-		return null;
+
+		return fromCode((high << 4) | low);
+	}
+
+	/**
+	 * @param code the PID byte value (0-255)
+	 * @return the matching PID or null if the code is unknown
+	 */
+	public static PID fromCode(int code) {
+		if (code < 0 || code >= PIDS_BY_CODE.length) {
+			return null;
+		}
+		return PIDS_BY_CODE[code];
+	}
+
+	/**
+	 * @return the byte value of the PID, e.g. 0x0D for {@link PID#SPEED}
+	 */
+	public static int toCode(PID pid) {
+		return CODES_BY_ORDINAL[pid.ordinal()];
 	}
 
 	
@@ -69,6 +101,38 @@ public class PIDUtil {
 		}
 	}
 
+	/**
+	 * @return the number of data bytes following the PID byte in a mode 01 response
+	 */
+	public static int getDataByteCount(PID pid) {
+		switch (pid) {
+			case FUEL_SYSTEM_STATUS:
+			case RPM:
+			case ENGINE_FUEL_RATE:
+			case MAF:
+				return 2;
+			case O2_LAMBDA_PROBE_1_VOLTAGE:
+			case O2_LAMBDA_PROBE_2_VOLTAGE:
+			case O2_LAMBDA_PROBE_3_VOLTAGE:
+			case O2_LAMBDA_PROBE_4_VOLTAGE:
+			case O2_LAMBDA_PROBE_5_VOLTAGE:
+			case O2_LAMBDA_PROBE_6_VOLTAGE:
+			case O2_LAMBDA_PROBE_7_VOLTAGE:
+			case O2_LAMBDA_PROBE_8_VOLTAGE:
+			case O2_LAMBDA_PROBE_1_CURRENT:
+			case O2_LAMBDA_PROBE_2_CURRENT:
+			case O2_LAMBDA_PROBE_3_CURRENT:
+			case O2_LAMBDA_PROBE_4_CURRENT:
+			case O2_LAMBDA_PROBE_5_CURRENT:
+			case O2_LAMBDA_PROBE_6_CURRENT:
+			case O2_LAMBDA_PROBE_7_CURRENT:
+			case O2_LAMBDA_PROBE_8_CURRENT:
+				return 4;
+			default:
+				return 1;
+		}
+	}
+
 	public static Measurement.PropertyKey toPropertyKey(PID pid) {
 		switch (pid) {
 //			case FUEL_SYSTEM_STATUS:
@@ -0,0 +1,94 @@
+/**
+ * Copyright (C) 2013 - 2021 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.obd.commands.request;
+
+import org.envirocar.obd.commands.PID;
+
+import java.util.List;
+
+/**
+ * Requests several PIDs of the same mode at once (e.g. "01 0C 0D 10"). ELM327 compatible
+ * adapters accept up to {@link #MAX_PIDS} PIDs per request.
+ * <p>
+ * A command can be reused for other PIDs of its mode with {@link #setPIDs(List)}, which writes
+ * the request into a buffer kept for every number of PIDs instead of allocating a new one.
+ */
+public class MultiPIDCommand implements BasicCommand {
+
+    public static final int MAX_PIDS = 6;
+
+    private final byte[] mode;
+    // buffers[n - 1] holds the request for n PIDs
+    private final byte[][] buffers = new byte[MAX_PIDS][];
+    private byte[] bytes;
+
+    /**
+     * @param mode the mode of the PIDs
+     */
+    public MultiPIDCommand(String mode) {
+        this.mode = mode.getBytes();
+    }
+
+    /**
+     * @param mode the mode of the PIDs
+     * @param pids the PIDs to be requested
+     */
+    public MultiPIDCommand(String mode, List<PID> pids) {
+        this(mode);
+        setPIDs(pids);
+    }
+
+    /**
+     * Sets the PIDs to be requested by the next execution of this command.
+     *
+     * @param pids the PIDs to be requested
+     */
+    public void setPIDs(List<PID> pids) {
+        if (pids.isEmpty() || pids.size() > MAX_PIDS) {
+            throw new IllegalStateException("number of PIDs out of allowed bounds");
+        }
+
+        byte[] buffer = buffers[pids.size() - 1];
+        if (buffer == null) {
+            buffer = new byte[mode.length + 3 * pids.size()];
+            System.arraycopy(mode, 0, buffer, 0, mode.length);
+            buffers[pids.size() - 1] = buffer;
+        }
+
+        int index = mode.length;
+        for (int i = 0; i < pids.size(); i++) {
+            String hex = pids.get(i).getHexadecimalRepresentation();
+            buffer[index++] = ' ';
+            buffer[index++] = (byte) hex.charAt(0);
+            buffer[index++] = (byte) hex.charAt(1);
+        }
+        this.bytes = buffer;
+    }
+
+    @Override
+    public byte[] getOutputBytes() {
+        return bytes;
+    }
+
+    @Override
+    public boolean awaitsResults() {
+        return true;
+    }
+
+}
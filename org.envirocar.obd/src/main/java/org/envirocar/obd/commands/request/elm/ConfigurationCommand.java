@@ -25,6 +25,16 @@ import org.envirocar.obd.commands.request.BasicCommand;
 
 public class ConfigurationCommand implements BasicCommand {
 
+    /**
+     * time in ms an adapter may take to answer a configuration command
+     */
+    public static final long DEFAULT_RESPONSE_TIMEOUT = 1000;
+
+    /**
+     * a reset reboots the adapter, which takes about a second on an ELM327
+     */
+    private static final long RESET_RESPONSE_TIMEOUT = 3000;
+
     private final String output;
     private final boolean awaitsResult;
     private final Instance instance;
@@ -49,6 +59,13 @@ public class ConfigurationCommand implements BasicCommand {
         return instance;
     }
 
+    /**
+     * @return the time in ms the adapter may take to complete its response
+     */
+    public long getResponseTimeout() {
+        return instance == Instance.RESET ? RESET_RESPONSE_TIMEOUT : DEFAULT_RESPONSE_TIMEOUT;
+    }
+
     public static ConfigurationCommand instance(Instance i) {
         switch (i) {
             case DEFAULTS:
@@ -82,6 +99,13 @@ public class ConfigurationCommand implements BasicCommand {
         return null;
     }
 
+    /**
+     * @param protocol the protocol number as reported by "AT DPN"
+     */
+    public static ConfigurationCommand selectProtocol(String protocol) {
+        return new ConfigurationCommand("AT SP " + protocol, Instance.SELECT_PROTOCOL, true);
+    }
+
     public enum Instance {
         DEFAULTS,
         ECHO_OFF,
@@ -91,6 +115,7 @@ public class ConfigurationCommand implements BasicCommand {
         MEMORY_OFF,
         RESET,
         SELECT_AUTO_PROTOCOL,
+        SELECT_PROTOCOL,
         TIMEOUT,
         SPACES_OFF,
         DESCRIBE_PROTOCOL_NUMBER,
@@ -34,6 +34,14 @@ public class DelayedConfigurationCommand extends ConfigurationCommand {
         this.delay = delay;
     }
 
+    /**
+     * Adapters that need a delay between commands are given the same extra time to respond.
+     */
+    @Override
+    public long getResponseTimeout() {
+        return super.getResponseTimeout() + delay;
+    }
+
     @Override
     public byte[] getOutputBytes() {
         if (this.delay > 0) {
@@ -39,14 +39,38 @@ import org.envirocar.obd.exception.InvalidCommandResponseException;
 import org.envirocar.obd.exception.NoDataReceivedException;
 import org.envirocar.obd.exception.UnmatchedResponseException;
 
+import java.util.Arrays;
+import java.util.List;
+
 public class ResponseParser {
 
     private static final Logger LOGGER = Logger.getLogger(ResponseParser.class);
 
-    private static final CharSequence SEARCHING = "SEARCHING";
-    private static final CharSequence STOPPED = "STOPPED";
-    private static final CharSequence NO_DATA = "NODATA";
+    private static final byte[] SEARCHING = "SEARCHING".getBytes();
+    private static final byte[] STOPPED = "STOPPED".getBytes();
+    private static final byte[] NO_DATA = "NODATA".getBytes();
     public static final String STATUS_OK = "41";
+    private static final int STATUS_OK_VALUE = 0x41;
+
+    /**
+     * value of a hexadecimal character, -1 for all other bytes
+     */
+    private static final byte[] NIBBLES = new byte[256];
+
+    static {
+        for (int i = 0; i < NIBBLES.length; i++) {
+            NIBBLES[i] = (byte) Character.digit((char) i, 16);
+        }
+    }
+
+    private static final byte FRAME_SEPARATOR = ':';
+
+    // decoded bytes of the latest response, reused between calls
+    private int[] processedData = new int[16];
+
+    // buffers for splitting multi PID responses, reused between calls
+    private byte[] unframedData = new byte[64];
+    private final byte[] singleResponse = new byte[16];
 
     public ResponseParser() {
 
@@ -54,72 +78,181 @@ public class ResponseParser {
 
     public DataResponse parse(byte[] data) throws AdapterSearchingException, NoDataReceivedException,
             InvalidCommandResponseException, UnmatchedResponseException {
+        return parse(data, data.length);
+    }
+
+    /**
+     * Parses the first {@code length} bytes of the given buffer, which allows parsing a reused
+     * response buffer without copying it.
+     */
+    public DataResponse parse(byte[] data, int length) throws AdapterSearchingException, NoDataReceivedException,
+            InvalidCommandResponseException, UnmatchedResponseException {
+
+        //cartrend: 7E803410D00AAAAAAAA
+        //= 410D00AAAAAAAA
+
+        if (isSearching(data, length)) {
+            throw new AdapterSearchingException();
+        } else if (isNoDataCommand(data, length)) {
+            throw new NoDataReceivedException("NODATA was received");
+        }
 
         /**
          * we received a char array as hexadecimal -->
          * two chars represent one byte
          */
-        int index = 0;
-        int length = 2;
+        int count = length / 2;
+        if (count < 2) {
+            throw new UnmatchedResponseException();
+        }
 
-        String dataString = new String(data);
+        // this is the ID byte
+        int pidCode = decodeHexByte(data, 2);
+        PID pid = PIDUtil.fromCode(pidCode);
 
-        //cartrend: 7E803410D00AAAAAAAA
-        //= 410D00AAAAAAAA
-//        if (dataString.startsWith("7E803")) {
-//            dataString = dataString.substring(5, dataString.length());
-//        }
+        // this is the status
+        if (decodeHexByte(data, 0) != STATUS_OK_VALUE || pid == null) {
+            throw new InvalidCommandResponseException(pid == null ? new String(data, 2, 2) : pid.toString());
+        }
+
+        if (processedData.length < count) {
+            processedData = new int[count];
+        }
+
+        for (int i = 2; i < count; i++) {
+            int value = decodeHexByte(data, i * 2);
+            if (value < 0) {
+                throw new InvalidCommandResponseException(pid.toString());
+            }
+            processedData[i] = value;
+        }
+
+        try {
+            return createDataResponse(pid, processedData, count, data, length);
+        } catch (Exception e){
+            throw new UnmatchedResponseException(e);
+        }
+    }
+
+    /**
+     * Parses the response of a {@link org.envirocar.obd.commands.request.MultiPIDCommand}.
+     * Both the CAN multi frame format (e.g. "00A" "0:410C1AF80D" "1:1E10053E000000") and
+     * one "41" line per PID as sent on K-Line are supported, as the adapter's line separators
+     * are dropped while reading.
+     *
+     * @param target the list to add one response per contained PID to
+     */
+    public void parseMultiple(byte[] data, int length, List<DataResponse> target)
+            throws AdapterSearchingException, NoDataReceivedException,
+            InvalidCommandResponseException, UnmatchedResponseException {
 
-        if (isSearching(dataString)) {
+        if (isSearching(data, length)) {
             throw new AdapterSearchingException();
-        } else if (isNoDataCommand(dataString)) {
+        } else if (isNoDataCommand(data, length)) {
             throw new NoDataReceivedException("NODATA was received");
         }
 
-        int[] buffer = new int[data.length / 2];
-        boolean error = false;
+        byte[] payload = data;
+        int payloadLength = length;
+        if (indexOf(data, length, FRAME_SEPARATOR) >= 0) {
+            payloadLength = unframe(data, length);
+            payload = unframedData;
+        }
 
-        PID pid = null;
-        while (index + length <= data.length) {
-            String tmp = new String(data, index, length);
+        boolean statusReceived = false;
+        int index = 0;
+        while (index + 2 <= payloadLength) {
+            int code = decodeHexByte(payload, index);
 
-            // this is the status
-            if (index == 0) {
-                if (!tmp.equals(STATUS_OK)) {
-                    error = true;
-                }
+            // every line (K-Line) or only the first frame (CAN) starts with the status
+            if (code == STATUS_OK_VALUE) {
+                statusReceived = true;
+                index += 2;
+                continue;
             }
-            // this is the ID byte
-            else if (index == 2) {
-                pid = PIDUtil.fromString(tmp);
-                if (error || pid == null) {
-                    throw new InvalidCommandResponseException(pid == null ? tmp : pid.toString());
-                }
-            } else {
-                if (error || pid == null){
-                    throw new InvalidCommandResponseException(pid == null ? tmp : pid.toString());
-                }
 
-                /*
-                 * this is a hex number
-                 */
-                buffer[index / 2] = Integer.parseInt(tmp, 16);
-                if (buffer[index / 2] < 0) {
-                    throw new InvalidCommandResponseException(pid.toString());
-                }
+            PID pid = PIDUtil.fromCode(code);
+            if (!statusReceived || pid == null) {
+                throw new InvalidCommandResponseException(new String(payload, index, 2));
+            }
+
+            int responseLength = 4 + PIDUtil.getDataByteCount(pid) * 2;
+            if (index + responseLength - 2 > payloadLength) {
+                throw new UnmatchedResponseException();
             }
 
-            index += length;
+            singleResponse[0] = '4';
+            singleResponse[1] = '1';
+            System.arraycopy(payload, index, singleResponse, 2, responseLength - 2);
+            target.add(parse(singleResponse, responseLength));
+
+            index += responseLength - 2;
         }
+    }
 
-        try {
-            return createDataResponse(pid, buffer, data);
-        } catch (Exception e){
-            throw new UnmatchedResponseException(e);
+    /**
+     * Removes the CAN length header and frame indices and writes the remaining hexadecimal
+     * characters to {@link #unframedData}.
+     *
+     * @return the number of payload characters
+     */
+    private int unframe(byte[] data, int length) throws UnmatchedResponseException {
+        int firstSeparator = indexOf(data, length, FRAME_SEPARATOR);
+        if (firstSeparator < 1) {
+            throw new UnmatchedResponseException();
         }
+
+        // the header in front of frame "0:" holds the number of payload bytes
+        int payloadBytes = 0;
+        for (int i = 0; i < firstSeparator - 1; i++) {
+            int nibble = NIBBLES[data[i] & 0xFF];
+            if (nibble < 0) {
+                throw new UnmatchedResponseException();
+            }
+            payloadBytes = (payloadBytes << 4) | nibble;
+        }
+
+        if (unframedData.length < length) {
+            unframedData = new byte[length];
+        }
+
+        int count = 0;
+        for (int i = firstSeparator - 1; i < length; i++) {
+            if (i + 1 < length && data[i + 1] == FRAME_SEPARATOR) {
+                // skip the frame index and the separator
+                i++;
+            } else {
+                unframedData[count++] = data[i];
+            }
+        }
+
+        // the last frame is padded
+        if (payloadBytes > 0 && payloadBytes * 2 < count) {
+            count = payloadBytes * 2;
+        }
+        return count;
     }
 
-    private DataResponse createDataResponse(PID pid, int[] processedData, byte[] rawData) {
+    /**
+     * @return the value of the two hexadecimal characters at the given offset or -1 if they
+     * are not valid hexadecimal characters.
+     */
+    public static int decodeHexByte(byte[] data, int offset) {
+        int high = NIBBLES[data[offset] & 0xFF];
+        int low = NIBBLES[data[offset + 1] & 0xFF];
+        if (high < 0 || low < 0) {
+            return -1;
+        }
+        return (high << 4) | low;
+    }
+
+    private DataResponse createDataResponse(PID pid, int[] processedData, int count,
+                                            byte[] rawData, int rawLength) {
+        if (count <= requiredDataBytes(pid)) {
+            throw new ArrayIndexOutOfBoundsException(String.format(
+                    "Response of %s contains only %d bytes", pid, count));
+        }
+
         switch (pid) {
 //            case FUEL_SYSTEM_STATUS:
 //                return FuelSystemStatusResponse.fromRawData(rawData);
@@ -168,15 +301,54 @@ public class ResponseParser {
                         ((processedData[2] * 256d) + processedData[3]) / 32768d);
         }
 
-        return new GenericDataResponse(pid, processedData, rawData);
+        // the generic response keeps its data, so it cannot share the reused buffer
+        return new GenericDataResponse(pid, Arrays.copyOf(processedData, count),
+                Arrays.copyOf(rawData, rawLength));
+    }
+
+    /**
+     * @return the index of the last decoded byte (status and PID included) read by
+     * {@link #createDataResponse(PID, int[], int, byte[], int)} for the given PID
+     */
+    private static int requiredDataBytes(PID pid) {
+        switch (pid) {
+            case FUEL_SYSTEM_STATUS:
+            case ENGINE_FUEL_RATE:
+                // passed on as generic response without reading specific bytes
+                return 1;
+            default:
+                return 1 + PIDUtil.getDataByteCount(pid);
+        }
     }
 
-    private boolean isSearching(String dataString) {
-        return dataString.contains(SEARCHING) || dataString.contains(STOPPED);
+    private boolean isSearching(byte[] data, int length) {
+        return contains(data, length, SEARCHING) || contains(data, length, STOPPED);
     }
 
-    private boolean isNoDataCommand(String dataString) {
-        return dataString == null || dataString.contains(NO_DATA);
+    private boolean isNoDataCommand(byte[] data, int length) {
+        return data == null || contains(data, length, NO_DATA);
+    }
+
+    private static int indexOf(byte[] data, int length, byte b) {
+        for (int i = 0; i < length; i++) {
+            if (data[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean contains(byte[] data, int length, byte[] pattern) {
+        outer:
+        for (int i = 0; i <= length - pattern.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (data[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return true;
+        }
+        return false;
     }
 
 
@@ -0,0 +1,98 @@
+/**
+ * Copyright (C) 2013 - 2021 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.obd.events;
+
+import org.envirocar.core.entity.Measurement;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Flowable;
+import io.reactivex.processors.BehaviorProcessor;
+import io.reactivex.processors.FlowableProcessor;
+import io.reactivex.processors.PublishProcessor;
+
+/**
+ * Typed stream of the sensor values read from the car. Replaces the posting of
+ * every single {@link PropertyKeyEvent} on the event bus.
+ * <p>
+ * Consumers that need every value (e.g. the measurement provider) subscribe to
+ * {@link #events()}. Consumers that only display the current value subscribe to
+ * {@link #latest(Measurement.PropertyKey)} or sample it with
+ * {@link #sample(Measurement.PropertyKey, long)}.
+ * <p>
+ * Values have to be published from a single thread. A stream belongs to a single connection
+ * to the car and is completed when the connection ends, so that the values of a connection
+ * are never replayed to the subscribers of the next one.
+ */
+public class SensorStream {
+
+    private final FlowableProcessor<PropertyKeyEvent> events = PublishProcessor.create();
+    private final Map<Measurement.PropertyKey, FlowableProcessor<PropertyKeyEvent>> latest =
+            new EnumMap<>(Measurement.PropertyKey.class);
+
+    public SensorStream() {
+        for (Measurement.PropertyKey key : Measurement.PropertyKey.values()) {
+            latest.put(key, BehaviorProcessor.create());
+        }
+    }
+
+    public void publish(PropertyKeyEvent event) {
+        latest.get(event.getPropertyKey()).onNext(event);
+        events.onNext(event);
+    }
+
+    /**
+     * Completes all streams, e.g. when the connection to the car has ended. Subscribers that
+     * subscribe afterwards only receive the completion and no value of the ended connection.
+     */
+    public void complete() {
+        for (FlowableProcessor<PropertyKeyEvent> processor : latest.values()) {
+            processor.onComplete();
+        }
+        events.onComplete();
+    }
+
+    /**
+     * @return all published values in order. Slow subscribers get the values
+     * buffered, none is lost.
+     */
+    public Flowable<PropertyKeyEvent> events() {
+        return events.onBackpressureBuffer();
+    }
+
+    /**
+     * @return the values of the given key, starting with the latest one. Slow
+     * subscribers only get the latest value.
+     */
+    public Flowable<PropertyKeyEvent> latest(Measurement.PropertyKey key) {
+        return latest.get(key).onBackpressureLatest();
+    }
+
+    /**
+     * @param intervalMillis the minimum interval between two values, e.g. the refresh
+     *                       interval of the display
+     * @return the values of the given key, at most one per interval. The latest value
+     * of an interval is emitted at its end.
+     */
+    public Flowable<PropertyKeyEvent> sample(Measurement.PropertyKey key, long intervalMillis) {
+        return latest(key).throttleLatest(intervalMillis, TimeUnit.MILLISECONDS, true);
+    }
+}
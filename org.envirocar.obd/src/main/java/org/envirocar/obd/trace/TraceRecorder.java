@@ -0,0 +1,232 @@
+/**
+ * Copyright (C) 2013 - 2021 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.obd.trace;
+
+import org.envirocar.core.logging.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the bytes exchanged with an adapter, with their timing, into a trace that can be
+ * replayed by {@link TraceReplay}. The streams of the connection are wrapped with
+ * {@link #wrap(InputStream)} and {@link #wrap(OutputStream)}.
+ * <p>
+ * Format: the magic "OBDT", a version byte and the start time (epoch ms) as long. Then one
+ * record per chunk: the direction byte, the microseconds since the previous record and the
+ * length (both as unsigned varints), followed by the bytes. Chunks of the same direction
+ * that follow each other within {@link #MERGE_WINDOW_NANOS} are merged.
+ * <p>
+ * The records are collected in memory and written in batches of {@link #BATCH_SIZE} bytes
+ * by a background thread, so the communication with the adapter never waits for the file.
+ * Recording never fails the connection: on a write error the recording stops.
+ */
+public class TraceRecorder implements Closeable {
+    private static final Logger LOG = Logger.getLogger(TraceRecorder.class);
+
+    static final int MAGIC = 0x4F424454;
+    static final int VERSION = 1;
+    static final int FROM_ADAPTER = 0;
+    static final int TO_ADAPTER = 1;
+
+    private static final long MERGE_WINDOW_NANOS = 1000000;
+    private static final int BATCH_SIZE = 8192;
+    private static final long CLOSE_TIMEOUT_SECONDS = 5;
+
+    private final OutputStream trace;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "OBD-Trace");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // the chunk of the current direction
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream(256);
+    // the encoded records not yet handed to the writer
+    private final ByteArrayOutputStream batch = new ByteArrayOutputStream(BATCH_SIZE + 256);
+    private int pendingDirection = -1;
+    private long pendingNanos;
+    private long lastRecordNanos;
+    private long lastChunkNanos;
+    private boolean closed;
+    // set by the writer thread
+    private volatile boolean failed;
+
+    public TraceRecorder(OutputStream trace) throws IOException {
+        this.trace = trace;
+        DataOutputStream header = new DataOutputStream(batch);
+        header.writeInt(MAGIC);
+        header.writeByte(VERSION);
+        header.writeLong(System.currentTimeMillis());
+        this.lastRecordNanos = System.nanoTime();
+    }
+
+    /**
+     * @return a stream that records everything read from the given one
+     */
+    public InputStream wrap(InputStream in) {
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) {
+                    record(FROM_ADAPTER, b);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int count = super.read(b, off, len);
+                if (count > 0) {
+                    record(FROM_ADAPTER, b, off, count);
+                }
+                return count;
+            }
+        };
+    }
+
+    /**
+     * @return a stream that records everything written to the given one
+     */
+    public OutputStream wrap(OutputStream out) {
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                record(TO_ADAPTER, b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+                record(TO_ADAPTER, b, off, len);
+            }
+        };
+    }
+
+    synchronized void record(int direction, int b) {
+        if (startChunk(direction)) {
+            pending.write(b);
+        }
+    }
+
+    synchronized void record(int direction, byte[] bytes, int offset, int length) {
+        if (startChunk(direction)) {
+            pending.write(bytes, offset, length);
+        }
+    }
+
+    /**
+     * Starts a new chunk unless the bytes continue the pending one.
+     *
+     * @return false if nothing is recorded anymore
+     */
+    private boolean startChunk(int direction) {
+        if (closed || failed) {
+            return false;
+        }
+
+        long now = System.nanoTime();
+        if (direction != pendingDirection || now - lastChunkNanos > MERGE_WINDOW_NANOS) {
+            flushPending();
+            pendingDirection = direction;
+            pendingNanos = now;
+        }
+        lastChunkNanos = now;
+        return true;
+    }
+
+    private void flushPending() {
+        if (pending.size() == 0) {
+            return;
+        }
+
+        batch.write(pendingDirection);
+        writeVarint(batch, (pendingNanos - lastRecordNanos) / 1000);
+        writeVarint(batch, pending.size());
+        batch.write(pending.toByteArray(), 0, pending.size());
+        lastRecordNanos = pendingNanos;
+        pending.reset();
+
+        if (batch.size() >= BATCH_SIZE) {
+            submitBatch();
+        }
+    }
+
+    private void submitBatch() {
+        if (batch.size() == 0) {
+            return;
+        }
+
+        byte[] bytes = batch.toByteArray();
+        batch.reset();
+        writer.execute(() -> {
+            if (failed) {
+                return;
+            }
+            try {
+                trace.write(bytes);
+            } catch (IOException e) {
+                LOG.warn("Could not write the OBD trace. Recording stopped.", e);
+                failed = true;
+            }
+        });
+    }
+
+    /**
+     * Writes the pending records and closes the trace. The wrapped streams stay open.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        flushPending();
+        submitBatch();
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                LOG.warn("The OBD trace could not be written completely.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            trace.close();
+        }
+    }
+
+    static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+}
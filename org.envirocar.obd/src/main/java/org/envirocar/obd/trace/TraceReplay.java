@@ -0,0 +1,343 @@
+/**
+ * Copyright (C) 2013 - 2021 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.obd.trace;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replays a trace written by {@link TraceRecorder}. {@link #getInputStream()} and
+ * {@link #getOutputStream()} take the place of the connection streams, e.g. in the
+ * OBDController.
+ * <p>
+ * The bytes received from the adapter are released in the recorded order. The bytes the
+ * adapter received are expected on the output stream before the trace continues, so the
+ * replay follows the pace of the code under test. In between, the recorded delays are kept,
+ * divided by the speed factor. Written bytes that differ from the trace are counted as
+ * mismatches. A read fails if the expected command is not written within the timeout.
+ */
+public class TraceReplay implements Closeable {
+
+    /**
+     * releases the responses without any delay
+     */
+    public static final double AS_FAST_AS_POSSIBLE = Double.POSITIVE_INFINITY;
+
+    public static final double REAL_TIME = 1.0;
+
+    public static final long DEFAULT_TIMEOUT_MILLIS = 10000;
+
+    private static class Record {
+        final boolean fromAdapter;
+        // nanoseconds since the start of the trace
+        final long time;
+        final byte[] bytes;
+
+        Record(boolean fromAdapter, long time, byte[] bytes) {
+            this.fromAdapter = fromAdapter;
+            this.time = time;
+            this.bytes = bytes;
+        }
+    }
+
+    private final Object lock = new Object();
+    private final List<Record> records = new ArrayList<>();
+    private final long startTime;
+    private final double speed;
+    private final long timeoutNanos;
+
+    private final InputStream inputStream = new ReplayInputStream();
+    private final OutputStream outputStream = new ReplayOutputStream();
+
+    // the next record to be received or expected
+    private int next;
+    private int writtenOffset;
+    private Record current;
+    private int currentOffset;
+    // the replay time of anchorTime, re-anchored whenever the expected bytes have been written
+    private long anchorNanos;
+    private long anchorTime;
+    private long mismatchCount;
+    private boolean closed;
+
+    /**
+     * @param trace the trace, read completely and closed
+     * @param speed the speed factor relative to the recording, e.g. {@link #REAL_TIME}
+     *              or {@link #AS_FAST_AS_POSSIBLE}
+     */
+    public TraceReplay(InputStream trace, double speed) throws IOException {
+        this(trace, speed, DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @param trace         the trace, read completely and closed
+     * @param speed         the speed factor relative to the recording
+     * @param timeoutMillis the time a read waits for the expected command to be written
+     */
+    public TraceReplay(InputStream trace, double speed, long timeoutMillis) throws IOException {
+        if (!(speed > 0)) {
+            throw new IllegalArgumentException("speed must be positive: " + speed);
+        }
+        if (timeoutMillis <= 0) {
+            throw new IllegalArgumentException("timeout must be positive: " + timeoutMillis);
+        }
+        this.speed = speed;
+        this.timeoutNanos = timeoutMillis * 1000000;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(trace))) {
+            if (in.readInt() != TraceRecorder.MAGIC) {
+                throw new IOException("Not an OBD trace");
+            }
+            int version = in.readUnsignedByte();
+            if (version != TraceRecorder.VERSION) {
+                throw new IOException("Unsupported OBD trace version: " + version);
+            }
+            this.startTime = in.readLong();
+
+            long time = 0;
+            int direction;
+            while ((direction = in.read()) >= 0) {
+                time += readVarint(in) * 1000;
+                byte[] bytes = new byte[(int) readVarint(in)];
+                in.readFully(bytes);
+                records.add(new Record(direction == TraceRecorder.FROM_ADAPTER, time, bytes));
+            }
+        }
+
+        this.anchorNanos = System.nanoTime();
+    }
+
+    /**
+     * @return the start of the recording as epoch ms
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public InputStream getInputStream() {
+        return inputStream;
+    }
+
+    public OutputStream getOutputStream() {
+        return outputStream;
+    }
+
+    /**
+     * @return the number of written bytes that did not match the trace
+     */
+    public long getMismatchCount() {
+        synchronized (lock) {
+            return mismatchCount;
+        }
+    }
+
+    /**
+     * @return true if all records have been replayed
+     */
+    public boolean isFinished() {
+        synchronized (lock) {
+            return next >= records.size() && current == null;
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * @return the nanoseconds until the record is due, 0 or less if it is due
+     */
+    private long nanosUntilDue(Record record) {
+        if (speed == AS_FAST_AS_POSSIBLE) {
+            return 0;
+        }
+        long due = anchorNanos + (long) ((record.time - anchorTime) / speed);
+        return due - System.nanoTime();
+    }
+
+    /**
+     * @return true if a record from the adapter has become current
+     */
+    private boolean pollDueRecord() {
+        if (current != null) {
+            return true;
+        }
+        if (next >= records.size() || !records.get(next).fromAdapter
+                || nanosUntilDue(records.get(next)) > 0) {
+            return false;
+        }
+
+        current = records.get(next++);
+        currentOffset = 0;
+        return true;
+    }
+
+    /**
+     * Waits until a record from the adapter is current. Has to be called holding the lock.
+     *
+     * @return false if the trace has ended or the replay is closed
+     */
+    private boolean awaitCurrentRecord() throws IOException {
+        long deadline = System.nanoTime() + timeoutNanos;
+        while (!pollDueRecord()) {
+            if (closed || next >= records.size()) {
+                return false;
+            }
+
+            try {
+                Record record = records.get(next);
+                long wait = record.fromAdapter ? nanosUntilDue(record) : deadline - System.nanoTime();
+                if (!record.fromAdapter && wait <= 0) {
+                    throw new IOException("Timed out waiting for the command "
+                            + new String(record.bytes).trim());
+                }
+                lock.wait(wait / 1000000, (int) (wait % 1000000));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the trace", e);
+            }
+        }
+        return true;
+    }
+
+    private class ReplayInputStream extends InputStream {
+
+        @Override
+        public int read() throws IOException {
+            synchronized (lock) {
+                if (!awaitCurrentRecord()) {
+                    return -1;
+                }
+
+                int b = current.bytes[currentOffset++] & 0xFF;
+                if (currentOffset == current.bytes.length) {
+                    current = null;
+                }
+                return b;
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+
+            synchronized (lock) {
+                if (!awaitCurrentRecord()) {
+                    return -1;
+                }
+
+                int count = Math.min(len, current.bytes.length - currentOffset);
+                System.arraycopy(current.bytes, currentOffset, b, off, count);
+                currentOffset += count;
+                if (currentOffset == current.bytes.length) {
+                    current = null;
+                }
+                return count;
+            }
+        }
+
+        @Override
+        public int available() {
+            synchronized (lock) {
+                if (!pollDueRecord()) {
+                    return 0;
+                }
+                return current.bytes.length - currentOffset;
+            }
+        }
+
+        @Override
+        public void close() {
+            TraceReplay.this.close();
+        }
+    }
+
+    private class ReplayOutputStream extends OutputStream {
+
+        @Override
+        public void write(int b) {
+            synchronized (lock) {
+                consume((byte) b);
+                lock.notifyAll();
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            synchronized (lock) {
+                for (int i = off; i < off + len; i++) {
+                    consume(b[i]);
+                }
+                lock.notifyAll();
+            }
+        }
+
+        /**
+         * Compares a written byte with the expected command. Has to be called holding the lock.
+         */
+        private void consume(byte b) {
+            Record expected = next < records.size() ? records.get(next) : null;
+            if (expected == null || expected.fromAdapter) {
+                mismatchCount++;
+                return;
+            }
+
+            if (expected.bytes[writtenOffset] != b) {
+                mismatchCount++;
+            }
+
+            if (++writtenOffset == expected.bytes.length) {
+                // the responses are due relative to the time the command was sent
+                next++;
+                writtenOffset = 0;
+                anchorNanos = System.nanoTime();
+                anchorTime = expected.time;
+            }
+        }
+
+        @Override
+        public void close() {
+            TraceReplay.this.close();
+        }
+    }
+
+    private static long readVarint(DataInputStream in) throws IOException {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("Malformed varint in OBD trace");
+    }
+}
@@ -0,0 +1,191 @@
+/**
+ * Copyright (C) 2013 - 2021 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.obd;
+
+import org.envirocar.obd.commands.PID;
+import org.envirocar.obd.commands.response.DataResponse;
+import org.envirocar.obd.commands.response.entity.EngineRPMResponse;
+import org.envirocar.obd.commands.response.entity.SpeedResponse;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ResponseRingBufferTest {
+
+    @Test
+    public void testCapacityIsPowerOfTwo() {
+        Assert.assertEquals(8, new ResponseRingBuffer(5,
+                ResponseRingBuffer.OverflowPolicy.DROP_OLDEST).capacity());
+        Assert.assertEquals(4, new ResponseRingBuffer(4,
+                ResponseRingBuffer.OverflowPolicy.DROP_OLDEST).capacity());
+    }
+
+    @Test
+    public void testDrainInBatches() {
+        ResponseRingBuffer buffer = new ResponseRingBuffer(8,
+                ResponseRingBuffer.OverflowPolicy.DROP_OLDEST);
+        for (int i = 0; i < 5; i++) {
+            Assert.assertTrue(buffer.offer(new SpeedResponse(i)));
+        }
+
+        List<DataResponse> target = new ArrayList<>();
+        Assert.assertEquals(3, buffer.drain(target, 3));
+        Assert.assertEquals(2, buffer.drain(target, 3));
+        Assert.assertEquals(0, buffer.drain(target, 3));
+        Assert.assertTrue(buffer.isEmpty());
+
+        for (int i = 0; i < 5; i++) {
+            Assert.assertEquals(i, target.get(i).getValue().intValue());
+        }
+    }
+
+    @Test
+    public void testDropOldest() {
+        ResponseRingBuffer buffer = new ResponseRingBuffer(4,
+                ResponseRingBuffer.OverflowPolicy.DROP_OLDEST);
+        for (int i = 0; i < 6; i++) {
+            buffer.offer(new SpeedResponse(i));
+        }
+
+        List<DataResponse> target = new ArrayList<>();
+        buffer.drain(target, 10);
+
+        Assert.assertEquals(4, target.size());
+        Assert.assertEquals(2, target.get(0).getValue().intValue());
+        Assert.assertEquals(5, target.get(3).getValue().intValue());
+        Assert.assertEquals(2, buffer.getDroppedCount());
+    }
+
+    @Test
+    public void testCoalescePerPID() {
+        ResponseRingBuffer buffer = new ResponseRingBuffer(2,
+                ResponseRingBuffer.OverflowPolicy.COALESCE_PER_PID);
+        buffer.offer(new SpeedResponse(0));
+        buffer.offer(new SpeedResponse(1));
+        buffer.offer(new SpeedResponse(2));
+        buffer.offer(new EngineRPMResponse(800));
+        buffer.offer(new SpeedResponse(3));
+
+        List<DataResponse> target = new ArrayList<>();
+        buffer.drain(target, 10);
+
+        // the buffered ones, followed by the latest overflowing value of each PID
+        Assert.assertEquals(4, target.size());
+        Assert.assertEquals(0, target.get(0).getValue().intValue());
+        Assert.assertEquals(1, target.get(1).getValue().intValue());
+        for (DataResponse response : target.subList(2, 4)) {
+            if (response.getPid() == PID.SPEED) {
+                Assert.assertEquals(3, response.getValue().intValue());
+            } else {
+                Assert.assertEquals(PID.RPM, response.getPid());
+            }
+        }
+        Assert.assertEquals(1, buffer.getCoalescedCount());
+        Assert.assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    public void testCoalescedResponsesKeepOrderPerPID() {
+        ResponseRingBuffer buffer = new ResponseRingBuffer(2,
+                ResponseRingBuffer.OverflowPolicy.COALESCE_PER_PID);
+        buffer.offer(new SpeedResponse(0));
+        buffer.offer(new SpeedResponse(1));
+        buffer.offer(new SpeedResponse(2));
+
+        List<DataResponse> target = new ArrayList<>();
+        buffer.drain(target, 1);
+
+        // there is room again, the response kept aside has to come before the newer ones
+        buffer.offer(new SpeedResponse(3));
+        buffer.offer(new SpeedResponse(4));
+        buffer.drain(target, 10);
+
+        // 3 has been kept aside and replaced by 4
+        int[] expected = {0, 1, 2, 4};
+        Assert.assertEquals(expected.length, target.size());
+        for (int i = 0; i < expected.length; i++) {
+            Assert.assertEquals(expected[i], target.get(i).getValue().intValue());
+        }
+        Assert.assertEquals(1, buffer.getCoalescedCount());
+        Assert.assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    public void testConcurrentHandoffKeepsOrder() throws InterruptedException {
+        ResponseRingBuffer buffer = new ResponseRingBuffer(16,
+                ResponseRingBuffer.OverflowPolicy.DROP_OLDEST);
+        int count = 200000;
+
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < count; i++) {
+                buffer.offer(new SpeedResponse(i));
+            }
+        });
+        producer.start();
+
+        List<DataResponse> target = new ArrayList<>();
+        int received = 0;
+        int last = -1;
+        while (producer.isAlive() || !buffer.isEmpty()) {
+            target.clear();
+            buffer.drain(target, 8);
+            for (DataResponse response : target) {
+                int value = response.getValue().intValue();
+                Assert.assertTrue(value > last);
+                last = value;
+                received++;
+            }
+        }
+        producer.join();
+
+        Assert.assertEquals(count, received + buffer.getDroppedCount());
+        Assert.assertEquals(count - 1, last);
+    }
+
+    @Test
+    public void testConcurrentCoalescingKeepsOrder() throws InterruptedException {
+        ResponseRingBuffer buffer = new ResponseRingBuffer(4,
+                ResponseRingBuffer.OverflowPolicy.COALESCE_PER_PID);
+        int count = 200000;
+
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < count; i++) {
+                buffer.offer(new SpeedResponse(i));
+            }
+        });
+        producer.start();
+
+        List<DataResponse> target = new ArrayList<>();
+        int last = -1;
+        while (producer.isAlive() || !buffer.isEmpty()) {
+            target.clear();
+            buffer.drain(target, 3);
+            for (DataResponse response : target) {
+                int value = response.getValue().intValue();
+                Assert.assertTrue(value > last);
+                last = value;
+            }
+        }
+        producer.join();
+
+        Assert.assertEquals(count - 1, last);
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ * Copyright (C) 2013 - 2021 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.obd.adapter;
+
+import org.envirocar.obd.commands.PID;
+import org.envirocar.obd.commands.PIDBitmap;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AdapterFingerprintTest {
+
+    @Test
+    public void testEncodeDecode() {
+        AdapterFingerprint fingerprint = new AdapterFingerprint(ELM327Adapter.class.getName(), "6",
+                PIDBitmap.of(PID.RPM, PID.SPEED, PID.MAF, PID.O2_LAMBDA_PROBE_1_VOLTAGE));
+
+        AdapterFingerprint decoded = AdapterFingerprint.decode(fingerprint.encode());
+
+        Assert.assertEquals(fingerprint.getAdapterClass(), decoded.getAdapterClass());
+        Assert.assertEquals("6", decoded.getProtocol());
+        Assert.assertEquals(fingerprint.getSupportedPIDs(), decoded.getSupportedPIDs());
+    }
+
+    @Test
+    public void testEncodeDecodeWithoutProtocolAndPIDs() {
+        AdapterFingerprint fingerprint = new AdapterFingerprint(ELM327Adapter.class.getName(), null,
+                new PIDBitmap());
+
+        AdapterFingerprint decoded = AdapterFingerprint.decode(fingerprint.encode());
+
+        Assert.assertNull(decoded.getProtocol());
+        Assert.assertTrue(decoded.getSupportedPIDs().isEmpty());
+    }
+
+    @Test
+    public void testDecodeInvalid() {
+        Assert.assertNull(AdapterFingerprint.decode(null));
+        Assert.assertNull(AdapterFingerprint.decode("garbage"));
+        Assert.assertNull(AdapterFingerprint.decode("org.example.Adapter|6|0C,0D"));
+        Assert.assertNull(AdapterFingerprint.decode("org.example.Adapter|6|0018800X"));
+    }
+
+    @Test
+    public void testMatchesFirstGroup() {
+        AdapterFingerprint fingerprint = new AdapterFingerprint(ELM327Adapter.class.getName(), "6",
+                PIDBitmap.of(PID.RPM, PID.SPEED, PID.O2_LAMBDA_PROBE_1_VOLTAGE));
+
+        // PIDs above 0x20 are not part of the first group
+        Assert.assertTrue(fingerprint.matchesFirstGroup(PIDBitmap.of(PID.RPM, PID.SPEED)));
+        Assert.assertFalse(fingerprint.matchesFirstGroup(PIDBitmap.of(PID.RPM)));
+        Assert.assertFalse(fingerprint.matchesFirstGroup(PIDBitmap.of(PID.RPM, PID.SPEED, PID.MAF)));
+    }
+
+}
@@ -0,0 +1,66 @@
+/**
+ * Copyright (C) 2013 - 2021 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.obd.adapter;
+
+import org.envirocar.obd.commands.CycleCommandProfile;
+import org.envirocar.obd.commands.PID;
+import org.envirocar.obd.commands.PIDBitmap;
+import org.envirocar.obd.commands.request.BasicCommand;
+import org.envirocar.obd.exception.AdapterFailedException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+public class ELM327AdapterTest {
+
+    private static final byte[] OK = "OK".getBytes();
+
+    @Test
+    public void testFullInitializationAfterKnownDeviceInitialization() throws AdapterFailedException {
+        ELM327Adapter adapter = new ELM327Adapter(new CycleCommandProfile.Default());
+
+        // the shortened init sequence of a known device is verified by its OK responses
+        adapter.setKnownFingerprint(new AdapterFingerprint(adapter.getClass().getName(), "6",
+                PIDBitmap.of(PID.RPM, PID.SPEED)));
+        adapter.initialize(new ByteArrayInputStream(new byte[0]), new ByteArrayOutputStream());
+        boolean verified = false;
+        for (BasicCommand cc = adapter.pollNextInitializationCommand(); cc != null;
+             cc = adapter.pollNextInitializationCommand()) {
+            verified = adapter.analyzeMetadataResponse(OK, cc);
+        }
+        Assert.assertTrue(verified);
+
+        // e.g. the engine did not respond: the full sequence must not count the responses of
+        // the shortened one.
+        adapter.setKnownFingerprint(null);
+        adapter.initialize(new ByteArrayInputStream(new byte[0]), new ByteArrayOutputStream());
+        int commandsUntilVerified = 0;
+        for (BasicCommand cc = adapter.pollNextInitializationCommand(); cc != null;
+             cc = adapter.pollNextInitializationCommand()) {
+            commandsUntilVerified++;
+            if (adapter.analyzeMetadataResponse(OK, cc)) {
+                break;
+            }
+        }
+        // only the last command of the full sequence completes the verification
+        Assert.assertEquals(adapter.createInitCommands().size(), commandsUntilVerified);
+    }
+}
@@ -0,0 +1,136 @@
+/**
+ * Copyright (C) 2013 - 2021 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.obd.adapter;
+
+import org.envirocar.obd.commands.CycleCommandProfile;
+import org.envirocar.obd.commands.PID;
+import org.envirocar.obd.commands.request.ModeOneCommand;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+public class PIDSchedulerTest {
+
+    @Test
+    public void testSharesFollowTargetFrequencies() {
+        PIDScheduler scheduler = new PIDScheduler(new CycleCommandProfile.Default());
+        scheduler.add(new ModeOneCommand(PID.RPM));
+        scheduler.add(new ModeOneCommand(PID.SPEED));
+        scheduler.add(new ModeOneCommand(PID.INTAKE_AIR_TEMP));
+
+        Map<PID, Integer> counts = poll(scheduler, 1000);
+
+        Assert.assertEquals(counts.get(PID.RPM), counts.get(PID.SPEED), 2);
+        Assert.assertTrue(counts.get(PID.RPM) > 5 * counts.get(PID.INTAKE_AIR_TEMP));
+    }
+
+    @Test
+    public void testSharesOnOversubscribedLink() {
+        PIDScheduler scheduler = new PIDScheduler(new CycleCommandProfile.Default());
+        for (PID pid : PID.values()) {
+            scheduler.add(new ModeOneCommand(pid));
+        }
+
+        // the PIDs ask for far more requests than a link can serve in the same time, still the
+        // shares must not drift towards round robin.
+        Map<PID, Integer> counts = poll(scheduler, 20000);
+
+        for (PID fast : new PID[]{PID.SPEED, PID.RPM, PID.MAF}) {
+            for (PID slow : new PID[]{PID.INTAKE_AIR_TEMP, PID.FUEL_PRESSURE, PID.FUEL_SYSTEM_STATUS}) {
+                double ratio = (double) counts.get(fast) / counts.get(slow);
+                Assert.assertEquals(fast + ":" + slow, 10.0, ratio, 0.5);
+            }
+        }
+    }
+
+    @Test
+    public void testPeekDoesNotAdvance() {
+        PIDScheduler scheduler = new PIDScheduler(new CycleCommandProfile.Default());
+        scheduler.add(new ModeOneCommand(PID.RPM));
+        scheduler.add(new ModeOneCommand(PID.INTAKE_AIR_TEMP));
+
+        for (int i = 0; i < 100; i++) {
+            PID peeked = scheduler.peek().getPid();
+            Assert.assertEquals(peeked, scheduler.peek().getPid());
+            Assert.assertEquals(peeked, scheduler.poll().getPid());
+        }
+    }
+
+    @Test
+    public void testAddedPIDDoesNotCatchUp() {
+        PIDScheduler scheduler = new PIDScheduler(new CycleCommandProfile.Default());
+        scheduler.add(new ModeOneCommand(PID.RPM));
+        poll(scheduler, 100);
+
+        scheduler.add(new ModeOneCommand(PID.SPEED));
+        Map<PID, Integer> counts = poll(scheduler, 100);
+        Assert.assertEquals(counts.get(PID.RPM), counts.get(PID.SPEED), 1);
+    }
+
+    @Test
+    public void testDuplicatePIDsDoubleTheFrequency() {
+        PIDScheduler scheduler = new PIDScheduler(new CycleCommandProfile.Default());
+        scheduler.add(new ModeOneCommand(PID.SPEED));
+        scheduler.add(new ModeOneCommand(PID.SPEED));
+
+        Assert.assertEquals(1, scheduler.size());
+        Assert.assertEquals(4.0, scheduler.getFrequency(PID.SPEED), 1e-9);
+    }
+
+    @Test
+    public void testVariabilityAdaptsFrequency() {
+        PIDScheduler scheduler = new PIDScheduler(new CycleCommandProfile.Default());
+        scheduler.add(new ModeOneCommand(PID.RPM));
+        scheduler.add(new ModeOneCommand(PID.SPEED));
+
+        for (int i = 0; i < 50; i++) {
+            scheduler.onResponse(PID.RPM, 800 + (i % 2) * 1500);
+            scheduler.onResponse(PID.SPEED, 50);
+        }
+
+        Assert.assertEquals(4.0, scheduler.getFrequency(PID.RPM), 1e-9);
+        Assert.assertEquals(1.0, scheduler.getFrequency(PID.SPEED), 1e-9);
+
+        Map<PID, Integer> counts = poll(scheduler, 500);
+        Assert.assertTrue(counts.get(PID.RPM) > 3 * counts.get(PID.SPEED));
+    }
+
+    @Test
+    public void testRemove() {
+        PIDScheduler scheduler = new PIDScheduler(new CycleCommandProfile.Default());
+        scheduler.add(new ModeOneCommand(PID.RPM));
+        scheduler.remove(PID.RPM);
+
+        Assert.assertTrue(scheduler.isEmpty());
+        Assert.assertNull(scheduler.poll());
+    }
+
+    private static Map<PID, Integer> poll(PIDScheduler scheduler, int requests) {
+        Map<PID, Integer> counts = new EnumMap<>(PID.class);
+        for (int i = 0; i < requests; i++) {
+            PID pid = scheduler.poll().getPid();
+            Integer count = counts.get(pid);
+            counts.put(pid, count == null ? 1 : count + 1);
+        }
+        return counts;
+    }
+
+}
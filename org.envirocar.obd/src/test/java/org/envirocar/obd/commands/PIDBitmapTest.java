@@ -0,0 +1,95 @@
+/**
+ * Copyright (C) 2013 - 2021 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.obd.commands;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PIDBitmapTest {
+
+    @Test
+    public void testAddAndContains() {
+        PIDBitmap bitmap = new PIDBitmap();
+        Assert.assertTrue(bitmap.isEmpty());
+
+        Assert.assertTrue(bitmap.add(PID.SPEED));
+        Assert.assertFalse(bitmap.add(0x0D));
+        Assert.assertTrue(bitmap.add(0xFF));
+
+        Assert.assertTrue(bitmap.contains(PID.SPEED));
+        Assert.assertTrue(bitmap.contains(0xFF));
+        Assert.assertFalse(bitmap.contains(PID.RPM));
+        Assert.assertFalse(bitmap.contains(0x100));
+        Assert.assertEquals(2, bitmap.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddOutOfRange() {
+        new PIDBitmap().add(256);
+    }
+
+    @Test
+    public void testGroups() {
+        PIDBitmap bitmap = new PIDBitmap();
+        // 01 00 response of BE 1F A8 13
+        bitmap.addGroup(0x00, 0xBE1FA813);
+
+        Assert.assertTrue(bitmap.contains(PID.FUEL_SYSTEM_STATUS));
+        Assert.assertTrue(bitmap.contains(PID.RPM));
+        Assert.assertTrue(bitmap.contains(PID.SPEED));
+        Assert.assertTrue(bitmap.contains(PID.TPS));
+        Assert.assertFalse(bitmap.contains(PID.INTAKE_MAP));
+        // the "next group supported" bit
+        Assert.assertTrue(bitmap.contains(0x20));
+        Assert.assertEquals(0xBE1FA813, bitmap.getGroup(0x00));
+        Assert.assertEquals(0, bitmap.getGroup(0x20));
+
+        // the last bit of group E0 would be 0x100
+        bitmap.addGroup(0xE0, 0xFFFFFFFF);
+        Assert.assertEquals(0xFFFFFFFE, bitmap.getGroup(0xE0));
+    }
+
+    @Test
+    public void testHexString() {
+        PIDBitmap bitmap = new PIDBitmap();
+        bitmap.addGroup(0x00, 0xBE1FA813);
+        bitmap.addGroup(0x40, 0x00000001);
+
+        Assert.assertEquals("BE1FA8130000000000000001", bitmap.toHexString());
+        Assert.assertEquals(bitmap, PIDBitmap.fromHexString(bitmap.toHexString()));
+        Assert.assertEquals("", new PIDBitmap().toHexString());
+        Assert.assertTrue(PIDBitmap.fromHexString("").isEmpty());
+
+        Assert.assertNull(PIDBitmap.fromHexString("BE1FA81"));
+        Assert.assertNull(PIDBitmap.fromHexString("BE1FA81X"));
+        Assert.assertNull(PIDBitmap.fromHexString(null));
+    }
+
+    @Test
+    public void testNextCode() {
+        PIDBitmap bitmap = PIDBitmap.of(PID.RPM, PID.O2_LAMBDA_PROBE_1_VOLTAGE);
+        bitmap.add(0x80);
+
+        Assert.assertEquals(0x0C, bitmap.nextCode(0));
+        Assert.assertEquals(0x24, bitmap.nextCode(0x0D));
+        Assert.assertEquals(0x80, bitmap.nextCode(0x25));
+        Assert.assertEquals(-1, bitmap.nextCode(0x81));
+        Assert.assertEquals("[RPM, O2_LAMBDA_PROBE_1_VOLTAGE, 80]", bitmap.toString());
+    }
+}
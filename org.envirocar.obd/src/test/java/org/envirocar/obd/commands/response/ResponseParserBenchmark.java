@@ -0,0 +1,206 @@
+/**
+ * Copyright (C) 2013 - 2021 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.obd.commands.response;
+
+import org.envirocar.obd.commands.PIDUtil;
+import org.envirocar.obd.exception.AdapterSearchingException;
+import org.envirocar.obd.exception.InvalidCommandResponseException;
+import org.envirocar.obd.exception.NoDataReceivedException;
+import org.envirocar.obd.exception.UnmatchedResponseException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Microbenchmark of {@link ResponseParser} over the data lines of a recorded ELM327 trace,
+ * compared with the former String based decoding. The allocations of the parser include the
+ * created response objects. Asserts that both decode the same values and that the parser
+ * allocates less per line. Only run with -Pbenchmark.
+ */
+public class ResponseParserBenchmark {
+
+    private static final int ROUNDS = 5;
+    private static final int REPETITIONS = 20000;
+
+    /**
+     * Response lines of a recorded ELM327 session (ignored chars already removed).
+     */
+    private static final String[] TRACE = {
+            "SEARCHING...",
+            "410D00",
+            "410C0B6C",
+            "41100187",
+            "410B21",
+            "410F38",
+            "41042F",
+            "411126",
+            "410D1E",
+            "410C1A58",
+            "4110053E",
+            "412407FF0028",
+            "NODATA",
+            "410B5C",
+            "410D3B",
+            "410C21F0",
+            "411007D2",
+            "41044B",
+            "41113A",
+            "41341DBC3B48",
+            "STOPPED",
+            "410D52",
+            "410C2614",
+            "41100A11",
+    };
+
+    private static final byte[][] TRACE_BYTES = new byte[TRACE.length][];
+
+    // the benchmark skips the status lines, both parsers signal them with exceptions
+    private static final List<byte[]> DATA_LINES = new ArrayList<>();
+
+    static {
+        for (int i = 0; i < TRACE.length; i++) {
+            TRACE_BYTES[i] = TRACE[i].getBytes();
+            if (TRACE[i].startsWith(ResponseParser.STATUS_OK)) {
+                DATA_LINES.add(TRACE_BYTES[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testMatchesStringDecoding() throws Exception {
+        ResponseParser parser = new ResponseParser();
+        for (byte[] line : TRACE_BYTES) {
+            int[] expected = decodeWithStrings(line);
+            if (expected == null) {
+                continue;
+            }
+
+            DataResponse response = parser.parse(line);
+            Assert.assertEquals(PIDUtil.fromString(new String(line, 2, 2)), response.getPid());
+
+            int[] actual = new int[expected.length];
+            for (int i = 2; i < actual.length; i++) {
+                actual[i] = ResponseParser.decodeHexByte(line, i * 2);
+            }
+            Assert.assertArrayEquals(expected, actual);
+        }
+    }
+
+    @Test
+    public void benchmarkTrace() {
+        // warm up so that class loading and JIT do not count towards the measured run
+        for (int round = 0; round < ROUNDS; round++) {
+            Assert.assertEquals(runStrings().sum, runParser().sum);
+        }
+
+        Result strings = runStrings();
+        Result parser = runParser();
+        Assert.assertEquals(strings.sum, parser.sum);
+        if (strings.allocated >= 0 && parser.allocated >= 0) {
+            Assert.assertTrue("parser allocated " + parser.allocated
+                            + " bytes/line, String decoding " + strings.allocated,
+                    parser.allocated < strings.allocated);
+        }
+    }
+
+    private static final class Result {
+        private final long allocated;
+        private final long sum;
+
+        Result(long allocated, long sum) {
+            this.allocated = allocated;
+            this.sum = sum;
+        }
+    }
+
+    private Result runStrings() {
+        long allocatedBefore = allocatedBytes();
+        long sum = 0;
+        for (int r = 0; r < REPETITIONS; r++) {
+            for (byte[] line : DATA_LINES) {
+                int[] decoded = decodeWithStrings(line);
+                sum += decoded[decoded.length - 1];
+            }
+        }
+        return new Result(perLine(allocatedBefore), sum);
+    }
+
+    private Result runParser() {
+        ResponseParser parser = new ResponseParser();
+        long allocatedBefore = allocatedBytes();
+        long sum = 0;
+        for (int r = 0; r < REPETITIONS; r++) {
+            for (byte[] line : DATA_LINES) {
+                try {
+                    parser.parse(line);
+                    sum += ResponseParser.decodeHexByte(line, line.length - 2);
+                } catch (AdapterSearchingException | NoDataReceivedException
+                        | InvalidCommandResponseException | UnmatchedResponseException e) {
+                    Assert.fail(e.getMessage());
+                }
+            }
+        }
+        return new Result(perLine(allocatedBefore), sum);
+    }
+
+    /**
+     * Decoding as done by {@link ResponseParser} before, kept as the baseline.
+     *
+     * @return the decoded bytes or null for status lines
+     */
+    private static int[] decodeWithStrings(byte[] data) {
+        String dataString = new String(data);
+        if (dataString.contains("SEARCHING") || dataString.contains("STOPPED")
+                || dataString.contains("NODATA")) {
+            return null;
+        }
+
+        int[] buffer = new int[data.length / 2];
+        for (int index = 0; index + 2 <= data.length; index += 2) {
+            String tmp = new String(data, index, 2);
+            if (index == 2) {
+                Assert.assertNotNull(PIDUtil.fromString(tmp));
+            } else if (index > 2) {
+                buffer[index / 2] = Integer.parseInt(tmp, 16);
+            }
+        }
+        return buffer;
+    }
+
+    private static long perLine(long allocatedBefore) {
+        long allocatedAfter = allocatedBytes();
+        if (allocatedBefore < 0 || allocatedAfter < 0) {
+            return -1;
+        }
+        return (allocatedAfter - allocatedBefore) / ((long) REPETITIONS * DATA_LINES.size());
+    }
+
+    private static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(
+                    Thread.currentThread().getId());
+        }
+        return -1;
+    }
+}
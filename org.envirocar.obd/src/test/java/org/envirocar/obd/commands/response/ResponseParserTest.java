@@ -0,0 +1,44 @@
+/**
+ * Copyright (C) 2013 - 2021 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.obd.commands.response;
+
+import org.envirocar.obd.commands.PID;
+import org.envirocar.obd.commands.PIDUtil;
+import org.envirocar.obd.exception.UnmatchedResponseException;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ResponseParserTest {
+
+    @Test
+    public void testSpeedAndRpm() throws Exception {
+        ResponseParser parser = new ResponseParser();
+        Assert.assertEquals(30, parser.parse("410D1E".getBytes()).getValue().intValue());
+        Assert.assertEquals(1686, parser.parse("410c1a58".getBytes()).getValue().intValue());
+
+        byte[] reused = "410D52XXXX".getBytes();
+        Assert.assertEquals(82, parser.parse(reused, 6).getValue().intValue());
+        Assert.assertEquals(PID.SPEED, PIDUtil.fromCode(0x0D));
+    }
+
+    @Test(expected = UnmatchedResponseException.class)
+    public void testTruncatedResponse() throws Exception {
+        new ResponseParser().parse("410C1A".getBytes());
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ * Copyright (C) 2013 - 2021 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.obd.events;
+
+import org.envirocar.core.entity.Measurement;
+import org.junit.Assert;
+import org.junit.Test;
+
+import io.reactivex.subscribers.TestSubscriber;
+
+public class SensorStreamTest {
+
+    @Test
+    public void testEventsAreLossless() {
+        SensorStream stream = new SensorStream();
+        TestSubscriber<PropertyKeyEvent> subscriber = stream.events().test(0);
+
+        for (int i = 0; i < 10; i++) {
+            stream.publish(new PropertyKeyEvent(Measurement.PropertyKey.SPEED, i, i));
+        }
+        subscriber.assertNoValues();
+
+        subscriber.request(10);
+        subscriber.assertValueCount(10);
+        Assert.assertEquals(9, subscriber.values().get(9).getValue().intValue());
+    }
+
+    @Test
+    public void testLatestKeepsOnlyTheLatestValue() {
+        SensorStream stream = new SensorStream();
+        TestSubscriber<PropertyKeyEvent> subscriber =
+                stream.latest(Measurement.PropertyKey.SPEED).test(0);
+
+        stream.publish(new PropertyKeyEvent(Measurement.PropertyKey.SPEED, 50, 1000));
+        stream.publish(new PropertyKeyEvent(Measurement.PropertyKey.RPM, 2000, 1000));
+        stream.publish(new PropertyKeyEvent(Measurement.PropertyKey.SPEED, 52, 1500));
+
+        subscriber.request(5);
+        subscriber.assertValueCount(1);
+        Assert.assertEquals(52, subscriber.values().get(0).getValue().intValue());
+    }
+
+    @Test
+    public void testLateSubscriberReceivesCurrentValue() {
+        SensorStream stream = new SensorStream();
+        stream.publish(new PropertyKeyEvent(Measurement.PropertyKey.RPM, 2000, 1000));
+
+        TestSubscriber<PropertyKeyEvent> subscriber =
+                stream.latest(Measurement.PropertyKey.RPM).test();
+        subscriber.assertValueCount(1);
+
+        stream.latest(Measurement.PropertyKey.SPEED).test().assertNoValues();
+    }
+
+    @Test
+    public void testCompletedStreamDoesNotReplayValues() {
+        SensorStream stream = new SensorStream();
+        stream.publish(new PropertyKeyEvent(Measurement.PropertyKey.RPM, 2000, 1000));
+        TestSubscriber<PropertyKeyEvent> subscriber = stream.events().test();
+
+        stream.complete();
+        subscriber.assertComplete();
+
+        TestSubscriber<PropertyKeyEvent> lateSubscriber =
+                stream.latest(Measurement.PropertyKey.RPM).test();
+        lateSubscriber.assertNoValues();
+        lateSubscriber.assertComplete();
+    }
+}
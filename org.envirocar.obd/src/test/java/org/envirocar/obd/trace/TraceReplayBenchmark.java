@@ -0,0 +1,260 @@
+/**
+ * Copyright (C) 2013 - 2021 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.obd.trace;
+
+import org.envirocar.obd.ConnectionListener;
+import org.envirocar.obd.OBDController;
+import org.envirocar.obd.commands.CycleCommandProfile;
+import org.envirocar.obd.commands.PID;
+import org.envirocar.obd.commands.PIDUtil;
+import org.envirocar.obd.events.SensorStream;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.reactivex.disposables.Disposable;
+
+/**
+ * Replays a recorded ELM327 session through the {@link OBDController}, as fast as possible.
+ * The session is recorded from a simulated adapter first. Asserts that the controller sends
+ * exactly the recorded commands, i.e. it processed every response like in the recording, and
+ * reports the duration of the replay. Only run with -Pbenchmark.
+ */
+public class TraceReplayBenchmark {
+
+    private static final int DATA_REQUESTS = 20000;
+    private static final long TIMEOUT_SECONDS = 60;
+
+    @Test
+    public void testReplayThroughController() throws Exception {
+        byte[] trace = recordSession();
+
+        for (int round = 0; round < 3; round++) {
+            TraceReplay replay = new TraceReplay(new ByteArrayInputStream(trace),
+                    TraceReplay.AS_FAST_AS_POSSIBLE);
+
+            long start = System.nanoTime();
+            long events = runController(replay.getInputStream(), replay.getOutputStream(),
+                    replay::isFinished);
+            long duration = System.nanoTime() - start;
+
+            Assert.assertTrue(replay.isFinished());
+            Assert.assertEquals(0, replay.getMismatchCount());
+            Assert.assertTrue(events > 0);
+            System.out.println(String.format("Round %d: replayed %d data requests in %d ms",
+                    round, DATA_REQUESTS, duration / 1000000));
+        }
+    }
+
+    private byte[] recordSession() throws Exception {
+        ByteArrayOutputStream trace = new ByteArrayOutputStream();
+        SimulatedAdapter adapter = new SimulatedAdapter(DATA_REQUESTS);
+        try (TraceRecorder recorder = new TraceRecorder(trace)) {
+            runController(recorder.wrap(adapter.in), recorder.wrap(adapter.out), adapter::isFinished);
+        }
+        return trace.toByteArray();
+    }
+
+    private interface Condition {
+        boolean isMet();
+    }
+
+    /**
+     * Runs a controller on the streams until the condition is met.
+     *
+     * @return the number of events published to the sensor stream
+     */
+    private static long runController(InputStream in, OutputStream out, Condition finished)
+            throws Exception {
+        SensorStream sensorStream = new SensorStream();
+        AtomicLong events = new AtomicLong();
+        Disposable subscription = sensorStream.events().subscribe(pke -> events.incrementAndGet());
+
+        OBDController controller = new OBDController(in, out, "OBDII ELM327", null,
+                new CycleCommandProfile.Default(), null, sensorStream, new NoOpListener(), null);
+        try {
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS);
+            while (!finished.isMet()) {
+                Assert.assertTrue("The session did not finish in time",
+                        System.currentTimeMillis() < deadline);
+                Thread.sleep(10);
+            }
+        } finally {
+            controller.shutdown();
+            subscription.dispose();
+        }
+        return events.get();
+    }
+
+    private static class NoOpListener implements ConnectionListener {
+        @Override
+        public void onConnectionVerified() {
+        }
+
+        @Override
+        public void onEngineNotRunning() {
+        }
+
+        @Override
+        public void onAllAdaptersFailed() {
+        }
+
+        @Override
+        public void onStatusUpdate(String message) {
+        }
+
+        @Override
+        public void requestConnectionRetry(IOException reason) {
+        }
+    }
+
+    /**
+     * Answers like an ELM327 adapter in a car supporting the load, MAP, RPM, speed, intake
+     * temperature, MAF and TPS PIDs. The stream ends after the given number of data requests,
+     * once the next command has been written.
+     */
+    private static class SimulatedAdapter {
+        private static final String SUPPORTED_PIDS = "41 00 10 3B 80 00";
+
+        private final Object lock = new Object();
+        private final StringBuilder command = new StringBuilder();
+        private final int dataRequests;
+        private int dataRequestCount;
+        private byte[] response = new byte[0];
+        private int responseOffset;
+        private boolean ended;
+        private final CountDownLatch finished = new CountDownLatch(1);
+
+        final InputStream in = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                byte[] single = new byte[1];
+                return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                synchronized (lock) {
+                    while (responseOffset == response.length) {
+                        if (ended) {
+                            finished.countDown();
+                            return -1;
+                        }
+                        try {
+                            lock.wait();
+                        } catch (InterruptedException e) {
+                            throw new IOException(e);
+                        }
+                    }
+                    int count = Math.min(len, response.length - responseOffset);
+                    System.arraycopy(response, responseOffset, b, off, count);
+                    responseOffset += count;
+                    return count;
+                }
+            }
+
+            @Override
+            public int available() {
+                synchronized (lock) {
+                    return response.length - responseOffset;
+                }
+            }
+        };
+
+        final OutputStream out = new OutputStream() {
+            @Override
+            public void write(int b) {
+                synchronized (lock) {
+                    if (b != '\r') {
+                        command.append((char) b);
+                        return;
+                    }
+                    String request = command.toString().replace(" ", "").toUpperCase();
+                    command.setLength(0);
+                    String answer = respond(request);
+                    if (answer == null) {
+                        ended = true;
+                    } else {
+                        response = (answer + "\r\r>").getBytes();
+                        responseOffset = 0;
+                    }
+                    lock.notifyAll();
+                }
+            }
+        };
+
+        SimulatedAdapter(int dataRequests) {
+            this.dataRequests = dataRequests;
+        }
+
+        boolean isFinished() {
+            return finished.getCount() == 0;
+        }
+
+        /**
+         * @return the response or null if the stream ends
+         */
+        private String respond(String request) {
+            if (request.startsWith("AT")) {
+                if (request.equals("ATZ")) {
+                    return "ELM327 v1.5";
+                }
+                return request.endsWith("DPN") ? "A6" : "OK";
+            }
+            if (request.equals("0100")) {
+                return SUPPORTED_PIDS;
+            }
+            if (request.length() == 4 && request.startsWith("01")
+                    && "20406080A0C0".contains(request.substring(2))) {
+                return "41 " + request.substring(2) + " 00 00 00 00";
+            }
+            if (!request.startsWith("01") || request.length() < 4) {
+                return "?";
+            }
+            if (dataRequestCount++ == dataRequests) {
+                return null;
+            }
+
+            // one line per PID, as sent on K-Line
+            StringBuilder result = new StringBuilder();
+            for (int i = 2; i + 2 <= request.length(); i += 2) {
+                PID pid = PIDUtil.fromString(request.substring(i, i + 2));
+                if (pid == null) {
+                    return "?";
+                }
+                if (result.length() > 0) {
+                    result.append('\r');
+                }
+                result.append("41 ").append(request, i, i + 2);
+                for (int j = 0; j < PIDUtil.getDataByteCount(pid); j++) {
+                    result.append(String.format(" %02X", (dataRequestCount + i + j) & 0xFF));
+                }
+            }
+            return result.toString();
+        }
+    }
+}
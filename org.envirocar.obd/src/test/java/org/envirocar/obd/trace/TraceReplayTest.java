@@ -0,0 +1,114 @@
+/**
+ * Copyright (C) 2013 - 2021 the enviroCar community
+ *
+ * This file is part of the enviroCar app.
+ *
+ * The enviroCar app is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The enviroCar app is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with the enviroCar app. If not, see http://www.gnu.org/licenses/.
+ */
+package org.envirocar.obd.trace;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+public class TraceReplayTest {
+
+    private static final byte[] COMMAND = "010C\r".getBytes();
+    private static final byte[] RESPONSE = "41 0C 1A F8\r\r>".getBytes();
+
+    private byte[] recordSession(long responseDelay) throws Exception {
+        ByteArrayOutputStream trace = new ByteArrayOutputStream();
+        TraceRecorder recorder = new TraceRecorder(trace);
+
+        OutputStream out = recorder.wrap(new ByteArrayOutputStream());
+        InputStream in = recorder.wrap(new ByteArrayInputStream(RESPONSE));
+
+        out.write(COMMAND);
+        Thread.sleep(responseDelay);
+        byte[] buffer = new byte[64];
+        Assert.assertEquals(RESPONSE.length, in.read(buffer));
+
+        recorder.close();
+        return trace.toByteArray();
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4];
+        int count;
+        while ((count = in.read(buffer)) >= 0) {
+            result.write(buffer, 0, count);
+        }
+        return result.toByteArray();
+    }
+
+    @Test
+    public void testReplayWaitsForCommand() throws Exception {
+        TraceReplay replay = new TraceReplay(new ByteArrayInputStream(recordSession(0)),
+                TraceReplay.AS_FAST_AS_POSSIBLE);
+
+        Assert.assertEquals(0, replay.getInputStream().available());
+
+        replay.getOutputStream().write(COMMAND);
+        Assert.assertEquals(RESPONSE.length, replay.getInputStream().available());
+        Assert.assertArrayEquals(RESPONSE, readAll(replay.getInputStream()));
+
+        Assert.assertEquals(0, replay.getMismatchCount());
+        Assert.assertTrue(replay.isFinished());
+    }
+
+    @Test
+    public void testMismatchesAreCounted() throws Exception {
+        TraceReplay replay = new TraceReplay(new ByteArrayInputStream(recordSession(0)),
+                TraceReplay.AS_FAST_AS_POSSIBLE);
+
+        replay.getOutputStream().write("010D\r".getBytes());
+
+        Assert.assertEquals(1, replay.getMismatchCount());
+        Assert.assertArrayEquals(RESPONSE, readAll(replay.getInputStream()));
+    }
+
+    @Test
+    public void testReplayKeepsRecordedDelay() throws Exception {
+        byte[] trace = recordSession(200);
+
+        // the response is not due before the recorded delay has passed
+        TraceReplay replay = new TraceReplay(new ByteArrayInputStream(trace), TraceReplay.REAL_TIME);
+        replay.getOutputStream().write(COMMAND);
+        Assert.assertEquals(0, replay.getInputStream().available());
+        Assert.assertArrayEquals(RESPONSE, readAll(replay.getInputStream()));
+
+        replay = new TraceReplay(new ByteArrayInputStream(trace), TraceReplay.AS_FAST_AS_POSSIBLE);
+        replay.getOutputStream().write(COMMAND);
+        Assert.assertEquals(RESPONSE.length, replay.getInputStream().available());
+        Assert.assertArrayEquals(RESPONSE, readAll(replay.getInputStream()));
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadTimesOutWithoutCommand() throws Exception {
+        TraceReplay replay = new TraceReplay(new ByteArrayInputStream(recordSession(0)),
+                TraceReplay.AS_FAST_AS_POSSIBLE, 50);
+        replay.getInputStream().read();
+    }
+
+    @Test(expected = IOException.class)
+    public void testInvalidTrace() throws Exception {
+        new TraceReplay(new ByteArrayInputStream("garbage".getBytes()), TraceReplay.REAL_TIME);
+    }
+}
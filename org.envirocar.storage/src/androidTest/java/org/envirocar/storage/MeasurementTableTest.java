@@ -18,14 +18,13 @@
  */
 package org.envirocar.storage;
 
-import android.content.ContentValues;
 import android.test.InstrumentationTestCase;
 
 import org.envirocar.core.entity.Measurement;
 import org.envirocar.core.entity.MeasurementImpl;
+import org.envirocar.core.entity.MeasurementTable;
 import org.envirocar.core.entity.Track;
 import org.hamcrest.CoreMatchers;
-import org.json.JSONObject;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -42,16 +41,34 @@ public class MeasurementTableTest extends InstrumentationTestCase {
         m.setProperty(Measurement.PropertyKey.CO2, Double.POSITIVE_INFINITY);
         m.setProperty(Measurement.PropertyKey.SPEED, Double.MAX_VALUE);
         m.setProperty(Measurement.PropertyKey.CONSUMPTION, 1.1);
-        ContentValues vals = MeasurementTable.toContentValues(m);
+        MeasurementTable table = MeasurementTable.measurementToMeasurementTable(m);
 
-        Object props = vals.get(MeasurementTable.KEY_PROPERTIES);
+        Measurement decoded = new MeasurementImpl();
+        MeasurementTable.decodeProperties(table.getKeyProperties(), decoded);
 
-        JSONObject obj = new JSONObject(props.toString());
+        Assert.assertThat(decoded.getProperty(Measurement.PropertyKey.CONSUMPTION), CoreMatchers.is(1.1));
+        Assert.assertThat(decoded.getProperty(Measurement.PropertyKey.SPEED), CoreMatchers.is(Double.MAX_VALUE));
+        Assert.assertThat(decoded.hasProperty(Measurement.PropertyKey.CALCULATED_MAF), CoreMatchers.is(false));
+        Assert.assertThat(decoded.hasProperty(Measurement.PropertyKey.CO2), CoreMatchers.is(false));
+    }
+
+    @Test
+    public void testPropertyRoundTrip() throws Exception {
+        MeasurementImpl m = new MeasurementImpl(51.96, 7.62);
+        m.setTrackId(new Track.TrackId(1));
+        m.setTime(1600000000000L);
+        for (Measurement.PropertyKey key : Measurement.PropertyKey.values()) {
+            m.setProperty(key, (double) key.ordinal() + 0.5);
+        }
+        MeasurementTable table = MeasurementTable.measurementToMeasurementTable(m);
+
+        Assert.assertThat(table.getKeyProperties().length, CoreMatchers.is(9 * Measurement.PropertyKey.values().length));
 
-        Assert.assertThat(obj.get(Measurement.PropertyKey.CONSUMPTION.name()), CoreMatchers.is(1.1));
-        Assert.assertThat(obj.get(Measurement.PropertyKey.SPEED.name()), CoreMatchers.is(Double.MAX_VALUE));
-        Assert.assertThat(obj.has(Measurement.PropertyKey.CALCULATED_MAF.name()), CoreMatchers.is(false));
-        Assert.assertThat(obj.has(Measurement.PropertyKey.CO2.name()), CoreMatchers.is(false));
+        Measurement decoded = MeasurementTable.MAPPER.apply(table);
+        Assert.assertThat(decoded.getLatitude(), CoreMatchers.is(51.96));
+        Assert.assertThat(decoded.getLongitude(), CoreMatchers.is(7.62));
+        Assert.assertThat(decoded.getTime(), CoreMatchers.is(1600000000000L));
+        Assert.assertThat(decoded.getAllProperties(), CoreMatchers.is(m.getAllProperties()));
     }
 
 }
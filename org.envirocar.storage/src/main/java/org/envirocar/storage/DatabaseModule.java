@@ -61,7 +61,7 @@ public final class DatabaseModule {
     // configs
     private static final String DATABASE_NAME = "envirocar";
     private static final String VECHILE_DATABASE_NAME = "envirocarvehicle";
-    private static final int DATABASE_VERSION = 11;
+    private static final int DATABASE_VERSION = 15;
     EnviroCarVehicleDB enviroCarVehicleDB;
 
     @Provides
@@ -74,6 +74,8 @@ public final class DatabaseModule {
     @Singleton
     TrackRoomDatabase provideRoomTrackDatabase(@InjectApplicationScope Context context) {
         return Room.databaseBuilder(context, TrackRoomDatabase.class, DATABASE_NAME)
+                .addMigrations(TrackRoomDatabase.MIGRATION_11_12, TrackRoomDatabase.MIGRATION_12_13,
+                        TrackRoomDatabase.MIGRATION_13_14, TrackRoomDatabase.MIGRATION_14_15)
                 .allowMainThreadQueries()
                 .build();
     }
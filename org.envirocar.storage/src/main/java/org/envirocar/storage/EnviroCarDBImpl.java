@@ -18,26 +18,32 @@
  */
 package org.envirocar.storage;
 
-import android.annotation.SuppressLint;
-import android.database.Cursor;
 import org.envirocar.core.EnviroCarDB;
+import org.envirocar.core.entity.Car;
 import org.envirocar.core.entity.Measurement;
 import org.envirocar.core.entity.MeasurementTable;
 import org.envirocar.core.entity.Track;
 import org.envirocar.core.entity.TrackTable;
+import org.envirocar.core.entity.TrackTableWithMeasurementInfo;
 import org.envirocar.core.exception.MeasurementSerializationException;
 import org.envirocar.core.exception.TrackSerializationException;
 import org.envirocar.core.logging.Logger;
+import org.envirocar.core.trackprocessing.statistics.TrackStatistics;
+import org.envirocar.core.trackprocessing.statistics.TrackStatisticsProcessor;
+import org.envirocar.core.trackprocessing.statistics.TrackSummaryAccumulator;
 import org.envirocar.core.util.TrackMetadata;
+import org.envirocar.storage.dao.LocalTrackDAONew;
 import org.json.JSONException;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+import io.reactivex.Flowable;
 import io.reactivex.Observable;
 import io.reactivex.ObservableTransformer;
 import io.reactivex.functions.Function;
@@ -47,6 +53,11 @@ import io.reactivex.functions.Function;
 public class EnviroCarDBImpl implements EnviroCarDB {
     private static final Logger LOG = Logger.getLogger(EnviroCarDBImpl.class);
 
+    /**
+     * Number of measurements that {@link #getMeasurementsFlowable(Track.TrackId)} reads at once.
+     */
+    public static final int MEASUREMENT_PAGE_SIZE = 500;
+
     protected TrackRoomDatabase trackRoomDatabase;
 
     /**
@@ -118,19 +129,26 @@ public class EnviroCarDBImpl implements EnviroCarDB {
     public void insertTrack(final Track track) throws TrackSerializationException {
         LOG.info("insertTrack(): trying to insert a new track");
         try {
-            long result = trackRoomDatabase.getTrackDAONew().insertTrack(TrackTable.trackToTrackTable(track));
-            Track.TrackId trackId = new Track.TrackId(result);
-            track.setTrackID(trackId);
-            LOG.info(String.format("insertTrack(): " +
-                    "track has been successfully inserted ->[id = %s]", "" + result));
+            if (!track.getMeasurements().isEmpty() && !hasCurrentStatistics(track)) {
+                track.setStatistics(TrackStatisticsProcessor.computeStatistics(track));
+            }
+
+            trackRoomDatabase.runInTransaction(() -> {
+                long result = trackRoomDatabase.getTrackDAONew().insertTrack(TrackTable.trackToTrackTable(track));
+                Track.TrackId trackId = new Track.TrackId(result);
+                track.setTrackID(trackId);
 
-            if (track.getMeasurements().size() > 0) {
-                for (Measurement measurement : track.getMeasurements()) {
-                    measurement.setTrackId(trackId);
-                    trackRoomDatabase.getTrackDAONew().insertMeasurement(MeasurementTable.measurementToMeasurementTable(measurement));
-                    insertMeasurement(measurement);
+                if (track.getMeasurements().size() > 0) {
+                    for (Measurement measurement : track.getMeasurements()) {
+                        measurement.setTrackId(trackId);
+                    }
+                    trackRoomDatabase.getTrackDAONew().insertMeasurements(
+                            MeasurementTable.fromMeasurementListToMeasurementTable(track.getMeasurements()));
                 }
-            }
+            });
+            LOG.info(String.format("insertTrack(): " +
+                    "track has been successfully inserted ->[id = %s, measurements = %s]",
+                    track.getTrackID(), track.getMeasurements().size()));
         } catch (Exception e) {
             LOG.info(String.format("insertTrack(): " +
                     "insertion fail ->[id = %s]", "" + e.fillInStackTrace()));
@@ -169,6 +187,25 @@ public class EnviroCarDBImpl implements EnviroCarDB {
                 });
     }
 
+    @Override
+    public void updateTrackStatistics(Track track) {
+        TrackSummaryAccumulator summary = track.getSummary();
+        Car.FuelType fuelType = track.getCar() != null ? track.getCar().getFuelType() : null;
+        if (summary != null && summary.getMeasurementCount() == track.getMeasurementCount()
+                && summary.getFuelType() == fuelType) {
+            // the summary covers all measurements, no need to read them again.
+            storeTrackStatistics(track,
+                    TrackStatisticsProcessor.computeStatistics(summary, track.getCar()));
+            return;
+        }
+
+        // summarize the stored measurements page by page instead of loading all of them.
+        TrackSummaryAccumulator streamedSummary = new TrackSummaryAccumulator(fuelType);
+        getMeasurementsFlowable(track.getTrackID()).blockingForEach(streamedSummary::add);
+        storeTrackStatistics(track,
+                TrackStatisticsProcessor.computeStatistics(streamedSummary, track.getCar()));
+    }
+
     @Override
     public boolean updateCarIdOfTracks(String currentId, String newId) {
         trackRoomDatabase.getTrackDAONew().updateCarId(newId, currentId);
@@ -215,6 +252,24 @@ public class EnviroCarDBImpl implements EnviroCarDB {
         trackRoomDatabase.getTrackDAONew().insertMeasurement(MeasurementTable.measurementToMeasurementTable(measurement));
     }
 
+    @Override
+    public void insertMeasurements(final List<Measurement> measurements) throws
+            MeasurementSerializationException {
+        LOG.info(String.format("inserting %s measurements", measurements.size()));
+        trackRoomDatabase.getTrackDAONew().insertMeasurements(
+                MeasurementTable.fromMeasurementListToMeasurementTable(measurements));
+    }
+
+    @Override
+    public void insertMeasurementsAndUpdateTrack(final Track track, final List<Measurement> measurements)
+            throws MeasurementSerializationException {
+        LOG.info(String.format("inserting %s measurements into track %s",
+                measurements.size(), track.getTrackID()));
+        trackRoomDatabase.getTrackDAONew().insertMeasurementsAndUpdateTrack(
+                MeasurementTable.fromMeasurementListToMeasurementTable(measurements),
+                TrackTable.trackToTrackTable(track));
+    }
+
     @Override
     public Observable<Void> insertMeasurementObservable(final Measurement measurement) {
         return Observable.create(emitter -> {
@@ -269,6 +324,20 @@ public class EnviroCarDBImpl implements EnviroCarDB {
         });
     }
 
+    @Override
+    public Flowable<Measurement> getMeasurementsFlowable(Track.TrackId trackId) {
+        return Flowable.generate(
+                () -> new MeasurementPager(trackRoomDatabase.getTrackDAONew(), trackId.getId()),
+                (pager, emitter) -> {
+                    Measurement measurement = pager.next();
+                    if (measurement != null) {
+                        emitter.onNext(measurement);
+                    } else {
+                        emitter.onComplete();
+                    }
+                });
+    }
+
     @Override
     public Observable<Track> fetchTracks(
             Observable<List<Track>> tracks, final boolean lazy) {
@@ -296,7 +365,7 @@ public class EnviroCarDBImpl implements EnviroCarDB {
     @Override
     public void automaticDeleteMeasurements(long time, Track.TrackId trackId) {
         try {
-            trackRoomDatabase.getTrackDAONew().automaticDeleteMeasurement(String.valueOf(time), Long.parseLong(trackId.toString()));
+            trackRoomDatabase.getTrackDAONew().automaticDeleteMeasurement(time, Long.parseLong(trackId.toString()));
 
         } catch (Exception e) {
         }
@@ -308,6 +377,8 @@ public class EnviroCarDBImpl implements EnviroCarDB {
                 .map(measurements -> {
                     track.setMeasurements(measurements);
                     track.setLazyMeasurements(false);
+                    // build the frame here, off the main thread, once for all its consumers
+                    track.getTrackFrame();
                     return track;
                 });
     }
@@ -348,6 +419,11 @@ public class EnviroCarDBImpl implements EnviroCarDB {
     }
 
     private Observable<List<Track>> fetchTracksObservable(boolean lazy) {
+        if (lazy) {
+            return fetchLazyTracksObservable(() -> trackRoomDatabase.getTrackDAONew()
+                    .getAllTracksWithMeasurementInfo());
+        }
+
         Observable<List<Track>> listObservable = Observable.create(emitter -> {
             List<TrackTable> trackTableList = trackRoomDatabase
                     .getTrackDAONew().getAllTracks();
@@ -364,6 +440,11 @@ public class EnviroCarDBImpl implements EnviroCarDB {
     }
 
     private Observable<List<Track>> fetchTracksCarObservable(String carId, boolean lazy) {
+        if (lazy) {
+            return fetchLazyTracksObservable(() -> trackRoomDatabase.getTrackDAONew()
+                    .getAllTracksByCarWithMeasurementInfo(carId));
+        }
+
         Observable<List<Track>> listObservable = Observable.create(emitter -> {
             List<TrackTable> trackTableList = trackRoomDatabase
                     .getTrackDAONew().getAllTracksByCar(carId);
@@ -380,6 +461,11 @@ public class EnviroCarDBImpl implements EnviroCarDB {
     }
 
     private Observable<List<Track>> fetchTracksLocalObservable(boolean lazy) {
+        if (lazy) {
+            return fetchLazyTracksObservable(() -> trackRoomDatabase.getTrackDAONew()
+                    .getAllLocalTracksWithMeasurementInfo());
+        }
+
         Observable<List<Track>> listObservable = Observable.create(emitter -> {
             List<org.envirocar.core.entity.TrackTable> trackTableList = trackRoomDatabase
                     .getTrackDAONew().getAllLocalTracks();
@@ -396,6 +482,11 @@ public class EnviroCarDBImpl implements EnviroCarDB {
     }
 
     private Observable<List<Track>> fetchTracksRemoteObservable(boolean lazy) {
+        if (lazy) {
+            return fetchLazyTracksObservable(() -> trackRoomDatabase.getTrackDAONew()
+                    .getAllRemoteTracksWithMeasurementInfo());
+        }
+
         Observable<List<Track>> listObservable = Observable.create(emitter -> {
             List<org.envirocar.core.entity.TrackTable> trackTableList = trackRoomDatabase
                     .getTrackDAONew().getAllRemoteTracks();
@@ -411,6 +502,16 @@ public class EnviroCarDBImpl implements EnviroCarDB {
         return listObservable.compose(fetchTracks(lazy));
     }
 
+    /**
+     * Fetches lazy tracks together with their start/end time and number of measurements by a
+     * single grouped query.
+     */
+    private Observable<List<Track>> fetchLazyTracksObservable(
+            Callable<List<TrackTableWithMeasurementInfo>> query) {
+        return Observable.fromCallable(query)
+                .map(TrackTableWithMeasurementInfo::toLazyTracks);
+    }
+
     private ObservableTransformer<List<Track>, List<Track>> fetchTracks(boolean lazy) {
         return trackObservable -> trackObservable.map(tracks -> {
             for (Track track : tracks) {
@@ -429,28 +530,85 @@ public class EnviroCarDBImpl implements EnviroCarDB {
                 trackRoomDatabase.getTrackDAONew().fetchMeasurementSilent(Long.parseLong(track.getTrackID().toString()))
         ));
         track.setLazyMeasurements(false);
+        // build the frame here, off the main thread, once for all its consumers
+        track.getTrackFrame();
+
+        // (re)compute the statistics of finished tracks while the measurements are at hand.
+        if (track.isFinished() && !track.getMeasurements().isEmpty() && !hasCurrentStatistics(track)) {
+            updateTrackStatisticsSilent(track);
+        }
         return track;
     }
 
-    @SuppressLint("Range")
+    private static boolean hasCurrentStatistics(Track track) {
+        return track.getStatistics() != null && track.getStatistics().isUpToDate();
+    }
+
+    private void updateTrackStatisticsSilent(Track track) {
+        storeTrackStatistics(track, TrackStatisticsProcessor.computeStatistics(track));
+    }
+
+    private void storeTrackStatistics(Track track, TrackStatistics statistics) {
+        LOG.info(String.format("Storing statistics of track %s: %s", track.getTrackID(), statistics));
+        trackRoomDatabase.getTrackDAONew().updateTrackStatistics(track.getTrackID().getId(),
+                statistics.getVersion(), statistics.getDistance(), statistics.getConsumptionPerHour(),
+                statistics.getCO2Average(), statistics.getLiterPerHundredKm(),
+                statistics.getGramsPerKm(), statistics.getPropertyMask());
+        track.setStatistics(statistics);
+    }
+
     private Track fetchStartEndTimeSilent(final Track track) {
-        Cursor startTime = trackRoomDatabase.getTrackDAONew().fetchStartTimeSilent(Long.parseLong(track.getTrackID().toString()));
+        Long trackId = track.getTrackID().getId();
 
-        if (startTime.moveToFirst()) {
-            track.setStartTime(
-                    startTime.getLong(
-                            startTime.getColumnIndex(MeasurementTable.KEY_TIME)));
+        Long startTime = trackRoomDatabase.getTrackDAONew().fetchStartTimeSilent(trackId);
+        if (startTime != null) {
+            track.setStartTime(startTime);
         }
 
-        Cursor endTime = trackRoomDatabase.getTrackDAONew().fetchEndTimeSilent(Long.parseLong(track.getTrackID().toString()));
-
-        if (endTime.moveToFirst()) {
-            track.setEndTime(
-                    endTime.getLong(
-                            startTime.getColumnIndex(MeasurementTable.KEY_TIME)));
+        Long endTime = trackRoomDatabase.getTrackDAONew().fetchEndTimeSilent(trackId);
+        if (endTime != null) {
+            track.setEndTime(endTime);
         }
 
         return track;
     }
 
+    /**
+     * Iterates over the measurements of a track by reading keyset-paginated pages ordered by
+     * (time, rowId) from the database. Each page seeks into the (track, time) index. Measurements
+     * without a time are not returned; they cannot be mapped to a {@link Measurement} anyway and
+     * are never written by the recording.
+     */
+    private static final class MeasurementPager {
+        private final LocalTrackDAONew dao;
+        private final long trackId;
+        private List<MeasurementTable> page = new ArrayList<>();
+        private int index = 0;
+        private long lastTime = Long.MIN_VALUE;
+        private long lastRowId = Long.MIN_VALUE;
+        private boolean exhausted = false;
+
+        MeasurementPager(LocalTrackDAONew dao, long trackId) {
+            this.dao = dao;
+            this.trackId = trackId;
+        }
+
+        Measurement next() throws Exception {
+            if (index >= page.size()) {
+                if (exhausted)
+                    return null;
+
+                page = dao.fetchMeasurementPageSilent(trackId, lastTime, lastRowId, MEASUREMENT_PAGE_SIZE);
+                index = 0;
+                exhausted = page.size() < MEASUREMENT_PAGE_SIZE;
+                if (page.isEmpty())
+                    return null;
+            }
+
+            MeasurementTable measurementTable = page.get(index++);
+            lastTime = measurementTable.getKeyTime();
+            lastRowId = measurementTable.getRowId();
+            return MeasurementTable.MAPPER.apply(measurementTable);
+        }
+    }
 }
@@ -18,15 +18,135 @@
  */
 package org.envirocar.storage;
 
+import android.database.Cursor;
+
 import androidx.room.Database;
 import androidx.room.RoomDatabase;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
 
+import org.envirocar.core.entity.Measurement;
 import org.envirocar.core.entity.MeasurementTable;
 import org.envirocar.core.entity.TrackTable;
+import org.envirocar.core.logging.Logger;
 import org.envirocar.storage.dao.LocalTrackDAONew;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.EnumMap;
+import java.util.Map;
 
-@Database(entities = {TrackTable.class, MeasurementTable.class}, version = 11)
+@Database(entities = {TrackTable.class, MeasurementTable.class}, version = 15)
 public abstract class TrackRoomDatabase extends RoomDatabase {
+    private static final Logger LOG = Logger.getLogger(TrackRoomDatabase.class);
 
     public abstract LocalTrackDAONew getTrackDAONew();
+
+    /**
+     * Migrates the measurements from textual coordinates, time and JSON properties to typed
+     * columns and binary encoded properties.
+     */
+    public static final Migration MIGRATION_11_12 = new Migration(11, 12) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `measurements_new` ("
+                    + "`_id` INTEGER NOT NULL, `latitude` REAL, `longitude` REAL, "
+                    + "`properties` BLOB, `time` INTEGER, `track` INTEGER, PRIMARY KEY(`_id`))");
+
+            SupportSQLiteStatement insert = database.compileStatement(
+                    "INSERT INTO `measurements_new` "
+                            + "(`_id`, `latitude`, `longitude`, `properties`, `time`, `track`) "
+                            + "VALUES (?, ?, ?, ?, ?, ?)");
+            try (Cursor cursor = database.query(
+                    "SELECT `_id`, `latitude`, `longitude`, `properties`, `time`, `track` FROM `measurements`")) {
+                while (cursor.moveToNext()) {
+                    insert.clearBindings();
+                    insert.bindLong(1, cursor.getLong(0));
+                    if (!cursor.isNull(1))
+                        insert.bindDouble(2, Double.parseDouble(cursor.getString(1)));
+                    if (!cursor.isNull(2))
+                        insert.bindDouble(3, Double.parseDouble(cursor.getString(2)));
+                    if (!cursor.isNull(3))
+                        insert.bindBlob(4, MeasurementTable.encodeProperties(parseJsonProperties(cursor.getString(3))));
+                    if (!cursor.isNull(4))
+                        insert.bindLong(5, Long.parseLong(cursor.getString(4)));
+                    if (!cursor.isNull(5))
+                        insert.bindLong(6, cursor.getLong(5));
+                    insert.executeInsert();
+                }
+            }
+
+            database.execSQL("DROP TABLE `measurements`");
+            database.execSQL("ALTER TABLE `measurements_new` RENAME TO `measurements`");
+        }
+    };
+
+    /**
+     * Adds the indices on the measurements (track, time) and on the filter columns of the tracks.
+     */
+    public static final Migration MIGRATION_12_13 = new Migration(12, 13) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_measurements_track_time` "
+                    + "ON `measurements` (`track`, `time`)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_tracks_remoteId` ON `tracks` (`remoteId`)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_tracks_state` ON `tracks` (`state`)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_tracks_carId` ON `tracks` (`carId`)");
+        }
+    };
+
+    /**
+     * Adds the column holding the incrementally computed summary of a track.
+     */
+    public static final Migration MIGRATION_13_14 = new Migration(13, 14) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE `tracks` ADD COLUMN `summary` BLOB");
+        }
+    };
+
+    /**
+     * Adds the columns of the precomputed track statistics. They are computed the next time the
+     * measurements of a track are loaded.
+     */
+    public static final Migration MIGRATION_14_15 = new Migration(14, 15) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE `tracks` ADD COLUMN `stats_version` INTEGER");
+            database.execSQL("ALTER TABLE `tracks` ADD COLUMN `stats_distance` REAL");
+            database.execSQL("ALTER TABLE `tracks` ADD COLUMN `stats_consumption` REAL");
+            database.execSQL("ALTER TABLE `tracks` ADD COLUMN `stats_co2` REAL");
+            database.execSQL("ALTER TABLE `tracks` ADD COLUMN `stats_liter_per_100km` REAL");
+            database.execSQL("ALTER TABLE `tracks` ADD COLUMN `stats_grams_per_km` REAL");
+            database.execSQL("ALTER TABLE `tracks` ADD COLUMN `stats_properties` INTEGER");
+        }
+    };
+
+    private static Map<Measurement.PropertyKey, Double> parseJsonProperties(String rawData) {
+        Map<Measurement.PropertyKey, Double> properties = new EnumMap<>(Measurement.PropertyKey.class);
+        JSONObject json;
+        JSONArray names;
+        try {
+            json = new JSONObject(rawData);
+            names = json.names();
+        } catch (JSONException e) {
+            LOG.severe("could not migrate properties", e);
+            return properties;
+        }
+
+        if (names != null) {
+            // an unknown key or a malformed value only drops that property
+            for (int j = 0; j < names.length(); j++) {
+                String key = names.optString(j);
+                try {
+                    properties.put(Measurement.PropertyKey.valueOf(key), json.getDouble(key));
+                } catch (JSONException | IllegalArgumentException e) {
+                    LOG.warn(String.format("could not migrate property %s", key), e);
+                }
+            }
+        }
+        return properties;
+    }
 }
@@ -18,16 +18,16 @@
  */
 package org.envirocar.storage.dao;
 
-import android.database.Cursor;
-
 import androidx.room.Dao;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.Transaction;
 import androidx.room.Update;
 
 import org.envirocar.core.entity.MeasurementTable;
 import org.envirocar.core.entity.TrackTable;
+import org.envirocar.core.entity.TrackTableWithMeasurementInfo;
 
 import java.util.List;
 
@@ -37,6 +37,12 @@ import io.reactivex.Observable;
 @Dao
 public interface LocalTrackDAONew {
 
+    String SELECT_TRACKS_WITH_MEASUREMENT_INFO = "SELECT tracks.*," +
+            " MIN(measurements.time) AS " + TrackTableWithMeasurementInfo.KEY_MEASUREMENT_START_TIME + "," +
+            " MAX(measurements.time) AS " + TrackTableWithMeasurementInfo.KEY_MEASUREMENT_END_TIME + "," +
+            " COUNT(measurements._id) AS " + TrackTableWithMeasurementInfo.KEY_MEASUREMENT_COUNT +
+            " FROM tracks LEFT JOIN measurements ON measurements.track = tracks._id";
+
     @Query("SELECT * FROM TRACKS WHERE _id = :trackId")
     Observable<TrackTable> getTrack(Long trackId);
 
@@ -58,15 +64,40 @@ public interface LocalTrackDAONew {
     @Query("SELECT _id FROM tracks WHERE remoteId IS NOT NULL")
     Observable<List<Long>> getAllRemoteTracksId();
 
+    @Query(SELECT_TRACKS_WITH_MEASUREMENT_INFO +
+            " GROUP BY tracks._id")
+    List<TrackTableWithMeasurementInfo> getAllTracksWithMeasurementInfo();
+
+    @Query(SELECT_TRACKS_WITH_MEASUREMENT_INFO +
+            " WHERE tracks.carId = :carId GROUP BY tracks._id")
+    List<TrackTableWithMeasurementInfo> getAllTracksByCarWithMeasurementInfo(String carId);
+
+    @Query(SELECT_TRACKS_WITH_MEASUREMENT_INFO +
+            " WHERE tracks.remoteId IS NULL GROUP BY tracks._id")
+    List<TrackTableWithMeasurementInfo> getAllLocalTracksWithMeasurementInfo();
+
+    @Query(SELECT_TRACKS_WITH_MEASUREMENT_INFO +
+            " WHERE tracks.remoteId IS NOT NULL GROUP BY tracks._id")
+    List<TrackTableWithMeasurementInfo> getAllRemoteTracksWithMeasurementInfo();
+
     @Insert(onConflict = OnConflictStrategy.FAIL)
     long insertTrack(TrackTable trackTable);
 
     @Insert(onConflict = OnConflictStrategy.FAIL)
     void insertMeasurement(MeasurementTable measurementTable);
 
+    @Insert(onConflict = OnConflictStrategy.FAIL)
+    void insertMeasurements(List<MeasurementTable> measurementTables);
+
     @Update(onConflict = OnConflictStrategy.FAIL)
     int updateTrack(TrackTable trackTable);
 
+    @Transaction
+    default void insertMeasurementsAndUpdateTrack(List<MeasurementTable> measurementTables, TrackTable trackTable) {
+        insertMeasurements(measurementTables);
+        updateTrack(trackTable);
+    }
+
     @Query("UPDATE TRACKS SET carId = :newCarId WHERE carId  = :currentId")
     void updateCarId(String newCarId, String currentId);
 
@@ -85,7 +116,7 @@ public interface LocalTrackDAONew {
     Observable<TrackTable> getActiveTrack();
 
     @Query("DELETE FROM MEASUREMENTS WHERE track=:trackId AND time>=:time")
-    void automaticDeleteMeasurement(String time, Long trackId);
+    void automaticDeleteMeasurement(long time, Long trackId);
 
     @Query("SELECT * FROM measurements" +
             " WHERE track = :trackId " +
@@ -97,18 +128,31 @@ public interface LocalTrackDAONew {
             " ORDER BY time ASC")
     List<MeasurementTable> fetchMeasurementSilent(Long trackId);
 
+    @Query("SELECT * FROM measurements" +
+            " WHERE track = :trackId" +
+            " AND time >= :time AND (time > :time OR _id > :rowId)" +
+            " ORDER BY time ASC, _id ASC LIMIT :limit")
+    List<MeasurementTable> fetchMeasurementPageSilent(Long trackId, long time, long rowId, int limit);
+
     @Query("SELECT * FROM measurements WHERE track=:trackId ORDER BY time ASC LIMIT 1")
     Observable<MeasurementTable> fetchStartTime(Long trackId);
 
     @Query("SELECT time FROM MEASUREMENTS" +
             " WHERE track = :trackId " +
             " ORDER BY time ASC LIMIT 1")
-    Cursor fetchStartTimeSilent(Long trackId);
+    Long fetchStartTimeSilent(Long trackId);
 
     @Query("SELECT time FROM MEASUREMENTS" +
             " WHERE track = :trackId " +
             " ORDER BY time DESC LIMIT 1")
-    Cursor fetchEndTimeSilent(Long trackId);
+    Long fetchEndTimeSilent(Long trackId);
+
+    @Query("UPDATE TRACKS SET stats_version = :version, stats_distance = :distance," +
+            " stats_consumption = :consumption, stats_co2 = :co2," +
+            " stats_liter_per_100km = :literPerHundredKm, stats_grams_per_km = :gramsPerKm," +
+            " stats_properties = :properties WHERE _id = :trackId")
+    void updateTrackStatistics(Long trackId, Integer version, Double distance, Double consumption,
+                               Double co2, Double literPerHundredKm, Double gramsPerKm, Long properties);
 
     @Query("UPDATE TRACKS SET trackMetadata = :metaData WHERE _id = :trackId")
     void updateTrackMetadata(String metaData, Long trackId);